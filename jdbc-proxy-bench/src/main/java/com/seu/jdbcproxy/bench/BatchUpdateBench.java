@@ -0,0 +1,90 @@
+package com.seu.jdbcproxy.bench;
+
+import com.seu.jdbcproxy.server.ProxyServer;
+import com.seu.jdbcproxy.tester.ProxyDriver;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.*;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 经 ProxyServer 写入 H2 的行吞吐（rows/s）：逐行 EXEC_UPDATE 与 addBatch / executeBatch（EXEC_BATCH）对比，
+ * 两者都对每行参数做同样的加密
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchUpdateBench {
+    /** 每次调用写入的行数 */
+    static final int ROWS = 1000;
+
+    @Param({ProxyServer.MODE_BLOCKING, ProxyServer.MODE_NIO})
+    public String mode;
+
+    private String realUrl;
+    private ProxyServer server;
+    private Connection connection;
+    private PreparedStatement insert;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        // fat jar 中 META-INF/services/java.sql.Driver 会被其它驱动覆盖，显式加载 H2
+        Class.forName("org.h2.Driver");
+        realUrl = "jdbc:h2:mem:batch_" + mode + ";DB_CLOSE_DELAY=-1";
+        try (Connection direct = DriverManager.getConnection(realUrl, "sa", "");
+             Statement st = direct.createStatement()) {
+            st.execute("create table if not exists bench_batch(id int auto_increment primary key, "
+                    + "name varchar(200), email varchar(200))");
+        }
+        server = new ProxyServer(0, mode);
+        server.start();
+        DriverManager.registerDriver(new ProxyDriver());
+        Properties info = new Properties();
+        info.setProperty("user", "sa");
+        info.setProperty("password", "");
+        connection = DriverManager.getConnection(
+                "jdbc:proxy://127.0.0.1:" + server.getLocalPort() + "?realUrl=" + realUrl, info);
+        insert = connection.prepareStatement("insert into bench_batch (name, email) values (?, ?)");
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Connection direct = DriverManager.getConnection(realUrl, "sa", "");
+             Statement st = direct.createStatement()) {
+            st.execute("truncate table bench_batch");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        server.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int singleRowUpdates() throws SQLException {
+        int affected = 0;
+        for (int i = 0; i < ROWS; i++) {
+            insert.setString(1, "name-" + i);
+            insert.setString(2, "user" + i + "@example.com");
+            affected += insert.executeUpdate();
+        }
+        return affected;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int[] executeBatch() throws SQLException {
+        for (int i = 0; i < ROWS; i++) {
+            insert.setString(1, "name-" + i);
+            insert.setString(2, "user" + i + "@example.com");
+            insert.addBatch();
+        }
+        return insert.executeBatch();
+    }
+}
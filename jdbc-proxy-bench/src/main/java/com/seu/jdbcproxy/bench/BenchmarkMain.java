@@ -0,0 +1,39 @@
+package com.seu.jdbcproxy.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准入口：参数与 JMH 命令行完全一致，未指定 -rf / -rff 时默认把结果以 JSON 写入 jmh-result.json，
+ * 便于在各版本之间对比回归。
+ * <pre>
+ * java -jar jdbc-proxy-bench-0.2.0-SNAPSHOT-jar-with-dependencies.jar                 全部基准
+ * java -jar jdbc-proxy-bench-0.2.0-SNAPSHOT-jar-with-dependencies.jar EncryptionBench -f 1 -wi 3 -i 5
+ * </pre>
+ */
+public class BenchmarkMain {
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp()) {
+            cmd.showHelp();
+            return;
+        }
+        if (cmd.shouldList()) {
+            new Runner(cmd).list();
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if (!cmd.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmd.getResult().hasValue()) {
+            options.result(DEFAULT_RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,90 @@
+package com.seu.jdbcproxy.bench;
+
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EncryptionHelper 单值加解密与密文识别，以及「整列解密」的吞吐；legacy* 为旧实现的对照组。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncryptionBench {
+    /** 模拟一次大结果集解密的列长度 */
+    static final int COLUMN_ROWS = 1_000_000;
+
+    @Param({"16", "128"})
+    public int plainLength;
+
+    private EncryptionHelper helper;
+    private LegacyEncryptionHelper legacy;
+    private String plain;
+    private String cipher;
+    private String[] column;
+
+    @Setup
+    public void setup() throws Exception {
+        helper = new EncryptionHelper();
+        legacy = new LegacyEncryptionHelper();
+        StringBuilder sb = new StringBuilder(plainLength);
+        for (int i = 0; i < plainLength; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        plain = sb.toString();
+        cipher = helper.encrypt(plain);
+        column = new String[COLUMN_ROWS];
+        for (int i = 0; i < COLUMN_ROWS; i++) {
+            // 混入约 1/4 的明文，接近真实表中加密列与普通列混读的情况
+            column[i] = (i & 3) == 0 ? "row-" + i : helper.encrypt("value-" + i);
+        }
+    }
+
+    @Benchmark
+    public String encrypt() throws Exception {
+        return helper.encrypt(plain);
+    }
+
+    @Benchmark
+    public String decrypt() throws Exception {
+        return helper.decrypt(cipher);
+    }
+
+    @Benchmark
+    public boolean isCipherTextOnPlain() {
+        return helper.isCipherText(plain);
+    }
+
+    @Benchmark
+    public boolean isCipherTextOnCipher() {
+        return helper.isCipherText(cipher);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLUMN_ROWS)
+    public void decryptColumn(Blackhole bh) throws Exception {
+        for (String value : column) {
+            bh.consume(helper.decrypt(value));
+        }
+    }
+
+    @Benchmark
+    public String legacyEncrypt() throws Exception {
+        return legacy.encrypt(plain);
+    }
+
+    @Benchmark
+    public String legacyDecrypt() throws Exception {
+        return legacy.decrypt(cipher);
+    }
+
+    @Benchmark
+    public boolean legacyIsCipherTextOnPlain() {
+        return legacy.isCipherText(plain);
+    }
+}
@@ -0,0 +1,115 @@
+package com.seu.jdbcproxy.bench;
+
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import com.seu.jdbcproxy.server.ProxyServer;
+import com.seu.jdbcproxy.tester.ProxyDriver;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.*;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端：进程内启动 ProxyServer（随机端口），通过 tester 的 ProxyDriver 经 localhost 执行查询，
+ * 覆盖 OPEN_CONN 之后的 EXEC_QUERY / FETCH_ROWS、编解码、改写与解密整条链路。
+ * <ul>
+ *     <li>pointQuery：按主键查一行，衡量单次往返延迟</li>
+ *     <li>scan：读取 rows 行（按默认 fetchSize 分多次 FETCH_ROWS），衡量结果集传输吞吐</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EndToEndBench {
+
+    @Param({ProxyServer.MODE_BLOCKING, ProxyServer.MODE_NIO})
+    public String mode;
+
+    @Param({"binary", "java"})
+    public String codec;
+
+    @Param({"true", "false"})
+    public boolean columnar;
+
+    @Param({"0", "4"})
+    public int prefetch;
+
+    @Param({"1000"})
+    public int rows;
+
+    private ProxyServer server;
+    private Connection connection;
+    private PreparedStatement point;
+    private PreparedStatement scan;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        String realUrl = "jdbc:h2:mem:e2e_" + mode + "_" + codec + "_" + columnar + "_" + prefetch + ";DB_CLOSE_DELAY=-1";
+        // fat jar 中 META-INF/services/java.sql.Driver 会被其它驱动覆盖，显式加载 H2
+        Class.forName("org.h2.Driver");
+        EncryptionHelper helper = new EncryptionHelper();
+        try (Connection direct = DriverManager.getConnection(realUrl, "sa", "");
+             Statement st = direct.createStatement()) {
+            st.execute("drop table if exists bench_e2e");
+            st.execute("create table bench_e2e(id int primary key, test varchar(200), n bigint, d double)");
+            try (PreparedStatement ins = direct.prepareStatement("insert into bench_e2e values (?, ?, ?, ?)")) {
+                for (int i = 0; i < rows; i++) {
+                    ins.setInt(1, i);
+                    ins.setString(2, helper.encrypt("value-" + i));
+                    ins.setLong(3, i * 1_000_000_007L);
+                    ins.setDouble(4, i / 4.0);
+                    ins.addBatch();
+                }
+                ins.executeBatch();
+            }
+        }
+
+        server = new ProxyServer(0, mode);
+        server.start();
+        DriverManager.registerDriver(new ProxyDriver());
+        Properties info = new Properties();
+        info.setProperty("user", "sa");
+        info.setProperty("password", "");
+        info.setProperty("codecs", codec);
+        info.setProperty("columnar", String.valueOf(columnar));
+        info.setProperty("prefetch", String.valueOf(prefetch));
+        connection = DriverManager.getConnection(
+                "jdbc:proxy://127.0.0.1:" + server.getLocalPort() + "?realUrl=" + realUrl, info);
+        point = connection.prepareStatement("select id, test, n, d from bench_e2e where id = ?");
+        scan = connection.prepareStatement("select id, test, n, d from bench_e2e");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        server.shutdown();
+    }
+
+    @Benchmark
+    public void pointQuery(Blackhole bh) throws SQLException {
+        point.setInt(1, next++ % rows);
+        try (ResultSet rs = point.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(rs.getString(2));
+                bh.consume(rs.getLong(3));
+            }
+        }
+    }
+
+    @Benchmark
+    public void scan(Blackhole bh) throws SQLException {
+        try (ResultSet rs = scan.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(rs.getInt(1));
+                bh.consume(rs.getString(2));
+                bh.consume(rs.getLong(3));
+                bh.consume(rs.getDouble(4));
+            }
+        }
+    }
+}
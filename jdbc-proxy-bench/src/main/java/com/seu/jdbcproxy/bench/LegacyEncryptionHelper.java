@@ -0,0 +1,42 @@
+package com.seu.jdbcproxy.bench;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 旧版 EncryptionHelper 的原样拷贝（每次调用 Cipher.getInstance + init，isCipherText 解码再编码比对），
+ * 只作为 {@link EncryptionBench} 的对照基线，不要在业务代码中使用。
+ */
+public class LegacyEncryptionHelper {
+    private final SecretKeySpec secretKey =
+            new SecretKeySpec("this is password".getBytes(StandardCharsets.UTF_8), "AES");
+
+    public String encrypt(String plainText) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, secretKey);
+        byte[] encryptedBytes = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(encryptedBytes);
+    }
+
+    public String decrypt(String encryptedText) throws Exception {
+        if (!isCipherText(encryptedText)) {
+            return encryptedText;
+        }
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.DECRYPT_MODE, secretKey);
+        byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedText));
+        return new String(decryptedBytes, StandardCharsets.UTF_8);
+    }
+
+    public boolean isCipherText(String text) {
+        try {
+            byte[] decoded = Base64.getDecoder().decode(text);
+            String reencoded = Base64.getEncoder().encodeToString(decoded);
+            return text.equals(reencoded);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.seu.jdbcproxy.bench;
+
+import com.seu.jdbcproxy.core.ProxyResultSet;
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务端 ProxyResultSet.getString 逐行读取 H2 内存表（一列密文、一列明文）的开销，
+ * direct 为直接读取底层 ResultSet 的对照组
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultSetBench {
+
+    @Param({"10000"})
+    public int rows;
+
+    private Connection connection;
+    private PreparedStatement select;
+    private EncryptionHelper helper;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        // fat jar 中 META-INF/services/java.sql.Driver 会被其它驱动覆盖，显式加载 H2
+        Class.forName("org.h2.Driver");
+        helper = new EncryptionHelper();
+        connection = DriverManager.getConnection("jdbc:h2:mem:rsbench;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement st = connection.createStatement()) {
+            st.execute("drop table if exists bench_rs");
+            st.execute("create table bench_rs(id int primary key, secret varchar(200), plain varchar(200))");
+        }
+        try (PreparedStatement ins = connection.prepareStatement("insert into bench_rs values (?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                ins.setInt(1, i);
+                ins.setString(2, helper.encrypt("secret-" + i));
+                ins.setString(3, "plain-" + i);
+                ins.addBatch();
+            }
+            ins.executeBatch();
+        }
+        select = connection.prepareStatement("select id, secret, plain from bench_rs order by id");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        select.close();
+        try (Statement st = connection.createStatement()) {
+            st.execute("drop table bench_rs");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public void proxyGetString(Blackhole bh) throws SQLException {
+        try (ResultSet rs = new ProxyResultSet(select.executeQuery(), helper)) {
+            while (rs.next()) {
+                bh.consume(rs.getString(2));
+                bh.consume(rs.getString(3));
+            }
+        }
+    }
+
+    @Benchmark
+    public void directGetString(Blackhole bh) throws SQLException {
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(rs.getString(2));
+                bh.consume(rs.getString(3));
+            }
+        }
+    }
+}
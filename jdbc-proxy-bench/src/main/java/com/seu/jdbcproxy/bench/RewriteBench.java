@@ -0,0 +1,51 @@
+package com.seu.jdbcproxy.bench;
+
+import com.seu.jdbcproxy.rewrite.RewriteHelper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RewriteHelper 对客户端常见 SQL 的改写耗时；语句取自 RewriteHelperTests 与 DataGrip / DBeaver 的元数据查询
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RewriteBench {
+
+    @Param({"Snowflake", "PostgreSQL"})
+    public String product;
+
+    @Param({"select", "metadata", "show", "insert"})
+    public String kind;
+
+    private RewriteHelper helper;
+    private String sql;
+
+    @Setup
+    public void setup() {
+        helper = new RewriteHelper();
+        sql = switch (kind) {
+            case "select" -> "select `id`, `name`, `email` from `my_table` where `id` = ? and `status` in (1, 2, 3) order by `id` limit 100";
+            case "metadata" -> "select TABLE_NAME from information_schema.Tables where cast(TABLE_SCHEMA as binary) = ?  \n"
+                    + "\t\t\t\t\t\t\t\tand (TABLE_TYPE = 'BASE TABLE' OR table_schema='information_schema')\n"
+                    + "                        ";
+            case "show" -> "show databases";
+            case "insert" -> "insert into `my_table` (`test`, `name`, `email`) values (?, ?, ?)";
+            default -> throw new IllegalArgumentException("Unknown kind: " + kind);
+        };
+    }
+
+    @Benchmark
+    public String rewrite() {
+        return helper.rewrite(sql, product);
+    }
+
+    @Benchmark
+    public String rewriteCall() {
+        return helper.rewriteCall(" begin  p(  to_number  (  ?  )  )  ;  end ; ");
+    }
+}
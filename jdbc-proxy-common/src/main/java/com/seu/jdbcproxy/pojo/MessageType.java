@@ -2,5 +2,11 @@ package com.seu.jdbcproxy.pojo;
 
 public enum MessageType {
     OPEN_CONN, EXEC_QUERY, EXEC_UPDATE, FETCH_ROWS, CLOSE_CONN,
-    CLOSE_STATEMENT, CLOSE_RESULT_SET, EXCEPTION, PING
+    CLOSE_STATEMENT, CLOSE_RESULT_SET, EXCEPTION, PING,
+    // 二进制编码按序号传输类型，新类型只能追加在末尾
+    EXEC_BATCH,
+    // 事务控制：SET_AUTOCOMMIT 的目标值放在 extra 的 autoCommit 键中
+    SET_AUTOCOMMIT, COMMIT, ROLLBACK,
+    // 读取服务端指标：extra 的 format=prometheus 时返回 Prometheus 文本，否则返回表格
+    STATS
 }
@@ -6,6 +6,15 @@ import java.util.List;
 import java.util.Map;
 
 public class Request implements Serializable {
+    /** SET_AUTOCOMMIT 请求 extra 中目标 autoCommit 的键，值为 Boolean */
+    public static final String AUTO_COMMIT_KEY = "autoCommit";
+    /** EXEC_QUERY 请求 extra 中客户端要求的结果集类型与并发模式（Integer，ResultSet.TYPE_* / CONCUR_*），缺省为只进只读 */
+    public static final String RESULT_SET_TYPE_KEY = "resultSetType";
+    public static final String RESULT_SET_CONCURRENCY_KEY = "resultSetConcurrency";
+    /** STATS 请求 extra 中的输出格式，值为 {@link #STATS_FORMAT_PROMETHEUS} 时返回 Prometheus 文本，缺省返回表格 */
+    public static final String STATS_FORMAT_KEY = "format";
+    public static final String STATS_FORMAT_PROMETHEUS = "prometheus";
+
     private MessageType type;
     private String connId;
     private String statementId;  // 新增：Statement ID
@@ -15,6 +24,26 @@ public class Request implements Serializable {
     private int fetchSize = 0;
     /** 其它键值对（OPEN_CONN 传真实 URL / 用户名 / 密码等） */
     private Map<String, Object> extra = new HashMap<>();
+    /** 客户端分配的请求号，服务端原样带回响应，用于在同一 socket 上流水线发送多个请求；0 表示未分配 */
+    private long requestId;
+    /** EXEC_BATCH 的多组预编译参数，每组对应一次 addBatch */
+    private List<Map<Integer, Object>> batchParams;
+
+    public List<Map<Integer, Object>> getBatchParams() {
+        return batchParams;
+    }
+
+    public void setBatchParams(List<Map<Integer, Object>> batchParams) {
+        this.batchParams = batchParams;
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
 
     public Map<String, Object> getExtra() {
         return extra;
@@ -9,6 +9,7 @@ public class Response implements Serializable {
     private static final long serialVersionUID = 1L;
     private MessageType type;
     private List<List<Object>> rows = Collections.emptyList();
+    private RowBatch batch;          // 列式批次，客户端声明支持时替代 rows
     private int updateCount = 0;
     private boolean hasMoreRows = false;
     private SQLExceptionWrapper sqlException;  // 使用包装器替代原始异常
@@ -19,6 +20,25 @@ public class Response implements Serializable {
     private String resultSetId;      // ResultSet ID
     private long timestamp;          // 时间戳（用于心跳）
     private String errorMessage;     // 错误消息（兼容性保留）
+    private String codec;            // OPEN_CONN 协商出的编码名称
+    private long requestId;          // 对应请求的 requestId
+    private int[] updateCounts;      // EXEC_BATCH 每组参数的更新行数
+
+    public int[] getUpdateCounts() {
+        return updateCounts;
+    }
+
+    public void setUpdateCounts(int[] updateCounts) {
+        this.updateCounts = updateCounts;
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
 
     public List<String> getColumnNames() {
         return columnNames;
@@ -61,6 +81,14 @@ public class Response implements Serializable {
         this.rows = rows;
     }
 
+    public RowBatch getBatch() {
+        return batch;
+    }
+
+    public void setBatch(RowBatch batch) {
+        this.batch = batch;
+    }
+
     public int getUpdateCount() {
         return updateCount;
     }
@@ -108,4 +136,12 @@ public class Response implements Serializable {
     public void setErrorMessage(String errorMessage) {
         this.errorMessage = errorMessage;
     }
+
+    public String getCodec() {
+        return codec;
+    }
+
+    public void setCodec(String codec) {
+        this.codec = codec;
+    }
 }
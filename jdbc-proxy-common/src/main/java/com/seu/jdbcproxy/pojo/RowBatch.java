@@ -0,0 +1,472 @@
+package com.seu.jdbcproxy.pojo;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 列式行批次：EXEC_QUERY / FETCH_ROWS 返回的一批行按列存放。
+ * <ul>
+ *     <li>整数 / 布尔列存为 long[]，浮点列存为 double[]，取值不装箱；</li>
+ *     <li>字符串列存为「UTF-8 字节缓冲 + 偏移数组」，偏移数组长度为行数 + 1；</li>
+ *     <li>其余类型（BigDecimal、日期等）退回 Object[]；</li>
+ *     <li>每列一个 null 位图，整列无 null 时为 null。</li>
+ * </ul>
+ * 列类型取自 ResultSetMetaData.getColumnClassName，getObject 返回的包装类型与原 ResultSet 一致。
+ */
+public class RowBatch implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** OPEN_CONN 请求 extra 中声明客户端能读取列式批次的键，值为 Boolean.TRUE */
+    public static final String EXTRA_KEY = "columnar";
+
+    /* 列的 Java 类型 */
+    public static final byte TYPE_OBJECT = 0;
+    public static final byte TYPE_STRING = 1;
+    public static final byte TYPE_BOOLEAN = 2;
+    public static final byte TYPE_BYTE = 3;
+    public static final byte TYPE_SHORT = 4;
+    public static final byte TYPE_INT = 5;
+    public static final byte TYPE_LONG = 6;
+    public static final byte TYPE_FLOAT = 7;
+    public static final byte TYPE_DOUBLE = 8;
+
+    private final byte[] types;
+    private final int rowCount;
+
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final int[][] offsets;
+    private final byte[][] chars;
+    private final Object[][] objects;
+    private final long[][] nulls;
+
+    /**
+     * 按给定列类型与行数分配列存储，供编解码器直接填充
+     */
+    public RowBatch(byte[] types, int rowCount) {
+        this.types = types;
+        this.rowCount = rowCount;
+        int cols = types.length;
+        this.longs = new long[cols][];
+        this.doubles = new double[cols][];
+        this.offsets = new int[cols][];
+        this.chars = new byte[cols][];
+        this.objects = new Object[cols][];
+        this.nulls = new long[cols][];
+        for (int c = 0; c < cols; c++) {
+            allocate(c, rowCount);
+        }
+    }
+
+    private void allocate(int c, int capacity) {
+        if (isLongType(types[c])) {
+            longs[c] = new long[capacity];
+        } else if (isDoubleType(types[c])) {
+            doubles[c] = new double[capacity];
+        } else if (types[c] == TYPE_STRING) {
+            offsets[c] = new int[capacity + 1];
+            chars[c] = new byte[0];
+        } else {
+            objects[c] = new Object[capacity];
+        }
+    }
+
+    public static boolean isLongType(byte type) {
+        return type >= TYPE_BOOLEAN && type <= TYPE_LONG;
+    }
+
+    public static boolean isDoubleType(byte type) {
+        return type == TYPE_FLOAT || type == TYPE_DOUBLE;
+    }
+
+    /**
+     * 由 ResultSetMetaData.getColumnClassName 推断列类型
+     */
+    public static byte typeOfClassName(String className) {
+        if (className == null) {
+            return TYPE_OBJECT;
+        }
+        return switch (className) {
+            case "java.lang.String" -> TYPE_STRING;
+            case "java.lang.Boolean" -> TYPE_BOOLEAN;
+            case "java.lang.Byte" -> TYPE_BYTE;
+            case "java.lang.Short" -> TYPE_SHORT;
+            case "java.lang.Integer" -> TYPE_INT;
+            case "java.lang.Long" -> TYPE_LONG;
+            case "java.lang.Float" -> TYPE_FLOAT;
+            case "java.lang.Double" -> TYPE_DOUBLE;
+            default -> TYPE_OBJECT;
+        };
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return types.length;
+    }
+
+    public byte getType(int col) {
+        return types[col];
+    }
+
+    /* ---------- 读取（行、列均从 0 开始） ---------- */
+
+    public boolean isNull(int row, int col) {
+        long[] bits = nulls[col];
+        return bits != null && (bits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public long getLong(int row, int col) {
+        byte t = types[col];
+        if (isLongType(t)) {
+            return longs[col][row];
+        }
+        if (isDoubleType(t)) {
+            return (long) doubles[col][row];
+        }
+        Object v = getObject(row, col);
+        if (v == null) {
+            return 0L;
+        }
+        return v instanceof Number ? ((Number) v).longValue() : Long.parseLong(v.toString().trim());
+    }
+
+    public double getDouble(int row, int col) {
+        byte t = types[col];
+        if (isDoubleType(t)) {
+            return doubles[col][row];
+        }
+        if (isLongType(t)) {
+            return longs[col][row];
+        }
+        Object v = getObject(row, col);
+        if (v == null) {
+            return 0d;
+        }
+        return v instanceof Number ? ((Number) v).doubleValue() : Double.parseDouble(v.toString().trim());
+    }
+
+    public boolean getBoolean(int row, int col) {
+        byte t = types[col];
+        if (isLongType(t)) {
+            return longs[col][row] != 0;
+        }
+        Object v = getObject(row, col);
+        if (v == null) {
+            return false;
+        }
+        if (v instanceof Boolean) {
+            return (Boolean) v;
+        }
+        if (v instanceof Number) {
+            return ((Number) v).doubleValue() != 0;
+        }
+        String s = v.toString().trim();
+        return "1".equals(s) || Boolean.parseBoolean(s);
+    }
+
+    public String getString(int row, int col) {
+        if (isNull(row, col)) {
+            return null;
+        }
+        byte t = types[col];
+        if (t == TYPE_STRING) {
+            int start = offsets[col][row];
+            return new String(chars[col], start, offsets[col][row + 1] - start, StandardCharsets.UTF_8);
+        }
+        if (t == TYPE_BOOLEAN) {
+            return String.valueOf(longs[col][row] != 0);
+        }
+        if (isLongType(t)) {
+            return String.valueOf(longs[col][row]);
+        }
+        if (t == TYPE_FLOAT) {
+            return String.valueOf((float) doubles[col][row]);
+        }
+        if (t == TYPE_DOUBLE) {
+            return String.valueOf(doubles[col][row]);
+        }
+        Object v = objects[col][row];
+        return v == null ? null : v.toString();
+    }
+
+    /**
+     * 装箱取值，返回类型与源 ResultSet.getObject 一致
+     */
+    public Object getObject(int row, int col) {
+        if (isNull(row, col)) {
+            return null;
+        }
+        return switch (types[col]) {
+            case TYPE_STRING -> getString(row, col);
+            case TYPE_BOOLEAN -> longs[col][row] != 0;
+            case TYPE_BYTE -> (byte) longs[col][row];
+            case TYPE_SHORT -> (short) longs[col][row];
+            case TYPE_INT -> (int) longs[col][row];
+            case TYPE_LONG -> longs[col][row];
+            case TYPE_FLOAT -> (float) doubles[col][row];
+            case TYPE_DOUBLE -> doubles[col][row];
+            default -> objects[col][row];
+        };
+    }
+
+    /**
+     * 转成旧的行式表示（兼容未启用列式批次的调用方）
+     */
+    public List<List<Object>> toRows() {
+        List<List<Object>> rows = new ArrayList<>(rowCount);
+        for (int r = 0; r < rowCount; r++) {
+            List<Object> row = new ArrayList<>(types.length);
+            for (int c = 0; c < types.length; c++) {
+                row.add(getObject(r, c));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /* ---------- 编解码器使用的原始列访问 ---------- */
+
+    public long[] longColumn(int col) {
+        return longs[col];
+    }
+
+    public double[] doubleColumn(int col) {
+        return doubles[col];
+    }
+
+    public int[] stringOffsets(int col) {
+        return offsets[col];
+    }
+
+    public byte[] stringBytes(int col) {
+        return chars[col];
+    }
+
+    public void setStringBytes(int col, byte[] bytes) {
+        chars[col] = bytes;
+    }
+
+    /**
+     * 整列替换字符串列的值（values 中 null 表示 SQL NULL，至少包含 rowCount 个元素），
+     * 用于先整批收集、处理（如解密）后再写入的列
+     */
+    public void setStringColumn(int col, String[] values) {
+        if (types[col] != TYPE_STRING) {
+            throw new IllegalArgumentException("Column " + col + " is not a string column");
+        }
+        int[] off = offsets[col];
+        byte[] buf = new byte[Math.max(16, rowCount * 16)];
+        long[] bits = null;
+        int pos = 0;
+        for (int r = 0; r < rowCount; r++) {
+            String v = values[r];
+            if (v == null) {
+                if (bits == null) {
+                    bits = new long[(rowCount + 63) >>> 6];
+                }
+                bits[r >>> 6] |= 1L << r;
+            } else {
+                byte[] utf8 = v.getBytes(StandardCharsets.UTF_8);
+                if (buf.length - pos < utf8.length) {
+                    buf = Arrays.copyOf(buf, Math.max(pos + utf8.length, buf.length << 1));
+                }
+                System.arraycopy(utf8, 0, buf, pos, utf8.length);
+                pos += utf8.length;
+            }
+            off[r + 1] = pos;
+        }
+        chars[col] = Arrays.copyOf(buf, pos);
+        nulls[col] = bits;
+    }
+
+    public Object[] objectColumn(int col) {
+        return objects[col];
+    }
+
+    public long[] nullBits(int col) {
+        return nulls[col];
+    }
+
+    public void setNullBits(int col, long[] bits) {
+        nulls[col] = bits;
+    }
+
+    /* ---------- 构建 ---------- */
+
+    private RowBatch(byte[] types, int rowCount, long[][] longs, double[][] doubles, int[][] offsets,
+                     byte[][] chars, Object[][] objects, long[][] nulls) {
+        this.types = types;
+        this.rowCount = rowCount;
+        this.longs = longs;
+        this.doubles = doubles;
+        this.offsets = offsets;
+        this.chars = chars;
+        this.objects = objects;
+        this.nulls = nulls;
+    }
+
+    /**
+     * 逐行追加：对当前行的每一列调用 setXxx / setNull（未设置的字符串列视为空串），再调用 endRow
+     */
+    public static final class Builder {
+        private final byte[] types;
+        private int capacity;
+        private int row;
+
+        private final long[][] longs;
+        private final double[][] doubles;
+        private final int[][] offsets;
+        private final byte[][] chars;
+        private final Object[][] objects;
+        private final long[][] nulls;
+
+        public Builder(byte[] types, int expectedRows) {
+            this.types = types;
+            this.capacity = Math.max(16, expectedRows);
+            int cols = types.length;
+            longs = new long[cols][];
+            doubles = new double[cols][];
+            offsets = new int[cols][];
+            chars = new byte[cols][];
+            objects = new Object[cols][];
+            nulls = new long[cols][];
+            for (int c = 0; c < cols; c++) {
+                if (isLongType(types[c])) {
+                    longs[c] = new long[capacity];
+                } else if (isDoubleType(types[c])) {
+                    doubles[c] = new double[capacity];
+                } else if (types[c] == TYPE_STRING) {
+                    offsets[c] = new int[capacity + 1];
+                    chars[c] = new byte[capacity * 16];
+                } else {
+                    objects[c] = new Object[capacity];
+                }
+            }
+        }
+
+        public int getRowCount() {
+            return row;
+        }
+
+        public Builder setLong(int col, long v) {
+            longs[col][row] = v;
+            return this;
+        }
+
+        public Builder setDouble(int col, double v) {
+            doubles[col][row] = v;
+            return this;
+        }
+
+        public Builder setString(int col, String v) {
+            if (v == null) {
+                return setNull(col);
+            }
+            int start = offsets[col][row];
+            int len = v.length();
+            byte[] buf = chars[col];
+            if (buf.length - start < len) {
+                buf = chars[col] = Arrays.copyOf(buf, Math.max(start + len, buf.length << 1));
+            }
+            int i = 0;
+            while (i < len) {
+                char ch = v.charAt(i);
+                if (ch >= 0x80) {
+                    break;
+                }
+                buf[start + i] = (byte) ch;
+                i++;
+            }
+            if (i < len) {
+                // 非 ASCII：整串重新按 UTF-8 编码
+                byte[] utf8 = v.getBytes(StandardCharsets.UTF_8);
+                if (buf.length - start < utf8.length) {
+                    buf = chars[col] = Arrays.copyOf(buf, Math.max(start + utf8.length, buf.length << 1));
+                }
+                System.arraycopy(utf8, 0, buf, start, utf8.length);
+                len = utf8.length;
+            }
+            offsets[col][row + 1] = start + len;
+            return this;
+        }
+
+        public Builder setObject(int col, Object v) {
+            if (v == null) {
+                return setNull(col);
+            }
+            objects[col][row] = v;
+            return this;
+        }
+
+        public Builder setNull(int col) {
+            long[] bits = nulls[col];
+            if (bits == null) {
+                bits = nulls[col] = new long[(capacity + 63) >>> 6];
+            }
+            bits[row >>> 6] |= 1L << row;
+            return this;
+        }
+
+        public void endRow() {
+            for (int c = 0; c < types.length; c++) {
+                int[] off = offsets[c];
+                if (off != null && off[row + 1] < off[row]) {
+                    // 本行未写入（null）：结束偏移等于起始偏移
+                    off[row + 1] = off[row];
+                }
+            }
+            row++;
+            if (row == capacity) {
+                grow(capacity << 1);
+            }
+        }
+
+        private void grow(int newCapacity) {
+            for (int c = 0; c < types.length; c++) {
+                if (longs[c] != null) {
+                    longs[c] = Arrays.copyOf(longs[c], newCapacity);
+                }
+                if (doubles[c] != null) {
+                    doubles[c] = Arrays.copyOf(doubles[c], newCapacity);
+                }
+                if (offsets[c] != null) {
+                    offsets[c] = Arrays.copyOf(offsets[c], newCapacity + 1);
+                }
+                if (objects[c] != null) {
+                    objects[c] = Arrays.copyOf(objects[c], newCapacity);
+                }
+                if (nulls[c] != null) {
+                    nulls[c] = Arrays.copyOf(nulls[c], (newCapacity + 63) >>> 6);
+                }
+            }
+            capacity = newCapacity;
+        }
+
+        public RowBatch build() {
+            int cols = types.length;
+            long[][] l = new long[cols][];
+            double[][] d = new double[cols][];
+            int[][] o = new int[cols][];
+            byte[][] ch = new byte[cols][];
+            Object[][] ob = new Object[cols][];
+            long[][] n = new long[cols][];
+            for (int c = 0; c < cols; c++) {
+                l[c] = longs[c] == null ? null : Arrays.copyOf(longs[c], row);
+                d[c] = doubles[c] == null ? null : Arrays.copyOf(doubles[c], row);
+                ob[c] = objects[c] == null ? null : Arrays.copyOf(objects[c], row);
+                if (offsets[c] != null) {
+                    o[c] = Arrays.copyOf(offsets[c], row + 1);
+                    ch[c] = Arrays.copyOf(chars[c], offsets[c][row]);
+                }
+                n[c] = nulls[c] == null ? null : Arrays.copyOf(nulls[c], (row + 63) >>> 6);
+            }
+            return new RowBatch(types.clone(), row, l, d, o, ch, ob, n);
+        }
+    }
+}
@@ -0,0 +1,609 @@
+package com.seu.jdbcproxy.protocol;
+
+import com.seu.jdbcproxy.pojo.MessageType;
+import com.seu.jdbcproxy.pojo.Request;
+import com.seu.jdbcproxy.pojo.Response;
+import com.seu.jdbcproxy.pojo.RowBatch;
+import com.seu.jdbcproxy.pojo.SQLExceptionWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑二进制编码：
+ * <ul>
+ *     <li>长度、计数使用 LEB128 变长整数，有符号整数先做 zigzag；</li>
+ *     <li>字符串为 UTF-8 字节，可空字段用「长度 + 1」表示，0 代表 null；</li>
+ *     <li>行数据中的每个值带一个类型标签，数值以原始二进制写出，不再装箱序列化；</li>
+ *     <li>无法识别的值类型退回 Java 序列化（TAG_SERIALIZED），保证与旧协议等价；</li>
+ *     <li>列式批次按列连续写出：整数列为 zigzag 变长整数，浮点列为原始 IEEE 位，字符串列为长度序列 + 字节块。</li>
+ * </ul>
+ * 字段顺序与 Request / Response 的字段一一对应，新增字段只能追加在末尾。
+ */
+public final class BinaryCodec implements MessageCodec {
+    public static final byte ID = 1;
+    public static final String NAME = "binary";
+
+    static final BinaryCodec INSTANCE = new BinaryCodec();
+
+    private static final int KIND_REQUEST = 1;
+    private static final int KIND_RESPONSE = 2;
+
+    private static final MessageType[] TYPES = MessageType.values();
+
+    // 值类型标签
+    private static final int TAG_NULL = 0;
+    private static final int TAG_FALSE = 1;
+    private static final int TAG_TRUE = 2;
+    private static final int TAG_BYTE = 3;
+    private static final int TAG_SHORT = 4;
+    private static final int TAG_INT = 5;
+    private static final int TAG_LONG = 6;
+    private static final int TAG_FLOAT = 7;
+    private static final int TAG_DOUBLE = 8;
+    private static final int TAG_STRING = 9;
+    private static final int TAG_BYTES = 10;
+    private static final int TAG_BIG_DECIMAL = 11;
+    private static final int TAG_BIG_INTEGER = 12;
+    private static final int TAG_SQL_DATE = 13;
+    private static final int TAG_SQL_TIME = 14;
+    private static final int TAG_SQL_TIMESTAMP = 15;
+    private static final int TAG_LOCAL_DATE = 16;
+    private static final int TAG_LOCAL_TIME = 17;
+    private static final int TAG_LOCAL_DATE_TIME = 18;
+    private static final int TAG_SERIALIZED = 127;
+
+    private BinaryCodec() {
+    }
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void encode(Object message, FrameBuffer out) throws IOException {
+        if (message instanceof Request) {
+            out.write(KIND_REQUEST);
+            writeRequest((Request) message, out);
+        } else if (message instanceof Response) {
+            out.write(KIND_RESPONSE);
+            writeResponse((Response) message, out);
+        } else {
+            throw new IOException("Unsupported message class: " + message.getClass().getName());
+        }
+    }
+
+    @Override
+    public Object decode(byte[] buf, int offset, int length) throws IOException {
+        BinaryReader in = new BinaryReader(buf, offset, length);
+        int kind = in.readByte();
+        return switch (kind) {
+            case KIND_REQUEST -> readRequest(in);
+            case KIND_RESPONSE -> readResponse(in);
+            default -> throw new IOException("Unknown message kind: " + kind);
+        };
+    }
+
+    /* ---------- Request ---------- */
+
+    private void writeRequest(Request q, FrameBuffer out) throws IOException {
+        writeType(q.getType(), out);
+        writeNullableString(q.getConnId(), out);
+        writeNullableString(q.getStatementId(), out);
+        writeNullableString(q.getResultSetId(), out);
+        writeNullableString(q.getSql(), out);
+        writeParams(q.getParams(), out);
+        out.writeSignedVarInt(q.getFetchSize());
+        writeStringMap(q.getExtra(), out);
+        out.writeVarLong(q.getRequestId());
+        List<Map<Integer, Object>> batchParams = q.getBatchParams();
+        if (batchParams == null) {
+            out.writeVarInt(0);
+        } else {
+            out.writeVarInt(batchParams.size() + 1);
+            for (Map<Integer, Object> params : batchParams) {
+                writeParams(params, out);
+            }
+        }
+    }
+
+    private Request readRequest(BinaryReader in) throws IOException {
+        Request q = new Request();
+        q.setType(readType(in));
+        q.setConnId(readNullableString(in));
+        q.setStatementId(readNullableString(in));
+        q.setResultSetId(readNullableString(in));
+        q.setSql(readNullableString(in));
+        q.setParams(readParams(in));
+        q.setFetchSize(in.readSignedVarInt());
+        q.setExtra(readStringMap(in));
+        q.setRequestId(in.readVarLong());
+        int batchCount = in.readVarInt() - 1;
+        if (batchCount >= 0) {
+            List<Map<Integer, Object>> batchParams = new ArrayList<>(in.capacityHint(batchCount));
+            for (int i = 0; i < batchCount; i++) {
+                batchParams.add(readParams(in));
+            }
+            q.setBatchParams(batchParams);
+        }
+        return q;
+    }
+
+    private void writeParams(Map<Integer, Object> params, FrameBuffer out) throws IOException {
+        if (params == null) {
+            out.writeVarInt(0);
+        } else {
+            out.writeVarInt(params.size() + 1);
+            for (Map.Entry<Integer, Object> e : params.entrySet()) {
+                out.writeSignedVarInt(e.getKey());
+                writeValue(e.getValue(), out);
+            }
+        }
+    }
+
+    private Map<Integer, Object> readParams(BinaryReader in) throws IOException {
+        int n = in.readVarInt() - 1;
+        if (n < 0) {
+            return null;
+        }
+        Map<Integer, Object> params = new HashMap<>(Math.max(4, in.capacityHint(n) * 2));
+        for (int i = 0; i < n; i++) {
+            int key = in.readSignedVarInt();
+            params.put(key, readValue(in));
+        }
+        return params;
+    }
+
+    /* ---------- Response ---------- */
+
+    private void writeResponse(Response r, FrameBuffer out) throws IOException {
+        writeType(r.getType(), out);
+        List<List<Object>> rows = r.getRows();
+        if (rows == null) {
+            out.writeVarInt(0);
+        } else {
+            out.writeVarInt(rows.size() + 1);
+            for (List<Object> row : rows) {
+                writeValueList(row, out);
+            }
+        }
+        out.writeSignedVarInt(r.getUpdateCount());
+        out.write(r.isHasMoreRows() ? 1 : 0);
+        SQLExceptionWrapper ex = r.getSqlException();
+        if (ex == null) {
+            out.write(0);
+        } else {
+            out.write(1);
+            writeNullableString(ex.getMessage(), out);
+            writeNullableString(ex.getSqlState(), out);
+            out.writeSignedVarInt(ex.getErrorCode());
+            writeNullableString(ex.getStackTrace(), out);
+            writeNullableString(ex.getCauseMessage(), out);
+        }
+        List<String> columnNames = r.getColumnNames();
+        if (columnNames == null) {
+            out.writeVarInt(0);
+        } else {
+            out.writeVarInt(columnNames.size() + 1);
+            for (String name : columnNames) {
+                writeNullableString(name, out);
+            }
+        }
+        writeNullableString(r.getStatementId(), out);
+        writeNullableString(r.getResultSetId(), out);
+        out.writeSignedVarLong(r.getTimestamp());
+        writeNullableString(r.getErrorMessage(), out);
+        writeNullableString(r.getCodec(), out);
+        writeBatch(r.getBatch(), out);
+        out.writeVarLong(r.getRequestId());
+        int[] updateCounts = r.getUpdateCounts();
+        if (updateCounts == null) {
+            out.writeVarInt(0);
+        } else {
+            out.writeVarInt(updateCounts.length + 1);
+            for (int count : updateCounts) {
+                out.writeSignedVarInt(count);
+            }
+        }
+    }
+
+    private Response readResponse(BinaryReader in) throws IOException {
+        Response r = new Response();
+        r.setType(readType(in));
+        int rowCount = in.readVarInt() - 1;
+        if (rowCount < 0) {
+            r.setRows(null);
+        } else {
+            List<List<Object>> rows = new ArrayList<>(in.capacityHint(rowCount));
+            for (int i = 0; i < rowCount; i++) {
+                rows.add(readValueList(in));
+            }
+            r.setRows(rows);
+        }
+        r.setUpdateCount(in.readSignedVarInt());
+        r.setHasMoreRows(in.readBoolean());
+        if (in.readBoolean()) {
+            SQLExceptionWrapper ex = new SQLExceptionWrapper();
+            ex.setMessage(readNullableString(in));
+            ex.setSqlState(readNullableString(in));
+            ex.setErrorCode(in.readSignedVarInt());
+            ex.setStackTrace(readNullableString(in));
+            ex.setCauseMessage(readNullableString(in));
+            r.setSqlException(ex);
+        }
+        int nameCount = in.readVarInt() - 1;
+        if (nameCount >= 0) {
+            List<String> names = new ArrayList<>(in.capacityHint(nameCount));
+            for (int i = 0; i < nameCount; i++) {
+                names.add(readNullableString(in));
+            }
+            r.setColumnNames(names);
+        }
+        r.setStatementId(readNullableString(in));
+        r.setResultSetId(readNullableString(in));
+        r.setTimestamp(in.readSignedVarLong());
+        r.setErrorMessage(readNullableString(in));
+        r.setCodec(readNullableString(in));
+        r.setBatch(readBatch(in));
+        r.setRequestId(in.readVarLong());
+        int countLength = in.readVarInt() - 1;
+        if (countLength >= 0) {
+            if (countLength > in.remaining()) {
+                throw new IOException("Invalid update count length: " + countLength);
+            }
+            int[] updateCounts = new int[countLength];
+            for (int i = 0; i < countLength; i++) {
+                updateCounts[i] = in.readSignedVarInt();
+            }
+            r.setUpdateCounts(updateCounts);
+        }
+        return r;
+    }
+
+    /* ---------- RowBatch ---------- */
+
+    private void writeBatch(RowBatch batch, FrameBuffer out) throws IOException {
+        if (batch == null) {
+            out.write(0);
+            return;
+        }
+        out.write(1);
+        int cols = batch.getColumnCount();
+        int rows = batch.getRowCount();
+        out.writeVarInt(cols);
+        out.writeVarInt(rows);
+        for (int c = 0; c < cols; c++) {
+            out.write(batch.getType(c));
+        }
+        for (int c = 0; c < cols; c++) {
+            byte type = batch.getType(c);
+            long[] bits = batch.nullBits(c);
+            if (bits == null) {
+                out.write(0);
+            } else {
+                out.write(1);
+                for (long word : bits) {
+                    out.writeLong(word);
+                }
+            }
+            if (RowBatch.isLongType(type)) {
+                long[] values = batch.longColumn(c);
+                for (int r = 0; r < rows; r++) {
+                    out.writeSignedVarLong(values[r]);
+                }
+            } else if (type == RowBatch.TYPE_FLOAT) {
+                double[] values = batch.doubleColumn(c);
+                out.ensureCapacity(rows * 4);
+                for (int r = 0; r < rows; r++) {
+                    out.writeInt(Float.floatToRawIntBits((float) values[r]));
+                }
+            } else if (type == RowBatch.TYPE_DOUBLE) {
+                double[] values = batch.doubleColumn(c);
+                out.ensureCapacity(rows * 8);
+                for (int r = 0; r < rows; r++) {
+                    out.writeLong(Double.doubleToRawLongBits(values[r]));
+                }
+            } else if (type == RowBatch.TYPE_STRING) {
+                int[] offsets = batch.stringOffsets(c);
+                for (int r = 0; r < rows; r++) {
+                    out.writeVarInt(offsets[r + 1] - offsets[r]);
+                }
+                out.write(batch.stringBytes(c), offsets[0], offsets[rows] - offsets[0]);
+            } else {
+                Object[] values = batch.objectColumn(c);
+                for (int r = 0; r < rows; r++) {
+                    writeValue(values[r], out);
+                }
+            }
+        }
+    }
+
+    private RowBatch readBatch(BinaryReader in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int cols = in.readLength();
+        int rows = in.readVarInt();
+        // 每列每行至少占 1 字节，行数不可能超过剩余字节数
+        if (rows < 0 || (cols > 0 && rows > in.remaining())) {
+            throw new IOException("Invalid row count in batch: " + rows);
+        }
+        byte[] types = new byte[cols];
+        for (int c = 0; c < cols; c++) {
+            types[c] = (byte) in.readByte();
+        }
+        RowBatch batch = new RowBatch(types, rows);
+        for (int c = 0; c < cols; c++) {
+            byte type = types[c];
+            if (in.readBoolean()) {
+                long[] bits = new long[(rows + 63) >>> 6];
+                for (int i = 0; i < bits.length; i++) {
+                    bits[i] = in.readLong();
+                }
+                batch.setNullBits(c, bits);
+            }
+            if (RowBatch.isLongType(type)) {
+                long[] values = batch.longColumn(c);
+                for (int r = 0; r < rows; r++) {
+                    values[r] = in.readSignedVarLong();
+                }
+            } else if (type == RowBatch.TYPE_FLOAT) {
+                double[] values = batch.doubleColumn(c);
+                for (int r = 0; r < rows; r++) {
+                    values[r] = Float.intBitsToFloat(in.readInt());
+                }
+            } else if (type == RowBatch.TYPE_DOUBLE) {
+                double[] values = batch.doubleColumn(c);
+                for (int r = 0; r < rows; r++) {
+                    values[r] = Double.longBitsToDouble(in.readLong());
+                }
+            } else if (type == RowBatch.TYPE_STRING) {
+                int[] offsets = batch.stringOffsets(c);
+                for (int r = 0; r < rows; r++) {
+                    offsets[r + 1] = offsets[r] + in.readLength();
+                    if (offsets[r + 1] > in.remaining()) {
+                        throw new IOException("Invalid string column length in batch");
+                    }
+                }
+                batch.setStringBytes(c, in.readBytes(offsets[rows]));
+            } else {
+                Object[] values = batch.objectColumn(c);
+                for (int r = 0; r < rows; r++) {
+                    values[r] = readValue(in);
+                }
+            }
+        }
+        return batch;
+    }
+
+    /* ---------- 基础字段 ---------- */
+
+    private static void writeType(MessageType type, FrameBuffer out) {
+        out.writeVarInt(type == null ? 0 : type.ordinal() + 1);
+    }
+
+    private static MessageType readType(BinaryReader in) throws IOException {
+        int v = in.readVarInt();
+        if (v == 0) {
+            return null;
+        }
+        if (v > TYPES.length) {
+            throw new IOException("Unknown message type: " + (v - 1));
+        }
+        return TYPES[v - 1];
+    }
+
+    private static void writeNullableString(String s, FrameBuffer out) {
+        out.writeNullableUtf8(s);
+    }
+
+    private static String readNullableString(BinaryReader in) throws IOException {
+        return in.readNullableUtf8();
+    }
+
+    private void writeStringMap(Map<String, Object> map, FrameBuffer out) throws IOException {
+        if (map == null) {
+            out.writeVarInt(0);
+            return;
+        }
+        out.writeVarInt(map.size() + 1);
+        for (Map.Entry<String, Object> e : map.entrySet()) {
+            writeNullableString(e.getKey(), out);
+            writeValue(e.getValue(), out);
+        }
+    }
+
+    private Map<String, Object> readStringMap(BinaryReader in) throws IOException {
+        int n = in.readVarInt() - 1;
+        if (n < 0) {
+            return null;
+        }
+        Map<String, Object> map = new HashMap<>(Math.max(4, in.capacityHint(n) * 2));
+        for (int i = 0; i < n; i++) {
+            String key = readNullableString(in);
+            map.put(key, readValue(in));
+        }
+        return map;
+    }
+
+    private void writeValueList(List<Object> values, FrameBuffer out) throws IOException {
+        if (values == null) {
+            out.writeVarInt(0);
+            return;
+        }
+        int n = values.size();
+        out.writeVarInt(n + 1);
+        for (int i = 0; i < n; i++) {
+            writeValue(values.get(i), out);
+        }
+    }
+
+    private List<Object> readValueList(BinaryReader in) throws IOException {
+        int n = in.readVarInt() - 1;
+        if (n < 0) {
+            return null;
+        }
+        List<Object> values = new ArrayList<>(in.capacityHint(n));
+        for (int i = 0; i < n; i++) {
+            values.add(readValue(in));
+        }
+        return values;
+    }
+
+    /* ---------- 带类型标签的值 ---------- */
+
+    private void writeValue(Object v, FrameBuffer out) throws IOException {
+        if (v == null) {
+            out.write(TAG_NULL);
+        } else if (v instanceof String) {
+            out.write(TAG_STRING);
+            out.writeUtf8((String) v);
+        } else if (v instanceof Integer) {
+            out.write(TAG_INT);
+            out.writeSignedVarInt((Integer) v);
+        } else if (v instanceof Long) {
+            out.write(TAG_LONG);
+            out.writeSignedVarLong((Long) v);
+        } else if (v instanceof Boolean) {
+            out.write((Boolean) v ? TAG_TRUE : TAG_FALSE);
+        } else if (v instanceof Double) {
+            out.write(TAG_DOUBLE);
+            out.writeLong(Double.doubleToRawLongBits((Double) v));
+        } else if (v instanceof Float) {
+            out.write(TAG_FLOAT);
+            out.writeInt(Float.floatToRawIntBits((Float) v));
+        } else if (v instanceof Short) {
+            out.write(TAG_SHORT);
+            out.writeSignedVarInt((Short) v);
+        } else if (v instanceof Byte) {
+            out.write(TAG_BYTE);
+            out.write((Byte) v);
+        } else if (v instanceof BigDecimal) {
+            BigDecimal d = (BigDecimal) v;
+            out.write(TAG_BIG_DECIMAL);
+            out.writeSignedVarInt(d.scale());
+            writeByteArray(d.unscaledValue().toByteArray(), out);
+        } else if (v instanceof BigInteger) {
+            out.write(TAG_BIG_INTEGER);
+            writeByteArray(((BigInteger) v).toByteArray(), out);
+        } else if (v instanceof byte[]) {
+            out.write(TAG_BYTES);
+            writeByteArray((byte[]) v, out);
+        } else if (v instanceof java.sql.Timestamp) {
+            java.sql.Timestamp ts = (java.sql.Timestamp) v;
+            out.write(TAG_SQL_TIMESTAMP);
+            out.writeSignedVarLong(ts.getTime());
+            out.writeVarInt(ts.getNanos());
+        } else if (v instanceof java.sql.Date) {
+            out.write(TAG_SQL_DATE);
+            out.writeSignedVarLong(((java.sql.Date) v).getTime());
+        } else if (v instanceof java.sql.Time) {
+            out.write(TAG_SQL_TIME);
+            out.writeSignedVarLong(((java.sql.Time) v).getTime());
+        } else if (v instanceof LocalDateTime) {
+            LocalDateTime t = (LocalDateTime) v;
+            out.write(TAG_LOCAL_DATE_TIME);
+            out.writeSignedVarLong(t.toLocalDate().toEpochDay());
+            out.writeVarLong(t.toLocalTime().toNanoOfDay());
+        } else if (v instanceof LocalDate) {
+            out.write(TAG_LOCAL_DATE);
+            out.writeSignedVarLong(((LocalDate) v).toEpochDay());
+        } else if (v instanceof LocalTime) {
+            out.write(TAG_LOCAL_TIME);
+            out.writeVarLong(((LocalTime) v).toNanoOfDay());
+        } else {
+            out.write(TAG_SERIALIZED);
+            FrameBuffer tmp = new FrameBuffer(128);
+            try (ObjectOutputStream oos = new ObjectOutputStream(tmp)) {
+                oos.writeObject(v);
+            }
+            out.writeVarInt(tmp.size());
+            out.write(tmp.array(), 0, tmp.size());
+        }
+    }
+
+    private Object readValue(BinaryReader in) throws IOException {
+        int tag = in.readByte() & 0xFF;
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_BYTE:
+                return (byte) in.readByte();
+            case TAG_SHORT:
+                return (short) in.readSignedVarInt();
+            case TAG_INT:
+                return in.readSignedVarInt();
+            case TAG_LONG:
+                return in.readSignedVarLong();
+            case TAG_FLOAT:
+                return Float.intBitsToFloat(in.readInt());
+            case TAG_DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case TAG_STRING:
+                return in.readUtf8();
+            case TAG_BYTES:
+                return in.readBytes(in.readLength());
+            case TAG_BIG_DECIMAL: {
+                int scale = in.readSignedVarInt();
+                return new BigDecimal(new BigInteger(in.readBytes(in.readLength())), scale);
+            }
+            case TAG_BIG_INTEGER:
+                return new BigInteger(in.readBytes(in.readLength()));
+            case TAG_SQL_TIMESTAMP: {
+                java.sql.Timestamp ts = new java.sql.Timestamp(in.readSignedVarLong());
+                ts.setNanos(in.readVarInt());
+                return ts;
+            }
+            case TAG_SQL_DATE:
+                return new java.sql.Date(in.readSignedVarLong());
+            case TAG_SQL_TIME:
+                return new java.sql.Time(in.readSignedVarLong());
+            case TAG_LOCAL_DATE_TIME: {
+                LocalDate date = LocalDate.ofEpochDay(in.readSignedVarLong());
+                return LocalDateTime.of(date, LocalTime.ofNanoOfDay(in.readVarLong()));
+            }
+            case TAG_LOCAL_DATE:
+                return LocalDate.ofEpochDay(in.readSignedVarLong());
+            case TAG_LOCAL_TIME:
+                return LocalTime.ofNanoOfDay(in.readVarLong());
+            case TAG_SERIALIZED: {
+                int n = in.readLength();
+                int start = in.position();
+                in.skip(n);
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(in.array(), start, n))) {
+                    return ois.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("Unknown value class in frame", e);
+                }
+            }
+            default:
+                throw new IOException("Unknown value tag: " + tag);
+        }
+    }
+
+    private static void writeByteArray(byte[] bytes, FrameBuffer out) {
+        out.writeVarInt(bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,146 @@
+package com.seu.jdbcproxy.protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 与 FrameBuffer 对应的读取端，直接在帧负载数组上按游标读取
+ */
+final class BinaryReader {
+    private final byte[] buf;
+    private int pos;
+    private final int limit;
+
+    BinaryReader(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+
+    private void require(int n) throws IOException {
+        if (limit - pos < n) {
+            throw new EOFException("Truncated binary frame");
+        }
+    }
+
+    int readByte() throws IOException {
+        require(1);
+        return buf[pos++];
+    }
+
+    boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    int readInt() throws IOException {
+        require(4);
+        int v = ((buf[pos] & 0xFF) << 24) | ((buf[pos + 1] & 0xFF) << 16)
+                | ((buf[pos + 2] & 0xFF) << 8) | (buf[pos + 3] & 0xFF);
+        pos += 4;
+        return v;
+    }
+
+    long readLong() throws IOException {
+        return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    int readVarInt() throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    long readVarLong() throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+        throw new IOException("Malformed varlong");
+    }
+
+    int readSignedVarInt() throws IOException {
+        int v = readVarInt();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    long readSignedVarLong() throws IOException {
+        long v = readVarLong();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * 读取一个非负长度并校验不超出剩余字节
+     */
+    int readLength() throws IOException {
+        int n = readVarInt();
+        if (n < 0 || n > limit - pos) {
+            throw new IOException("Invalid length in binary frame: " + n);
+        }
+        return n;
+    }
+
+    String readUtf8() throws IOException {
+        return utf8(readLength());
+    }
+
+    String readNullableUtf8() throws IOException {
+        int n = readVarInt();
+        if (n == 0) {
+            return null;
+        }
+        n--;
+        if (n < 0 || n > limit - pos) {
+            throw new IOException("Invalid length in binary frame: " + n);
+        }
+        return utf8(n);
+    }
+
+    private String utf8(int n) {
+        String s = new String(buf, pos, n, StandardCharsets.UTF_8);
+        pos += n;
+        return s;
+    }
+
+    byte[] readBytes(int n) throws IOException {
+        require(n);
+        byte[] out = new byte[n];
+        System.arraycopy(buf, pos, out, 0, n);
+        pos += n;
+        return out;
+    }
+
+    int remaining() {
+        return limit - pos;
+    }
+
+    /**
+     * 集合预分配容量：不信任帧中的计数，最多按剩余字节数分配
+     */
+    int capacityHint(int count) {
+        return Math.min(count, remaining());
+    }
+
+    byte[] array() {
+        return buf;
+    }
+
+    int position() {
+        return pos;
+    }
+
+    void skip(int n) throws IOException {
+        require(n);
+        pos += n;
+    }
+}
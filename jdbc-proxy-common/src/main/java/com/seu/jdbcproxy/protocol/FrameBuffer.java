@@ -0,0 +1,136 @@
+package com.seu.jdbcproxy.protocol;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 可增长的字节缓冲，用于组帧：编码器直接写入其内部数组，写完后整段作为一帧发送，避免多次拷贝。
+ * 同时是 OutputStream，便于 Java 序列化编码器复用。非线程安全。
+ */
+public final class FrameBuffer extends OutputStream {
+    private byte[] buf;
+    private int size;
+
+    public FrameBuffer(int initialCapacity) {
+        this.buf = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public byte[] array() {
+        return buf;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void ensureCapacity(int extra) {
+        int required = size + extra;
+        if (required > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(required, buf.length << 1));
+        }
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        buf[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(b, off, buf, size, len);
+        size += len;
+    }
+
+    /**
+     * 在已写入的位置回填一个大端 int（用于长度前缀）
+     */
+    public void putInt(int index, int v) {
+        buf[index] = (byte) (v >>> 24);
+        buf[index + 1] = (byte) (v >>> 16);
+        buf[index + 2] = (byte) (v >>> 8);
+        buf[index + 3] = (byte) v;
+    }
+
+    public void writeInt(int v) {
+        ensureCapacity(4);
+        putInt(size, v);
+        size += 4;
+    }
+
+    public void writeLong(long v) {
+        writeInt((int) (v >>> 32));
+        writeInt((int) v);
+    }
+
+    /**
+     * 无符号 LEB128 变长整数
+     */
+    public void writeVarInt(int v) {
+        ensureCapacity(5);
+        while ((v & ~0x7F) != 0) {
+            buf[size++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[size++] = (byte) v;
+    }
+
+    public void writeVarLong(long v) {
+        ensureCapacity(10);
+        while ((v & ~0x7FL) != 0) {
+            buf[size++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[size++] = (byte) v;
+    }
+
+    /**
+     * zigzag 编码后的有符号变长整数，小的负数也只占 1 字节
+     */
+    public void writeSignedVarInt(int v) {
+        writeVarInt((v << 1) ^ (v >> 31));
+    }
+
+    public void writeSignedVarLong(long v) {
+        writeVarLong((v << 1) ^ (v >> 63));
+    }
+
+    /**
+     * 写出 UTF-8 字符串（变长字节数前缀）；ASCII 直接逐字节写入，不经过中间 byte[]
+     */
+    public void writeUtf8(String s) {
+        writeUtf8(s, 0);
+    }
+
+    /**
+     * 可空字符串：前缀为「字节数 + 1」，0 表示 null
+     */
+    public void writeNullableUtf8(String s) {
+        if (s == null) {
+            writeVarInt(0);
+        } else {
+            writeUtf8(s, 1);
+        }
+    }
+
+    private void writeUtf8(String s, int bias) {
+        int len = s.length();
+        int ascii = 0;
+        while (ascii < len && s.charAt(ascii) < 0x80) {
+            ascii++;
+        }
+        if (ascii == len) {
+            writeVarInt(len + bias);
+            ensureCapacity(len);
+            for (int i = 0; i < len; i++) {
+                buf[size++] = (byte) s.charAt(i);
+            }
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + bias);
+        write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,83 @@
+package com.seu.jdbcproxy.protocol;
+
+import java.io.*;
+
+/**
+ * 帧编解码：每条消息在 socket 上以「4 字节大端长度 + 负载」的形式传输，
+ * 负载首字节为编码器 id（见 {@link MessageCodecs}），其余为该编码器的输出。
+ * 阻塞模式（ClientHandler）与 NIO 模式（NioProxyServer）共用同一帧格式，
+ * 客户端无需感知服务端采用哪种网络模型。
+ */
+public final class FrameCodec {
+    /** 长度前缀字节数 */
+    public static final int HEADER_LENGTH = 4;
+    /** 单帧最大长度，防止异常数据导致服务端分配超大缓冲区 */
+    public static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private FrameCodec() {
+    }
+
+    /**
+     * 编码出完整的一帧（含长度前缀），有效数据为 array()[0, size())
+     */
+    public static FrameBuffer encodeFrame(MessageCodec codec, Object message) throws IOException {
+        FrameBuffer frame = new FrameBuffer(512);
+        frame.writeInt(0);
+        frame.write(codec.id());
+        codec.encode(message, frame);
+        int length = frame.size() - HEADER_LENGTH;
+        checkLength(length);
+        frame.putInt(0, length);
+        return frame;
+    }
+
+    /**
+     * 帧负载（不含长度前缀）所使用的编码器
+     */
+    public static MessageCodec codecOf(byte[] payload) throws IOException {
+        if (payload.length == 0) {
+            throw new IOException("Empty frame");
+        }
+        return MessageCodecs.byId(payload[0]);
+    }
+
+    /**
+     * 将帧负载解码为消息对象
+     */
+    public static Object decode(byte[] payload) throws IOException {
+        return codecOf(payload).decode(payload, 1, payload.length - 1);
+    }
+
+    /**
+     * 以指定编码写出一帧并刷新
+     */
+    public static void writeFrame(DataOutputStream out, MessageCodec codec, Object message) throws IOException {
+        FrameBuffer frame = encodeFrame(codec, message);
+        out.write(frame.array(), 0, frame.size());
+        out.flush();
+    }
+
+    /**
+     * 读取一帧的负载；对端正常关闭时抛出 EOFException
+     */
+    public static byte[] readPayload(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        checkLength(length);
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return payload;
+    }
+
+    /**
+     * 读取并解码一帧
+     */
+    public static Object readFrame(DataInputStream in) throws IOException {
+        return decode(readPayload(in));
+    }
+
+    public static void checkLength(int length) throws IOException {
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+    }
+}
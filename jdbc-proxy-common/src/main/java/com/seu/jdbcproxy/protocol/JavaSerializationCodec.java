@@ -0,0 +1,46 @@
+package com.seu.jdbcproxy.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * 基于 ObjectOutputStream 的编码，兼容任意 Serializable 值，作为协商失败时的回退方案。
+ * OPEN_CONN 请求总是使用该编码发送。
+ */
+public final class JavaSerializationCodec implements MessageCodec {
+    public static final byte ID = 0;
+    public static final String NAME = "java";
+
+    static final JavaSerializationCodec INSTANCE = new JavaSerializationCodec();
+
+    private JavaSerializationCodec() {
+    }
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void encode(Object message, FrameBuffer out) throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(message);
+        }
+    }
+
+    @Override
+    public Object decode(byte[] buf, int offset, int length) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buf, offset, length))) {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown message class in frame", e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.seu.jdbcproxy.protocol;
+
+import java.io.IOException;
+
+/**
+ * 帧负载的编解码方式。每帧负载首字节为编码器 id，接收方据此选择解码器，
+ * 因此同一条连接上协商前后的帧可以使用不同编码。
+ */
+public interface MessageCodec {
+
+    /** 写在帧负载首字节的编码器标识 */
+    byte id();
+
+    /** OPEN_CONN 协商时使用的名称 */
+    String name();
+
+    /**
+     * 将 Request / Response 追加写入 out
+     */
+    void encode(Object message, FrameBuffer out) throws IOException;
+
+    /**
+     * 从 buf[offset, offset + length) 解码出 Request / Response
+     */
+    Object decode(byte[] buf, int offset, int length) throws IOException;
+}
@@ -0,0 +1,69 @@
+package com.seu.jdbcproxy.protocol;
+
+import java.io.IOException;
+
+/**
+ * 已知编码器及 OPEN_CONN 时的编码协商。
+ * <p>
+ * 协商流程：客户端以 Java 序列化发送 OPEN_CONN，并在 extra 中带上 {@link #EXTRA_KEY}（按偏好排序、逗号分隔）；
+ * 服务端选出双方都支持的第一个编码，写入响应的 codec 字段；之后客户端按该编码发送请求，
+ * 服务端总是使用请求帧所用的编码回复。旧客户端不带该字段，则一直使用 Java 序列化。
+ */
+public final class MessageCodecs {
+    public static final MessageCodec JAVA = JavaSerializationCodec.INSTANCE;
+    public static final MessageCodec BINARY = BinaryCodec.INSTANCE;
+
+    /** OPEN_CONN 请求 extra 中携带客户端支持编码列表的键 */
+    public static final String EXTRA_KEY = "codecs";
+    /** 默认偏好：优先二进制，Java 序列化兜底 */
+    public static final String DEFAULT_PREFERENCE = BinaryCodec.NAME + "," + JavaSerializationCodec.NAME;
+
+    private MessageCodecs() {
+    }
+
+    public static MessageCodec byId(byte id) throws IOException {
+        return switch (id) {
+            case JavaSerializationCodec.ID -> JAVA;
+            case BinaryCodec.ID -> BINARY;
+            default -> throw new IOException("Unknown codec id: " + id);
+        };
+    }
+
+    /**
+     * 按名称查找，未知名称返回 null
+     */
+    public static MessageCodec byName(String name) {
+        if (name == null) {
+            return null;
+        }
+        return switch (name.trim().toLowerCase()) {
+            case JavaSerializationCodec.NAME -> JAVA;
+            case BinaryCodec.NAME -> BINARY;
+            default -> null;
+        };
+    }
+
+    /**
+     * 从客户端偏好列表中选出服务端也启用的第一个编码；没有交集时回退为 Java 序列化
+     *
+     * @param clientPreference 客户端支持的编码，逗号分隔，按偏好排序
+     * @param serverEnabled    服务端启用的编码，逗号分隔
+     */
+    public static MessageCodec negotiate(String clientPreference, String serverEnabled) {
+        if (clientPreference == null || serverEnabled == null) {
+            return JAVA;
+        }
+        for (String candidate : clientPreference.split(",")) {
+            MessageCodec codec = byName(candidate);
+            if (codec == null) {
+                continue;
+            }
+            for (String enabled : serverEnabled.split(",")) {
+                if (codec == byName(enabled)) {
+                    return codec;
+                }
+            }
+        }
+        return JAVA;
+    }
+}
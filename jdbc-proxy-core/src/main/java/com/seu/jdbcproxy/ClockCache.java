@@ -0,0 +1,126 @@
+package com.seu.jdbcproxy;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 容量固定的并发缓存，按 CLOCK（second chance）淘汰：
+ * 命中只置位访问标记、不加锁；插入时指针在槽位环上转动，清除访问标记，淘汰第一个未被访问过的条目。
+ * 适合「键集合大体稳定、读远多于写」的场景，例如按 SQL 文本缓存解析结果。
+ */
+public final class ClockCache<K, V> {
+    private final Map<K, Node<K, V>> index;
+    private final Node<K, V>[] slots;
+    private int hand;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public ClockCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.index = new ConcurrentHashMap<>(capacity * 4 / 3 + 1);
+        this.slots = (Node<K, V>[]) new Node[capacity];
+    }
+
+    public V get(K key) {
+        Node<K, V> node = index.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        node.referenced = true;
+        hits.increment();
+        return node.value;
+    }
+
+    /**
+     * 未命中时在锁外调用 loader 计算，并发未命中可能重复计算，以先写入者为准
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        return put(key, loader.apply(key));
+    }
+
+    private synchronized V put(K key, V value) {
+        Node<K, V> existing = index.get(key);
+        if (existing != null) {
+            return existing.value;
+        }
+        while (slots[hand] != null && slots[hand].referenced) {
+            slots[hand].referenced = false;
+            hand = (hand + 1) % slots.length;
+        }
+        Node<K, V> victim = slots[hand];
+        if (victim != null) {
+            index.remove(victim.key);
+            evictions.increment();
+        }
+        Node<K, V> node = new Node<>(key, value);
+        slots[hand] = node;
+        index.put(key, node);
+        hand = (hand + 1) % slots.length;
+        return value;
+    }
+
+    public synchronized void clear() {
+        index.clear();
+        Arrays.fill(slots, null);
+        hand = 0;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * 命中率，尚无访问时为 0
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ClockCache{size=%d/%d, hits=%d, misses=%d, evictions=%d}",
+                size(), capacity(), getHits(), getMisses(), getEvictions());
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        volatile boolean referenced;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
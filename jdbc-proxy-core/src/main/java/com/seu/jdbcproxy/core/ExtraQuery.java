@@ -0,0 +1,224 @@
+package com.seu.jdbcproxy.core;
+
+import com.seu.jdbcproxy.ClockCache;
+import com.seu.jdbcproxy.ConfigLoader;
+import com.seu.jdbcproxy.pool.BackendPool;
+import com.seu.jdbcproxy.pool.PooledConnection;
+import com.seu.jdbcproxy.pool.StatementCache;
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import com.seu.jdbcproxy.rewrite.RewriteHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 带 --@extra.enabled=true 标签的 SQL：主查询是第一个 --@ 之前的部分，
+ * 额外查询为 SELECT extra.columns FROM extra.table，在 extra.db.url 指定的数据库上执行并记录结果。
+ * <p>
+ * 标签按 SQL 文本解析一次后缓存。额外查询提交到有界线程池异步执行，主查询的结果集立即返回：
+ * 连接从 {@link BackendPool} 按额外数据库地址借用，语句走该连接的语句缓存；
+ * 执行受 extra.query.timeoutSeconds 限制，在队列中等待超过该时间的任务直接放弃，队列已满时丢弃。
+ * 额外数据库的口令必须通过 extra.db.password 配置，未配置时不执行额外查询。
+ */
+final class ExtraQuery {
+    private static final Logger logger = LoggerFactory.getLogger(ExtraQuery.class);
+
+    private static final String DEFAULT_DB_URL = "jdbc:mysql://localhost:3306/test_mysql";
+
+    private static final ClockCache<String, ExtraQuery> CACHE =
+            new ClockCache<>(Integer.parseInt(ConfigLoader.get("extra.query.cacheSize", "256")));
+
+    private static final int TIMEOUT_SECONDS = Integer.parseInt(ConfigLoader.get("extra.query.timeoutSeconds", "5"));
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+    /** 一次额外查询的结果 */
+    enum Outcome {
+        COMPLETED,
+        /** 排队超时，未执行 */
+        EXPIRED,
+        /** 未配置口令或无法连接额外数据库 */
+        UNAVAILABLE,
+        /** 查询失败，连接放回池中 */
+        FAILED,
+        /** 连接异常（SQLState 08），连接被丢弃 */
+        BROKEN
+    }
+
+    /** 去掉标签后的主查询 */
+    final String mainSql;
+    /** 额外查询，未指定表或列时为 null */
+    final String extraSql;
+    final String dbUrl;
+    private final String table;
+
+    private ExtraQuery(String mainSql, String extraSql, String dbUrl, String table) {
+        this.mainSql = mainSql;
+        this.extraSql = extraSql;
+        this.dbUrl = dbUrl;
+        this.table = table;
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        return createExecutor(Integer.parseInt(ConfigLoader.get("extra.query.threads", "2")),
+                Integer.parseInt(ConfigLoader.get("extra.query.queueSize", "256")));
+    }
+
+    static ThreadPoolExecutor createExecutor(int threads, int queueSize) {
+        threads = Math.max(1, threads);
+        queueSize = Math.max(1, queueSize);
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "proxy-extra-query-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), factory, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 解析 SQL 中的 --@extra.* 标签（带缓存）
+     */
+    static ExtraQuery of(String sql) {
+        if (sql.length() > RewriteHelper.MAX_CACHED_SQL_LENGTH) {
+            return parse(sql);
+        }
+        return CACHE.computeIfAbsent(sql, ExtraQuery::parse);
+    }
+
+    static ExtraQuery parse(String sql) {
+        String mainSql = sql.split("--@")[0].trim();
+        String table = extractTag(sql, "--@extra.table=");
+        String columns = extractTag(sql, "--@extra.columns=");
+        String extraSql = table.isEmpty() || columns.isEmpty() ? null : "SELECT " + columns + " FROM " + table;
+        // 额外数据库地址优先从 SQL 注释中获取，然后从配置中获取
+        String dbUrl = extractTag(sql, "--@extra.db.url=");
+        if (dbUrl.isEmpty()) {
+            dbUrl = ConfigLoader.get("extra.db.url");
+        }
+        if (dbUrl == null || dbUrl.trim().isEmpty()) {
+            dbUrl = DEFAULT_DB_URL;
+        }
+        return new ExtraQuery(mainSql, extraSql, dbUrl, table);
+    }
+
+    private static String extractTag(String sql, String key) {
+        int index = sql.indexOf(key);
+        if (index == -1) return "";
+        int end = sql.indexOf(" ", index + key.length());
+        if (end == -1) {
+            return sql.substring(index + key.length()).trim();
+        }
+        return sql.substring(index + key.length(), end).trim();
+    }
+
+    /**
+     * 提交额外查询，不等待其完成
+     */
+    void submit(EncryptionHelper encryptionHelper) {
+        submit(encryptionHelper, EXECUTOR);
+    }
+
+    /**
+     * 提交到指定线程池，队列已满被丢弃时返回 false
+     */
+    boolean submit(EncryptionHelper encryptionHelper, ThreadPoolExecutor executor) {
+        if (extraSql == null) {
+            return true;
+        }
+        long submittedAt = System.nanoTime();
+        try {
+            executor.execute(() -> run(encryptionHelper, submittedAt));
+            return true;
+        } catch (RejectedExecutionException e) {
+            logger.warn("[额外查询] 队列已满，丢弃对表 {} 的查询", table);
+            return false;
+        }
+    }
+
+    Outcome run(EncryptionHelper encryptionHelper, long submittedAt) {
+        if (TIMEOUT_SECONDS > 0 && System.nanoTime() - submittedAt > TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS)) {
+            logger.warn("[额外查询] 排队超过 {} 秒，放弃对表 {} 的查询", TIMEOUT_SECONDS, table);
+            return Outcome.EXPIRED;
+        }
+        String password = ConfigLoader.get("extra.db.password");
+        if (password == null) {
+            logger.warn("[额外查询] 未配置 extra.db.password，跳过对表 {} 的查询", table);
+            return Outcome.UNAVAILABLE;
+        }
+        long start = System.nanoTime();
+        PooledConnection pooled;
+        try {
+            pooled = BackendPool.acquire(dbUrl, ConfigLoader.get("extra.db.user", "root"), password, encryptionHelper);
+        } catch (SQLException e) {
+            logger.warn("[额外查询] 无法连接额外数据库 {}: {}", dbUrl, e.getMessage());
+            return Outcome.UNAVAILABLE;
+        }
+        Outcome outcome = Outcome.FAILED;
+        try {
+            int rows = execute(pooled, encryptionHelper);
+            outcome = Outcome.COMPLETED;
+            logger.info("[额外查询] 数据库: {}, 表: {}, 返回 {} 行, 耗时 {} ms", dbUrl, table, rows,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (SQLException e) {
+            // 08 开头的 SQLState 表示连接异常，不再放回池中
+            if (e.getSQLState() != null && e.getSQLState().startsWith("08")) {
+                outcome = Outcome.BROKEN;
+            }
+            logger.warn("[额外查询] 对表 {} 的查询失败: {}", table, e.getMessage());
+        } finally {
+            if (outcome == Outcome.BROKEN) {
+                pooled.invalidate();
+            } else {
+                pooled.release();
+            }
+        }
+        return outcome;
+    }
+
+    private int execute(PooledConnection pooled, EncryptionHelper encryptionHelper) throws SQLException {
+        StatementCache cache = pooled.getStatementCache();
+        StatementCache.CachedStatement leased = cache.borrow(extraSql, true);
+        PreparedStatement statement = leased != null
+                ? leased.getStatement() : pooled.getConnection().prepareStatement(extraSql);
+        try {
+            if (TIMEOUT_SECONDS > 0) {
+                statement.setQueryTimeout(TIMEOUT_SECONDS);
+            }
+            int rows = 0;
+            try (ResultSet rs = new ProxyResultSet(statement.executeQuery(), encryptionHelper)) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int colCount = meta.getColumnCount();
+                while (rs.next()) {
+                    rows++;
+                    if (logger.isDebugEnabled()) {
+                        StringBuilder sb = new StringBuilder("[额外查询结果] ");
+                        for (int i = 1; i <= colCount; i++) {
+                            sb.append(meta.getColumnLabel(i)).append("=").append(rs.getString(i)).append(" ");
+                        }
+                        logger.debug(sb.toString());
+                    }
+                }
+            }
+            return rows;
+        } finally {
+            if (leased != null) {
+                cache.release(leased);
+            } else {
+                statement.close();
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.seu.jdbcproxy.core;
 
+import com.seu.jdbcproxy.metrics.Phase;
+import com.seu.jdbcproxy.metrics.ProxyMetrics;
 import com.seu.jdbcproxy.rewrite.RewriteHelper;
 
 import java.sql.*;
@@ -10,6 +12,8 @@ import java.util.concurrent.Executor;
 public class ProxyConnection implements Connection {
     private final Connection target;
     private final RewriteHelper rewriterHelper = new RewriteHelper();
+    // 数据库产品名在连接生命周期内不变，只查询一次元数据
+    private String product;
 
     public ProxyConnection(Connection connection) {
         target = connection;
@@ -22,13 +26,21 @@ public class ProxyConnection implements Connection {
 
     @Override
     public PreparedStatement prepareStatement(String sql) throws SQLException {
-        final String product = target.getMetaData().getDatabaseProductName();
         //return target.prepareStatement(rewriterHelper.rewrite(sql, product));
-        String rewrittenSql = rewriterHelper.rewrite(sql, product);
+        long start = ProxyMetrics.start();
+        String rewrittenSql = rewriterHelper.rewrite(sql, product());
+        ProxyMetrics.record(Phase.REWRITE, start);
         PreparedStatement realStatement = target.prepareStatement(rewrittenSql);
         return new ProxyPreparedStatement(realStatement, rewrittenSql);
     }
 
+    private String product() throws SQLException {
+        if (product == null) {
+            product = target.getMetaData().getDatabaseProductName();
+        }
+        return product;
+    }
+
     @Override
     public CallableStatement prepareCall(String sql) throws SQLException {
         return target.prepareCall(rewriterHelper.rewriteCall(sql));
@@ -124,7 +136,9 @@ public class ProxyConnection implements Connection {
         //return target.prepareStatement(sql, resultSetType, resultSetConcurrency);
         final String product = target.getMetaData().getDatabaseProductName();
         //return target.prepareStatement(rewriterHelper.rewrite(sql, product));
+        long start = ProxyMetrics.start();
         String realSql = rewriterHelper.rewrite(sql, product);
+        ProxyMetrics.record(Phase.REWRITE, start);
         PreparedStatement realStatement = target.prepareStatement(realSql,resultSetType,resultSetConcurrency);
         return new ProxyPreparedStatement(realStatement,realSql);
     }
@@ -1,10 +1,14 @@
 package com.seu.jdbcproxy.core;
 
-import com.seu.jdbcproxy.ConfigLoader;
-import com.seu.jdbcproxy.DatabaseUtil;
+import com.seu.jdbcproxy.metrics.Phase;
+import com.seu.jdbcproxy.metrics.ProxyMetrics;
 import com.seu.jdbcproxy.pojo.MessageType;
 import com.seu.jdbcproxy.pojo.Response;
+import com.seu.jdbcproxy.rewrite.CipherMode;
 import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import com.seu.jdbcproxy.rewrite.EncryptionPlan;
+import com.seu.jdbcproxy.trace.TraceEvent;
+import com.seu.jdbcproxy.trace.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,7 +29,8 @@ public class ProxyPreparedStatement implements PreparedStatement {
     private final List<Object> parameterValues;
     private final EncryptionHelper encryptionHelper;
     private final Map<Integer, Object> params = new HashMap<>();
-    ;
+    // 按 SQL 缓存的参数加密计划，执行时按占位符下标查表
+    private final EncryptionPlan plan;
 
 
     public ProxyPreparedStatement(PreparedStatement realStatement, String originalSql) {
@@ -34,6 +39,7 @@ public class ProxyPreparedStatement implements PreparedStatement {
         this.originalSql = originalSql;
         this.parameterValues = new ArrayList<>();
         this.encryptionHelper = new EncryptionHelper();
+        this.plan = EncryptionPlan.of(originalSql);
     }
 
     public ProxyPreparedStatement(PreparedStatement realStatement, String originalSql, EncryptionHelper encryptionHelper) {
@@ -41,193 +47,76 @@ public class ProxyPreparedStatement implements PreparedStatement {
         this.originalSql = originalSql;
         this.parameterValues = new ArrayList<>();
         this.encryptionHelper = encryptionHelper;
-    }
-
-    private void encryptParametersForInsert() throws Exception {
-
-        //获取占位符个数
-        int parameterCount = realStatement.getParameterMetaData().getParameterCount();
-
-        for (int i = 0; i < parameterValues.size(); i++) {
-            if (i >= parameterCount) {
-                continue;
-            }
-
-            Object paramValue = parameterValues.get(i);
-
-            if (paramValue != null) {
-                // 加密参数值
-                String encryptedValue = encryptionHelper.encrypt(paramValue.toString());
-
-                // 将加密后的值重新设置回 realStatement
-                realStatement.setObject(i + 1, encryptedValue);
-                logger.info("Encrypted value for parameter {}: {}", i + 1, encryptedValue);
-            }
-        }
-
-    }
-
-    private void encryptParametersForUpdate() throws Exception {
-        //获取占位符个数
-        int parameterCount = realStatement.getParameterMetaData().getParameterCount();
-
-        for (int i = 0; i < parameterValues.size(); i++) {
-            if (i >= parameterCount) {
-                continue;
-            }
-
-            Object paramValue = parameterValues.get(i);
-
-            if (paramValue != null && i != 1) { //假设 id 是第二个参数
-                // 加密参数值
-                String encryptedValue = encryptionHelper.encrypt(paramValue.toString());
-
-                // 将加密后的值重新设置回 realStatement
-                realStatement.setObject(i + 1, encryptedValue);
-                logger.info("Encrypted value for parameter {}: {}", i + 1, encryptedValue);
-            } else {
-                realStatement.setObject(i + 1, paramValue);
-            }
-        }
-    }
-
-    private void encryptParametersForDelete() throws Exception {
-
-        String sql = realStatement.toString().toUpperCase().trim();
-
-        // 解析 SQL 获取表名，假设 DELETE SQL 的格式是 DELETE FROM <table> WHERE <condition>
-        String tableName = sql.split("FROM")[1].split("WHERE")[0].trim();  // 提取表名
-        String whereClause = sql.split("WHERE")[1].trim(); // 提取 WHERE 子句
-
-        // 获取参数列表中的条件值
-        List<Object> conditionValues = parameterValues;  // 假设删除条件是参数列表中的值
-
-
-//        // 加密参数列表中所有非密文内容
-//        for (int i = 0; i < parameterValues.size(); i++) {
-//            Object value = parameterValues.get(i);
-//            if (value != null) {
-//                String strValue = value.toString();
-//                if (encryptionHelper.isCipherText(strValue)) {
-//                    logger.info("Parameter {} is already encrypted, skipping.", i + 1);
-//                } else {
-//                    String encrypted = encryptionHelper.encrypt(strValue);
-//                    realStatement.setObject(i + 1, encrypted);
-//                    logger.info("Encrypted parameter {}: {}", i + 1, encrypted);
-//                }
-//            }
-//        }
-
-        for (int i = 0; i < parameterValues.size(); i++) {
-            Object conditionValue = parameterValues.get(i);
-
-            if (conditionValue != null) {
-                String encrypted = encryptionHelper.encrypt(conditionValue.toString());
-                realStatement.setObject(i + 1, encrypted);
-                logger.info("Force-encrypted condition {}: {}", i + 1, encrypted);
-            }
-        }
+        this.plan = EncryptionPlan.of(originalSql);
     }
 
     @Override
     public int executeUpdate() throws SQLException {
-        logger.info("executeUpdate in ProxyPreparedStatement");
-        //String sql = realStatement.toString().toUpperCase().trim();
-        String sql = originalSql.toUpperCase().trim();
-        try {
-            if (sql.startsWith("INSERT")) {
-                encryptParametersForInsert();
-            }
-
-            if (sql.startsWith("UPDATE")) {
-                encryptParametersForUpdate();
-            }
+        encryptParameters();
 
-            if (sql.startsWith("DELETE")) {
-                encryptParametersForDelete();
+        // 继续执行原始 `executeUpdate`
+        long start = ProxyMetrics.start();
+        long traceStart = Tracer.clock();
+        int updated = realStatement.executeUpdate();
+        ProxyMetrics.record(Phase.EXECUTE, start);
+        Tracer.timed(TraceEvent.EXECUTE_UPDATE, updated, traceStart);
+        return updated;
+    }
+
+    /**
+     * 按加密计划把当前记录的参数加密后重新绑定到 realStatement；计划中为 NONE 的参数保持 set 时绑定的明文
+     */
+    private void encryptParameters() throws SQLException {
+        long start = ProxyMetrics.start();
+        try {
+            for (int i = 0; i < parameterValues.size(); i++) {
+                Object paramValue = parameterValues.get(i);
+                if (paramValue == null) {
+                    continue;
+                }
+                String rejection = plan.rejectionOf(i);
+                if (rejection != null) {
+                    throw new SQLFeatureNotSupportedException(rejection, "0A000");
+                }
+                CipherMode mode = plan.modeOf(i);
+                if (mode != CipherMode.NONE) {
+                    String encrypted = encryptionHelper.encrypt(paramValue.toString(), mode);
+                    Tracer.event(TraceEvent.PARAM_ENCRYPT, i + 1, encrypted == null ? -1 : encrypted.length());
+                    realStatement.setObject(i + 1, encrypted);
+                }
             }
+        } catch (SQLException e) {
+            throw e;
         } catch (Exception e) {
             throw new SQLException("Error during parameter encryption", e);
+        } finally {
+            ProxyMetrics.record(Phase.ENCRYPT, start);
         }
-
-        // 继续执行原始 `executeUpdate`
-        return realStatement.executeUpdate();
     }
 
     @Override
     public ResultSet executeQuery() throws SQLException {
-        logger.info("executeQuery in ProxyPreparedStatement");
-        
-        // 去除注释，只保留可执行 SQL
-        if (originalSql.contains("--@extra.enabled=true")) { // 此时是额外查询
-            String pureSql = originalSql.split("--@")[0].trim();
-            PreparedStatement mainStmt = realStatement.getConnection().prepareStatement(pureSql);
+        if (plan.isExtraQuery()) { // 此时是额外查询
+            // 只执行去除注释后的主查询，额外查询在后台线程上异步执行，不阻塞主查询返回
+            ExtraQuery extra = ExtraQuery.of(originalSql);
+            PreparedStatement mainStmt = realStatement.getConnection().prepareStatement(extra.mainSql);
+            mainStmt.closeOnCompletion();
             ResultSet resultSet = mainStmt.executeQuery();
-            ProxyResultSet decryptedResultSet = new ProxyResultSet(resultSet, encryptionHelper);
-
-            String extraTable = extractTag(originalSql, "--@extra.table=");
-            String extraCols = extractTag(originalSql, "--@extra.columns=");
-
-            if (!extraTable.isEmpty() && !extraCols.isEmpty()) {
-                String extraSql = "SELECT " + extraCols + " FROM " + extraTable;
-                
-                // 获取额外数据库连接URL，优先从SQL注释中获取，然后从配置中获取
-                String extraDbUrl = extractTag(originalSql, "--@extra.db.url=");
-                if (extraDbUrl.isEmpty()) {
-                    extraDbUrl = ConfigLoader.get("extra.db.url");
-                }
-                if (extraDbUrl == null || extraDbUrl.trim().isEmpty()) {
-                    // 如果没有配置额外数据库URL，使用默认配置
-                    extraDbUrl = "jdbc:mysql://localhost:3306/test_mysql";
-                }
-                
-                try (
-                        Connection extraConn = DatabaseUtil.getExtraDbConnection(extraDbUrl);
-                        PreparedStatement preparedStatement = extraConn.prepareStatement(extraSql,ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_UPDATABLE);
-                        ResultSet rawextraRs = preparedStatement.executeQuery()
-                        //ProxyResultSet extraRs = new ProxyResultSet(rawextraRs, encryptionHelper)
-                ) {
-                    ProxyResultSet extraRs = new ProxyResultSet(rawextraRs, encryptionHelper);
-                    ResultSetMetaData meta = extraRs.getMetaData();
-                    logger.info("[执行额外查询] 数据库: {}, 表: {}, 列: {}", extraDbUrl, extraTable, extraCols);
-                    int colCount = meta.getColumnCount();
-                    while (extraRs.next()) {
-                        StringBuilder sb = new StringBuilder("[额外查询结果] ");
-                        for (int i = 1; i <= colCount; i++) {
-                            sb.append(meta.getColumnLabel(i)).append("=").append(extraRs.getString(i)).append(" ");
-                        }
-                        logger.info(sb.toString());
-                    }
-                }
-            }
-            return decryptedResultSet;
-            
-        } else if (originalSql.toUpperCase().trim().contains("WHERE")) { // 此时是等值查询
-            // 等值查询：直接使用已经绑定参数的 realStatement 执行，避免丢失参数/加密
-            logger.info("执行等值查询，使用已绑定的参数");
-            ResultSet resultSet = realStatement.executeQuery();
-            ProxyResultSet decryptedResultSet = new ProxyResultSet(resultSet, encryptionHelper);
-            return decryptedResultSet;
-            
-        } else { // 此时是普通查询
-            // 普通查询：直接使用 realStatement 执行
-            logger.info("执行普通查询");
+            extra.submit(encryptionHelper);
+            return new ProxyResultSet(resultSet, encryptionHelper);
+        } else { // 等值查询与普通查询
+            // 直接使用已经绑定参数的 realStatement 执行，避免丢失参数/加密
+            encryptParameters();
+            long start = ProxyMetrics.start();
+            long traceStart = Tracer.clock();
             ResultSet resultSet = realStatement.executeQuery();
+            ProxyMetrics.record(Phase.EXECUTE, start);
+            Tracer.timed(TraceEvent.EXECUTE_QUERY, parameterValues.size(), traceStart);
             ProxyResultSet decryptedResultSet = new ProxyResultSet(resultSet, encryptionHelper);
             return decryptedResultSet;
         }
     }
 
-    private String extractTag(String sql, String key) {
-        int index = sql.indexOf(key);
-        if (index == -1) return "";
-        int end = sql.indexOf(" ", index + key.length());
-        if (end == -1) {
-            return sql.substring(index + key.length()).trim();
-        }
-        return sql.substring(index + key.length(), end).trim();
-    }
-
     @Override
     public void setNull(int parameterIndex, int sqlType) throws SQLException {
         while (parameterValues.size() < parameterIndex) {
@@ -266,7 +155,7 @@ public class ProxyPreparedStatement implements PreparedStatement {
 
     @Override
     public void setInt(int parameterIndex, int x) throws SQLException {
-        logger.info("setInt called for index {}: {}", parameterIndex, x);
+        Tracer.event(TraceEvent.PARAM_BIND, parameterIndex, -1);
         while (parameterValues.size() < parameterIndex) {
             parameterValues.add(null);
         }
@@ -312,8 +201,8 @@ public class ProxyPreparedStatement implements PreparedStatement {
 
     @Override
     public void setString(int parameterIndex, String x) throws SQLException {
-        logger.info("setString called for index {}: {}", parameterIndex, x);
-        
+        Tracer.event(TraceEvent.PARAM_BIND, parameterIndex, x == null ? -1 : x.length());
+
         // 确保参数列表足够大
         while (parameterValues.size() < parameterIndex) {
             parameterValues.add(null);
@@ -321,28 +210,19 @@ public class ProxyPreparedStatement implements PreparedStatement {
         
         // 使用set方法替换指定位置的参数
         parameterValues.set(parameterIndex - 1, x);
-        
-        String sql = originalSql.toUpperCase().trim();
-        // 对于SELECT语句，需要根据查询类型决定是否加密参数
-        if (sql.startsWith("SELECT")) {
-            // 检查是否是等值查询的WHERE条件
-            if (sql.contains("WHERE") && sql.contains("=")) {
-                // 等值查询，需要加密参数以匹配数据库中的密文
-                try {
-                    String encrypted = encryptionHelper.encrypt(x);
-                    logger.info("等值查询参数已加密: {} = {} -> {}", parameterIndex, x, encrypted);
-                    realStatement.setString(parameterIndex, encrypted);
-                    logger.info("插入之后的 sql : {} " + realStatement.toString());
-                } catch (Exception e) {
-                    throw new SQLException("加密参数失败", e);
-                }
-            } else {
-                // 其他SELECT查询（如全表查询），不需要加密参数
-                logger.info("普通查询参数，不加密: {} = {}", parameterIndex, x);
-                realStatement.setString(parameterIndex, x);
+
+        // 等值查询需要加密参数以匹配数据库中的密文；其余语句先绑定明文，执行前按加密计划统一加密
+        if (plan.isEncryptOnBind() && x != null) {
+            try {
+                long start = ProxyMetrics.start();
+                String encrypted = encryptionHelper.encrypt(x);
+                ProxyMetrics.record(Phase.ENCRYPT, start);
+                Tracer.event(TraceEvent.PARAM_ENCRYPT, parameterIndex, encrypted.length());
+                realStatement.setString(parameterIndex, encrypted);
+            } catch (Exception e) {
+                throw new SQLException("加密参数失败", e);
             }
         } else {
-            // 非SELECT语句，直接设置
             realStatement.setString(parameterIndex, x);
         }
     }
@@ -412,7 +292,9 @@ public class ProxyPreparedStatement implements PreparedStatement {
 
     @Override
     public void clearParameters() throws SQLException {
-
+        // 语句被缓存复用时，上一次的参数不能参与本次加密
+        parameterValues.clear();
+        params.clear();
         realStatement.clearParameters();
     }
 
@@ -429,6 +311,8 @@ public class ProxyPreparedStatement implements PreparedStatement {
 
     @Override
     public void setObject(int parameterIndex, Object x) throws SQLException {
+        Tracer.event(TraceEvent.PARAM_BIND, parameterIndex, x instanceof String str ? str.length() : -1);
+
         // 确保参数列表足够大
         while (parameterValues.size() < parameterIndex) {
             parameterValues.add(null);
@@ -436,22 +320,16 @@ public class ProxyPreparedStatement implements PreparedStatement {
         
         // 使用set方法替换指定位置的参数，而不是add
         parameterValues.set(parameterIndex - 1, x);
-        
-        String sql = originalSql.toUpperCase().trim();
-        // 对于SELECT语句，需要根据查询类型决定是否加密参数
-        if (x instanceof String str && sql.startsWith("SELECT")) {
-            // 检查是否是等值查询的WHERE条件
-            if (sql.contains("WHERE") && sql.contains("=")) {
-                // 等值查询，需要加密参数以匹配数据库中的密文
-                try {
-                    x = encryptionHelper.encrypt(x.toString());
-                    logger.info("等值查询参数已加密: {} = {} -> {}", parameterIndex, str, x);
-                } catch (Exception e) {
-                    throw new SQLException("加密参数失败", e);
-                }
-            } else {
-                // 其他SELECT查询（如全表查询），不需要加密参数
-                logger.info("普通查询参数，不加密: {} = {}", parameterIndex, x);
+
+        // 等值查询需要加密参数以匹配数据库中的密文
+        if (plan.isEncryptOnBind() && x instanceof String str) {
+            try {
+                long start = ProxyMetrics.start();
+                x = encryptionHelper.encrypt(str);
+                ProxyMetrics.record(Phase.ENCRYPT, start);
+                Tracer.event(TraceEvent.PARAM_ENCRYPT, parameterIndex, ((String) x).length());
+            } catch (Exception e) {
+                throw new SQLException("加密参数失败", e);
             }
         }
 
@@ -465,6 +343,8 @@ public class ProxyPreparedStatement implements PreparedStatement {
 
     @Override
     public void addBatch() throws SQLException {
+        // 每组参数与单条 executeUpdate 一样先加密再加入批次
+        encryptParameters();
         realStatement.addBatch();
     }
 
@@ -873,7 +753,12 @@ public class ProxyPreparedStatement implements PreparedStatement {
 
     @Override
     public int[] executeBatch() throws SQLException {
-        return realStatement.executeBatch();
+        long start = ProxyMetrics.start();
+        try {
+            return realStatement.executeBatch();
+        } finally {
+            ProxyMetrics.record(Phase.EXECUTE, start);
+        }
     }
 
     @Override
@@ -1,6 +1,10 @@
 package com.seu.jdbcproxy.core;
 
+import com.seu.jdbcproxy.rewrite.CipherMode;
+import com.seu.jdbcproxy.rewrite.ColumnPolicy;
 import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import com.seu.jdbcproxy.trace.TraceEvent;
+import com.seu.jdbcproxy.trace.Tracer;
 
 import java.io.*;
 import java.math.BigDecimal;
@@ -11,16 +15,146 @@ import java.sql.*;
 import java.util.Calendar;
 import java.util.Map;
 
+/**
+ * 解密结果集。第一次读取时根据元数据确定哪些列可能存放密文：数值、日期时间、布尔列直接走原生 getter，
+ * 配置了 encrypt.columns 时策略外的已知列同样不检查；其余列在每行第一次读取时判断并解密，结果在本行内缓存，
+ * 同一单元格被多次读取（getString 后 getObject 等）不再重复解密。
+ */
 public class ProxyResultSet  implements ResultSet {
+    /** readCell 的结果：列不可能是密文，调用方直接使用原生 getter */
+    private static final int NATIVE = 0;
+    private static final int PLAIN = 1;
+    private static final int DECRYPTED = 2;
 
     private final ResultSet realResultSet;
     private final EncryptionHelper encryptionHelper;
 
+    // 按列（0 起）标记是否可能存放密文，第一次读取时由元数据初始化
+    private boolean[] cipherColumns;
+    // 本行已读取单元格的状态与值；cellRows[i] == row 时有效，光标移动时 row 自增使整行失效
+    private int[] cellStates;
+    private int[] cellRows;
+    private String[] cellValues;
+    private int row = 1;
+    // 最后一次读取命中本行缓存时 wasNull 由此给出
+    private boolean cachedRead;
+    private boolean cachedNull;
+
     public ProxyResultSet(ResultSet realResultSet, EncryptionHelper encryptionHelper) {
         this.realResultSet = realResultSet;
         this.encryptionHelper = encryptionHelper;
     }
 
+    private void initColumns() throws SQLException {
+        ResultSetMetaData md = realResultSet.getMetaData();
+        int count = md.getColumnCount();
+        ColumnPolicy policy = ColumnPolicy.configured();
+        boolean[] columns = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            boolean cipher = mayHoldCipherText(md.getColumnType(i + 1));
+            if (cipher && !policy.isEmpty()) {
+                String table = md.getTableName(i + 1);
+                // 无法确定所属表（表达式、部分驱动的别名）时仍逐值检查
+                if (table != null && !table.isEmpty()
+                        && policy.modeOf(table, md.getColumnName(i + 1)) == CipherMode.NONE) {
+                    cipher = false;
+                }
+            }
+            columns[i] = cipher;
+        }
+        cellStates = new int[count];
+        cellRows = new int[count];
+        cellValues = new String[count];
+        cipherColumns = columns;
+    }
+
+    private static boolean mayHoldCipherText(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT,
+                 Types.REAL, Types.FLOAT, Types.DOUBLE, Types.NUMERIC, Types.DECIMAL,
+                 Types.BIT, Types.BOOLEAN,
+                 Types.DATE, Types.TIME, Types.TIMESTAMP,
+                 Types.TIME_WITH_TIMEZONE, Types.TIMESTAMP_WITH_TIMEZONE:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * 读取当前行第 columnIndex 列并在本行内缓存：密文解密后存入 cellValues，明文原样存入；
+     * 不可能存放密文的列不读取，返回 NATIVE
+     */
+    private int readCell(int columnIndex) throws SQLException {
+        if (cipherColumns == null) {
+            initColumns();
+        }
+        int i = columnIndex - 1;
+        if (i < 0 || i >= cipherColumns.length || !cipherColumns[i]) {
+            return NATIVE;
+        }
+        if (cellRows[i] != row) {
+            String value = realResultSet.getString(columnIndex);
+            int state = PLAIN;
+            if (value != null && encryptionHelper.isCipherText(value)) {
+                int length = value.length();
+                try {
+                    value = encryptionHelper.decrypt(value);
+                } catch (Exception e) {
+                    Tracer.event(TraceEvent.DECRYPT_FAILED, columnIndex, length);
+                    throw new SQLException("Error decrypting value for column index: " + columnIndex, e);
+                }
+                Tracer.event(TraceEvent.CELL_DECRYPT, columnIndex, length);
+                state = DECRYPTED;
+            }
+            cellValues[i] = value;
+            cellStates[i] = state;
+            cellRows[i] = row;
+        }
+        return cellStates[i];
+    }
+
+    /**
+     * 第 columnIndex 列在当前行的解密值；不是密文时返回 null，调用方改用原生 getter
+     */
+    private String decrypted(int columnIndex) throws SQLException {
+        if (readCell(columnIndex) == DECRYPTED) {
+            cachedRead = true;
+            cachedNull = false;
+            return cellValues[columnIndex - 1];
+        }
+        cachedRead = false;
+        return null;
+    }
+
+    private void invalidateRow() {
+        row++;
+        cachedRead = false;
+    }
+
+    /**
+     * 第 columnIndex 列是否可能存放密文（由元数据与列级策略判断）
+     */
+    public boolean isCipherColumn(int columnIndex) throws SQLException {
+        if (cipherColumns == null) {
+            initColumns();
+        }
+        int i = columnIndex - 1;
+        return i >= 0 && i < cipherColumns.length && cipherColumns[i];
+    }
+
+    /**
+     * 当前行第 columnIndex 列的原始值，不解密也不写入行缓存；供服务端整批读取后用 {@link #getEncryptionHelper()} 统一解密
+     */
+    public String getRawString(int columnIndex) throws SQLException {
+        cachedRead = false;
+        return realResultSet.getString(columnIndex);
+    }
+
+    public EncryptionHelper getEncryptionHelper() {
+        return encryptionHelper;
+    }
+
     private boolean isTestColumn(int columnIndex) throws SQLException {
         // 假设 `test` 是第 2 列，可根据实际情况动态判断
         return "test".equalsIgnoreCase(realResultSet.getMetaData().getColumnName(columnIndex));
@@ -28,47 +162,26 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public String getString(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-//        if (isTestColumn(columnIndex)) { // 判断是否是 `test` 字段
-//            try {
-//                return encryptionHelper.decrypt(encryptedvalue);
-//            } catch (Exception e) {
-//                throw new RuntimeException("Failed to decrypt value for column index: " + columnIndex, e);
-//            }
-//        }
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
-            try {
-                //System.out.println(111111);
-                return encryptionHelper.decrypt(encryptedValue);  // 解密密文
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+        int state = readCell(columnIndex);
+        if (state == NATIVE) {
+            cachedRead = false;
+            return realResultSet.getString(columnIndex);
         }
-        return encryptedValue; // 非 `test` 字段直接返回原始值
+        // 明文与解密后的值都已缓存在本行中
+        String value = cellValues[columnIndex - 1];
+        cachedRead = true;
+        cachedNull = value == null;
+        return value;
     }
 
     @Override
     public String getString(String columnLabel) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnLabel);
-//        if ("test".equalsIgnoreCase(columnLabel)) { // 判断是否是 `test` 字段
-//            try {
-//                return encryptionHelper.decrypt(encryptedValue);
-//            } catch (Exception e) {
-//                throw new RuntimeException("Failed to decrypt value for column: " + columnLabel, e);
-//            }
-//        }
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
-            try {
-                return encryptionHelper.decrypt(encryptedValue);  // 解密密文
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        }
-        return encryptedValue; // 非 `test` 字段直接返回原始值
+        return getString(realResultSet.findColumn(columnLabel));
     }
 
     @Override
     public boolean next() throws SQLException {
+        invalidateRow();
         return realResultSet.next();
     }
 
@@ -79,15 +192,16 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public boolean wasNull() throws SQLException {
-        return realResultSet.wasNull();
+        // 最后一次读取命中了本行缓存时，底层结果集的 wasNull 对应的是更早读取的列
+        return cachedRead ? cachedNull : realResultSet.wasNull();
     }
 
     @Override
     public boolean getBoolean(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                return Boolean.parseBoolean(encryptionHelper.decrypt(encryptedValue));
+                return Boolean.parseBoolean(decryptedValue);
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
@@ -97,10 +211,10 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public byte getByte(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                return Byte.parseByte(encryptionHelper.decrypt(encryptedValue));
+                return Byte.parseByte(decryptedValue);
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
@@ -110,10 +224,10 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public short getShort(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                return Short.parseShort(encryptionHelper.decrypt(encryptedValue));
+                return Short.parseShort(decryptedValue);
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
@@ -123,10 +237,10 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public int getInt(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                return Integer.parseInt(encryptionHelper.decrypt(encryptedValue));  // 解密并转换为原始类型
+                return Integer.parseInt(decryptedValue);  // 解密并转换为原始类型
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
@@ -136,10 +250,10 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public long getLong(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                return Long.parseLong(encryptionHelper.decrypt(encryptedValue));
+                return Long.parseLong(decryptedValue);
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
@@ -149,10 +263,10 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public float getFloat(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                return Float.parseFloat(encryptionHelper.decrypt(encryptedValue));
+                return Float.parseFloat(decryptedValue);
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
@@ -162,10 +276,10 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public double getDouble(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                return Double.parseDouble(encryptionHelper.decrypt(encryptedValue));
+                return Double.parseDouble(decryptedValue);
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
@@ -175,10 +289,10 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                return new BigDecimal(encryptionHelper.decrypt(encryptedValue)).setScale(scale, RoundingMode.HALF_UP);
+                return new BigDecimal(decryptedValue).setScale(scale, RoundingMode.HALF_UP);
             } catch (Exception e) {
                 throw new SQLException("Error decrypting the BigDecimal value for column index with scale: " + columnIndex, e);
             }
@@ -188,11 +302,10 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public byte[] getBytes(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
                 // 解密后将解密的字符串转换为字节数组
-                String decryptedValue = encryptionHelper.decrypt(encryptedValue);
                 return decryptedValue.getBytes(StandardCharsets.UTF_8); // 以 UTF-8 字符集转换为字节数组
             } catch (Exception e) {
                 throw new SQLException("Error decrypting the byte array for column index: " + columnIndex, e);
@@ -203,10 +316,9 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public Date getDate(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                String decryptedValue = encryptionHelper.decrypt(encryptedValue);
                 return Date.valueOf(decryptedValue);  // 假设解密后的值是 "yyyy-mm-dd" 格式
             } catch (Exception e) {
                 throw new SQLException("Error decrypting the date value for column index: " + columnIndex, e);
@@ -217,10 +329,9 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public Time getTime(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                String decryptedValue = encryptionHelper.decrypt(encryptedValue);
                 return Time.valueOf(decryptedValue);  // 假设解密后的值是 "hh:mm:ss" 格式
             } catch (Exception e) {
                 throw new SQLException("Error decrypting the time value for column index: " + columnIndex, e);
@@ -231,10 +342,9 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public Timestamp getTimestamp(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                String decryptedValue = encryptionHelper.decrypt(encryptedValue);
                 return Timestamp.valueOf(decryptedValue);  // 假设解密后的值是 "yyyy-mm-dd hh:mm:ss" 格式
             } catch (Exception e) {
                 throw new SQLException("Error decrypting the timestamp value for column index: " + columnIndex, e);
@@ -246,6 +356,7 @@ public class ProxyResultSet  implements ResultSet {
     @Override
     public InputStream getAsciiStream(int columnIndex) throws SQLException {
         // 获取原始的 ASCII 字符流
+        cachedRead = false;
         InputStream inputStream = realResultSet.getAsciiStream(columnIndex);
 
         // 判断数据是否需要解密
@@ -274,6 +385,7 @@ public class ProxyResultSet  implements ResultSet {
     @Override
     public InputStream getUnicodeStream(int columnIndex) throws SQLException {
         // 获取原始的 Unicode 字符流
+        cachedRead = false;
         InputStream inputStream = realResultSet.getUnicodeStream(columnIndex);
 
         if (inputStream != null) {
@@ -298,6 +410,7 @@ public class ProxyResultSet  implements ResultSet {
     @Override
     public InputStream getBinaryStream(int columnIndex) throws SQLException {
         // 获取原始的二进制流
+        cachedRead = false;
         InputStream inputStream = realResultSet.getBinaryStream(columnIndex);
 
         if (inputStream != null) {
@@ -337,15 +450,7 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public int getInt(String columnLabel) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnLabel);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
-            try {
-                return Integer.parseInt(encryptionHelper.decrypt(encryptedValue));  // 解密并转换为原始类型
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        }
-        return realResultSet.getInt(columnLabel);
+        return getInt(realResultSet.findColumn(columnLabel));
     }
 
     @Override
@@ -365,15 +470,7 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnLabel);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
-            try {
-                return new BigDecimal(encryptionHelper.decrypt(encryptedValue)).setScale(scale, RoundingMode.HALF_UP);
-            } catch (Exception e) {
-                throw new SQLException("Error decrypting the BigDecimal value for column index with scale: " + columnLabel, e);
-            }
-        }
-        return realResultSet.getBigDecimal(columnLabel, scale);
+        return getBigDecimal(realResultSet.findColumn(columnLabel), scale);
     }
 
     @Override
@@ -433,10 +530,9 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public Object getObject(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                String decryptedValue = encryptionHelper.decrypt(encryptedValue);
                 //System.out.println(111);
                 return decryptedValue;  // 返回解密后的对象，假设是 String 类型
             } catch (Exception e) {
@@ -459,6 +555,7 @@ public class ProxyResultSet  implements ResultSet {
     @Override
     public Reader getCharacterStream(int columnIndex) throws SQLException {
         // 获取原始的字符流
+        cachedRead = false;
         Reader reader = realResultSet.getCharacterStream(columnIndex);
 
         if (reader != null) {
@@ -496,10 +593,10 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                return new BigDecimal(encryptionHelper.decrypt(encryptedValue));
+                return new BigDecimal(decryptedValue);
             } catch (Exception e) {
                 throw new SQLException("Error decrypting the BigDecimal value for column index: " + columnIndex, e);
             }
@@ -534,21 +631,25 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public void beforeFirst() throws SQLException {
+        invalidateRow();
         realResultSet.beforeFirst();
     }
 
     @Override
     public void afterLast() throws SQLException {
+        invalidateRow();
         realResultSet.afterLast();
     }
 
     @Override
     public boolean first() throws SQLException {
+        invalidateRow();
         return realResultSet.first();
     }
 
     @Override
     public boolean last() throws SQLException {
+        invalidateRow();
         return realResultSet.last();
     }
 
@@ -559,16 +660,19 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public boolean absolute(int row) throws SQLException {
+        invalidateRow();
         return realResultSet.absolute(row);
     }
 
     @Override
     public boolean relative(int rows) throws SQLException {
+        invalidateRow();
         return realResultSet.relative(rows);
     }
 
     @Override
     public boolean previous() throws SQLException {
+        invalidateRow();
         return realResultSet.previous();
     }
 
@@ -809,36 +913,43 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public void insertRow() throws SQLException {
+        invalidateRow();
         realResultSet.insertRow();
     }
 
     @Override
     public void updateRow() throws SQLException {
+        invalidateRow();
         realResultSet.updateRow();
     }
 
     @Override
     public void deleteRow() throws SQLException {
+        invalidateRow();
         realResultSet.deleteRow();
     }
 
     @Override
     public void refreshRow() throws SQLException {
+        invalidateRow();
         realResultSet.refreshRow();
     }
 
     @Override
     public void cancelRowUpdates() throws SQLException {
+        invalidateRow();
         realResultSet.cancelRowUpdates();
     }
 
     @Override
     public void moveToInsertRow() throws SQLException {
+        invalidateRow();
         realResultSet.moveToInsertRow();
     }
 
     @Override
     public void moveToCurrentRow() throws SQLException {
+        invalidateRow();
         realResultSet.moveToCurrentRow();
     }
 
@@ -850,6 +961,7 @@ public class ProxyResultSet  implements ResultSet {
     @Override
     public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
         // 获取原始对象
+        cachedRead = false;
         Object object = realResultSet.getObject(columnIndex, map);
 
         // 如果对象是加密数据，则进行解密
@@ -908,15 +1020,15 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public Ref getRef(int columnIndex) throws SQLException {
+        cachedRead = false;
         return realResultSet.getRef(columnIndex);
     }
 
     @Override
     public Blob getBlob(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                String decryptedValue = encryptionHelper.decrypt(encryptedValue);
                 return new javax.sql.rowset.serial.SerialBlob(decryptedValue.getBytes());
             } catch (Exception e) {
                 throw new SQLException("Error decrypting the Blob value for column index: " + columnIndex, e);
@@ -927,10 +1039,9 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public Clob getClob(int columnIndex) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                String decryptedValue = encryptionHelper.decrypt(encryptedValue);
                 return new javax.sql.rowset.serial.SerialClob(decryptedValue.toCharArray());
             } catch (Exception e) {
                 throw new SQLException("Error decrypting the Clob value for column index: " + columnIndex, e);
@@ -941,6 +1052,7 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public Array getArray(int columnIndex) throws SQLException {
+        cachedRead = false;
         return realResultSet.getArray(columnIndex);
     }
 
@@ -951,6 +1063,7 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public Ref getRef(String columnLabel) throws SQLException {
+        cachedRead = false;
         return realResultSet.getRef(columnLabel);
     }
 
@@ -966,15 +1079,15 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public Array getArray(String columnLabel) throws SQLException {
+        cachedRead = false;
         return realResultSet.getArray(columnLabel);
     }
 
     @Override
     public Date getDate(int columnIndex, Calendar cal) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                String decryptedValue = encryptionHelper.decrypt(encryptedValue);
                 return Date.valueOf(decryptedValue); // 假设解密后的值是 "yyyy-mm-dd" 格式
             } catch (Exception e) {
                 throw new SQLException("Error decrypting the date value for column index: " + columnIndex, e);
@@ -990,10 +1103,9 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public Time getTime(int columnIndex, Calendar cal) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                String decryptedValue = encryptionHelper.decrypt(encryptedValue);
                 return Time.valueOf(decryptedValue); // 假设解密后的值是 "hh:mm:ss" 格式
             } catch (Exception e) {
                 throw new SQLException("Error decrypting the time value for column index: " + columnIndex, e);
@@ -1009,10 +1121,9 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
-        String encryptedValue = realResultSet.getString(columnIndex);
-        if (encryptedValue != null && encryptionHelper.isCipherText(encryptedValue)) {
+        String decryptedValue = decrypted(columnIndex);
+        if (decryptedValue != null) {
             try {
-                String decryptedValue = encryptionHelper.decrypt(encryptedValue);
                 return Timestamp.valueOf(decryptedValue); // 假设解密后的值是 "yyyy-mm-dd hh:mm:ss" 格式
             } catch (Exception e) {
                 throw new SQLException("Error decrypting the timestamp value for column index: " + columnIndex, e);
@@ -1028,11 +1139,13 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public URL getURL(int columnIndex) throws SQLException {
+        cachedRead = false;
         return realResultSet.getURL(columnIndex);
     }
 
     @Override
     public URL getURL(String columnLabel) throws SQLException {
+        cachedRead = false;
         return realResultSet.getURL(columnLabel);
     }
 
@@ -1078,11 +1191,13 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public RowId getRowId(int columnIndex) throws SQLException {
+        cachedRead = false;
         return realResultSet.getRowId(columnIndex);
     }
 
     @Override
     public RowId getRowId(String columnLabel) throws SQLException {
+        cachedRead = false;
         return realResultSet.getRowId(columnLabel);
     }
 
@@ -1128,21 +1243,25 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public NClob getNClob(int columnIndex) throws SQLException {
+        cachedRead = false;
         return realResultSet.getNClob(columnIndex);
     }
 
     @Override
     public NClob getNClob(String columnLabel) throws SQLException {
+        cachedRead = false;
         return realResultSet.getNClob(columnLabel);
     }
 
     @Override
     public SQLXML getSQLXML(int columnIndex) throws SQLException {
+        cachedRead = false;
         return realResultSet.getSQLXML(columnIndex);
     }
 
     @Override
     public SQLXML getSQLXML(String columnLabel) throws SQLException {
+        cachedRead = false;
         return realResultSet.getSQLXML(columnLabel);
     }
 
@@ -1158,21 +1277,25 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public String getNString(int columnIndex) throws SQLException {
+        cachedRead = false;
         return realResultSet.getNString(columnIndex);
     }
 
     @Override
     public String getNString(String columnLabel) throws SQLException {
+        cachedRead = false;
         return realResultSet.getNString(columnLabel);
     }
 
     @Override
     public Reader getNCharacterStream(int columnIndex) throws SQLException {
+        cachedRead = false;
         return realResultSet.getNCharacterStream(columnIndex);
     }
 
     @Override
     public Reader getNCharacterStream(String columnLabel) throws SQLException {
+        cachedRead = false;
         return realResultSet.getNCharacterStream(columnLabel);
     }
 
@@ -1318,11 +1441,13 @@ public class ProxyResultSet  implements ResultSet {
 
     @Override
     public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+        cachedRead = false;
         return realResultSet.getObject(columnIndex, type);
     }
 
     @Override
     public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+        cachedRead = false;
         return realResultSet.getObject(columnLabel, type);
     }
 
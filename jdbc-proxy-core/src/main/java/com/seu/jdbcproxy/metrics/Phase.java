@@ -0,0 +1,27 @@
+package com.seu.jdbcproxy.metrics;
+
+/**
+ * 一个请求在服务端经过的阶段
+ */
+public enum Phase {
+    /** 请求帧解码 */
+    DECODE,
+    /** 方言改写（语句缓存命中时没有） */
+    REWRITE,
+    /** 参数加密 */
+    ENCRYPT,
+    /** 后端执行 executeQuery / executeUpdate / executeBatch */
+    EXECUTE,
+    /** 从后端结果集读取一个批次（不含批量解密） */
+    FETCH,
+    /** 批量解密 */
+    DECRYPT,
+    /** 响应编码与写出 */
+    ENCODE,
+    /** RequestDispatcher 处理请求的总耗时 */
+    TOTAL;
+
+    public String label() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,215 @@
+package com.seu.jdbcproxy.metrics;
+
+import com.seu.jdbcproxy.ConfigLoader;
+import com.seu.jdbcproxy.pojo.MessageType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务端指标：按 (消息类型, 阶段) 记录的延迟直方图，以及行数、字节数、加解密次数计数器。
+ * <p>
+ * 当前请求的消息类型由 RequestDispatcher 通过 {@link #enter} 放在线程上下文中，
+ * core 层（改写、参数加密、后端执行）只需记录阶段；不在请求处理中的调用记在 type="none" 下。
+ * metrics.enabled=false 时 {@link #start()} 不读时钟，各记录方法直接返回。
+ * 通过 STATS 消息（表格或 Prometheus 文本格式）读取。
+ */
+public final class ProxyMetrics {
+    private static final boolean ENABLED = Boolean.parseBoolean(ConfigLoader.get("metrics.enabled", "true"));
+
+    /** STATS 响应的列 */
+    public static final List<String> COLUMNS = List.of(
+            "type", "phase", "count", "mean_us", "p50_us", "p90_us", "p99_us", "p999_us", "max_us");
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final MessageType[] TYPES = MessageType.values();
+    private static final Phase[] PHASES = Phase.values();
+    // 下标 = 类型序号 * 阶段数 + 阶段序号，最后一组对应 type="none"；首次记录时创建
+    private static final AtomicReferenceArray<LatencyHistogram> HISTOGRAMS =
+            new AtomicReferenceArray<>((TYPES.length + 1) * PHASES.length);
+    private static final ThreadLocal<MessageType> CURRENT = new ThreadLocal<>();
+
+    private static final LongAdder ROWS = new LongAdder();
+    private static final LongAdder BYTES_IN = new LongAdder();
+    private static final LongAdder BYTES_OUT = new LongAdder();
+    private static final LongAdder ENCRYPTIONS = new LongAdder();
+    private static final LongAdder DECRYPTIONS = new LongAdder();
+
+    private ProxyMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * 阶段开始时间，传给 {@link #record(Phase, long)}；未启用时返回 0
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * 开始处理一个请求，返回之前的上下文，处理完后传给 {@link #exit}
+     */
+    public static MessageType enter(MessageType type) {
+        if (!ENABLED) {
+            return null;
+        }
+        MessageType previous = CURRENT.get();
+        CURRENT.set(type);
+        return previous;
+    }
+
+    public static void exit(MessageType previous) {
+        if (ENABLED) {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * 记录当前请求的一个阶段：从 startNanos 到现在
+     */
+    public static void record(Phase phase, long startNanos) {
+        if (ENABLED) {
+            histogram(CURRENT.get(), phase).record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * 记录指定消息类型的一个阶段（解码 / 编码时线程上下文中还没有请求）
+     */
+    public static void record(MessageType type, Phase phase, long startNanos) {
+        if (ENABLED) {
+            histogram(type, phase).record(System.nanoTime() - startNanos);
+        }
+    }
+
+    private static LatencyHistogram histogram(MessageType type, Phase phase) {
+        int index = (type == null ? TYPES.length : type.ordinal()) * PHASES.length + phase.ordinal();
+        LatencyHistogram h = HISTOGRAMS.get(index);
+        if (h == null) {
+            HISTOGRAMS.compareAndSet(index, null, new LatencyHistogram());
+            h = HISTOGRAMS.get(index);
+        }
+        return h;
+    }
+
+    public static void addRows(long rows) {
+        if (ENABLED) {
+            ROWS.add(rows);
+        }
+    }
+
+    public static void addBytesIn(long bytes) {
+        if (ENABLED) {
+            BYTES_IN.add(bytes);
+        }
+    }
+
+    public static void addBytesOut(long bytes) {
+        if (ENABLED) {
+            BYTES_OUT.add(bytes);
+        }
+    }
+
+    public static void encrypted() {
+        if (ENABLED) {
+            ENCRYPTIONS.increment();
+        }
+    }
+
+    public static void decrypted() {
+        if (ENABLED) {
+            DECRYPTIONS.increment();
+        }
+    }
+
+    /**
+     * STATS 表格：每个有记录的 (类型, 阶段) 一行，延迟单位为微秒；其后每个计数器一行（type="counter"，count 为计数值）
+     */
+    public static List<List<Object>> table() {
+        List<List<Object>> rows = new ArrayList<>();
+        forEachHistogram((type, phase, h) -> {
+            List<Object> row = new ArrayList<>(COLUMNS.size());
+            row.add(type);
+            row.add(phase.label());
+            row.add(h.getCount());
+            row.add(micros(h.getMean()));
+            for (double q : QUANTILES) {
+                row.add(micros(h.getValueAtPercentile(q * 100)));
+            }
+            row.add(micros(h.getMax()));
+            rows.add(row);
+        });
+        for (Object[] counter : counters()) {
+            List<Object> row = new ArrayList<>(Arrays.asList(new Object[COLUMNS.size()]));
+            row.set(0, "counter");
+            row.set(1, counter[0]);
+            row.set(2, counter[1]);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Prometheus 文本格式：延迟为 summary（秒），计数器为 counter
+     */
+    public static String prometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("# HELP jdbcproxy_phase_seconds Server-side latency per message type and phase\n");
+        sb.append("# TYPE jdbcproxy_phase_seconds summary\n");
+        forEachHistogram((type, phase, h) -> {
+            String labels = "type=\"" + type + "\",phase=\"" + phase.label() + "\"";
+            for (double q : QUANTILES) {
+                sb.append("jdbcproxy_phase_seconds{").append(labels).append(",quantile=\"").append(q).append("\"} ")
+                        .append(seconds(h.getValueAtPercentile(q * 100))).append('\n');
+            }
+            sb.append("jdbcproxy_phase_seconds_sum{").append(labels).append("} ").append(seconds(h.getSum())).append('\n');
+            sb.append("jdbcproxy_phase_seconds_count{").append(labels).append("} ").append(h.getCount()).append('\n');
+        });
+        for (Object[] counter : counters()) {
+            String name = "jdbcproxy_" + counter[0] + "_total";
+            sb.append("# TYPE ").append(name).append(" counter\n");
+            sb.append(name).append(' ').append(counter[1]).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static Object[][] counters() {
+        return new Object[][]{
+                {"rows", ROWS.sum()},
+                {"bytes_received", BYTES_IN.sum()},
+                {"bytes_sent", BYTES_OUT.sum()},
+                {"encryptions", ENCRYPTIONS.sum()},
+                {"decryptions", DECRYPTIONS.sum()},
+        };
+    }
+
+    private interface HistogramVisitor {
+        void visit(String type, Phase phase, LatencyHistogram histogram);
+    }
+
+    private static void forEachHistogram(HistogramVisitor visitor) {
+        for (int t = 0; t <= TYPES.length; t++) {
+            for (Phase phase : PHASES) {
+                LatencyHistogram h = HISTOGRAMS.get(t * PHASES.length + phase.ordinal());
+                if (h != null && h.getCount() > 0) {
+                    visitor.visit(t == TYPES.length ? "none" : TYPES[t].name(), phase, h);
+                }
+            }
+        }
+    }
+
+    private static double micros(double nanos) {
+        return Math.round(nanos / 100.0) / 10.0;
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+}
@@ -0,0 +1,129 @@
+package com.seu.jdbcproxy.pool;
+
+import com.seu.jdbcproxy.ConfigLoader;
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 服务端共享的后端连接池注册表：按 (realUrl, user) 各建一个 {@link ConnectionPool}，所有客户端会话从中借用连接。
+ * 键里还带有密码摘要，密码错误的会话不会借到别人已认证的连接。
+ * <p>
+ * pool.enabled=false 时每次借用都新建物理连接，归还即关闭（与引入连接池前的行为一致）。
+ */
+public final class BackendPool {
+    private static final Logger logger = LoggerFactory.getLogger(BackendPool.class);
+
+    private static final Map<PoolKey, ConnectionPool> pools = new ConcurrentHashMap<>();
+
+    private BackendPool() {
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigLoader.get("pool.enabled", "true"));
+    }
+
+    /**
+     * 为一个客户端会话借用后端连接
+     */
+    public static PooledConnection acquire(String url, String user, String password, EncryptionHelper encryptionHelper)
+            throws SQLException {
+        if (!isEnabled()) {
+            return new PooledConnection(null, connect(url, user, password), encryptionHelper,
+                    ConnectionPool.Settings.fromConfig().statementCacheSize());
+        }
+        PoolKey key = new PoolKey(url, user, digest(password));
+        ConnectionPool pool = pools.computeIfAbsent(key,
+                k -> new ConnectionPool(url, user, password, ConnectionPool.Settings.fromConfig(), encryptionHelper));
+        try {
+            return pool.acquire();
+        } catch (SQLException e) {
+            if (pool.getTotal() == 0 && pools.remove(key, pool)) {
+                // 一条连接都建不起来（地址或口令错误），不保留这个池，也不让维护任务反复预热
+                pool.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 定期维护所有连接池：淘汰空闲超时的连接、补足最小连接数
+     */
+    public static void maintain() {
+        for (ConnectionPool pool : pools.values()) {
+            try {
+                pool.maintain();
+            } catch (RuntimeException e) {
+                logger.warn("Error maintaining {}: {}", pool, e.getMessage());
+            }
+            logger.debug("{}", pool);
+        }
+    }
+
+    /**
+     * 当前所有连接池（用于监控）
+     */
+    public static Collection<ConnectionPool> getPools() {
+        return List.copyOf(pools.values());
+    }
+
+    /**
+     * 关闭并移除所有连接池，借出中的连接在归还时关闭
+     */
+    public static void closeAll() {
+        List<ConnectionPool> closing = new ArrayList<>(pools.values());
+        pools.clear();
+        for (ConnectionPool pool : closing) {
+            logger.info("Closing {}", pool);
+            pool.close();
+        }
+    }
+
+    /**
+     * 建立一条物理连接。MySQL 地址未显式指定 useCursorFetch 时默认开启（pool.mysql.useCursorFetch），
+     * 只进只读且设置了 fetchSize 的查询由服务端游标分批返回，代理不必把整个结果集读入内存
+     */
+    static Connection connect(String url, String user, String password) throws SQLException {
+        Properties props = new Properties();
+        if (user != null) {
+            props.setProperty("user", user);
+        }
+        if (password != null) {
+            props.setProperty("password", password);
+        }
+        if (url.startsWith("jdbc:mysql:") && !url.contains("useCursorFetch")
+                && Boolean.parseBoolean(ConfigLoader.get("pool.mysql.useCursorFetch", "true"))) {
+            props.setProperty("useCursorFetch", "true");
+        }
+        return DriverManager.getConnection(url, props);
+    }
+
+    private static String digest(String password) {
+        if (password == null) {
+            return "";
+        }
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record PoolKey(String url, String user, String passwordDigest) {
+    }
+}
@@ -0,0 +1,383 @@
+package com.seu.jdbcproxy.pool;
+
+import com.seu.jdbcproxy.ConfigLoader;
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 同一 (realUrl, user, 密码) 的后端连接池。
+ * <ul>
+ *     <li>空闲连接后进先出，最近用过的连接最先被借出，多余的连接自然空闲到被淘汰；</li>
+ *     <li>空闲超过 validationIntervalMs 的连接借出前用 isValid 校验，失效则丢弃重试；</li>
+ *     <li>总数达到 maxSize 时等待至多 acquireTimeoutMs，超时抛出 SQLTransientConnectionException；</li>
+ *     <li>{@link #maintain()} 由 BackendPool 定期调用：淘汰空闲超时的连接、补足 minSize（预热）。</li>
+ * </ul>
+ * lock 保护空闲队列与计数（total / waiting / closed），等待可用连接时阻塞在 available 上。
+ */
+public class ConnectionPool {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    /**
+     * 连接池参数，默认值来自 config.properties 的 pool.* 配置
+     */
+    public record Settings(int minSize, int maxSize, long idleTimeoutMs, long acquireTimeoutMs,
+                           long validationIntervalMs, int validationTimeoutSeconds, int statementCacheSize) {
+
+        public static Settings fromConfig() {
+            return new Settings(
+                    Integer.parseInt(ConfigLoader.get("pool.minSize", "2")),
+                    Integer.parseInt(ConfigLoader.get("pool.maxSize", "20")),
+                    Long.parseLong(ConfigLoader.get("pool.idleTimeoutMs", "600000")),
+                    Long.parseLong(ConfigLoader.get("pool.acquireTimeoutMs", "5000")),
+                    Long.parseLong(ConfigLoader.get("pool.validationIntervalMs", "30000")),
+                    Integer.parseInt(ConfigLoader.get("pool.validationTimeoutSeconds", "2")),
+                    Integer.parseInt(ConfigLoader.get("server.statementCache.size",
+                            String.valueOf(StatementCache.DEFAULT_SIZE))));
+        }
+    }
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Settings settings;
+    private final EncryptionHelper encryptionHelper;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    // 已创建（含正在创建）的连接数
+    private int total;
+    private int waiting;
+    private boolean closed;
+
+    // 监控指标
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong acquireNanos = new AtomicLong();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong discardedCount = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password, Settings settings, EncryptionHelper encryptionHelper) {
+        if (settings.maxSize() <= 0 || settings.minSize() > settings.maxSize()) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + settings.minSize() + " max=" + settings.maxSize());
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.settings = settings;
+        this.encryptionHelper = encryptionHelper;
+    }
+
+    /**
+     * 借出一条连接
+     */
+    public PooledConnection acquire() throws SQLException {
+        long begin = System.nanoTime();
+        long deadline = begin + TimeUnit.MILLISECONDS.toNanos(settings.acquireTimeoutMs());
+        boolean waited = false;
+        try {
+            while (true) {
+                PooledConnection candidate = null;
+                boolean create = false;
+                lock.lock();
+                try {
+                    while (true) {
+                        if (closed) {
+                            throw new SQLException("Connection pool closed: " + describe(), "08003");
+                        }
+                        candidate = idle.pollFirst();
+                        if (candidate != null) {
+                            break;
+                        }
+                        if (total < settings.maxSize()) {
+                            total++;
+                            create = true;
+                            break;
+                        }
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            timeoutCount.incrementAndGet();
+                            throw new SQLTransientConnectionException("Timed out after " + settings.acquireTimeoutMs()
+                                    + " ms waiting for a backend connection: " + describe(), "08004");
+                        }
+                        waited = true;
+                        waiting++;
+                        try {
+                            available.awaitNanos(remaining);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new SQLException("Interrupted while waiting for a backend connection", "08004", e);
+                        } finally {
+                            waiting--;
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                if (create) {
+                    return newConnection();
+                }
+                if (isUsable(candidate)) {
+                    candidate.touch();
+                    return candidate;
+                }
+                discard(candidate);
+            }
+        } finally {
+            long elapsed = System.nanoTime() - begin;
+            acquireCount.incrementAndGet();
+            acquireNanos.addAndGet(elapsed);
+            maxAcquireNanos.accumulateAndGet(elapsed, Math::max);
+            if (waited) {
+                waitCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 归还连接：复位会话状态后放回空闲队列；复位失败则丢弃
+     */
+    void release(PooledConnection pc) {
+        try {
+            Connection c = pc.getConnection();
+            if (!c.getAutoCommit()) {
+                c.rollback();
+                c.setAutoCommit(true);
+            }
+            c.clearWarnings();
+        } catch (SQLException e) {
+            logger.warn("Discarding backend connection that could not be reset: {}", e.getMessage());
+            discard(pc);
+            return;
+        }
+        pc.touch();
+        lock.lock();
+        try {
+            if (!closed) {
+                idle.addFirst(pc);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        discard(pc);
+    }
+
+    void invalidate(PooledConnection pc) {
+        discard(pc);
+    }
+
+    /**
+     * 淘汰空闲超时的连接（保留 minSize 条），并补足 minSize
+     */
+    void maintain() {
+        List<PooledConnection> expired = new ArrayList<>();
+        int toCreate;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            // 队尾是最久未使用的连接
+            while (total - expired.size() > settings.minSize() && !idle.isEmpty()
+                    && now - idle.peekLast().getLastUsedAt() > settings.idleTimeoutMs()) {
+                expired.add(idle.pollLast());
+            }
+            total -= expired.size();
+            toCreate = Math.max(0, settings.minSize() - total);
+            total += toCreate;
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pc : expired) {
+            discardedCount.incrementAndGet();
+            pc.closePhysically();
+        }
+        for (int i = 0; i < toCreate; i++) {
+            try {
+                PooledConnection pc = newConnection();
+                release(pc);
+            } catch (SQLException e) {
+                logger.warn("Pool warm-up failed for {}: {}", describe(), e.getMessage());
+                // newConnection 失败时已归还名额，剩余的下次再补
+                lock.lock();
+                try {
+                    total -= toCreate - i - 1;
+                } finally {
+                    lock.unlock();
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * 关闭连接池：关闭所有空闲连接，借出中的连接归还时关闭
+     */
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            total -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        toClose.forEach(PooledConnection::closePhysically);
+    }
+
+    /**
+     * 调用前已占用一个名额；失败时归还名额
+     */
+    private PooledConnection newConnection() throws SQLException {
+        try {
+            Connection c = BackendPool.connect(url, user, password);
+            createdCount.incrementAndGet();
+            return new PooledConnection(this, c, encryptionHelper, settings.statementCacheSize());
+        } catch (SQLException | RuntimeException e) {
+            lock.lock();
+            try {
+                total--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private boolean isUsable(PooledConnection pc) {
+        if (System.currentTimeMillis() - pc.getLastUsedAt() < settings.validationIntervalMs()) {
+            return true;
+        }
+        try {
+            return pc.getConnection().isValid(settings.validationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection pc) {
+        discardedCount.incrementAndGet();
+        pc.closePhysically();
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String describe() {
+        return user + "@" + url;
+    }
+
+    /* ---------- 监控指标 ---------- */
+
+    public int getTotal() {
+        lock.lock();
+        try {
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getIdle() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getActive() {
+        lock.lock();
+        try {
+            return total - idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 正在等待空闲连接的线程数 */
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 借出中的连接占 maxSize 的比例 */
+    public double getSaturation() {
+        return getActive() / (double) settings.maxSize();
+    }
+
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    /** 平均借出耗时（微秒），含新建连接与等待 */
+    public double getAverageAcquireMicros() {
+        long n = acquireCount.get();
+        return n == 0 ? 0 : acquireNanos.get() / 1000.0 / n;
+    }
+
+    public double getMaxAcquireMicros() {
+        return maxAcquireNanos.get() / 1000.0;
+    }
+
+    /** 因池满而等待过的借出次数 */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getDiscardedCount() {
+        return discardedCount.get();
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool{%s, total=%d, active=%d, idle=%d, waiting=%d, saturation=%.2f, "
+                        + "acquires=%d, avgAcquire=%.1fus, maxAcquire=%.1fus, waits=%d, timeouts=%d, created=%d, discarded=%d}",
+                describe(), getTotal(), getActive(), getIdle(), getWaiting(), getSaturation(),
+                getAcquireCount(), getAverageAcquireMicros(), getMaxAcquireMicros(), getWaitCount(),
+                getTimeoutCount(), getCreatedCount(), getDiscardedCount());
+    }
+}
@@ -0,0 +1,84 @@
+package com.seu.jdbcproxy.pool;
+
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 连接池中的一条真实后端连接。语句缓存跟随物理连接，会话归还后下一个借用者可以继续命中。
+ * 借出 / 归还由 {@link ConnectionPool} 维护，调用方用完后调用 {@link #release()}，
+ * 连接已不可用（网络断开、状态无法复位）时调用 {@link #invalidate()}。
+ * 未启用连接池时 pool 为 null，归还即关闭物理连接。
+ */
+public class PooledConnection {
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final StatementCache statementCache;
+    private final long createdAt = System.currentTimeMillis();
+    private volatile long lastUsedAt = createdAt;
+
+    PooledConnection(ConnectionPool pool, Connection connection, EncryptionHelper encryptionHelper, int statementCacheSize) {
+        this.pool = pool;
+        this.connection = connection;
+        this.statementCache = new StatementCache(connection, encryptionHelper, statementCacheSize);
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    void touch() {
+        lastUsedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 归还到连接池
+     */
+    public void release() {
+        if (pool == null) {
+            closePhysically();
+        } else {
+            pool.release(this);
+        }
+    }
+
+    /**
+     * 丢弃该连接：关闭物理连接并释放池中的名额
+     */
+    public void invalidate() {
+        if (pool == null) {
+            closePhysically();
+        } else {
+            pool.invalidate(this);
+        }
+    }
+
+    /**
+     * 关闭语句缓存与物理连接，只由连接池调用
+     */
+    void closePhysically() {
+        statementCache.close();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // 连接已断开
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.seu.jdbcproxy.pool;
+
+import com.seu.jdbcproxy.core.ProxyPreparedStatement;
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单个真实连接上的 PreparedStatement LRU 缓存，按 (SQL, 查询/更新, 结果集类型, 并发模式) 复用真实语句及其 ProxyPreparedStatement 包装。
+ * <p>
+ * 借出期间（查询的结果集尚未读完或关闭）同一条 SQL 不会被再次借出，调用方此时应退回为临时 prepare；
+ * 被淘汰的语句若仍在借出中，等归还时再关闭。容量为 0 表示关闭缓存。
+ */
+public class StatementCache {
+    private static final Logger logger = LoggerFactory.getLogger(StatementCache.class);
+
+    /** 默认每个连接缓存的语句数 */
+    public static final int DEFAULT_SIZE = 64;
+
+    private final Connection connection;
+    private final EncryptionHelper encryptionHelper;
+    private final int capacity;
+    // 保护 entries、pendingClose、统计计数与 closed；prepare / close 等 JDBC 调用都在锁外进行
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, CachedStatement> entries;
+    // 淘汰时不在借出中的语句，解锁后关闭
+    private final List<CachedStatement> pendingClose = new ArrayList<>();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private boolean closed;
+
+    public StatementCache(Connection connection, EncryptionHelper encryptionHelper, int capacity) {
+        this.connection = connection;
+        this.encryptionHelper = encryptionHelper;
+        this.capacity = Math.max(0, capacity);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedStatement> eldest) {
+                if (size() <= StatementCache.this.capacity) {
+                    return false;
+                }
+                evictions++;
+                CachedStatement evicted = eldest.getValue();
+                evicted.evicted = true;
+                if (!evicted.inUse) {
+                    pendingClose.add(evicted);
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * 借出一条语句，查询语句使用只进只读结果集
+     *
+     * @param query true 表示 EXEC_QUERY，false 表示 EXEC_UPDATE
+     */
+    public CachedStatement borrow(String sql, boolean query) throws SQLException {
+        return borrow(sql, query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+
+    /**
+     * 借出一条语句：命中时清空上次的参数后返回；未缓存时 prepare 并放入缓存。
+     * 缓存已关闭、容量为 0 或该 SQL 的语句正被借出时返回 null，由调用方自行 prepare。
+     * prepare 期间另一个线程已放入同一 SQL 的语句时，本次 prepare 的语句不进入缓存，归还时关闭。
+     *
+     * @param query true 表示 EXEC_QUERY（按 resultSetType / resultSetConcurrency 创建结果集），false 表示 EXEC_UPDATE
+     */
+    public CachedStatement borrow(String sql, boolean query, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        if (capacity == 0) {
+            return null;
+        }
+        if (!query) {
+            resultSetType = ResultSet.TYPE_FORWARD_ONLY;
+            resultSetConcurrency = ResultSet.CONCUR_READ_ONLY;
+        }
+        Key key = new Key(sql, query, resultSetType, resultSetConcurrency);
+        CachedStatement cached;
+        lock.lock();
+        try {
+            if (closed) {
+                return null;
+            }
+            cached = entries.get(key);
+            if (cached != null) {
+                if (cached.inUse) {
+                    misses++;
+                    return null;
+                }
+                hits++;
+                cached.inUse = true;
+            } else {
+                misses++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (cached != null) {
+            try {
+                cached.proxy.clearParameters();
+            } catch (SQLException e) {
+                release(cached);
+                throw e;
+            }
+            return cached;
+        }
+
+        PreparedStatement real = query
+                ? connection.prepareStatement(sql, resultSetType, resultSetConcurrency)
+                : connection.prepareStatement(sql);
+        cached = new CachedStatement(real, new ProxyPreparedStatement(real, sql, encryptionHelper));
+        cached.inUse = true;
+        List<CachedStatement> toClose;
+        boolean rejected = false;
+        lock.lock();
+        try {
+            if (closed) {
+                rejected = true;
+            } else if (entries.containsKey(key)) {
+                // 另一个线程先放入了同一条 SQL
+                cached.evicted = true;
+            } else {
+                entries.put(key, cached);
+            }
+            toClose = drainPendingClose();
+        } finally {
+            lock.unlock();
+        }
+        closeAll(toClose);
+        if (rejected) {
+            cached.closeQuietly();
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * 归还借出的语句；已被淘汰或缓存已关闭时直接关闭
+     */
+    public void release(CachedStatement cached) {
+        boolean close;
+        lock.lock();
+        try {
+            cached.inUse = false;
+            close = closed || cached.evicted;
+        } finally {
+            lock.unlock();
+        }
+        if (close) {
+            cached.closeQuietly();
+        }
+    }
+
+    /**
+     * 关闭缓存中所有语句（物理连接关闭时调用）
+     */
+    public void close() {
+        List<CachedStatement> toClose;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = drainPendingClose();
+            toClose.addAll(entries.values());
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+        closeAll(toClose);
+    }
+
+    /**
+     * 取出待关闭的语句，持有锁时调用
+     */
+    private List<CachedStatement> drainPendingClose() {
+        List<CachedStatement> toClose = new ArrayList<>(pendingClose);
+        pendingClose.clear();
+        return toClose;
+    }
+
+    private static void closeAll(List<CachedStatement> statements) {
+        for (CachedStatement cached : statements) {
+            cached.closeQuietly();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        lock.lock();
+        try {
+            return hits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMisses() {
+        lock.lock();
+        try {
+            return misses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getEvictions() {
+        lock.lock();
+        try {
+            return evictions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return "StatementCache{size=" + entries.size() + "/" + capacity
+                    + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "}";
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Key(String sql, boolean query, int resultSetType, int resultSetConcurrency) {
+    }
+
+    /**
+     * 缓存中的一条语句，inUse / evicted 由所属 StatementCache 持锁维护
+     */
+    public static final class CachedStatement {
+        private final PreparedStatement statement;
+        private final ProxyPreparedStatement proxy;
+        private boolean inUse;
+        private boolean evicted;
+
+        private CachedStatement(PreparedStatement statement, ProxyPreparedStatement proxy) {
+            this.statement = statement;
+            this.proxy = proxy;
+        }
+
+        public PreparedStatement getStatement() {
+            return statement;
+        }
+
+        public ProxyPreparedStatement getProxy() {
+            return proxy;
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.warn("Error closing cached statement: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.seu.jdbcproxy.rewrite;
+
+import java.util.Locale;
+
+/**
+ * 列的加密方式
+ */
+public enum CipherMode {
+    /** 不加密 */
+    NONE,
+    /** 确定性加密（AES/ECB）：相同明文得到相同密文，可建索引、做等值 / IN 查询 */
+    DETERMINISTIC,
+    /** 随机化加密（AES/GCM，每次随机 IV）：不泄露相等关系，但不能出现在查询条件中 */
+    RANDOMIZED;
+
+    public static CipherMode parse(String text) {
+        return switch (text.trim().toLowerCase(Locale.ROOT)) {
+            case "none", "plain" -> NONE;
+            case "deterministic", "det", "ecb" -> DETERMINISTIC;
+            case "randomized", "random", "gcm" -> RANDOMIZED;
+            default -> throw new IllegalArgumentException("Unknown cipher mode: " + text);
+        };
+    }
+}
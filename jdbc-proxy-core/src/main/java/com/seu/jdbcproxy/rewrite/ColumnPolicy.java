@@ -0,0 +1,99 @@
+package com.seu.jdbcproxy.rewrite;
+
+import com.seu.jdbcproxy.ConfigLoader;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 列级加密策略：table.column -> {@link CipherMode}，来自 config.properties 的 encrypt.columns，例如
+ * <pre>
+ * encrypt.columns=user.name:deterministic, user.phone:deterministic, user.remark:randomized, *.id_card:deterministic
+ * </pre>
+ * 表名写 * 表示任意表上的同名列；未列出的列不加密。
+ * 未配置 encrypt.columns 时策略为空，ProxyPreparedStatement 沿用按语句类型加密全部参数的旧规则。
+ */
+public final class ColumnPolicy {
+    private static final String ANY_TABLE = "*";
+    private static volatile ColumnPolicy configured;
+
+    private final Map<String, CipherMode> modes;
+
+    private ColumnPolicy(Map<String, CipherMode> modes) {
+        this.modes = modes;
+    }
+
+    /**
+     * 由 encrypt.columns 配置得到的全局策略
+     */
+    public static ColumnPolicy configured() {
+        ColumnPolicy policy = configured;
+        if (policy == null) {
+            policy = parse(ConfigLoader.get("encrypt.columns", ""));
+            configured = policy;
+        }
+        return policy;
+    }
+
+    /**
+     * 解析 "table.column:mode, ..." 形式的策略
+     */
+    public static ColumnPolicy parse(String spec) {
+        Map<String, CipherMode> modes = new HashMap<>();
+        if (spec != null) {
+            for (String entry : spec.split(",")) {
+                entry = entry.trim();
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                int colon = entry.lastIndexOf(':');
+                int dot = entry.indexOf('.');
+                if (colon < 0 || dot < 0 || dot > colon) {
+                    throw new IllegalArgumentException("Invalid encrypt.columns entry, expected table.column:mode: " + entry);
+                }
+                String column = entry.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                modes.put(column, CipherMode.parse(entry.substring(colon + 1)));
+            }
+        }
+        return new ColumnPolicy(modes);
+    }
+
+    public boolean isEmpty() {
+        return modes.isEmpty();
+    }
+
+    /**
+     * 表上是否有加密列（包括 *.column）；table 为 null 时只看 *.column
+     */
+    public boolean hasEncryptedColumns(String table) {
+        String prefix = table == null ? null : table.toLowerCase(Locale.ROOT) + ".";
+        for (Map.Entry<String, CipherMode> entry : modes.entrySet()) {
+            if (entry.getValue() != CipherMode.NONE && (entry.getKey().startsWith(ANY_TABLE + ".")
+                    || prefix != null && entry.getKey().startsWith(prefix))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 列的加密方式；table 为 null（无法确定所属表）时只匹配 *.column
+     */
+    public CipherMode modeOf(String table, String column) {
+        if (column == null || modes.isEmpty()) {
+            return CipherMode.NONE;
+        }
+        String col = column.toLowerCase(Locale.ROOT);
+        CipherMode mode = table == null ? null : modes.get(table.toLowerCase(Locale.ROOT) + "." + col);
+        if (mode == null) {
+            mode = modes.get(ANY_TABLE + "." + col);
+        }
+        return mode == null ? CipherMode.NONE : mode;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnPolicy" + modes;
+    }
+}
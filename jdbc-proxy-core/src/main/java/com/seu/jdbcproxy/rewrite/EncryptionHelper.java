@@ -1,29 +1,106 @@
 package com.seu.jdbcproxy.rewrite;
 
+import com.seu.jdbcproxy.metrics.ProxyMetrics;
+
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * AES 加解密与密文识别。
+ * <p>
+ * 已 init 的 Cipher 及输入 / 输出缓冲放在有界的空闲池中，每次加解密借出一份、用完归还，不与线程绑定，
+ * 虚拟线程每个任务一个线程时同样能复用：AES/ECB 无 IV，doFinal 结束后 Cipher 自动回到 init 后的状态，可直接复用；
+ * 加解密失败时 Cipher 状态不可信，该份上下文直接丢弃不再归还。
+ * Base64 编解码在缓冲上手工完成，isCipherText 只做结构检查（字母表、填充、规范编码、解码长度为 AES 分组整数倍），不分配对象。
+ * <p>
+ * {@link #encrypt} 为确定性加密（AES/ECB），{@link #encryptRandomized} 为随机化加密（AES/GCM，每次随机 IV），
+ * 后者的密文带 {@value #GCM_PREFIX} 前缀，{@link #decrypt} 据此选择解密方式。
+ */
 public class EncryptionHelper {
     //16字节密钥，对应AES-128    AES-192 24字节  AES-256 32字节
     public static final String KEY = "this is password";
     public static final String Algorithm = "AES";
 
+    /** AES 分组长度，PKCS5 填充后的密文总是它的整数倍 */
+    private static final int BLOCK_SIZE = 16;
+
+    /** 随机化密文的前缀，其后为 Base64(IV || 密文 || 认证标签) */
+    public static final String GCM_PREFIX = "$g$";
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_BITS = 128;
+
+    private static final char[] BASE64_CHARS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final byte[] BASE64_VALUES = new byte[128];
+
+    /** 空闲池最多保留的上下文数，超出的归还时直接丢弃 */
+    private static final int MAX_IDLE_CONTEXTS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    static {
+        Arrays.fill(BASE64_VALUES, (byte) -1);
+        for (int i = 0; i < BASE64_CHARS.length; i++) {
+            BASE64_VALUES[BASE64_CHARS[i]] = (byte) i;
+        }
+    }
+
     public SecretKeySpec secretKey;
 
+    private final ConcurrentLinkedQueue<CipherContext> idleContexts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger created = new AtomicInteger();
+
     public EncryptionHelper() {
         secretKey = new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), Algorithm);  //StandardCharsets.UTF_8
     }
 
     public String encrypt(String plainText) throws Exception {
+        CipherContext ctx = borrowContext();
+        byte[] plain = plainText.getBytes(StandardCharsets.UTF_8);
+        byte[] out = ctx.output(ctx.encrypt.getOutputSize(plain.length));
+        int n = ctx.encrypt.doFinal(plain, 0, plain.length, out, 0);
+        String result = encodeBase64(out, n);
+        returnContext(ctx);
+        ProxyMetrics.encrypted();
+        return result;
+    }
 
-        Cipher cipher = Cipher.getInstance(Algorithm);
-        cipher.init(Cipher.ENCRYPT_MODE, secretKey);
-        byte[] encryptedBytes = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
-        String encryptedText =  Base64.getEncoder().encodeToString(encryptedBytes);
+    /**
+     * 按列的加密方式加密，NONE 原样返回
+     */
+    public String encrypt(String plainText, CipherMode mode) throws Exception {
+        return switch (mode) {
+            case NONE -> plainText;
+            case DETERMINISTIC -> encrypt(plainText);
+            case RANDOMIZED -> encryptRandomized(plainText);
+        };
+    }
 
-        return encryptedText;
+    /**
+     * AES/GCM 随机化加密：每次使用新的随机 IV，相同明文的密文互不相同
+     */
+    public String encryptRandomized(String plainText) throws Exception {
+        CipherContext ctx = borrowContext();
+        byte[] plain = plainText.getBytes(StandardCharsets.UTF_8);
+        Cipher gcm = ctx.gcm();
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        ctx.random.nextBytes(iv);
+        gcm.init(Cipher.ENCRYPT_MODE, ctx.key, new GCMParameterSpec(GCM_TAG_BITS, iv));
+        byte[] out = ctx.output(GCM_IV_LENGTH + gcm.getOutputSize(plain.length));
+        System.arraycopy(iv, 0, out, 0, GCM_IV_LENGTH);
+        int n = gcm.doFinal(plain, 0, plain.length, out, GCM_IV_LENGTH);
+        String result = GCM_PREFIX + encodeBase64(out, GCM_IV_LENGTH + n);
+        returnContext(ctx);
+        ProxyMetrics.encrypted();
+        return result;
     }
 
     public String decrypt(String encryptedText) throws Exception {
@@ -31,27 +108,220 @@ public class EncryptionHelper {
         if (!isCipherText(encryptedText)){
             return encryptedText;
         }
+        if (encryptedText.startsWith(GCM_PREFIX)) {
+            return decryptRandomized(encryptedText);
+        }
 
-        Cipher cipher = Cipher.getInstance(Algorithm);
-        cipher.init(Cipher.DECRYPT_MODE, secretKey);
-        byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedText));
+        CipherContext ctx = borrowContext();
+        int len = decodeBase64(encryptedText, ctx);
+        byte[] out = ctx.output(ctx.decrypt.getOutputSize(len));
+        int n = ctx.decrypt.doFinal(ctx.input, 0, len, out, 0);
+        String result = new String(out, 0, n, StandardCharsets.UTF_8);
+        returnContext(ctx);
+        ProxyMetrics.decrypted();
+        return result;
+    }
 
-        String plainText = new String(decryptedBytes, StandardCharsets.UTF_8);
-        return plainText;
+    private String decryptRandomized(String encryptedText) throws Exception {
+        CipherContext ctx = borrowContext();
+        int len = decodeBase64(encryptedText, GCM_PREFIX.length(), ctx);
+        Cipher gcm = ctx.gcm();
+        gcm.init(Cipher.DECRYPT_MODE, ctx.key, new GCMParameterSpec(GCM_TAG_BITS, ctx.input, 0, GCM_IV_LENGTH));
+        byte[] out = ctx.output(gcm.getOutputSize(len - GCM_IV_LENGTH));
+        int n;
+        try {
+            n = gcm.doFinal(ctx.input, GCM_IV_LENGTH, len - GCM_IV_LENGTH, out, 0);
+        } catch (AEADBadTagException e) {
+            // 结构上像密文但认证失败：是恰好以前缀开头的明文，原样返回（下次使用前会重新 init，上下文可复用）
+            returnContext(ctx);
+            return encryptedText;
+        }
+        String result = new String(out, 0, n, StandardCharsets.UTF_8);
+        returnContext(ctx);
+        ProxyMetrics.decrypted();
+        return result;
+    }
 
+    /**
+     * 判断字符串是否可能是本类生成的密文：规范的 Base64 编码，且解码后长度为 AES 分组的正整数倍。
+     * 与原先「解码再编码比对」的判断相比，额外排除了 "TRUE"、"12345678" 这类恰好是合法 Base64 的明文。
+     * 带 {@value #GCM_PREFIX} 前缀的随机化密文要求解码后至少包含 IV 与认证标签；
+     * 满足结构但认证失败的值由 {@link #decrypt} 按明文原样返回。
+     */
+    public boolean isCipherText(String text) {
+        if (text == null) {
+            return false;
+        }
+        if (text.startsWith(GCM_PREFIX)) {
+            int decoded = base64Length(text, GCM_PREFIX.length());
+            return decoded >= GCM_IV_LENGTH + GCM_TAG_BITS / 8;
+        }
+        int decodedLength = base64Length(text, 0);
+        return decodedLength > 0 && decodedLength % BLOCK_SIZE == 0;
+    }
 
+    /**
+     * text 从 offset 起是规范 Base64 编码时返回解码后的字节数，否则返回 -1
+     */
+    private static int base64Length(String text, int offset) {
+        int len = text.length() - offset;
+        if (len <= 0 || (len & 3) != 0) {
+            return -1;
+        }
+        int end = text.length();
+        int padding = 0;
+        if (text.charAt(end - 1) == '=') {
+            padding = text.charAt(end - 2) == '=' ? 2 : 1;
+        }
+        int dataEnd = end - padding;
+        for (int i = offset; i < dataEnd; i++) {
+            char c = text.charAt(i);
+            if (c >= 128 || BASE64_VALUES[c] < 0) {
+                return -1;
+            }
+        }
+        // 规范编码：填充前最后一个字符未使用的低位必须为 0
+        if (padding > 0) {
+            int last = BASE64_VALUES[text.charAt(dataEnd - 1)];
+            int unusedBitsMask = padding == 1 ? 0x03 : 0x0F;
+            if ((last & unusedBitsMask) != 0) {
+                return -1;
+            }
+        }
+        return len / 4 * 3 - padding;
     }
 
-    public boolean isCipherText(String text) {
-        try {
-            byte[] decoded = Base64.getDecoder().decode(text);
-            String reencoded = Base64.getEncoder().encodeToString(decoded);
-            return text.equals(reencoded);
-        } catch (IllegalArgumentException e) {
-            return false; // 非合法 Base64，不是密文
+    /**
+     * 从空闲池借出一份上下文，池空时新建；密钥已更换的旧上下文直接丢弃
+     */
+    private CipherContext borrowContext() throws GeneralSecurityException {
+        CipherContext ctx;
+        while ((ctx = idleContexts.poll()) != null) {
+            idleCount.decrementAndGet();
+            if (ctx.key == secretKey) {
+                return ctx;
+            }
+        }
+        created.incrementAndGet();
+        return new CipherContext(secretKey);
+    }
+
+    /**
+     * 归还加解密成功的上下文，空闲池已满时丢弃
+     */
+    private void returnContext(CipherContext ctx) {
+        if (ctx.key != secretKey) {
+            return;
+        }
+        if (idleCount.incrementAndGet() > MAX_IDLE_CONTEXTS) {
+            idleCount.decrementAndGet();
+            return;
+        }
+        idleContexts.offer(ctx);
+    }
+
+    /**
+     * 累计新建的 Cipher 上下文数，用于观察复用情况
+     */
+    public int getCreatedContexts() {
+        return created.get();
+    }
+
+    private static int decodeBase64(String text, CipherContext ctx) {
+        return decodeBase64(text, 0, ctx);
+    }
+
+    /**
+     * 将已通过 isCipherText 校验的文本（从 offset 起）解码到 ctx.input，返回字节数
+     */
+    private static int decodeBase64(String text, int offset, CipherContext ctx) {
+        int len = text.length();
+        int padding = text.charAt(len - 1) == '=' ? (text.charAt(len - 2) == '=' ? 2 : 1) : 0;
+        int outLen = (len - offset) / 4 * 3 - padding;
+        byte[] out = ctx.input(outLen);
+        int o = 0;
+        for (int i = offset; i < len; i += 4) {
+            int b0 = BASE64_VALUES[text.charAt(i)];
+            int b1 = BASE64_VALUES[text.charAt(i + 1)];
+            char c2 = text.charAt(i + 2);
+            char c3 = text.charAt(i + 3);
+            int b2 = c2 == '=' ? 0 : BASE64_VALUES[c2];
+            int b3 = c3 == '=' ? 0 : BASE64_VALUES[c3];
+            int bits = (b0 << 18) | (b1 << 12) | (b2 << 6) | b3;
+            out[o++] = (byte) (bits >> 16);
+            if (o < outLen) {
+                out[o++] = (byte) (bits >> 8);
+            }
+            if (o < outLen) {
+                out[o++] = (byte) bits;
+            }
+        }
+        return outLen;
+    }
+
+    private static String encodeBase64(byte[] src, int len) {
+        byte[] out = new byte[(len + 2) / 3 * 4];
+        int o = 0;
+        int i = 0;
+        for (; i + 2 < len; i += 3) {
+            int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+            out[o++] = (byte) BASE64_CHARS[bits >>> 18];
+            out[o++] = (byte) BASE64_CHARS[(bits >>> 12) & 0x3F];
+            out[o++] = (byte) BASE64_CHARS[(bits >>> 6) & 0x3F];
+            out[o++] = (byte) BASE64_CHARS[bits & 0x3F];
+        }
+        int rest = len - i;
+        if (rest > 0) {
+            int bits = (src[i] & 0xFF) << 16 | (rest == 2 ? (src[i + 1] & 0xFF) << 8 : 0);
+            out[o++] = (byte) BASE64_CHARS[bits >>> 18];
+            out[o++] = (byte) BASE64_CHARS[(bits >>> 12) & 0x3F];
+            out[o++] = rest == 2 ? (byte) BASE64_CHARS[(bits >>> 6) & 0x3F] : (byte) '=';
+            out[o] = (byte) '=';
         }
+        return new String(out, StandardCharsets.ISO_8859_1);
     }
 
+    /**
+     * 借出期间独占的 Cipher 与可复用缓冲
+     */
+    private static final class CipherContext {
+        final SecretKeySpec key;
+        final Cipher encrypt;
+        final Cipher decrypt;
+        // GCM 每次加解密都要用新的 IV 重新 init，按需创建
+        private Cipher gcm;
+        private SecureRandom random;
+        byte[] input = new byte[256];
+        byte[] output = new byte[256];
+
+        CipherContext(SecretKeySpec key) throws GeneralSecurityException {
+            this.key = key;
+            this.encrypt = Cipher.getInstance(Algorithm);
+            this.encrypt.init(Cipher.ENCRYPT_MODE, key);
+            this.decrypt = Cipher.getInstance(Algorithm);
+            this.decrypt.init(Cipher.DECRYPT_MODE, key);
+        }
+
+        Cipher gcm() throws GeneralSecurityException {
+            if (gcm == null) {
+                gcm = Cipher.getInstance(GCM_TRANSFORMATION);
+                random = new SecureRandom();
+            }
+            return gcm;
+        }
 
+        byte[] input(int size) {
+            if (input.length < size) {
+                input = new byte[Math.max(size, input.length << 1)];
+            }
+            return input;
+        }
 
+        byte[] output(int size) {
+            if (output.length < size) {
+                output = new byte[Math.max(size, output.length << 1)];
+            }
+            return output;
+        }
+    }
 }
@@ -0,0 +1,199 @@
+package com.seu.jdbcproxy.rewrite;
+
+import com.seu.jdbcproxy.ClockCache;
+import com.seu.jdbcproxy.ConfigLoader;
+import com.seu.jdbcproxy.rewrite.ParsedStatement.Kind;
+import com.seu.jdbcproxy.rewrite.ParsedStatement.Operator;
+import com.seu.jdbcproxy.rewrite.ParsedStatement.ParameterTarget;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 一条 SQL 的参数加密计划：每个 ? 占位符（0 起）的 CipherMode，以及执行路径需要的语句标志。
+ * 计划只取决于 SQL 文本与列级策略，编译一次后按 SQL 缓存，执行时按下标查表，不再扫描 SQL 字符串。
+ * <ul>
+ *     <li>配置了 encrypt.columns：由 {@link SqlParser} 解析出的目标列查 {@link ColumnPolicy}；
+ *     语句涉及的表有加密列时，无法确定目标列的占位符、以及在多张表间有歧义且加密方式不一致的未限定列被拒绝（0A000），
+ *     不会把明文写入或比较到加密列上；</li>
+ *     <li>未配置：沿用旧规则——INSERT / DELETE 加密全部参数，UPDATE 跳过第二个参数，
+ *     带 WHERE 与 = 的 SELECT 在 setString / setObject 时加密字符串参数。
+ *     旧规则按绑定顺序作用于全部参数，解析器少数了占位符（如未识别的方言引号或注释）时，多出的参数同样加密。</li>
+ * </ul>
+ */
+public final class EncryptionPlan {
+    private static final String EXTRA_QUERY_TAG = "--@extra.enabled=true";
+
+    private static final ClockCache<String, EncryptionPlan> CACHE =
+            new ClockCache<>(Integer.parseInt(ConfigLoader.get("encrypt.planCache.size", "1024")));
+
+    private final Kind kind;
+    private final int parameterCount;
+    // 旧规则下可能长于占位符个数（UPDATE 至少覆盖到第二个参数）
+    private final CipherMode[] modes;
+    // 下标超出 modes 的参数的加密方式
+    private final CipherMode overflowMode;
+    // 非 null 表示该占位符绑定了值时拒绝执行（加密列上不支持的比较）
+    private final String[] rejections;
+    private final boolean encryptOnBind;
+    private final boolean extraQuery;
+
+    private EncryptionPlan(Kind kind, int parameterCount, CipherMode[] modes, CipherMode overflowMode,
+                           String[] rejections, boolean encryptOnBind, boolean extraQuery) {
+        this.kind = kind;
+        this.parameterCount = parameterCount;
+        this.modes = modes;
+        this.overflowMode = overflowMode;
+        this.rejections = rejections;
+        this.encryptOnBind = encryptOnBind;
+        this.extraQuery = extraQuery;
+    }
+
+    /**
+     * 按全局列级策略编译（带缓存）
+     */
+    public static EncryptionPlan of(String sql) {
+        if (sql.length() > RewriteHelper.MAX_CACHED_SQL_LENGTH) {
+            return compile(sql, ColumnPolicy.configured());
+        }
+        return CACHE.computeIfAbsent(sql, s -> compile(s, ColumnPolicy.configured()));
+    }
+
+    public static EncryptionPlan compile(String sql, ColumnPolicy policy) {
+        ParsedStatement parsed = SqlParser.parse(sql);
+        int count = parsed.parameters().size();
+        CipherMode[] modes = new CipherMode[count];
+        Arrays.fill(modes, CipherMode.NONE);
+        CipherMode overflowMode = CipherMode.NONE;
+        String[] rejections = new String[count];
+        boolean encryptOnBind = false;
+
+        if (policy.isEmpty()) {
+            String upper = sql.toUpperCase(Locale.ROOT).trim();
+            if (upper.startsWith("INSERT") || upper.startsWith("DELETE")) {
+                Arrays.fill(modes, CipherMode.DETERMINISTIC);
+                overflowMode = CipherMode.DETERMINISTIC;
+            } else if (upper.startsWith("UPDATE")) {
+                modes = new CipherMode[Math.max(count, 2)];
+                Arrays.fill(modes, CipherMode.DETERMINISTIC);
+                modes[1] = CipherMode.NONE; //假设 id 是第二个参数
+                overflowMode = CipherMode.DETERMINISTIC;
+            } else if (upper.startsWith("SELECT")) {
+                // 等值查询，需要加密参数以匹配数据库中的密文
+                encryptOnBind = upper.contains("WHERE") && upper.contains("=");
+            }
+        } else {
+            boolean touchesEncrypted = touchesEncryptedColumns(policy, parsed);
+            for (int i = 0; i < count; i++) {
+                ParameterTarget target = parsed.parameter(i);
+                if (target == null) {
+                    if (touchesEncrypted) {
+                        rejections[i] = "Cannot determine the target column of parameter " + (i + 1)
+                                + " in a statement on tables with encrypted columns; bind it directly to a column";
+                    }
+                    continue;
+                }
+                if (target.operator() == Operator.LIMIT) {
+                    continue;
+                }
+                CipherMode mode;
+                if (target.table() == null && parsed.tables().size() > 1) {
+                    mode = commonMode(policy, parsed, target.column());
+                    if (mode == null) {
+                        rejections[i] = "Column " + target.column()
+                                + " is ambiguous between tables with different encryption; qualify it with a table name or alias";
+                        continue;
+                    }
+                } else {
+                    mode = policy.modeOf(target.table(), target.column());
+                }
+                modes[i] = mode;
+                if (mode == CipherMode.NONE || target.operator() == Operator.ASSIGN) {
+                    continue;
+                }
+                if (mode == CipherMode.RANDOMIZED) {
+                    rejections[i] = "Column " + target.column()
+                            + " uses randomized encryption and cannot be used in a predicate";
+                } else if (!target.operator().isEquality()) {
+                    rejections[i] = "Column " + target.column()
+                            + " is encrypted and only supports equality predicates, got " + target.operator();
+                }
+            }
+        }
+        return new EncryptionPlan(parsed.kind(), count, modes, overflowMode, rejections,
+                encryptOnBind, sql.contains(EXTRA_QUERY_TAG));
+    }
+
+    private static boolean touchesEncryptedColumns(ColumnPolicy policy, ParsedStatement parsed) {
+        if (policy.hasEncryptedColumns(null)) {
+            return true;
+        }
+        for (String table : parsed.tables()) {
+            if (policy.hasEncryptedColumns(table)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 未限定列在语句各表上的加密方式：各表一致时返回该方式，否则返回 null
+     */
+    private static CipherMode commonMode(ColumnPolicy policy, ParsedStatement parsed, String column) {
+        CipherMode common = null;
+        for (String table : parsed.tables()) {
+            CipherMode mode = policy.modeOf(table, column);
+            if (common != null && common != mode) {
+                return null;
+            }
+            common = mode;
+        }
+        return common;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public int parameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * 第 index 个参数（0 起）的加密方式；超出解析出的占位符个数时，旧规则下的 INSERT / DELETE / UPDATE 仍加密，其余为 NONE
+     */
+    public CipherMode modeOf(int index) {
+        return index < modes.length ? modes[index] : overflowMode;
+    }
+
+    /**
+     * 第 index 个占位符不支持加密比较时的错误信息，否则为 null
+     */
+    public String rejectionOf(int index) {
+        return index < rejections.length ? rejections[index] : null;
+    }
+
+    /**
+     * 旧规则下的等值 SELECT：字符串参数在绑定时即加密
+     */
+    public boolean isEncryptOnBind() {
+        return encryptOnBind;
+    }
+
+    /**
+     * 带 --@extra.enabled=true 标签的额外查询
+     */
+    public boolean isExtraQuery() {
+        return extraQuery;
+    }
+
+    public static ClockCache<String, EncryptionPlan> cache() {
+        return CACHE;
+    }
+
+    @Override
+    public String toString() {
+        return "EncryptionPlan{" + kind + ", modes=" + Arrays.toString(modes)
+                + (encryptOnBind ? ", encryptOnBind" : "") + (extraQuery ? ", extraQuery" : "") + "}";
+    }
+}
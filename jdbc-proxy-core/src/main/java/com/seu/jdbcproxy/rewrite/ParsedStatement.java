@@ -0,0 +1,48 @@
+package com.seu.jdbcproxy.rewrite;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link SqlParser} 的解析结果：语句类型，每个 ? 占位符（按出现顺序）对应的 table.column 和运算，以及语句涉及的全部表（小写）。
+ * 无法确定目标列的占位符（函数参数、表达式等）对应 null。
+ */
+public record ParsedStatement(Kind kind, List<ParameterTarget> parameters, Set<String> tables) {
+
+    public enum Kind {
+        SELECT, INSERT, UPDATE, DELETE, OTHER
+    }
+
+    /**
+     * 占位符与列之间的运算
+     */
+    public enum Operator {
+        /** INSERT VALUES / UPDATE SET 中写入列的值 */
+        ASSIGN,
+        EQ, NE, IN,
+        /** &lt; &gt; &lt;= &gt;= BETWEEN */
+        RANGE,
+        LIKE,
+        /** LIMIT / OFFSET 的行数，不对应任何列 */
+        LIMIT;
+
+        /** 相等类比较，确定性密文上可以直接比较 */
+        public boolean isEquality() {
+            return this == EQ || this == NE || this == IN;
+        }
+    }
+
+    /**
+     * @param table 小写表名，列未限定且语句中没有表或有多张表时为 null
+     * @param column 小写列名，{@link Operator#LIMIT} 时为 null
+     */
+    public record ParameterTarget(String table, String column, Operator operator) {
+    }
+
+    /**
+     * 第 index 个占位符（0 起）的目标列，超出范围或无法确定时返回 null
+     */
+    public ParameterTarget parameter(int index) {
+        return index < parameters.size() ? parameters.get(index) : null;
+    }
+}
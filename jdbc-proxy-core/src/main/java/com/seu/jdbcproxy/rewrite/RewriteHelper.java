@@ -1,33 +1,69 @@
 package com.seu.jdbcproxy.rewrite;
 
 
+import com.seu.jdbcproxy.ClockCache;
+import com.seu.jdbcproxy.ConfigLoader;
 import com.seu.jdbcproxy.rewrite.SQLRewriter.SQLRewrite;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * 方言改写入口。@SQLRewrite 规则在类加载时扫描一次并转成 MethodHandle：
+ * <ul>
+ *     <li>带 trigger 的 full 规则按触发 SQL 放入哈希表，先比较长度再查表，绝大多数语句 O(1) 排除；</li>
+ *     <li>不带 trigger 的 full 规则与 partial 规则对每条语句依次执行。</li>
+ * </ul>
+ * 改写结果只取决于 (SQL, 数据库产品)，按此缓存，重复的语句不再执行规则。
+ */
 public class RewriteHelper {
-    private final SQLDevNavigatorSQLRewriter rewriter = new SQLDevNavigatorSQLRewriter();
-    private final List<Method> fullRewriterMethods = new ArrayList<>();
-    private final List<Method> partialRewriterMethods = new ArrayList<>();
+    private static final Pattern CALL_BLOCK = Pattern.compile("(?i)^\\s*BEGIN\\s+(.+?)\\s*;\\s*END\\s*;\\s*$");
+    private static final Pattern TO_NUMBER_PARAM = Pattern.compile("(?i)\\s*TO_NUMBER\\s*\\(\\s*\\?\\s*\\)\\s*");
+    private static final Pattern TO_CHAR_PARAM = Pattern.compile("(?i)\\s*TO_CHAR\\s*\\(\\s*\\?\\s*\\)\\s*");
+
+    // 规则无状态，所有连接共用一份
+    private static final SQLDevNavigatorSQLRewriter rewriter = new SQLDevNavigatorSQLRewriter();
+    private static final Map<String, List<MethodHandle>> triggeredRules = new HashMap<>();
+    // 触发 SQL 的长度，长度不符的语句无需计算哈希
+    private static final BitSet triggerLengths = new BitSet();
+    private static final List<MethodHandle> fullRewriterMethods = new ArrayList<>();
+    private static final List<MethodHandle> partialRewriterMethods = new ArrayList<>();
+
+    // 超长 SQL（如拼接了大量字面值的批量 INSERT）通常不会重复出现，不缓存以免占用内存
+    public static final int MAX_CACHED_SQL_LENGTH = 8192;
+    private static final ClockCache<RewriteKey, String> cache =
+            new ClockCache<>(Integer.parseInt(ConfigLoader.get("rewrite.cache.size", "2048")));
+
+    static {
+        populateRewriterMethods();
+    }
 
     public RewriteHelper() {
         super();
-        populateRewriterMethods();
     }
 
-    private void populateRewriterMethods() {
+    private static void populateRewriterMethods() {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
         for (Method method : rewriter.getClass().getDeclaredMethods()) {
             if (method.isAnnotationPresent(SQLRewrite.class)) {
                 SQLRewrite annotation = method.getAnnotation(SQLRewrite.class);
-                if (annotation.full()) {
-                    fullRewriterMethods.add(method);
+                MethodHandle handle;
+                try {
+                    handle = lookup.unreflect(method).bindTo(rewriter);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot access rewrite rule " + method.getName(), e);
+                }
+                if (!annotation.full()) {
+                    partialRewriterMethods.add(handle);
+                } else if (annotation.trigger().isEmpty()) {
+                    fullRewriterMethods.add(handle);
                 } else {
-                    partialRewriterMethods.add(method);
+                    triggeredRules.computeIfAbsent(annotation.trigger(), k -> new ArrayList<>()).add(handle);
+                    triggerLengths.set(annotation.trigger().length());
                 }
             }
         }
@@ -36,10 +72,23 @@ public class RewriteHelper {
     /**
      * Rewrites a sql in MySQL dialect to the target dialect (based on product).
      */
-    //两个参数的rewrite方法：定义result为三参数的rewrite方法（遍历全部重写方法），返回一个sql语句，再将result作为
-    //三参数rewrite（遍历部分重写方法）中的参数，调用并返回，目的是：为了全部覆盖？
+    //两个参数的rewrite方法：先执行全部重写方法（整句替换），再对结果执行部分重写方法（如反引号替换）
     public String rewrite(String sql, String product) {
-        String result = rewrite(fullRewriterMethods, sql, product);
+        if (sql.length() > MAX_CACHED_SQL_LENGTH) {
+            return rewriteUncached(sql, product);
+        }
+        return cache.computeIfAbsent(new RewriteKey(sql, product), key -> rewriteUncached(key.sql(), key.product()));
+    }
+
+    private String rewriteUncached(String sql, String product) {
+        String result = sql;
+        if (triggerLengths.get(sql.length())) {
+            List<MethodHandle> rules = triggeredRules.get(sql);
+            if (rules != null) {
+                result = rewrite(rules, result, product);
+            }
+        }
+        result = rewrite(fullRewriterMethods, result, product);
         return rewrite(partialRewriterMethods, result, product);
     }
 
@@ -48,23 +97,43 @@ public class RewriteHelper {
      * generic target (independent of the product).
      */
     public String rewriteCall(String sql) {
-        final Pattern p = Pattern.compile("(?i)^\\s*BEGIN\\s+(.+?)\\s*;\\s*END\\s*;\\s*$");
-        final Matcher m = p.matcher(sql);
+        if (!startsWithBegin(sql)) {
+            return sql;
+        }
+        final Matcher m = CALL_BLOCK.matcher(sql);
         if (m.find()) {
-            return "CALL " + m.group(1)
-                    .replaceAll("(?i)\\s*TO_NUMBER\\s*\\(\\s*\\?\\s*\\)\\s*", "?")
-                    .replaceAll("(?i)\\s*TO_CHAR\\s*\\(\\s*\\?\\s*\\)\\s*", "?");
+            String call = TO_NUMBER_PARAM.matcher(m.group(1)).replaceAll("?");
+            return "CALL " + TO_CHAR_PARAM.matcher(call).replaceAll("?");
         }
         return sql;
     }
 
-    private String rewrite(List<Method> methods, String sql, String product) {  //三个参数的rewrite方法：调用SQLDevNav中的每个重写方法
+    // 跳过前导空白后是否以 BEGIN 开头，不是则不必运行正则
+    private static boolean startsWithBegin(String sql) {
+        int i = 0;
+        while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        return sql.regionMatches(true, i, "BEGIN", 0, 5);
+    }
+
+    /**
+     * 改写结果缓存，用于查看命中率等指标
+     */
+    public static ClockCache<?, String> cache() {
+        return cache;
+    }
+
+    private record RewriteKey(String sql, String product) {
+    }
+
+    private String rewrite(List<MethodHandle> methods, String sql, String product) {  //三个参数的rewrite方法：依次调用 SQLDevNav 中的重写方法
         String result = sql;
-        for (Method method : methods) {
+        for (MethodHandle method : methods) {
             try {
-                result = (String) method.invoke(rewriter, result, product);
-            } catch (IllegalAccessException | InvocationTargetException e ) {
-                throw new RuntimeException("Cannot rewrite SQL statement for " + product + ".");
+                result = (String) method.invokeExact(result, product);
+            } catch (Throwable e) {
+                throw new RuntimeException("Cannot rewrite SQL statement for " + product + ".", e);
             }
         }
         return result;
@@ -23,12 +23,14 @@ public class SQLDevNavigatorSQLRewriter {
         return sql.replace('`', '"');
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_DATABASES_SQL = "show databases";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_DATABASES_SQL)
     public String showDatabases(String sql, String product) {  //将show databases转换为其他数据库语句
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("show databases")) {
+        if (sql.equals(SHOW_DATABASES_SQL)) {
             if (POSTGRES.equals(product)) {
                 // databases not available in information_schema
                 logger.info("successfully rewritten!!!");
@@ -49,12 +51,14 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_SCHEMAS_SQL = "select SCHEMA_NAME from information_schema.schemata";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_SCHEMAS_SQL)
     public String showSchemas(String sql, String product) {  //查询数据库中所有的模式名称，成功！！！
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("select SCHEMA_NAME from information_schema.schemata")) {
+        if (sql.equals(SHOW_SCHEMAS_SQL)) {
             // SQL Developer expects the column to be in upper case
             if (POSTGRES.equals(product) || SNOWFLAKE.equals(product) || H2.equals(product)) {
                 return "SELECT schema_name AS \"SCHEMA_NAME\"\n" +
@@ -67,14 +71,16 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_TABLES_SQL = "select TABLE_NAME from information_schema.Tables where cast(TABLE_SCHEMA as binary) = ?  \n" +
+            "\t\t\t\t\t\t\t\tand (TABLE_TYPE = 'BASE TABLE' OR table_schema='information_schema')\n" +
+            "                        ";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_TABLES_SQL)
     public String showTables(String sql, String product) {  //查询有哪些表
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("select TABLE_NAME from information_schema.Tables where cast(TABLE_SCHEMA as binary) = ?  \n" +
-                "\t\t\t\t\t\t\t\tand (TABLE_TYPE = 'BASE TABLE' OR table_schema='information_schema')\n" +
-                "                        ")) {
+        if (sql.equals(SHOW_TABLES_SQL)) {
             if (POSTGRES.equals(product)) {
                 // case-sensitive schema name
                 return "SELECT table_name AS \"TABLE_NAME\"\n" +
@@ -108,28 +114,30 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_TABLE_COLUMNS_SQL = "select  COLUMN_NAME , ORDINAL_POSITION , COLUMN_DEFAULT , IS_NULLABLE ,\n" +
+            " DATA_TYPE , NUMERIC_PRECISION , NUMERIC_SCALE , COLUMN_COMMENT\n" +
+            "from information_schema.Columns where\n" +
+            "COLLATION(?) NOT LIKE '%chinese%' \n" +
+            "and COLLATION(?) NOT LIKE '%japanese%' \n" +
+            "and COLLATION(?) NOT LIKE '%korean%'\n" +
+            "  and binary TABLE_NAME = ?\n" +
+            " AND cast(TABLE_SCHEMA as binary)=? \n" +
+            " UNION\n" +
+            " select  COLUMN_NAME , ORDINAL_POSITION , COLUMN_DEFAULT , IS_NULLABLE ,\n" +
+            " DATA_TYPE , NUMERIC_PRECISION , NUMERIC_SCALE , COLUMN_COMMENT\n" +
+            "from information_schema.Columns where\n" +
+            "(COLLATION(?) LIKE '%chinese%' \n" +
+            "or COLLATION(?) LIKE '%japanese%' \n" +
+            "or COLLATION(?) LIKE '%korean%' )\n" +
+            " and TABLE_NAME = ?\n" +
+            " AND cast(TABLE_SCHEMA as binary)=?";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_TABLE_COLUMNS_SQL)
     public String showTableColumns(String sql, String product) {  //查询表的列信息
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("select  COLUMN_NAME , ORDINAL_POSITION , COLUMN_DEFAULT , IS_NULLABLE ,\n" +
-                " DATA_TYPE , NUMERIC_PRECISION , NUMERIC_SCALE , COLUMN_COMMENT\n" +
-                "from information_schema.Columns where\n" +
-                "COLLATION(?) NOT LIKE '%chinese%' \n" +
-                "and COLLATION(?) NOT LIKE '%japanese%' \n" +
-                "and COLLATION(?) NOT LIKE '%korean%'\n" +
-                "  and binary TABLE_NAME = ?\n" +
-                " AND cast(TABLE_SCHEMA as binary)=? \n" +
-                " UNION\n" +
-                " select  COLUMN_NAME , ORDINAL_POSITION , COLUMN_DEFAULT , IS_NULLABLE ,\n" +
-                " DATA_TYPE , NUMERIC_PRECISION , NUMERIC_SCALE , COLUMN_COMMENT\n" +
-                "from information_schema.Columns where\n" +
-                "(COLLATION(?) LIKE '%chinese%' \n" +
-                "or COLLATION(?) LIKE '%japanese%' \n" +
-                "or COLLATION(?) LIKE '%korean%' )\n" +
-                " and TABLE_NAME = ?\n" +
-                " AND cast(TABLE_SCHEMA as binary)=?")) {
+        if (sql.equals(SHOW_TABLE_COLUMNS_SQL)) {
             if (POSTGRES.equals(product) || H2.equals(product)) {
                 // no column comments
                 return "SELECT column_name,\n" +
@@ -181,13 +189,15 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_INDEXES_SQL = "\n" +
+            "                        SELECT DISTINCT(CONCAT(INDEX_NAME,' (',TABLE_NAME,')')) IND_NAME, INDEX_NAME, TABLE_NAME FROM INFORMATION_SCHEMA.STATISTICS WHERE cast(TABLE_SCHEMA as binary) = ?";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_INDEXES_SQL)
     public String showIndexes(String sql, String product) {  //查询索引信息
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("\n" +
-                "                        SELECT DISTINCT(CONCAT(INDEX_NAME,' (',TABLE_NAME,')')) IND_NAME, INDEX_NAME, TABLE_NAME FROM INFORMATION_SCHEMA.STATISTICS WHERE cast(TABLE_SCHEMA as binary) = ?")) {
+        if (sql.equals(SHOW_INDEXES_SQL)) {
             if (POSTGRES.equals(product)) {
                 // no dictionary view in postgres for index columns
                 return "SELECT (concat(indexname, ' (', tablename, ')')) AS \"IND_NAME\",\n" +
@@ -222,15 +232,17 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_INDEX_DETAILS_SQL = "select INDEX_TYPE, TABLE_NAME, COLUMN_NAME, SEQ_IN_INDEX, NON_UNIQUE, COLLATION, CARDINALITY, SUB_PART, \n" +
+            "\t\t\t\tPACKED, NULLABLE, COMMENT\n" +
+            "\t\t\t\tFROM INFORMATION_SCHEMA.STATISTICS WHERE INDEX_NAME = ? AND cast(TABLE_SCHEMA as binary) = ?\n" +
+            "\t\t\t\tORDER BY INDEX_NAME, SEQ_IN_INDEX";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_INDEX_DETAILS_SQL)
     public String showIndexDetails(String sql, String product) {  //展示索引细节信息
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("select INDEX_TYPE, TABLE_NAME, COLUMN_NAME, SEQ_IN_INDEX, NON_UNIQUE, COLLATION, CARDINALITY, SUB_PART, \n" +
-                "\t\t\t\tPACKED, NULLABLE, COMMENT\n" +
-                "\t\t\t\tFROM INFORMATION_SCHEMA.STATISTICS WHERE INDEX_NAME = ? AND cast(TABLE_SCHEMA as binary) = ?\n" +
-                "\t\t\t\tORDER BY INDEX_NAME, SEQ_IN_INDEX")) {
+        if (sql.equals(SHOW_INDEX_DETAILS_SQL)) {
             if (POSTGRES.equals(product)) {
                 // no dictionary view in postgres for index columns
                 return "SELECT i.relname    AS index_name,\n" +
@@ -281,27 +293,29 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_TABLE_INDEX_COLUMNS_SQL = "select INDEX_NAME, INDEX_TYPE, COLUMN_NAME, SEQ_IN_INDEX, NON_UNIQUE, COLLATION, CARDINALITY, SUB_PART, \n" +
+            "PACKED, NULLABLE, COMMENT FROM INFORMATION_SCHEMA.STATISTICS \n" +
+            "WHERE (COLLATION(?) NOT LIKE '%chinese%' \n" +
+            "or COLLATION(?) NOT LIKE '%japanese%' \n" +
+            "or COLLATION(?) NOT LIKE '%korean%') \n" +
+            "and cast(TABLE_NAME as binary) = ? AND cast(TABLE_SCHEMA as binary) = ? \n" +
+            "UNION \n" +
+            "select INDEX_NAME, INDEX_TYPE, COLUMN_NAME, SEQ_IN_INDEX, NON_UNIQUE, COLLATION, CARDINALITY, SUB_PART, \n" +
+            "PACKED, NULLABLE, COMMENT FROM INFORMATION_SCHEMA.STATISTICS \n" +
+            "WHERE (COLLATION(?) LIKE '%chinese%' \n" +
+            "or COLLATION(?) LIKE '%japanese%' \n" +
+            "or COLLATION(?) LIKE '%korean%') \n" +
+            "and TABLE_NAME = ? AND TABLE_SCHEMA = ? \n" +
+            "ORDER BY INDEX_NAME, SEQ_IN_INDEX";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_TABLE_INDEX_COLUMNS_SQL)
     //查询索引信息，包括索引名称、索引类型、列名称、在索引中的顺序、是否唯一、
     //排序规则、基数、子部分、是否压缩、是否可为空以及注释等字段。
     public String showTableIndexColumns(String sql, String product) {
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("select INDEX_NAME, INDEX_TYPE, COLUMN_NAME, SEQ_IN_INDEX, NON_UNIQUE, COLLATION, CARDINALITY, SUB_PART, \n" +
-                "PACKED, NULLABLE, COMMENT FROM INFORMATION_SCHEMA.STATISTICS \n" +
-                "WHERE (COLLATION(?) NOT LIKE '%chinese%' \n" +
-                "or COLLATION(?) NOT LIKE '%japanese%' \n" +
-                "or COLLATION(?) NOT LIKE '%korean%') \n" +
-                "and cast(TABLE_NAME as binary) = ? AND cast(TABLE_SCHEMA as binary) = ? \n" +
-                "UNION \n" +
-                "select INDEX_NAME, INDEX_TYPE, COLUMN_NAME, SEQ_IN_INDEX, NON_UNIQUE, COLLATION, CARDINALITY, SUB_PART, \n" +
-                "PACKED, NULLABLE, COMMENT FROM INFORMATION_SCHEMA.STATISTICS \n" +
-                "WHERE (COLLATION(?) LIKE '%chinese%' \n" +
-                "or COLLATION(?) LIKE '%japanese%' \n" +
-                "or COLLATION(?) LIKE '%korean%') \n" +
-                "and TABLE_NAME = ? AND TABLE_SCHEMA = ? \n" +
-                "ORDER BY INDEX_NAME, SEQ_IN_INDEX")) {
+        if (sql.equals(SHOW_TABLE_INDEX_COLUMNS_SQL)) {
             if (POSTGRES.equals(product)) {
                 // no dictionary view in postgres for index columns
                 return "SELECT i.relname    AS index_name,\n" +
@@ -368,13 +382,15 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_TABLE_CONSTRAINTS_SQL = "SELECT CONSTRAINT_NAME, CONSTRAINT_TYPE FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS\n" +
+            "\t    \t\tWHERE TABLE_NAME = ? AND cast(TABLE_SCHEMA as binary) = ?";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_TABLE_CONSTRAINTS_SQL)
     public String showTableConstraints(String sql, String product) {  //查询约束
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("SELECT CONSTRAINT_NAME, CONSTRAINT_TYPE FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS\n" +
-                "\t    \t\tWHERE TABLE_NAME = ? AND cast(TABLE_SCHEMA as binary) = ?")) {
+        if (sql.equals(SHOW_TABLE_CONSTRAINTS_SQL)) {
             if (SQLITE.equals(product)) {
                 return "SELECT constraint_name, constraint_type \n" +
                         "  FROM (\n" +
@@ -407,25 +423,27 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_CHECK_CONSTRAINTS_SQL = "SELECT t.table_schema, \n" +
+            "  t.table_name, \n" +
+            "  t.constraint_name, \n" +
+            "  t.constraint_type, \n" +
+            "  t.is_deferrable, \n" +
+            "  t.initially_deferred, \n" +
+            "  c.check_clause \n" +
+            "FROM information_schema.check_constraints c, \n" +
+            "  information_schema.table_constraints t \n" +
+            "WHERE t.table_schema    = ? \n" +
+            "AND t.table_name        = ? \n" +
+            "AND t.constraint_type   = 'CHECK' \n" +
+            "AND c.constraint_name   = t.constraint_name \n" +
+            "AND c.constraint_schema = t.constraint_schema";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_CHECK_CONSTRAINTS_SQL)
     public String showCheckConstraints(String sql, String product) { //查询特定表的检查约束信息
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("SELECT t.table_schema, \n" +
-                "  t.table_name, \n" +
-                "  t.constraint_name, \n" +
-                "  t.constraint_type, \n" +
-                "  t.is_deferrable, \n" +
-                "  t.initially_deferred, \n" +
-                "  c.check_clause \n" +
-                "FROM information_schema.check_constraints c, \n" +
-                "  information_schema.table_constraints t \n" +
-                "WHERE t.table_schema    = ? \n" +
-                "AND t.table_name        = ? \n" +
-                "AND t.constraint_type   = 'CHECK' \n" +
-                "AND c.constraint_name   = t.constraint_name \n" +
-                "AND c.constraint_schema = t.constraint_schema")) {
+        if (sql.equals(SHOW_CHECK_CONSTRAINTS_SQL)) {
             if (SNOWFLAKE.equals(product) || SQLITE.equals(product) || H2.equals(product)) {
                 // no check constraints view
                 return "SELECT NULL  AS table_schema,\n" +
@@ -441,12 +459,14 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_VIEWS_SQL = "select TABLE_NAME from information_schema.views where cast(TABLE_SCHEMA as binary) = ?";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_VIEWS_SQL)
     public String showViews(String sql, String product) { //查询特定模式下的视图名称
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("select TABLE_NAME from information_schema.views where cast(TABLE_SCHEMA as binary) = ?")) {
+        if (sql.equals(SHOW_VIEWS_SQL)) {
             if (SQLITE.equals(product)) {
                 return "SELECT name AS \"TABLE_NAME\"\n" +
                         "  FROM sqlite_schema\n" +
@@ -463,12 +483,14 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_VIEW_COLUMNS_SHORT_SQL = "select COLUMN_NAME from information_schema.Columns where cast(TABLE_SCHEMA as binary) = ? and cast(TABLE_NAME as binary) = ?";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_VIEW_COLUMNS_SHORT_SQL)
     public String showViewColumnsShort(String sql, String product) {//获得指定的列名
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("select COLUMN_NAME from information_schema.Columns where cast(TABLE_SCHEMA as binary) = ? and cast(TABLE_NAME as binary) = ?")) {
+        if (sql.equals(SHOW_VIEW_COLUMNS_SHORT_SQL)) {
             if (SQLITE.equals(product)) {
                 return "SELECT name AS \"COLUMN_NAME\",\n" +
                         "      ?    AS schema_name\n" +
@@ -485,28 +507,30 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_VIEW_COLUMNS_SQL = "select COLUMN_NAME , ORDINAL_POSITION , COLUMN_DEFAULT , IS_NULLABLE , \n" +
+            "\t\t\t\t\t\t\t\tDATA_TYPE , NUMERIC_PRECISION , NUMERIC_SCALE , COLUMN_COMMENT \n" +
+            "\t\t\t\t\t\t\t\tfrom information_schema.Columns where \n" +
+            "\t\t\t\t\t\t\t\t(COLLATION(?) NOT LIKE '%chinese%' \n" +
+            "                                and COLLATION(?) NOT LIKE '%japanese%' \n" +
+            "                                and COLLATION(?) NOT LIKE '%korean%')\n" +
+            "                                and cast(TABLE_NAME as binary) = ?\n" +
+            "                                AND cast(TABLE_SCHEMA as binary)= ? \n" +
+            "                         UNION\n" +
+            "                         select COLUMN_NAME , ORDINAL_POSITION , COLUMN_DEFAULT , IS_NULLABLE ,\n" +
+            "                                DATA_TYPE , NUMERIC_PRECISION , NUMERIC_SCALE , COLUMN_COMMENT\n" +
+            "                                from information_schema.Columns where\n" +
+            "                                (COLLATION(?) LIKE '%chinese%' \n" +
+            "                                or COLLATION(?) LIKE '%japanese%' \n" +
+            "                                or COLLATION(?) LIKE '%korean%')\n" +
+            "                                and TABLE_NAME = ?\n" +
+            "                                AND TABLE_SCHEMA = ?";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_VIEW_COLUMNS_SQL)
     public String showViewColumns(String sql, String product) { //同上，这个比较复杂
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("select COLUMN_NAME , ORDINAL_POSITION , COLUMN_DEFAULT , IS_NULLABLE , \n" +
-                "\t\t\t\t\t\t\t\tDATA_TYPE , NUMERIC_PRECISION , NUMERIC_SCALE , COLUMN_COMMENT \n" +
-                "\t\t\t\t\t\t\t\tfrom information_schema.Columns where \n" +
-                "\t\t\t\t\t\t\t\t(COLLATION(?) NOT LIKE '%chinese%' \n" +
-                "                                and COLLATION(?) NOT LIKE '%japanese%' \n" +
-                "                                and COLLATION(?) NOT LIKE '%korean%')\n" +
-                "                                and cast(TABLE_NAME as binary) = ?\n" +
-                "                                AND cast(TABLE_SCHEMA as binary)= ? \n" +
-                "                         UNION\n" +
-                "                         select COLUMN_NAME , ORDINAL_POSITION , COLUMN_DEFAULT , IS_NULLABLE ,\n" +
-                "                                DATA_TYPE , NUMERIC_PRECISION , NUMERIC_SCALE , COLUMN_COMMENT\n" +
-                "                                from information_schema.Columns where\n" +
-                "                                (COLLATION(?) LIKE '%chinese%' \n" +
-                "                                or COLLATION(?) LIKE '%japanese%' \n" +
-                "                                or COLLATION(?) LIKE '%korean%')\n" +
-                "                                and TABLE_NAME = ?\n" +
-                "                                AND TABLE_SCHEMA = ?")) {
+        if (sql.equals(SHOW_VIEW_COLUMNS_SQL)) {
             if (POSTGRES.equals(product)) {
                 // no column comments
                 return "SELECT column_name,\n" +
@@ -573,22 +597,24 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_VIEW_DETAILS_SQL = "SELECT VIEW_DEFINITION, CHECK_OPTION, IS_UPDATABLE, DEFINER, SECURITY_TYPE FROM\n" +
+            "    \t\t\t           INFORMATION_SCHEMA.VIEWS WHERE (COLLATION(?) NOT LIKE '%chinese%' \n" +
+            "                           and COLLATION(?) NOT LIKE '%japanese%' \n" +
+            "                           and COLLATION(?) NOT LIKE '%korean%')\n" +
+            "                           and cast(TABLE_NAME as binary) = ? AND cast(TABLE_SCHEMA as binary)=?\n" +
+            "                         UNION\n" +
+            "                         SELECT VIEW_DEFINITION, CHECK_OPTION, IS_UPDATABLE, DEFINER, SECURITY_TYPE FROM\n" +
+            "    \t\t\t           INFORMATION_SCHEMA.VIEWS WHERE (COLLATION(?) LIKE '%chinese%' \n" +
+            "                           or COLLATION(?) NOT LIKE '%japanese%' \n" +
+            "                           or COLLATION(?) NOT LIKE '%korean%')\n" +
+            "                           and TABLE_NAME = ? AND TABLE_SCHEMA = ?";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_VIEW_DETAILS_SQL)
     public String showViewDetails(String sql, String product) { //查询视图细节信息
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("SELECT VIEW_DEFINITION, CHECK_OPTION, IS_UPDATABLE, DEFINER, SECURITY_TYPE FROM\n" +
-                "    \t\t\t           INFORMATION_SCHEMA.VIEWS WHERE (COLLATION(?) NOT LIKE '%chinese%' \n" +
-                "                           and COLLATION(?) NOT LIKE '%japanese%' \n" +
-                "                           and COLLATION(?) NOT LIKE '%korean%')\n" +
-                "                           and cast(TABLE_NAME as binary) = ? AND cast(TABLE_SCHEMA as binary)=?\n" +
-                "                         UNION\n" +
-                "                         SELECT VIEW_DEFINITION, CHECK_OPTION, IS_UPDATABLE, DEFINER, SECURITY_TYPE FROM\n" +
-                "    \t\t\t           INFORMATION_SCHEMA.VIEWS WHERE (COLLATION(?) LIKE '%chinese%' \n" +
-                "                           or COLLATION(?) NOT LIKE '%japanese%' \n" +
-                "                           or COLLATION(?) NOT LIKE '%korean%')\n" +
-                "                           and TABLE_NAME = ? AND TABLE_SCHEMA = ?")) {
+        if (sql.equals(SHOW_VIEW_DETAILS_SQL)) {
             if (POSTGRES.equals(product)) {
                 return "SELECT view_definition,\n" +
                         "       check_option,\n" +
@@ -637,12 +663,14 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_PROCEDURES_SQL = "select SPECIFIC_NAME from information_schema.routines where ROUTINE_TYPE = 'PROCEDURE' and cast(ROUTINE_SCHEMA as binary) = ?";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_PROCEDURES_SQL)
     public String showProcedures(String sql, String product) { //查询特定模式下的存储过程名称
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("select SPECIFIC_NAME from information_schema.routines where ROUTINE_TYPE = 'PROCEDURE' and cast(ROUTINE_SCHEMA as binary) = ?")) {
+        if (sql.equals(SHOW_PROCEDURES_SQL)) {
             if (POSTGRES.equals(product)) {
                 return "SELECT p.proname AS \"SPECIFIC_NAME\"\n" +
                         "  FROM pg_proc       p\n" +
@@ -662,12 +690,14 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_FUNCTIONS_SQL = "select SPECIFIC_NAME from information_schema.routines where ROUTINE_TYPE = 'FUNCTION' and cast(ROUTINE_SCHEMA as binary) = ?";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_FUNCTIONS_SQL)
     public String showFunctions(String sql, String product) { //查询特定模式下的函数名称
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("select SPECIFIC_NAME from information_schema.routines where ROUTINE_TYPE = 'FUNCTION' and cast(ROUTINE_SCHEMA as binary) = ?")) {
+        if (sql.equals(SHOW_FUNCTIONS_SQL)) {
             if (POSTGRES.equals(product)) {
                 return "SELECT routine_name AS \"SPECIFIC_NAME\"\n" +
                         "  FROM information_schema.routines\n" +
@@ -690,7 +720,9 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_FUNCTION_OR_PROCEDURE_DETAIL_SQL = "select routine_definition from information_schema.routines where cast(routine_schema as binary) = ? and routine_name = ?";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_FUNCTION_OR_PROCEDURE_DETAIL_SQL)
     public String showFunctionOrProcedureDetail(String sql, String product) { //查询特定模式下特定名称的存储过程或函数的定义内容
         if (MYSQL.equals(product)) {
             return sql;
@@ -699,7 +731,7 @@ public class SQLDevNavigatorSQLRewriter {
         // multiple results when when more than one routine exists with the same name
         // there must be an issue with overloading, also in original MySQL query
         // provide full DDL (if such a function is provided by the DBMS)
-        if (sql.equals("select routine_definition from information_schema.routines where cast(routine_schema as binary) = ? and routine_name = ?")) {
+        if (sql.equals(SHOW_FUNCTION_OR_PROCEDURE_DETAIL_SQL)) {
             if (POSTGRES.equals(product)) {
                 return "SELECT pg_get_functiondef(p.oid) as routine_definition\n" +
                         "  FROM pg_namespace n\n" +
@@ -773,12 +805,14 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_TRIGGERS_SQL = "select TRIGGER_NAME from information_schema.triggers  where trigger_schema = ?  ";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_TRIGGERS_SQL)
     public String showTriggers(String sql, String product) { //查看触发器
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("select TRIGGER_NAME from information_schema.triggers  where trigger_schema = ?  ")) {
+        if (sql.equals(SHOW_TRIGGERS_SQL)) {
             if (POSTGRES.equals(product) || H2.equals(product)) {
                 return "SELECT trigger_name AS \"TRIGGER_NAME\"\n" +
                         "  FROM information_schema.triggers\n" +
@@ -797,12 +831,14 @@ public class SQLDevNavigatorSQLRewriter {
         return sql;
     }
 
-    @SQLRewriter.SQLRewrite
+    private static final String SHOW_TRIGGER_DETAILS_SQL = "select action_statement from information_schema.triggers where cast(trigger_schema as binary) = ? and trigger_name = ?";
+
+    @SQLRewriter.SQLRewrite(trigger = SHOW_TRIGGER_DETAILS_SQL)
     public String showTriggerDetails(String sql, String product) { //查询触发器细节
         if (MYSQL.equals(product)) {
             return sql;
         }
-        if (sql.equals("select action_statement from information_schema.triggers where cast(trigger_schema as binary) = ? and trigger_name = ?")) {
+        if (sql.equals(SHOW_TRIGGER_DETAILS_SQL)) {
             if (POSTGRES.equals(product)) {
                 return "SELECT pg_get_triggerdef(t.oid) AS action_statement\n" +
                         "  FROM pg_namespace n\n" +
@@ -14,6 +14,11 @@ public interface SQLRewriter {
     @Target(ElementType.METHOD)
     @interface SQLRewrite {
         boolean full() default true;
+
+        /**
+         * 非空时规则只作用于与之完全相同的 SQL，RewriteHelper 据此按 SQL 查表分派，其余语句不再调用该规则
+         */
+        String trigger() default "";
     }
 
 }
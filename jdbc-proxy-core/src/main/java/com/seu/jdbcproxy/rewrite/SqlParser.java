@@ -0,0 +1,349 @@
+package com.seu.jdbcproxy.rewrite;
+
+import com.seu.jdbcproxy.rewrite.ParsedStatement.Kind;
+import com.seu.jdbcproxy.rewrite.ParsedStatement.Operator;
+import com.seu.jdbcproxy.rewrite.ParsedStatement.ParameterTarget;
+import com.seu.jdbcproxy.rewrite.SqlTokenizer.Token;
+
+import java.util.*;
+
+/**
+ * 在记号流上识别语句类型与每个 ? 占位符的目标列，覆盖代理实际处理的语句形态：
+ * <ul>
+ *     <li>INSERT INTO t (c1, c2) VALUES (?, ?)[, (?, ?)...] [ON DUPLICATE KEY UPDATE c = ?]</li>
+ *     <li>UPDATE t SET c = ? ... WHERE ...</li>
+ *     <li>WHERE / ON / HAVING 中的 col op ?、? op col、col [NOT] IN (?, ...)、col [NOT] LIKE ?、col BETWEEN ? AND ?</li>
+ * </ul>
+ * 限定名 a.c 通过 FROM / JOIN / UPDATE / INTO 中声明的表名与别名解析；语句只涉及一张表时未限定的列归属该表，
+ * 涉及多张表时无法确定归属，目标的 table 为 null，由调用方在 {@link ParsedStatement#tables()} 中逐表判断。
+ * LIMIT / OFFSET 的占位符记为 {@link Operator#LIMIT}（不对应列）。
+ * 不是完整的 SQL 语法分析：无法确定目标列的占位符（函数参数、表达式等）记为 null，
+ * 配置了列级策略时 {@link EncryptionPlan} 对涉及加密列的语句拒绝执行这类占位符，而不是按明文放行。
+ */
+public final class SqlParser {
+
+    // 其后的占位符是行数
+    private static final Set<String> LIMIT_KEYWORDS = Set.of("LIMIT", "OFFSET", "FETCH", "TOP");
+    // 行数子句中可能出现的其他关键字
+    private static final Set<String> LIMIT_NOISE = Set.of("FIRST", "NEXT", "ROW", "ROWS", "ONLY");
+
+    // 不能作为表别名或列名的关键字
+    private static final Set<String> KEYWORDS = Set.of(
+            "SELECT", "FROM", "WHERE", "SET", "JOIN", "LEFT", "RIGHT", "INNER", "OUTER", "CROSS", "FULL",
+            "NATURAL", "STRAIGHT_JOIN", "ON", "USING", "GROUP", "ORDER", "BY", "LIMIT", "OFFSET", "HAVING",
+            "UNION", "EXCEPT", "INTERSECT", "VALUES", "VALUE", "INTO", "FOR", "LOCK", "WINDOW", "PARTITION",
+            "AND", "OR", "NOT", "IN", "IS", "NULL", "LIKE", "BETWEEN", "EXISTS", "AS", "CASE", "WHEN", "THEN",
+            "ELSE", "END", "DUPLICATE", "KEY", "UPDATE", "DELETE", "INSERT", "USE", "FORCE", "IGNORE", "DISTINCT");
+
+    private SqlParser() {
+    }
+
+    public static ParsedStatement parse(String sql) {
+        List<Token> tokens = SqlTokenizer.tokenize(sql);
+        Kind kind = kindOf(tokens);
+        Map<String, String> aliases = new HashMap<>();
+        List<String> insertColumns = new ArrayList<>();
+        String mainTable = collectTables(tokens, kind, aliases, insertColumns);
+        Set<String> tables = new TreeSet<>(aliases.values());
+        // 多张表时未限定的列不归属任何一张表
+        String defaultTable = tables.size() > 1 ? null : mainTable;
+        return new ParsedStatement(kind,
+                resolveParameters(tokens, kind, mainTable, defaultTable, aliases, insertColumns), tables);
+    }
+
+    private static Kind kindOf(List<Token> tokens) {
+        for (Token t : tokens) {
+            if (t.type() != SqlTokenizer.Type.WORD) {
+                continue;
+            }
+            switch (t.text().toUpperCase(Locale.ROOT)) {
+                case "SELECT", "WITH" -> {
+                    return Kind.SELECT;
+                }
+                case "INSERT", "REPLACE" -> {
+                    return Kind.INSERT;
+                }
+                case "UPDATE" -> {
+                    return Kind.UPDATE;
+                }
+                case "DELETE" -> {
+                    return Kind.DELETE;
+                }
+                default -> {
+                    return Kind.OTHER;
+                }
+            }
+        }
+        return Kind.OTHER;
+    }
+
+    /**
+     * 收集 FROM / JOIN / INTO / UPDATE 后的表名与别名，返回最外层的第一张表；INSERT 的列清单写入 insertColumns
+     */
+    private static String collectTables(List<Token> tokens, Kind kind, Map<String, String> aliases,
+                                        List<String> insertColumns) {
+        String mainTable = null;
+        int depth = 0;
+        boolean firstWord = true;
+        for (int i = 0; i < tokens.size(); i++) {
+            Token t = tokens.get(i);
+            if (t.is("(")) {
+                depth++;
+                continue;
+            }
+            if (t.is(")")) {
+                depth--;
+                continue;
+            }
+            boolean leading = firstWord && t.type() == SqlTokenizer.Type.WORD;
+            if (leading) {
+                firstWord = false;
+            }
+            // UPDATE 只在语句开头表示表名（ON DUPLICATE KEY UPDATE 后面是列）
+            boolean tableKeyword = t.isWord("FROM") || t.isWord("JOIN") || t.isWord("STRAIGHT_JOIN")
+                    || t.isWord("INTO") || leading && kind == Kind.UPDATE && t.isWord("UPDATE");
+            if (!tableKeyword) {
+                continue;
+            }
+            int j = i + 1;
+            while (j < tokens.size()) {
+                while (j < tokens.size() && (tokens.get(j).isWord("LOW_PRIORITY") || tokens.get(j).isWord("IGNORE"))) {
+                    j++;
+                }
+                if (j >= tokens.size() || !tokens.get(j).isIdentifier() || isKeyword(tokens.get(j))) {
+                    break;
+                }
+                String name = tokens.get(j).text();
+                if (j + 2 < tokens.size() && tokens.get(j + 1).is(".") && tokens.get(j + 2).isIdentifier()) {
+                    // db.table
+                    name = tokens.get(j + 2).text();
+                    j += 2;
+                }
+                j++;
+                String table = name.toLowerCase(Locale.ROOT);
+                if (mainTable == null && depth == 0) {
+                    mainTable = table;
+                }
+                aliases.putIfAbsent(table, table);
+                if (j < tokens.size() && tokens.get(j).isWord("AS")) {
+                    j++;
+                }
+                if (j < tokens.size() && tokens.get(j).isIdentifier() && !isKeyword(tokens.get(j))) {
+                    aliases.put(tokens.get(j).text().toLowerCase(Locale.ROOT), table);
+                    j++;
+                }
+                if (t.isWord("INTO") && kind == Kind.INSERT && insertColumns.isEmpty()
+                        && j < tokens.size() && tokens.get(j).is("(")) {
+                    for (j++; j < tokens.size() && !tokens.get(j).is(")"); j++) {
+                        if (tokens.get(j).isIdentifier()) {
+                            insertColumns.add(tokens.get(j).text().toLowerCase(Locale.ROOT));
+                        }
+                    }
+                }
+                // FROM a x, b y
+                if (t.isWord("FROM") && j < tokens.size() && tokens.get(j).is(",")) {
+                    j++;
+                    continue;
+                }
+                break;
+            }
+        }
+        return mainTable;
+    }
+
+    /**
+     * @param mainTable    INSERT 的目标表
+     * @param defaultTable 未限定列的所属表，语句涉及多张表时为 null
+     */
+    private static List<ParameterTarget> resolveParameters(List<Token> tokens, Kind kind, String mainTable,
+                                                           String defaultTable, Map<String, String> aliases,
+                                                           List<String> insertColumns) {
+        List<ParameterTarget> result = new ArrayList<>();
+        int depth = 0;
+        boolean inSet = false;
+        // INSERT ... VALUES 元组
+        boolean inValues = false;
+        int tuplePosition = 0;
+        // col [NOT] IN (...) 的列，以及列表所在的括号深度
+        Deque<Object[]> inLists = new ArrayDeque<>();
+        // col BETWEEN ? AND ?
+        ParameterTarget between = null;
+        int betweenAnd = -1;
+        // LIMIT / OFFSET 子句所在的括号深度
+        int limitDepth = -1;
+
+        for (int i = 0; i < tokens.size(); i++) {
+            Token t = tokens.get(i);
+            if (t.is("(")) {
+                depth++;
+                if (inValues && depth == 1) {
+                    tuplePosition = 0;
+                }
+                continue;
+            }
+            if (t.is(")")) {
+                while (!inLists.isEmpty() && (int) inLists.peek()[1] >= depth) {
+                    inLists.pop();
+                }
+                if (limitDepth >= depth) {
+                    limitDepth = -1;
+                }
+                depth--;
+                continue;
+            }
+            if (t.is(",")) {
+                if (inValues && depth == 1) {
+                    tuplePosition++;
+                }
+                continue;
+            }
+            if (t.type() == SqlTokenizer.Type.WORD) {
+                String word = t.text().toUpperCase(Locale.ROOT);
+                if (LIMIT_KEYWORDS.contains(word)) {
+                    limitDepth = depth;
+                } else if (!LIMIT_NOISE.contains(word)) {
+                    limitDepth = -1;
+                }
+                switch (word) {
+                    case "VALUES", "VALUE" -> inValues = kind == Kind.INSERT && depth == 0;
+                    case "SET" -> inSet = depth == 0;
+                    case "WHERE" -> {
+                        inSet = false;
+                        inValues = false;
+                    }
+                    case "UPDATE" -> {
+                        // ON DUPLICATE KEY UPDATE c = ?
+                        if (i > 0 && tokens.get(i - 1).isWord("KEY")) {
+                            inSet = true;
+                            inValues = false;
+                        }
+                    }
+                    case "IN" -> {
+                        if (i + 1 < tokens.size() && tokens.get(i + 1).is("(")) {
+                            int colEnd = i > 0 && tokens.get(i - 1).isWord("NOT") ? i - 2 : i - 1;
+                            inLists.push(new Object[]{columnEndingAt(tokens, colEnd, defaultTable, aliases, Operator.IN),
+                                    depth + 1});
+                        }
+                    }
+                    case "BETWEEN" -> {
+                        int colEnd = i > 0 && tokens.get(i - 1).isWord("NOT") ? i - 2 : i - 1;
+                        between = columnEndingAt(tokens, colEnd, defaultTable, aliases, Operator.RANGE);
+                        betweenAnd = -1;
+                    }
+                    case "AND" -> {
+                        if (between != null) {
+                            if (betweenAnd < 0) {
+                                betweenAnd = i;
+                            } else {
+                                between = null;
+                            }
+                        }
+                    }
+                    default -> {
+                    }
+                }
+                continue;
+            }
+            if (t.type() != SqlTokenizer.Type.PARAM) {
+                continue;
+            }
+
+            ParameterTarget target = null;
+            Token prev = i > 0 ? tokens.get(i - 1) : null;
+            Token next = i + 1 < tokens.size() ? tokens.get(i + 1) : null;
+            if (limitDepth == depth) {
+                target = new ParameterTarget(null, null, Operator.LIMIT);
+            } else if (inValues && depth == 1) {
+                boolean whole = prev != null && (prev.is("(") || prev.is(","))
+                        && next != null && (next.is(",") || next.is(")"));
+                if (whole && tuplePosition < insertColumns.size()) {
+                    target = new ParameterTarget(mainTable, insertColumns.get(tuplePosition), Operator.ASSIGN);
+                }
+            } else if (prev != null && prev.type() == SqlTokenizer.Type.OP && comparison(prev.text()) != null) {
+                Operator op = comparison(prev.text());
+                if (op == Operator.EQ && inSet && depth == 0) {
+                    op = Operator.ASSIGN;
+                }
+                target = columnEndingAt(tokens, i - 2, defaultTable, aliases, op);
+            } else if (prev != null && prev.isWord("LIKE")) {
+                int colEnd = i >= 2 && tokens.get(i - 2).isWord("NOT") ? i - 3 : i - 2;
+                target = columnEndingAt(tokens, colEnd, defaultTable, aliases, Operator.LIKE);
+            } else if (prev != null && prev.isWord("BETWEEN")) {
+                target = between;
+            } else if (prev != null && prev.isWord("AND") && i - 1 == betweenAnd) {
+                target = between;
+                between = null;
+            } else if (!inLists.isEmpty() && (int) inLists.peek()[1] == depth
+                    && prev != null && (prev.is("(") || prev.is(","))) {
+                target = (ParameterTarget) inLists.peek()[0];
+            } else if (next != null && next.type() == SqlTokenizer.Type.OP && comparison(next.text()) != null) {
+                // ? = col
+                target = columnStartingAt(tokens, i + 2, defaultTable, aliases, comparison(next.text()));
+            }
+            result.add(target);
+        }
+        return result;
+    }
+
+    private static Operator comparison(String op) {
+        return switch (op) {
+            case "=" -> Operator.EQ;
+            case "<>", "!=" -> Operator.NE;
+            case "<", ">", "<=", ">=" -> Operator.RANGE;
+            default -> null;
+        };
+    }
+
+    /**
+     * 以 tokens[end] 结尾的列引用 col 或 q.col
+     */
+    private static ParameterTarget columnEndingAt(List<Token> tokens, int end, String defaultTable,
+                                                  Map<String, String> aliases, Operator op) {
+        if (end < 0 || !isColumnName(tokens.get(end))) {
+            return null;
+        }
+        String qualifier = null;
+        if (end >= 2 && tokens.get(end - 1).is(".") && tokens.get(end - 2).isIdentifier()) {
+            qualifier = tokens.get(end - 2).text();
+        }
+        return target(qualifier, tokens.get(end).text(), defaultTable, aliases, op);
+    }
+
+    /**
+     * 从 tokens[start] 开始的列引用；后面紧跟括号的是函数调用，不算列
+     */
+    private static ParameterTarget columnStartingAt(List<Token> tokens, int start, String defaultTable,
+                                                    Map<String, String> aliases, Operator op) {
+        if (start >= tokens.size() || !isColumnName(tokens.get(start))) {
+            return null;
+        }
+        String qualifier = null;
+        int last = start;
+        if (start + 2 < tokens.size() && tokens.get(start + 1).is(".") && isColumnName(tokens.get(start + 2))) {
+            qualifier = tokens.get(start).text();
+            last = start + 2;
+        }
+        if (last + 1 < tokens.size() && tokens.get(last + 1).is("(")) {
+            return null;
+        }
+        return target(qualifier, tokens.get(last).text(), defaultTable, aliases, op);
+    }
+
+    private static ParameterTarget target(String qualifier, String column, String defaultTable,
+                                          Map<String, String> aliases, Operator op) {
+        String table = defaultTable;
+        if (qualifier != null) {
+            String q = qualifier.toLowerCase(Locale.ROOT);
+            table = aliases.getOrDefault(q, q);
+        }
+        return new ParameterTarget(table, column.toLowerCase(Locale.ROOT), op);
+    }
+
+    private static boolean isColumnName(Token t) {
+        return t.type() == SqlTokenizer.Type.QUOTED || t.type() == SqlTokenizer.Type.WORD && !isKeyword(t);
+    }
+
+    private static boolean isKeyword(Token t) {
+        return t.type() == SqlTokenizer.Type.WORD && KEYWORDS.contains(t.text().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,116 @@
+package com.seu.jdbcproxy.rewrite;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 轻量 SQL 词法分析：只区分解析占位符所需的几类记号，注释与空白被丢弃。
+ * 字符串字面量保留为一个记号（其中的 ? 不是占位符），`反引号` 与 "双引号" 标识符去掉引号。
+ */
+public final class SqlTokenizer {
+
+    public enum Type {
+        /** 标识符或关键字 */
+        WORD,
+        /** 带引号的标识符（已去掉引号） */
+        QUOTED,
+        STRING,
+        NUMBER,
+        /** 占位符 ? */
+        PARAM,
+        /** 比较 / 算术运算符 */
+        OP,
+        /** ( ) , . ; */
+        PUNCT
+    }
+
+    public record Token(Type type, String text) {
+
+        public boolean isWord(String keyword) {
+            return type == Type.WORD && text.equalsIgnoreCase(keyword);
+        }
+
+        public boolean isIdentifier() {
+            return type == Type.WORD || type == Type.QUOTED;
+        }
+
+        public boolean is(String punctOrOp) {
+            return (type == Type.PUNCT || type == Type.OP) && text.equals(punctOrOp);
+        }
+    }
+
+    private SqlTokenizer() {
+    }
+
+    public static List<Token> tokenize(String sql) {
+        List<Token> tokens = new ArrayList<>();
+        int n = sql.length();
+        int i = 0;
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-' || c == '#') {
+                // 行注释（含 --@extra 标签）
+                while (i < n && sql.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+            } else if (c == '\'') {
+                int start = i++;
+                while (i < n) {
+                    char d = sql.charAt(i++);
+                    if (d == '\\' && i < n) {
+                        i++;
+                    } else if (d == '\'') {
+                        if (i < n && sql.charAt(i) == '\'') {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                }
+                tokens.add(new Token(Type.STRING, sql.substring(start, i)));
+            } else if (c == '`' || c == '"') {
+                int end = sql.indexOf(c, i + 1);
+                if (end < 0) {
+                    end = n;
+                }
+                tokens.add(new Token(Type.QUOTED, sql.substring(i + 1, end)));
+                i = end + 1;
+            } else if (c == '?') {
+                tokens.add(new Token(Type.PARAM, "?"));
+                i++;
+            } else if (Character.isDigit(c)) {
+                int start = i;
+                while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                tokens.add(new Token(Type.NUMBER, sql.substring(start, i)));
+            } else if (Character.isLetter(c) || c == '_' || c == '$' || c == '@') {
+                int start = i;
+                while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || "_$@".indexOf(sql.charAt(i)) >= 0)) {
+                    i++;
+                }
+                tokens.add(new Token(Type.WORD, sql.substring(start, i)));
+            } else if ("(),.;".indexOf(c) >= 0) {
+                tokens.add(new Token(Type.PUNCT, String.valueOf(c)));
+                i++;
+            } else if (c == '<' || c == '>' || c == '!') {
+                if (i + 1 < n && (sql.charAt(i + 1) == '=' || c == '<' && sql.charAt(i + 1) == '>')) {
+                    tokens.add(new Token(Type.OP, sql.substring(i, i + 2)));
+                    i += 2;
+                } else {
+                    tokens.add(new Token(Type.OP, String.valueOf(c)));
+                    i++;
+                }
+            } else {
+                tokens.add(new Token(Type.OP, String.valueOf(c)));
+                i++;
+            }
+        }
+        return tokens;
+    }
+}
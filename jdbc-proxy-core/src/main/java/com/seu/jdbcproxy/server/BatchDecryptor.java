@@ -0,0 +1,134 @@
+package com.seu.jdbcproxy.server;
+
+import com.seu.jdbcproxy.ConfigLoader;
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+
+import java.sql.SQLException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 批量解密：FETCH_ROWS 先把一批行中可能是密文的字符串列原样读出，再由本类统一解密。
+ * 待解密的单元格数不少于阈值时按行区间拆分到 ForkJoin 线程池并行执行，否则在调用线程上顺序执行。
+ * EncryptionHelper 的 Cipher 每次解密时从其空闲池借出，各工作线程互不干扰。
+ */
+public final class BatchDecryptor {
+    private static final BatchDecryptor SHARED = new BatchDecryptor(
+            Integer.parseInt(ConfigLoader.get("server.decrypt.parallelThreshold", "4096")),
+            Integer.parseInt(ConfigLoader.get("server.decrypt.parallelism",
+                    String.valueOf(Runtime.getRuntime().availableProcessors()))));
+
+    // 每个子任务至少处理的单元格数，过细的拆分只会增加调度开销
+    private static final int MIN_CELLS_PER_TASK = 256;
+
+    private final int threshold;
+    private final int parallelism;
+    // parallelism <= 1 时为 null，始终顺序解密
+    private final ForkJoinPool pool;
+
+    public BatchDecryptor(int threshold, int parallelism) {
+        this.threshold = threshold;
+        this.parallelism = parallelism;
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism, BatchDecryptor::newWorker, null, false) : null;
+    }
+
+    public static BatchDecryptor shared() {
+        return SHARED;
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("proxy-decrypt-" + thread.getPoolIndex());
+        return thread;
+    }
+
+    /**
+     * 原地解密 columns[c][0..rows)：columns[c] 为 null 的列跳过，null 与非密文值保持不变。
+     * 任一单元格解密失败时抛出 SQLException，其余单元格的状态不确定
+     */
+    public void decrypt(EncryptionHelper helper, String[][] columns, int rows) throws SQLException {
+        int width = 0;
+        for (String[] column : columns) {
+            if (column != null) {
+                width++;
+            }
+        }
+        long cells = (long) width * rows;
+        if (cells == 0) {
+            return;
+        }
+        DecryptTask task = new DecryptTask(helper, columns, 0, rows,
+                Math.max(1, Math.max(MIN_CELLS_PER_TASK, (int) (cells / (parallelism * 4L))) / width),
+                new AtomicReference<>());
+        if (pool == null || cells < threshold) {
+            task.decryptRange();
+        } else {
+            pool.invoke(task);
+        }
+        SQLException failure = task.failure.get();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 解密 [from, to) 行，行数超过 rowsPerTask 时对半拆分
+     */
+    private static final class DecryptTask extends RecursiveAction {
+        private final EncryptionHelper helper;
+        private final String[][] columns;
+        private final int from;
+        private final int to;
+        private final int rowsPerTask;
+        // 第一个失败的单元格，其余子任务看到后不再继续
+        private final AtomicReference<SQLException> failure;
+
+        DecryptTask(EncryptionHelper helper, String[][] columns, int from, int to, int rowsPerTask,
+                    AtomicReference<SQLException> failure) {
+            this.helper = helper;
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+            this.rowsPerTask = rowsPerTask;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= rowsPerTask) {
+                decryptRange();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new DecryptTask(helper, columns, from, mid, rowsPerTask, failure),
+                    new DecryptTask(helper, columns, mid, to, rowsPerTask, failure));
+        }
+
+        void decryptRange() {
+            for (int c = 0; c < columns.length; c++) {
+                String[] column = columns[c];
+                if (column == null) {
+                    continue;
+                }
+                if (failure.get() != null) {
+                    return;
+                }
+                for (int r = from; r < to; r++) {
+                    String value = column[r];
+                    if (value == null) {
+                        continue;
+                    }
+                    try {
+                        column[r] = helper.decrypt(value);
+                    } catch (Exception e) {
+                        failure.compareAndSet(null,
+                                new SQLException("Error decrypting value for column index: " + (c + 1), e));
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.seu.jdbcproxy.server;
+
+import com.seu.jdbcproxy.ConfigLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 空闲会话回收：所有会话登记到一个时间轮（wheelSize 个槽，每槽 tickMs），由单个后台线程按刻度推进。
+ * <ul>
+ *     <li>会话空闲超过 sessionTimeoutMs：关闭其语句与结果集、归还后端连接，之后的请求收到 "Connection expired"；</li>
+ *     <li>打开的语句 / 结果集空闲超过 cursorTimeoutMs：关闭它们，transaction 模式下随之归还后端连接。</li>
+ * </ul>
+ * 请求线程只在处理完请求时写一次会话的 volatile 活动时间，不触碰时间轮；
+ * 到期的槽位重新读取活动时间，期间有过活动的会话按新的截止时间重新放入时间轮。
+ * 正在处理请求的会话（会话锁被占用）不回收，下一个刻度再检查。
+ */
+public final class IdleReaper {
+    private static final Logger logger = LoggerFactory.getLogger(IdleReaper.class);
+
+    // check 的返回值：会话已关闭，移出时间轮
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private static final IdleReaper SHARED = new IdleReaper(
+            Long.parseLong(ConfigLoader.get("server.idle.sessionTimeoutMs", "300000")),
+            Long.parseLong(ConfigLoader.get("server.idle.cursorTimeoutMs", "60000")),
+            Long.parseLong(ConfigLoader.get("server.idle.tickMs", "1000")),
+            Integer.parseInt(ConfigLoader.get("server.idle.wheelSize", "512")));
+
+    // <= 0 的超时视为不回收
+    private final long sessionTimeoutNanos;
+    private final long cursorTimeoutNanos;
+    private final long tickNanos;
+    // 槽位只由回收线程访问
+    private final List<Entry>[] wheel;
+    // 新登记的会话，回收线程在每个刻度开始时放入时间轮
+    private final Queue<Entry> incoming = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private long tick;
+    private Thread thread;
+
+    // 监控指标
+    private final AtomicInteger tracked = new AtomicInteger();
+    private final AtomicLong reclaimedSessions = new AtomicLong();
+    private final AtomicLong reclaimedCursorSets = new AtomicLong();
+    private final AtomicLong reclaimedStatements = new AtomicLong();
+    private final AtomicLong reclaimedResultSets = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    IdleReaper(long sessionTimeoutMs, long cursorTimeoutMs, long tickMs, int wheelSize) {
+        this.sessionTimeoutNanos = sessionTimeoutMs > 0 ? TimeUnit.MILLISECONDS.toNanos(sessionTimeoutMs) : Long.MAX_VALUE;
+        this.cursorTimeoutNanos = cursorTimeoutMs > 0 ? TimeUnit.MILLISECONDS.toNanos(cursorTimeoutMs) : Long.MAX_VALUE;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMs));
+        this.wheel = new List[Math.max(1, wheelSize)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+    }
+
+    public static IdleReaper shared() {
+        return SHARED;
+    }
+
+    private boolean isEnabled() {
+        return sessionTimeoutNanos != Long.MAX_VALUE || cursorTimeoutNanos != Long.MAX_VALUE;
+    }
+
+    /**
+     * 登记一个新会话；会话关闭后在下一次到期时自动移出时间轮
+     */
+    void register(ProxySession session) {
+        if (!isEnabled()) {
+            return;
+        }
+        incoming.add(new Entry(session));
+        tracked.incrementAndGet();
+        startIfNeeded();
+    }
+
+    private synchronized void startIfNeeded() {
+        if (thread == null) {
+            thread = new Thread(this::run, "proxy-idle-reaper");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                long sleep = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+                if (sleep > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                }
+                tick++;
+                try {
+                    advance();
+                } catch (Exception e) {
+                    logger.error("Error during idle session reaping", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 处理当前刻度的槽位：截止刻度已到的会话逐个检查，其余留在槽中等下一圈
+     */
+    private void advance() {
+        for (Entry entry; (entry = incoming.poll()) != null; ) {
+            schedule(entry, saturatedAdd(entry.session.lastActivity(), Math.min(sessionTimeoutNanos, cursorTimeoutNanos)));
+        }
+        List<Entry> slot = wheel[(int) (tick % wheel.length)];
+        List<Entry> due = new ArrayList<>();
+        for (int i = slot.size() - 1; i >= 0; i--) {
+            Entry entry = slot.get(i);
+            if (entry.deadlineTick <= tick) {
+                // 与末尾元素交换后删除，避免移动整个槽
+                slot.set(i, slot.get(slot.size() - 1));
+                slot.remove(slot.size() - 1);
+                due.add(entry);
+            }
+        }
+        long now = System.nanoTime();
+        for (Entry entry : due) {
+            long next = check(entry.session, now);
+            if (next == CLOSED) {
+                tracked.decrementAndGet();
+            } else {
+                schedule(entry, next);
+            }
+        }
+    }
+
+    private void schedule(Entry entry, long deadlineNanos) {
+        long target = Math.max(tick + 1, ceilDiv(saturatedAdd(deadlineNanos, -startNanos), tickNanos));
+        entry.deadlineTick = target;
+        wheel[(int) (target % wheel.length)].add(entry);
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return x <= 0 ? 0 : x / y + (x % y == 0 ? 0 : 1);
+    }
+
+    /**
+     * 检查一个到期的会话，返回下一次检查的时间（System.nanoTime），会话已关闭时返回 CLOSED
+     */
+    long check(ProxySession session, long now) {
+        if (session.isClosed()) {
+            return CLOSED;
+        }
+        long last = session.lastActivity();
+        long idle = now - last;
+        if (idle < cursorTimeoutNanos && idle < sessionTimeoutNanos) {
+            return saturatedAdd(last, Math.min(cursorTimeoutNanos, sessionTimeoutNanos));
+        }
+        if (!session.tryLock()) {
+            // 正在处理请求
+            return now + tickNanos;
+        }
+        try {
+            if (session.isClosed()) {
+                return CLOSED;
+            }
+            last = session.lastActivity();
+            idle = now - last;
+            ResourceRegistry resources = session.getResources();
+            if (idle >= sessionTimeoutNanos) {
+                reclaimedStatements.addAndGet(resources.statementCount());
+                reclaimedResultSets.addAndGet(resources.resultSetCount());
+                session.expire();
+                reclaimedSessions.incrementAndGet();
+                logger.info("Session {} idle for {} ms, closed", session.getId(), TimeUnit.NANOSECONDS.toMillis(idle));
+                return CLOSED;
+            }
+            if (idle >= cursorTimeoutNanos && resources.size() > 0) {
+                reclaimedStatements.addAndGet(resources.statementCount());
+                reclaimedResultSets.addAndGet(resources.resultSetCount());
+                resources.closeAll();
+                reclaimedCursorSets.incrementAndGet();
+                if (session.canUnbind()) {
+                    session.unbind();
+                }
+                logger.info("Closed idle statements and result sets of session {}", session.getId());
+            }
+        } finally {
+            session.unlock();
+        }
+        // 空闲期间新打开的结果集最迟在一个 cursorTimeout 之后被发现
+        long cursorDeadline = saturatedAdd(idle < cursorTimeoutNanos ? last : now, cursorTimeoutNanos);
+        return Math.min(saturatedAdd(last, sessionTimeoutNanos), cursorDeadline);
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return ((a ^ sum) & (b ^ sum)) < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    public int getTrackedSessions() {
+        return tracked.get();
+    }
+
+    public long getReclaimedSessions() {
+        return reclaimedSessions.get();
+    }
+
+    public long getReclaimedStatements() {
+        return reclaimedStatements.get();
+    }
+
+    public long getReclaimedResultSets() {
+        return reclaimedResultSets.get();
+    }
+
+    @Override
+    public String toString() {
+        return "IdleReaper{tracked=" + tracked.get()
+                + ", reclaimedSessions=" + reclaimedSessions.get()
+                + ", cursorReclaims=" + reclaimedCursorSets.get()
+                + ", reclaimedStatements=" + reclaimedStatements.get()
+                + ", reclaimedResultSets=" + reclaimedResultSets.get() + "}";
+    }
+
+    private static final class Entry {
+        final ProxySession session;
+        // 下一次检查的刻度
+        long deadlineTick;
+
+        Entry(ProxySession session) {
+            this.session = session;
+        }
+    }
+}
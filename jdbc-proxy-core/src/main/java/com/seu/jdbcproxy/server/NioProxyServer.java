@@ -0,0 +1,446 @@
+package com.seu.jdbcproxy.server;
+
+import com.seu.jdbcproxy.metrics.Phase;
+import com.seu.jdbcproxy.metrics.ProxyMetrics;
+import com.seu.jdbcproxy.pojo.MessageType;
+import com.seu.jdbcproxy.pojo.Request;
+import com.seu.jdbcproxy.pojo.Response;
+import com.seu.jdbcproxy.pojo.SQLExceptionWrapper;
+import com.seu.jdbcproxy.protocol.FrameBuffer;
+import com.seu.jdbcproxy.protocol.FrameCodec;
+import com.seu.jdbcproxy.protocol.MessageCodec;
+import com.seu.jdbcproxy.protocol.MessageCodecs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 基于 java.nio.channels 的非阻塞前端：
+ * <ul>
+ *     <li>一个 acceptor 线程接收连接，按轮询分配给固定数量的 I/O 事件循环线程；</li>
+ *     <li>事件循环只负责读写和按长度前缀切帧，不做任何阻塞操作；</li>
+ *     <li>完整的请求帧交给有界工作线程池解码并执行 JDBC 调用，响应再交回事件循环写出。</li>
+ * </ul>
+ * 空闲连接只占用一个 SelectionKey 和少量缓冲区，不再独占线程。
+ * 同一连接上的请求按到达顺序串行执行（一个连接对应的真实 Connection 不是线程安全的）。
+ */
+public class NioProxyServer {
+    private static final Logger logger = LoggerFactory.getLogger(NioProxyServer.class);
+    private static final int INITIAL_READ_BUFFER = 8 * 1024;
+
+    private final int port;
+    private final int ioThreads;
+    private final ExecutorService workers;
+    private final Supplier<RequestDispatcher> dispatchers;
+
+    private ServerSocketChannel serverChannel;
+    private EventLoop[] loops;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    public NioProxyServer(int port, int ioThreads, ExecutorService workers) {
+        this(port, ioThreads, workers, RequestDispatcher::new);
+    }
+
+    /**
+     * dispatchers 为每个客户端连接创建一个 RequestDispatcher
+     */
+    NioProxyServer(int port, int ioThreads, ExecutorService workers, Supplier<RequestDispatcher> dispatchers) {
+        this.port = port;
+        this.ioThreads = Math.max(1, ioThreads);
+        this.workers = workers;
+        this.dispatchers = dispatchers;
+    }
+
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        running = true;
+
+        loops = new EventLoop[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            loops[i] = new EventLoop(i);
+            loops[i].start();
+        }
+
+        acceptor = new Thread(this::acceptLoop, "proxy-nio-acceptor");
+        acceptor.start();
+        logger.info("NIO ProxyServer listening on port {} with {} I/O threads", getLocalPort(), ioThreads);
+    }
+
+    public int getLocalPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public void shutdown() {
+        running = false;
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Error closing server channel: {}", e.getMessage());
+        }
+        if (loops != null) {
+            for (EventLoop loop : loops) {
+                loop.shutdown();
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                logger.info("New client connected: {}", channel.getRemoteAddress());
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                if (running) {
+                    logger.error("Error accepting connection", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * I/O 事件循环：一个 Selector 负责多个连接的读写
+     */
+    private final class EventLoop extends Thread {
+        private final Selector selector;
+        private final Queue<SocketChannel> pendingRegistrations = new ConcurrentLinkedQueue<>();
+        private final Queue<NioConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+
+        EventLoop(int index) throws IOException {
+            super("proxy-nio-io-" + index);
+            this.selector = Selector.open();
+        }
+
+        void register(SocketChannel channel) {
+            pendingRegistrations.add(channel);
+            selector.wakeup();
+        }
+
+        void requestWrite(NioConnection conn) {
+            pendingWrites.add(conn);
+            selector.wakeup();
+        }
+
+        void shutdown() {
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                    processRegistrations();
+                    processWriteRequests();
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        NioConnection conn = (NioConnection) key.attachment();
+                        if (!key.isValid()) {
+                            conn.close();
+                            continue;
+                        }
+                        try {
+                            if (key.isReadable()) {
+                                conn.onReadable();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                conn.onWritable();
+                            }
+                        } catch (IOException | CancelledKeyException e) {
+                            conn.close();
+                        }
+                    }
+                } catch (IOException e) {
+                    logger.error("Selector failure in {}", getName(), e);
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                ((NioConnection) key.attachment()).close();
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        private void processRegistrations() {
+            SocketChannel channel;
+            while ((channel = pendingRegistrations.poll()) != null) {
+                try {
+                    NioConnection conn = new NioConnection(channel, this);
+                    conn.key = channel.register(selector, SelectionKey.OP_READ, conn);
+                } catch (IOException e) {
+                    logger.warn("Failed to register channel: {}", e.getMessage());
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+
+        private void processWriteRequests() {
+            NioConnection conn;
+            while ((conn = pendingWrites.poll()) != null) {
+                try {
+                    conn.onWritable();
+                } catch (IOException | CancelledKeyException e) {
+                    conn.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个客户端连接的状态：读缓冲、待执行请求队列、待写出响应队列
+     */
+    private final class NioConnection {
+        private final SocketChannel channel;
+        private final EventLoop loop;
+        private final RequestDispatcher dispatcher;
+        private SelectionKey key;
+        private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER);
+
+        // 请求按到达顺序排队，同一时刻最多一个工作线程在处理该连接
+        private final Queue<byte[]> pendingRequests = new ArrayDeque<>();
+        private boolean processing = false;
+
+        private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+        // 事件循环（读到 EOF、I/O 异常）与工作线程（处理失败）都可能关闭连接，只有第一次生效
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        NioConnection(SocketChannel channel, EventLoop loop) {
+            this.channel = channel;
+            this.loop = loop;
+            this.dispatcher = dispatchers.get();
+        }
+
+        void onReadable() throws IOException {
+            int n = channel.read(readBuffer);
+            if (n < 0) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.remaining() >= FrameCodec.HEADER_LENGTH) {
+                int length = readBuffer.getInt(readBuffer.position());
+                FrameCodec.checkLength(length);
+                int frameSize = FrameCodec.HEADER_LENGTH + length;
+                if (readBuffer.remaining() < frameSize) {
+                    if (readBuffer.capacity() < frameSize) {
+                        ByteBuffer bigger = ByteBuffer.allocate(frameSize);
+                        bigger.put(readBuffer);
+                        readBuffer = bigger;
+                        return;
+                    }
+                    break;
+                }
+                readBuffer.getInt();
+                byte[] payload = new byte[length];
+                readBuffer.get(payload);
+                onFrame(payload);
+            }
+            readBuffer.compact();
+        }
+
+        private void onFrame(byte[] payload) {
+            synchronized (pendingRequests) {
+                pendingRequests.add(payload);
+                if (processing) {
+                    return;
+                }
+                processing = true;
+            }
+            submit();
+        }
+
+        private void submit() {
+            try {
+                workers.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // 工作线程池已满：拒绝队首请求并返回错误，而不是在 I/O 线程上执行 JDBC 调用
+                byte[] rejected;
+                boolean more;
+                synchronized (pendingRequests) {
+                    rejected = pendingRequests.poll();
+                    more = !pendingRequests.isEmpty();
+                    processing = more;
+                }
+                if (rejected != null) {
+                    enqueue(overloaded(rejected), codecOrJava(rejected));
+                }
+                if (more) {
+                    submit();
+                }
+            }
+        }
+
+        /**
+         * 工作线程：依次处理该连接排队的请求
+         */
+        private void drain() {
+            while (true) {
+                byte[] payload;
+                synchronized (pendingRequests) {
+                    payload = pendingRequests.poll();
+                    if (payload == null) {
+                        processing = false;
+                    }
+                }
+                if (payload == null) {
+                    if (closed.get()) {
+                        // 连接在处理请求期间被关闭，由工作线程归还后端连接
+                        dispatcher.close();
+                    }
+                    return;
+                }
+                if (closed.get()) {
+                    continue;
+                }
+                try {
+                    long start = ProxyMetrics.start();
+                    MessageCodec codec = FrameCodec.codecOf(payload);
+                    Request req = (Request) FrameCodec.decode(payload);
+                    ProxyMetrics.record(req.getType(), Phase.DECODE, start);
+                    ProxyMetrics.addBytesIn(FrameCodec.HEADER_LENGTH + payload.length);
+                    Response resp = dispatcher.handle(req);
+                    // 写出由事件循环异步完成，这里只计编码与入队
+                    start = ProxyMetrics.start();
+                    enqueue(resp, codec);
+                    ProxyMetrics.record(req.getType(), Phase.ENCODE, start);
+                } catch (Exception e) {
+                    logger.error("Error handling request on {}", describe(), e);
+                    close();
+                }
+            }
+        }
+
+        private void enqueue(Response resp, MessageCodec codec) {
+            if (closed.get()) {
+                return;
+            }
+            try {
+                FrameBuffer frame = FrameCodec.encodeFrame(codec, resp);
+                writeQueue.add(ByteBuffer.wrap(frame.array(), 0, frame.size()));
+                ProxyMetrics.addBytesOut(frame.size());
+                loop.requestWrite(this);
+            } catch (IOException e) {
+                logger.error("Error encoding response on {}", describe(), e);
+                close();
+            }
+        }
+
+        /**
+         * 仅在事件循环线程调用
+         */
+        void onWritable() throws IOException {
+            if (closed.get()) {
+                return;
+            }
+            ByteBuffer frame;
+            while ((frame = writeQueue.peek()) != null) {
+                channel.write(frame);
+                if (frame.hasRemaining()) {
+                    // 内核发送缓冲区已满，等待 OP_WRITE
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                writeQueue.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        private MessageCodec codecOrJava(byte[] payload) {
+            try {
+                return FrameCodec.codecOf(payload);
+            } catch (IOException e) {
+                return MessageCodecs.JAVA;
+            }
+        }
+
+        private Response overloaded(byte[] rejected) {
+            Response r = new Response();
+            r.setType(MessageType.EXCEPTION);
+            try {
+                // 带回 requestId，流水线客户端才能把错误对应到被拒绝的请求
+                r.setRequestId(((Request) FrameCodec.decode(rejected)).getRequestId());
+            } catch (Exception ignored) {
+                // 无法解码时客户端按到达顺序匹配
+            }
+            SQLException e = new SQLException("Proxy server overloaded, request rejected", "08004", 0);
+            r.setSqlException(new SQLExceptionWrapper(e));
+            r.setErrorMessage(e.getMessage());
+            return r;
+        }
+
+        private String describe() {
+            try {
+                return String.valueOf(channel.getRemoteAddress());
+            } catch (IOException e) {
+                return "closed channel";
+            }
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            boolean idle;
+            synchronized (pendingRequests) {
+                pendingRequests.clear();
+                idle = !processing;
+                processing = true;
+            }
+            // 工作线程正在执行请求时不能并发归还其连接，留给 drain 结束时归还；
+            // 否则同样交给工作线程归还（回滚、复位连接状态都是后端往返），不在事件循环线程上执行
+            if (idle) {
+                submitCleanup();
+            }
+        }
+
+        private void submitCleanup() {
+            try {
+                workers.execute(dispatcher::close);
+            } catch (RejectedExecutionException e) {
+                // 工作线程池已满：用临时线程归还，仍不占用事件循环
+                Thread cleanup = new Thread(dispatcher::close, "proxy-nio-cleanup");
+                cleanup.setDaemon(true);
+                cleanup.start();
+            }
+        }
+    }
+}
@@ -1,132 +1,168 @@
 package com.seu.jdbcproxy.server;
 
-import com.seu.jdbcproxy.core.ProxyPreparedStatement;
-import com.seu.jdbcproxy.pojo.MessageType;
-import com.seu.jdbcproxy.pojo.Request;
-import com.seu.jdbcproxy.pojo.Response;
+import com.seu.jdbcproxy.ConfigLoader;
+import com.seu.jdbcproxy.pool.BackendPool;
 import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import com.seu.jdbcproxy.rewrite.EncryptionPlan;
+import com.seu.jdbcproxy.rewrite.RewriteHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.EOFException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.sql.*;
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.net.SocketException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ProxyServer {
+    /** 阻塞模式：每个客户端 socket 一个线程 */
+    public static final String MODE_BLOCKING = "blocking";
+    /** NIO 模式：少量 I/O 事件循环线程 + 有界工作线程池 */
+    public static final String MODE_NIO = "nio";
+    /** 平台线程执行 ClientHandler / JDBC 调用 */
+    public static final String EXECUTOR_PLATFORM = "platform";
+    /** 虚拟线程执行 ClientHandler / JDBC 调用（需要 JDK 21+ 运行时） */
+    public static final String EXECUTOR_VIRTUAL = "virtual";
+
     private final int port;
-    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final String mode;
+    private final String executor;
+    private final ExecutorService pool;
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    
-    // 使用ConcurrentHashMap确保线程安全
-    private static final Map<String, Connection> connMap = new ConcurrentHashMap<>();
-    private static final Map<String, PreparedStatement> stmtMap = new ConcurrentHashMap<>();
-    private static final Map<String, ResultSet> rsMap = new ConcurrentHashMap<>();
-    
-    // 连接超时配置
-    private static final long CONNECTION_TIMEOUT_MS = 300000; // 5分钟
-    private static final long HEARTBEAT_INTERVAL_MS = 60000;  // 1分钟
-    
+
+    private ServerSocket serverSocket;
+    private NioProxyServer nioServer;
+    private Thread acceptor;
+
     private final EncryptionHelper encryptionHelper = new EncryptionHelper();
     private static final Logger logger = LoggerFactory.getLogger(ProxyServer.class);
 
     public ProxyServer(int port) {
+        this(port, System.getProperty("server.mode", ConfigLoader.get("server.mode", MODE_BLOCKING)));
+    }
+
+    public ProxyServer(int port, String mode) {
+        this(port, mode, System.getProperty("server.executor", ConfigLoader.get("server.executor", EXECUTOR_PLATFORM)));
+    }
+
+    public ProxyServer(int port, String mode, String executor) {
         this.port = port;
-        // 启动连接超时检测任务
-        startConnectionTimeoutTask();
+        this.mode = mode.trim().toLowerCase();
+        this.executor = executor.trim().toLowerCase();
+        this.pool = newExecutor(this.mode, this.executor);
+        startPoolMaintenanceTask();
     }
 
-    private void startConnectionTimeoutTask() {
-        scheduler.scheduleAtFixedRate(() -> {
-            try {
-                cleanupExpiredConnections();
-            } catch (Exception e) {
-                logger.error("Error during connection cleanup", e);
+    /**
+     * 阻塞模式下运行 ClientHandler、NIO 模式下执行 JDBC 调用的线程池。
+     * virtual 模式下每个 ClientHandler（及其 dispatch 中的阻塞 JDBC 调用）各占一个虚拟线程，
+     * 数万个并发连接也不需要同等数量的平台线程。
+     */
+    private static ExecutorService newExecutor(String mode, String executor) {
+        if (EXECUTOR_VIRTUAL.equals(executor)) {
+            ExecutorService virtual = VirtualThreads.newPerTaskExecutor();
+            if (virtual != null) {
+                logger.info("Running client handlers on virtual threads");
+                return virtual;
             }
-        }, HEARTBEAT_INTERVAL_MS, HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            logger.warn("server.executor=virtual requires a JDK 21+ runtime, falling back to platform threads");
+        } else if (!EXECUTOR_PLATFORM.equals(executor)) {
+            throw new IllegalArgumentException("Unknown server.executor: " + executor);
+        }
+        return MODE_NIO.equals(mode) ? newWorkerPool() : Executors.newCachedThreadPool();
     }
 
-    private void cleanupExpiredConnections() {
-        long currentTime = System.currentTimeMillis();
-        Iterator<Map.Entry<String, Connection>> iterator = connMap.entrySet().iterator();
-        
-        while (iterator.hasNext()) {
-            Map.Entry<String, Connection> entry = iterator.next();
-            String connId = entry.getKey();
-            
-            // 清理过期的Statement
-            cleanupExpiredStatements(connId);
-            
-            // 清理过期的ResultSet
-            cleanupExpiredResultSets(connId);
-            
-            // 检查连接是否超时（这里可以添加连接最后活动时间的跟踪）
-            // 暂时只清理明显无效的连接
-            try {
-                Connection conn = entry.getValue();
-                if (conn.isClosed()) {
-                    iterator.remove();
-                    logger.info("Removed closed connection: {}", connId);
-                }
-            } catch (SQLException e) {
-                iterator.remove();
-                logger.info("Removed invalid connection: {}", connId);
-            }
+    /**
+     * NIO 模式下执行 JDBC 调用的有界工作线程池
+     */
+    private static ExecutorService newWorkerPool() {
+        int threads = Integer.parseInt(ConfigLoader.get("server.worker.threads", "32"));
+        int queueSize = Integer.parseInt(ConfigLoader.get("server.worker.queueSize", "1024"));
+        AtomicInteger seq = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                r -> new Thread(r, "proxy-worker-" + seq.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 绑定端口并开始接收连接（非阻塞返回）
+     */
+    public void start() throws IOException {
+        if (MODE_NIO.equals(mode)) {
+            int ioThreads = Integer.parseInt(ConfigLoader.get("server.nio.ioThreads",
+                    String.valueOf(Math.min(4, Runtime.getRuntime().availableProcessors()))));
+            nioServer = new NioProxyServer(port, ioThreads, pool);
+            nioServer.start();
+        } else if (MODE_BLOCKING.equals(mode)) {
+            serverSocket = new ServerSocket(port);
+            acceptor = new Thread(this::acceptLoop, "proxy-acceptor");
+            acceptor.start();
+            logger.info("ProxyServer listening on port {}", getLocalPort());
+        } else {
+            throw new IllegalArgumentException("Unknown server.mode: " + mode);
         }
     }
 
-    private void cleanupExpiredStatements(String connId) {
-        Iterator<Map.Entry<String, PreparedStatement>> iterator = stmtMap.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<String, PreparedStatement> entry = iterator.next();
-            String stmtId = entry.getKey();
-            if (stmtId.startsWith(connId + "_")) {
-                try {
-                    PreparedStatement stmt = entry.getValue();
-                    if (stmt.isClosed()) {
-                        iterator.remove();
-                        logger.debug("Removed closed statement: {}", stmtId);
-                    }
-                } catch (SQLException e) {
-                    iterator.remove();
-                    logger.debug("Removed invalid statement: {}", stmtId);
-                }
+    public String getMode() {
+        return mode;
+    }
+
+    public String getExecutor() {
+        return executor;
+    }
+
+    public int getLocalPort() {
+        return nioServer != null ? nioServer.getLocalPort() : serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                logger.info("New client connected: {}", socket.getRemoteSocketAddress());
+
+                pool.execute(new ClientHandler(socket));
             }
+        } catch (SocketException e) {
+            // shutdown() 关闭了 ServerSocket
+        } catch (IOException e) {
+            logger.error("Error accepting connection", e);
         }
     }
 
-    private void cleanupExpiredResultSets(String connId) {
-        Iterator<Map.Entry<String, ResultSet>> iterator = rsMap.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<String, ResultSet> entry = iterator.next();
-            String rsId = entry.getKey();
-            if (rsId.startsWith(connId + "_")) {
-                try {
-                    ResultSet rs = entry.getValue();
-                    if (rs.isClosed()) {
-                        iterator.remove();
-                        logger.debug("Removed closed result set: {}", rsId);
-                    }
-                } catch (SQLException e) {
-                    iterator.remove();
-                    logger.debug("Removed invalid result set: {}", rsId);
-                }
+    /**
+     * 后端连接池维护：淘汰空闲超时的连接、预热到最小连接数
+     */
+    private void startPoolMaintenanceTask() {
+        long interval = Long.parseLong(ConfigLoader.get("pool.maintenanceIntervalMs", "30000"));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                BackendPool.maintain();
+                logger.debug("SQL caches: rewrite {}, encryption plan {}", RewriteHelper.cache(), EncryptionPlan.cache());
+                logger.debug("{}", IdleReaper.shared());
+            } catch (Exception e) {
+                logger.error("Error during backend pool maintenance", e);
             }
-        }
+        }, interval, interval, TimeUnit.MILLISECONDS);
     }
 
     public void shutdown() {
+        if (nioServer != null) {
+            nioServer.shutdown();
+        }
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                logger.warn("Error closing server socket: {}", e.getMessage());
+            }
+        }
         pool.shutdown();
         scheduler.shutdown();
+        BackendPool.closeAll();
         try {
             if (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
                 pool.shutdownNow();
@@ -142,23 +178,10 @@ public class ProxyServer {
     }
 
     public static void main(String[] args) throws Exception {
+        ConfigLoader.overrideWithArgs(args);
         int port = Integer.parseInt(System.getProperty("port", "9999"));
         ProxyServer server = new ProxyServer(port);
-
-        ExecutorService executor = Executors.newCachedThreadPool();
-        try(ServerSocket serverSocket = new ServerSocket(port)) {
-            System.out.println("ProxyServer listening on port " + port);
-
-            while (true) {
-                Socket socket = serverSocket.accept();
-                System.out.println("New client connected: " + socket.getRemoteSocketAddress());
-
-                executor.execute(new ClientHandler(socket, connMap, stmtMap, rsMap));
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            server.shutdown();
-        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::shutdown, "proxy-shutdown"));
+        server.start();
     }
 }
@@ -0,0 +1,205 @@
+package com.seu.jdbcproxy.server;
+
+import com.seu.jdbcproxy.pool.BackendPool;
+import com.seu.jdbcproxy.pool.PooledConnection;
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 一个客户端会话（OPEN_CONN 到 CLOSE_CONN）及其当前绑定的后端连接。
+ * <ul>
+ *     <li>session 模式：OPEN_CONN 时绑定，直到会话关闭；</li>
+ *     <li>transaction 模式：执行语句时才绑定，没有进行中的事务和打开的结果集时即归还连接池；
+ *     autoCommit=false 时第一条语句开启事务，连接保持绑定直到 COMMIT / ROLLBACK。</li>
+ * </ul>
+ * 所属 RequestDispatcher 在处理请求期间持有会话锁，{@link IdleReaper} 只在拿到锁时回收空闲会话的资源；
+ * 活动时间与关闭状态是 volatile，可以不加锁读取。
+ */
+class ProxySession {
+    /** 会话在整个生命周期内独占一条后端连接 */
+    static final String MODE_SESSION = "session";
+    /** 后端连接只在事务或打开的结果集期间绑定 */
+    static final String MODE_TRANSACTION = "transaction";
+
+    private final String id;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final EncryptionHelper encryptionHelper;
+    private final boolean transactionPooling;
+
+    private PooledConnection pooled;
+    // 客户端期望的 autoCommit，绑定新的后端连接时重新设置
+    private boolean autoCommit = true;
+    // autoCommit=false 下已执行过语句、尚未 COMMIT / ROLLBACK
+    private boolean inTransaction;
+    // 尚未关闭的语句与结果集，均依附于当前绑定的物理连接
+    private final ResourceRegistry resources = new ResourceRegistry();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // 最近一次请求处理完的时间（System.nanoTime）
+    private volatile long lastActivity = System.nanoTime();
+    private volatile boolean closed;
+    // 因空闲超时被 IdleReaper 关闭
+    private volatile boolean expired;
+    // 空闲超时关闭后通知所属 RequestDispatcher
+    private volatile Consumer<ProxySession> expiryListener;
+
+    ProxySession(String id, String url, String user, String password,
+                 EncryptionHelper encryptionHelper, boolean transactionPooling) {
+        this.id = id;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.encryptionHelper = encryptionHelper;
+        this.transactionPooling = transactionPooling;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    void lock() {
+        lock.lock();
+    }
+
+    boolean tryLock() {
+        return lock.tryLock();
+    }
+
+    void unlock() {
+        lock.unlock();
+    }
+
+    /**
+     * 每个请求处理完时调用一次
+     */
+    void touch() {
+        lastActivity = System.nanoTime();
+    }
+
+    long lastActivity() {
+        return lastActivity;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    boolean isExpired() {
+        return expired;
+    }
+
+    /**
+     * 关闭会话：释放语句与结果集、归还后端连接。须持有会话锁
+     */
+    void close() {
+        unbind();
+        closed = true;
+    }
+
+    /**
+     * 空闲超时关闭，之后的请求收到 "Connection expired"。须持有会话锁
+     */
+    void expire() {
+        expired = true;
+        close();
+        Consumer<ProxySession> listener = expiryListener;
+        if (listener != null) {
+            listener.accept(this);
+        }
+    }
+
+    void setExpiryListener(Consumer<ProxySession> expiryListener) {
+        this.expiryListener = expiryListener;
+    }
+
+    /**
+     * 返回当前绑定的后端连接，未绑定时从连接池借用一条并恢复会话的 autoCommit
+     */
+    Connection bind() throws SQLException {
+        if (pooled == null) {
+            PooledConnection acquired = BackendPool.acquire(url, user, password, encryptionHelper);
+            if (!autoCommit) {
+                try {
+                    acquired.getConnection().setAutoCommit(false);
+                } catch (SQLException e) {
+                    acquired.invalidate();
+                    throw e;
+                }
+            }
+            pooled = acquired;
+        }
+        if (!autoCommit) {
+            inTransaction = true;
+        }
+        return pooled.getConnection();
+    }
+
+    PooledConnection getPooled() {
+        return pooled;
+    }
+
+    boolean isBound() {
+        return pooled != null;
+    }
+
+    boolean isAutoCommit() {
+        return autoCommit;
+    }
+
+    /**
+     * 切回 autoCommit 时当前事务已被提交
+     */
+    void setAutoCommit(boolean autoCommit) {
+        this.autoCommit = autoCommit;
+        if (autoCommit) {
+            inTransaction = false;
+        }
+    }
+
+    /**
+     * COMMIT / ROLLBACK 之后
+     */
+    void endTransaction() {
+        inTransaction = false;
+    }
+
+    ResourceRegistry getResources() {
+        return resources;
+    }
+
+    /**
+     * transaction 模式下，没有进行中的事务和打开的结果集时可以归还后端连接
+     */
+    boolean canUnbind() {
+        return transactionPooling && pooled != null && !inTransaction && !resources.hasOpenResultSets();
+    }
+
+    /**
+     * 关闭依附于该连接的语句与结果集（借出的缓存语句归还给连接的语句缓存）后归还后端连接；连接已断开时丢弃
+     */
+    void unbind() {
+        PooledConnection released = pooled;
+        if (released == null) {
+            return;
+        }
+        resources.closeAll();
+        pooled = null;
+        boolean broken;
+        try {
+            broken = released.getConnection().isClosed();
+        } catch (SQLException e) {
+            broken = true;
+        }
+        if (broken) {
+            released.invalidate();
+        } else {
+            released.release();
+        }
+    }
+}
@@ -0,0 +1,672 @@
+package com.seu.jdbcproxy.server;
+
+import com.seu.jdbcproxy.ConfigLoader;
+import com.seu.jdbcproxy.core.ProxyPreparedStatement;
+import com.seu.jdbcproxy.core.ProxyResultSet;
+import com.seu.jdbcproxy.metrics.Phase;
+import com.seu.jdbcproxy.metrics.ProxyMetrics;
+import com.seu.jdbcproxy.pojo.MessageType;
+import com.seu.jdbcproxy.pojo.Request;
+import com.seu.jdbcproxy.pojo.Response;
+import com.seu.jdbcproxy.pojo.RowBatch;
+import com.seu.jdbcproxy.pojo.SQLExceptionWrapper;
+import com.seu.jdbcproxy.pool.BackendPool;
+import com.seu.jdbcproxy.pool.StatementCache;
+import com.seu.jdbcproxy.protocol.MessageCodecs;
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import com.seu.jdbcproxy.trace.Tracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 请求分发：把一个客户端 socket 上收到的 Request 转换为对真实数据库的操作。
+ * 与网络模型无关，阻塞模式的 ClientHandler 和 NIO 模式的 NioProxyServer 都通过它处理请求，
+ * 每个客户端 socket 持有一个实例。
+ * <p>
+ * 后端连接从 {@link BackendPool} 借用并绑定到 {@link ProxySession}：pool.mode=session 时在整个会话期间绑定，
+ * pool.mode=transaction 时只在显式事务或打开的结果集期间绑定，每个请求处理完后尽早归还，
+ * 大量空闲会话可以共享少量后端连接。连接上的语句缓存随物理连接保留给下一个借用者。
+ * 语句与结果集由会话的 {@link ResourceRegistry} 持有，响应中的 statementId / resultSetId 是会话内的数字句柄。
+ */
+public class RequestDispatcher {
+    private final EncryptionHelper encryptionHelper;
+    private static final Logger logger = LoggerFactory.getLogger(RequestDispatcher.class);
+
+    private static final int DEFAULT_FETCH_SIZE = 100;
+    // 单个批次的行数上限，防止客户端的 fetchSize 过大耗尽服务端内存
+    private static final int MAX_FETCH_SIZE = Integer.parseInt(ConfigLoader.get("server.fetch.maxRows", "65536"));
+    private static final int MAX_EXPIRED_SESSIONS = 64;
+
+    // 客户端在 OPEN_CONN 时声明可读取列式批次
+    private volatile boolean columnar = false;
+
+    // 本 socket 上的会话：connId -> 会话（及其当前绑定的后端连接）
+    private final Map<String, ProxySession> sessions = new ConcurrentHashMap<>();
+    // 最近被 IdleReaper 回收的会话 id，之后的请求收到 "Connection expired" 而不是 "Connection not found"
+    private final Set<String> expiredSessions = Collections.synchronizedSet(Collections.newSetFromMap(
+            new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_EXPIRED_SESSIONS;
+                }
+            }));
+    private final boolean transactionPooling;
+
+    public RequestDispatcher() {
+        this(ProxySession.MODE_TRANSACTION.equalsIgnoreCase(
+                ConfigLoader.get("pool.mode", ProxySession.MODE_SESSION).trim()));
+    }
+
+    RequestDispatcher(boolean transactionPooling) {
+        this.encryptionHelper = new EncryptionHelper();
+        this.transactionPooling = transactionPooling;
+    }
+
+    /**
+     * 处理一个请求：持有会话锁分发执行（{@link IdleReaper} 不会回收正在处理请求的会话），处理完更新会话活动时间。
+     * 响应带回请求的 requestId，客户端据此匹配流水线中的请求。处理期间的各阶段耗时按请求类型计入 {@link ProxyMetrics}，
+     * 被 {@link Tracer} 采样的请求记录参数绑定 / 加密 / 执行 / 解密事件
+     */
+    public Response handle(Request req) throws Exception {
+        MessageType previous = ProxyMetrics.enter(req.getType());
+        long start = ProxyMetrics.start();
+        Tracer.begin(req.getType(), req.getRequestId());
+        try {
+            return handleInSession(req);
+        } finally {
+            Tracer.end(req.getType());
+            ProxyMetrics.record(Phase.TOTAL, start);
+            ProxyMetrics.exit(previous);
+        }
+    }
+
+    private Response handleInSession(Request req) throws Exception {
+        ProxySession session = req.getConnId() == null ? null : sessions.get(req.getConnId());
+        if (session == null) {
+            if (req.getConnId() != null && expiredSessions.contains(req.getConnId())) {
+                return expiredResponse(req);
+            }
+            // OPEN_CONN，或会话不存在（dispatch 返回 "Connection not found"）
+            Response resp = dispatch(req);
+            resp.setRequestId(req.getRequestId());
+            return resp;
+        }
+        session.lock();
+        try {
+            if (session.isExpired()) {
+                // 等待会话锁期间被回收
+                return expiredResponse(req);
+            }
+            Response resp = dispatch(req);
+            resp.setRequestId(req.getRequestId());
+            // transaction 模式：没有进行中的事务和打开的结果集时立即归还后端连接
+            if (session.canUnbind()) {
+                session.unbind();
+            }
+            return resp;
+        } finally {
+            session.touch();
+            session.unlock();
+        }
+    }
+
+    private static Response expiredResponse(Request req) {
+        Response timeoutResp = new Response();
+        timeoutResp.setType(MessageType.EXCEPTION);
+        timeoutResp.setErrorMessage("Connection expired");
+        timeoutResp.setSqlException(new SQLExceptionWrapper(new SQLException("Connection expired", "08003", 0)));
+        timeoutResp.setRequestId(req.getRequestId());
+        return timeoutResp;
+    }
+
+    /**
+     * IdleReaper 回收会话后立即移出会话表，不必等该客户端再发来请求
+     */
+    private void onExpired(ProxySession session) {
+        expiredSessions.add(session.getId());
+        sessions.remove(session.getId(), session);
+    }
+
+    private Response dispatch(Request q) throws Exception {
+        Response r = new Response();
+        r.setType(q.getType());
+        try {
+            switch (q.getType()) {
+                case OPEN_CONN -> {
+                    Map<String, Object> extra = q.getExtra();
+                    if (extra == null) extra = Map.of();
+
+                    String url = (String) extra.get("realUrl");
+                    String user = (String) extra.get("user");
+                    String pwd = (String) extra.get("pwd");
+
+                    String id = UUID.randomUUID().toString();
+                    ProxySession session = new ProxySession(id, url, user, pwd, encryptionHelper, transactionPooling);
+                    // 先借一条连接以校验地址与口令；session 模式下这条连接一直绑定到会话关闭
+                    session.bind();
+                    sessions.put(id, session);
+                    if (session.canUnbind()) {
+                        session.unbind();
+                    }
+                    session.setExpiryListener(this::onExpired);
+                    IdleReaper.shared().register(session);
+
+                    columnar = Boolean.TRUE.equals(extra.get(RowBatch.EXTRA_KEY));
+
+                    r.setType(MessageType.OPEN_CONN);
+                    r.setRows(List.of(List.of(id)));
+                    // 协商后续请求使用的编码
+                    r.setCodec(MessageCodecs.negotiate((String) extra.get(MessageCodecs.EXTRA_KEY),
+                            ConfigLoader.get("protocol.codecs", MessageCodecs.DEFAULT_PREFERENCE)).name());
+                }
+
+                case EXEC_QUERY -> {
+                    ProxySession session = sessionOf(q.getConnId());
+                    Connection c = session.bind();
+                    ResourceRegistry resources = session.getResources();
+                    
+                    String sql = q.getSql();
+                    Map<Integer, Object> params = q.getParams();
+
+                    // 默认只进只读：后端驱动可以按 fetchSize 流式读取，而不是把整个结果集缓存在代理内存中
+                    int resultSetType = intExtra(q, Request.RESULT_SET_TYPE_KEY, ResultSet.TYPE_FORWARD_ONLY);
+                    int concurrency = intExtra(q, Request.RESULT_SET_CONCURRENCY_KEY, ResultSet.CONCUR_READ_ONLY);
+                    boolean streaming = resultSetType == ResultSet.TYPE_FORWARD_ONLY
+                            && concurrency == ResultSet.CONCUR_READ_ONLY;
+                    StatementCache cache = cacheOf(q.getConnId());
+                    StatementCache.CachedStatement cached =
+                            cache == null ? null : cache.borrow(sql, true, resultSetType, concurrency);
+                    ProxyPreparedStatement proxyPreparedStatement;
+                    long stmtHandle;
+                    if (cached != null) {
+                        // 结果集读完或关闭前不再借出同一语句
+                        stmtHandle = resources.registerLeased(cached, cache);
+                        proxyPreparedStatement = cached.getProxy();
+                    } else {
+                        PreparedStatement preparedStatement = c.prepareStatement(sql, resultSetType, concurrency);
+                        stmtHandle = resources.registerStatement(preparedStatement);
+                        proxyPreparedStatement = new ProxyPreparedStatement(preparedStatement, sql, encryptionHelper);
+                    }
+                    ResultSet rs;
+                    try {
+                        // 客户端的批次行数同时作为后端驱动的 fetchSize（缓存语句上一次的值一并覆盖）；
+                        // 只进只读的结果集总是设置 fetchSize，MySQL 开启 useCursorFetch 时据此使用服务端游标
+                        int fetchSize = clampFetchSize(q.getFetchSize());
+                        proxyPreparedStatement.setFetchSize(streaming && fetchSize == 0 ? DEFAULT_FETCH_SIZE : fetchSize);
+                        if (params != null) {
+                            for (Map.Entry<Integer, Object> entry : params.entrySet()) {
+                                proxyPreparedStatement.setObject(entry.getKey(), entry.getValue());
+                            }
+                        }
+                        rs = proxyPreparedStatement.executeQuery();
+                    } catch (SQLException e) {
+                        resources.closeStatement(stmtHandle);
+                        throw e;
+                    }
+                    long rsHandle = resources.registerResultSet(stmtHandle, rs);
+                    try {
+                        ResultSetMetaData meta = rs.getMetaData();
+                        int columnCount = meta.getColumnCount();
+
+                        List<String> columnNames = new ArrayList<>();
+                        for (int i = 1; i <= columnCount; i++) {
+                            columnNames.add(meta.getColumnLabel(i));
+                        }
+
+                        r.setType(MessageType.EXEC_QUERY);
+                        r.setColumnNames(columnNames);
+                        fetchInto(rs, q.getFetchSize(), r);
+                    } catch (SQLException e) {
+                        // 客户端拿不到句柄，结果集与语句随即释放
+                        resources.closeResultSet(rsHandle);
+                        throw e;
+                    }
+                    r.setStatementId(Long.toString(stmtHandle));
+                    r.setResultSetId(Long.toString(rsHandle));
+                    if (!r.isHasMoreRows()) {
+                        // 结果集已读完即关闭：缓存语句随之可被再次借出，transaction 模式下会话可以归还后端连接
+                        resources.closeExhausted(rsHandle);
+                    }
+                }
+
+                case FETCH_ROWS -> {
+                    String rsId = q.getResultSetId();
+                    if (rsId == null) {
+                        throw new SQLException("ResultSet ID not provided", "07000", 0);
+                    }
+                    
+                    ResourceRegistry resources = sessionOf(q.getConnId()).getResources();
+                    long rsHandle = ResourceRegistry.parseHandle(rsId);
+                    ResultSet rs = resources.resultSet(rsHandle);
+                    if (rs == null) {
+                        if (resources.isExhausted(rsHandle)) {
+                            // 客户端预取越过了末尾：结果集已读完并释放，返回空批次
+                            r.setHasMoreRows(false);
+                            return r;
+                        }
+                        throw new SQLException("ResultSet not found: " + rsId, "07000", 0);
+                    }
+                    
+                    fetchInto(rs, q.getFetchSize(), r);
+                    if (!r.isHasMoreRows()) {
+                        resources.closeExhausted(rsHandle);
+                    }
+                }
+
+                case EXEC_UPDATE -> {
+                    Connection c = bind(q.getConnId());
+                    
+                    String sql = q.getSql();
+                    Map<Integer, Object> params = q.getParams();
+
+                    // 更新语句执行完即关闭或归还缓存，不登记句柄
+                    StatementCache.CachedStatement cached = borrowStatement(q.getConnId(), sql, false);
+                    if (cached != null) {
+                        StatementCache cache = cacheOf(q.getConnId());
+                        try {
+                            ProxyPreparedStatement stmt = cached.getProxy();
+                            if (params != null) {
+                                for (Map.Entry<Integer, Object> entry : params.entrySet()) {
+                                    stmt.setObject(entry.getKey(), entry.getValue());
+                                }
+                            }
+                            r.setUpdateCount(stmt.executeUpdate());
+                        } finally {
+                            cache.release(cached);
+                        }
+                    } else {
+                        try (ProxyPreparedStatement stmt =
+                                     new ProxyPreparedStatement(c.prepareStatement(sql), sql, encryptionHelper)) {
+                            if (params != null) {
+                                for (Map.Entry<Integer, Object> entry : params.entrySet()) {
+                                    stmt.setObject(entry.getKey(), entry.getValue());
+                                }
+                            }
+                            int affected = stmt.executeUpdate();
+                            r.setUpdateCount(affected);
+                        }
+                    }
+                }
+                
+                case EXEC_BATCH -> {
+                    Connection c = bind(q.getConnId());
+                    String sql = q.getSql();
+                    List<Map<Integer, Object>> batchParams = q.getBatchParams();
+                    if (batchParams == null || batchParams.isEmpty()) {
+                        r.setUpdateCounts(new int[0]);
+                    } else {
+                        StatementCache.CachedStatement cached = borrowStatement(q.getConnId(), sql, false);
+                        if (cached != null) {
+                            StatementCache cache = cacheOf(q.getConnId());
+                            try {
+                                r.setUpdateCounts(executeBatch(cached.getProxy(), batchParams, r));
+                            } finally {
+                                // 失败时批次里可能残留未执行的参数组
+                                cached.getProxy().clearBatch();
+                                cache.release(cached);
+                            }
+                        } else {
+                            try (ProxyPreparedStatement stmt =
+                                         new ProxyPreparedStatement(c.prepareStatement(sql), sql, encryptionHelper)) {
+                                r.setUpdateCounts(executeBatch(stmt, batchParams, r));
+                            }
+                        }
+                    }
+                    r.setType(MessageType.EXEC_BATCH);
+                }
+
+                case SET_AUTOCOMMIT -> {
+                    ProxySession session = sessionOf(q.getConnId());
+                    Map<String, Object> extra = q.getExtra();
+                    boolean autoCommit = extra == null || !Boolean.FALSE.equals(extra.get(Request.AUTO_COMMIT_KEY));
+                    if (session.isBound()) {
+                        // 与 JDBC 一致：事务中切回 autoCommit 会提交当前事务
+                        session.getPooled().getConnection().setAutoCommit(autoCommit);
+                    }
+                    session.setAutoCommit(autoCommit);
+                    r.setType(MessageType.SET_AUTOCOMMIT);
+                }
+
+                case COMMIT -> {
+                    ProxySession session = sessionOf(q.getConnId());
+                    // 未绑定说明事务中还没有执行语句，无需提交
+                    if (session.isBound()) {
+                        session.getPooled().getConnection().commit();
+                    }
+                    session.endTransaction();
+                    r.setType(MessageType.COMMIT);
+                }
+
+                case ROLLBACK -> {
+                    ProxySession session = sessionOf(q.getConnId());
+                    if (session.isBound()) {
+                        session.getPooled().getConnection().rollback();
+                    }
+                    session.endTransaction();
+                    r.setType(MessageType.ROLLBACK);
+                }
+
+                case CLOSE_STATEMENT -> {
+                    ProxySession session = sessions.get(q.getConnId());
+                    if (session != null && q.getStatementId() != null) {
+                        session.getResources().closeStatement(ResourceRegistry.parseHandle(q.getStatementId()));
+                    }
+                    r.setType(MessageType.CLOSE_STATEMENT);
+                }
+                
+                case CLOSE_RESULT_SET -> {
+                    ProxySession session = sessions.get(q.getConnId());
+                    if (session != null && q.getResultSetId() != null) {
+                        session.getResources().closeResultSet(ResourceRegistry.parseHandle(q.getResultSetId()));
+                    }
+                    r.setType(MessageType.CLOSE_RESULT_SET);
+                }
+                
+                case CLOSE_CONN -> {
+                    closeConn(q.getConnId());
+                    r.setType(MessageType.CLOSE_CONN);
+                }
+                
+                case EXCEPTION -> {
+                    r.setType(MessageType.EXCEPTION);
+                    r.setErrorMessage("Exception occurred");
+                }
+                
+                case PING -> {
+                    r.setType(MessageType.PING);
+                    r.setTimestamp(System.currentTimeMillis());
+                }
+
+                case STATS -> {
+                    Map<String, Object> extra = q.getExtra();
+                    if (extra != null && Request.STATS_FORMAT_PROMETHEUS.equals(extra.get(Request.STATS_FORMAT_KEY))) {
+                        r.setColumnNames(List.of(Request.STATS_FORMAT_PROMETHEUS));
+                        r.setRows(List.of(List.of(ProxyMetrics.prometheus())));
+                    } else {
+                        r.setColumnNames(ProxyMetrics.COLUMNS);
+                        r.setRows(ProxyMetrics.table());
+                    }
+                    r.setType(MessageType.STATS);
+                }
+            }
+        } catch (SQLException e) {
+            // SQL异常特殊处理
+            r.setType(MessageType.EXCEPTION);
+            r.setSqlException(new SQLExceptionWrapper(e));
+            r.setErrorMessage(e.getMessage());
+            logger.error("SQL Exception occurred: {}", e.getMessage(), e);
+        } catch (Exception e) {
+            // 其他异常转换为SQL异常
+            r.setType(MessageType.EXCEPTION);
+            SQLException sqlException = new SQLException("Proxy server error: " + e.getMessage(), e);
+            r.setSqlException(new SQLExceptionWrapper(sqlException));
+            r.setErrorMessage(e.getMessage());
+            logger.error("Unexpected exception occurred: {}", e.getMessage(), e);
+        }
+        return r;
+    }
+
+    /**
+     * 逐组绑定参数并 addBatch（ProxyPreparedStatement 在 addBatch 时加密该组参数），最后一次性执行
+     */
+    private int[] executeBatch(ProxyPreparedStatement stmt, List<Map<Integer, Object>> batchParams, Response r)
+            throws SQLException {
+        for (Map<Integer, Object> params : batchParams) {
+            stmt.clearParameters();
+            if (params != null) {
+                for (Map.Entry<Integer, Object> entry : params.entrySet()) {
+                    stmt.setObject(entry.getKey(), entry.getValue());
+                }
+            }
+            stmt.addBatch();
+        }
+        try {
+            return stmt.executeBatch();
+        } catch (BatchUpdateException e) {
+            // 驱动给出的逐行结果随异常响应一起返回
+            r.setUpdateCounts(e.getUpdateCounts());
+            throw e;
+        }
+    }
+
+    EncryptionHelper getEncryptionHelper() {
+        return encryptionHelper;
+    }
+
+    /**
+     * 本 socket 上的会话，不存在时返回 null
+     */
+    ProxySession session(String connId) {
+        return connId == null ? null : sessions.get(connId);
+    }
+
+    private ProxySession sessionOf(String connId) throws SQLException {
+        ProxySession session = connId == null ? null : sessions.get(connId);
+        if (session == null) {
+            throw new SQLException("Connection not found: " + connId, "08003", 0);
+        }
+        return session;
+    }
+
+    /**
+     * 取会话当前绑定的后端连接，未绑定时（transaction 模式）从连接池借用
+     */
+    private Connection bind(String connId) throws SQLException {
+        return sessionOf(connId).bind();
+    }
+
+    private StatementCache cacheOf(String connId) {
+        ProxySession session = sessions.get(connId);
+        return session == null || session.getPooled() == null ? null : session.getPooled().getStatementCache();
+    }
+
+    private StatementCache.CachedStatement borrowStatement(String connId, String sql, boolean query) throws SQLException {
+        StatementCache cache = cacheOf(connId);
+        return cache == null ? null : cache.borrow(sql, query);
+    }
+
+    /**
+     * 读取至多 n 行写入响应：客户端支持时使用列式批次，否则使用行列表
+     */
+    private void fetchInto(ResultSet rs, int n, Response r) throws SQLException {
+        n = clampFetchSize(n);
+        if (n <= 0) {
+            n = DEFAULT_FETCH_SIZE;
+        } else if (rs.getFetchSize() != n) {
+            // 自适应模式下每批行数会变化，同步给后端驱动（如 MySQL useCursorFetch=true 时按此分批读取）
+            rs.setFetchSize(n);
+        }
+        int rows;
+        if (columnar) {
+            RowBatch batch = fetchBatch(rs, n);
+            r.setBatch(batch);
+            rows = batch.getRowCount();
+        } else {
+            List<List<Object>> list = fetch(rs, n);
+            r.setRows(list);
+            rows = list.size();
+        }
+        ProxyMetrics.addRows(rows);
+        // 只进结果集不一定支持 isAfterLast：读满 n 行即认为可能还有剩余，剩余恰好为 0 时下一次 FETCH_ROWS 返回空批次
+        r.setHasMoreRows(rows == n);
+    }
+
+    private static int intExtra(Request q, String key, int defaultValue) {
+        Object v = q.getExtra() == null ? null : q.getExtra().get(key);
+        return v instanceof Number number ? number.intValue() : defaultValue;
+    }
+
+    private static int clampFetchSize(int n) {
+        return n <= 0 ? 0 : Math.min(n, MAX_FETCH_SIZE);
+    }
+
+    /**
+     * 按列类型直接读取原始值填入列式批次，整数 / 浮点列不经过装箱；
+     * 可能存放密文的字符串列先读出原文，整批读完后由 {@link BatchDecryptor} 统一解密再写入
+     */
+    private RowBatch fetchBatch(ResultSet rs, int n) throws SQLException {
+        long start = ProxyMetrics.start();
+        ResultSetMetaData md = rs.getMetaData();
+        int cols = md.getColumnCount();
+        byte[] types = new byte[cols];
+        for (int c = 0; c < cols; c++) {
+            types[c] = RowBatch.typeOfClassName(md.getColumnClassName(c + 1));
+        }
+        ProxyResultSet proxy = rs instanceof ProxyResultSet p ? p : null;
+        String[][] raw = deferredColumns(proxy, md, cols);
+        RowBatch.Builder builder = new RowBatch.Builder(types, n);
+        while (builder.getRowCount() < n && rs.next()) {
+            int row = builder.getRowCount();
+            for (int c = 0; c < cols; c++) {
+                int idx = c + 1;
+                byte type = types[c];
+                if (raw != null && raw[c] != null) {
+                    // 本列暂不写入（视为空串），解密后整列替换
+                    raw[c] = stash(raw[c], row, proxy.getRawString(idx));
+                } else if (type == RowBatch.TYPE_STRING) {
+                    builder.setString(c, rs.getString(idx));
+                } else if (type == RowBatch.TYPE_BOOLEAN) {
+                    boolean v = rs.getBoolean(idx);
+                    if (rs.wasNull()) {
+                        builder.setNull(c);
+                    } else {
+                        builder.setLong(c, v ? 1 : 0);
+                    }
+                } else if (RowBatch.isLongType(type)) {
+                    long v = rs.getLong(idx);
+                    if (rs.wasNull()) {
+                        builder.setNull(c);
+                    } else {
+                        builder.setLong(c, v);
+                    }
+                } else if (RowBatch.isDoubleType(type)) {
+                    double v = rs.getDouble(idx);
+                    if (rs.wasNull()) {
+                        builder.setNull(c);
+                    } else {
+                        builder.setDouble(c, v);
+                    }
+                } else {
+                    builder.setObject(c, rs.getObject(idx));
+                }
+            }
+            builder.endRow();
+        }
+        RowBatch batch = builder.build();
+        ProxyMetrics.record(Phase.FETCH, start);
+        if (raw != null) {
+            long decryptStart = ProxyMetrics.start();
+            BatchDecryptor.shared().decrypt(proxy.getEncryptionHelper(), raw, batch.getRowCount());
+            ProxyMetrics.record(Phase.DECRYPT, decryptStart);
+            for (int c = 0; c < cols; c++) {
+                if (raw[c] != null) {
+                    batch.setStringColumn(c, raw[c]);
+                }
+            }
+        }
+        return batch;
+    }
+
+    private List<List<Object>> fetch(ResultSet rs, int n) throws SQLException {
+        List<List<Object>> rows = new ArrayList<>();
+        long start = ProxyMetrics.start();
+        try {
+            ResultSetMetaData md = rs.getMetaData();
+            int cols = md.getColumnCount();
+            ProxyResultSet proxy = rs instanceof ProxyResultSet p ? p : null;
+            String[][] raw = deferredColumns(proxy, md, cols);
+            int i = 0;
+            while (i < n && rs.next()) {
+                List<Object> row = new ArrayList<>(cols);
+                for (int c = 1; c <= cols; c++) {
+                    if (raw != null && raw[c - 1] != null) {
+                        raw[c - 1] = stash(raw[c - 1], i, proxy.getRawString(c));
+                        row.add(null);
+                    } else {
+                        row.add(rs.getObject(c));
+                    }
+                }
+                rows.add(row);
+                i++;
+            }
+            ProxyMetrics.record(Phase.FETCH, start);
+            if (raw != null) {
+                long decryptStart = ProxyMetrics.start();
+                BatchDecryptor.shared().decrypt(proxy.getEncryptionHelper(), raw, i);
+                ProxyMetrics.record(Phase.DECRYPT, decryptStart);
+                for (int c = 0; c < cols; c++) {
+                    if (raw[c] != null) {
+                        for (int k = 0; k < i; k++) {
+                            rows.get(k).set(c, raw[c][k]);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error fetching rows from result set: {}", e.getMessage(), e);
+            throw e;
+        }
+        return rows;
+    }
+
+    /**
+     * 为延迟解密的列（解密结果集中可能存放密文、按字符串读取的列）分配原文缓冲，其余列为 null；
+     * 没有这样的列时返回 null，按原方式逐值读取
+     */
+    private static String[][] deferredColumns(ProxyResultSet proxy, ResultSetMetaData md, int cols)
+            throws SQLException {
+        if (proxy == null) {
+            return null;
+        }
+        String[][] raw = null;
+        for (int c = 0; c < cols; c++) {
+            if (String.class.getName().equals(md.getColumnClassName(c + 1)) && proxy.isCipherColumn(c + 1)) {
+                if (raw == null) {
+                    raw = new String[cols][];
+                }
+                raw[c] = new String[16];
+            }
+        }
+        return raw;
+    }
+
+    private static String[] stash(String[] column, int row, String value) {
+        if (row == column.length) {
+            column = Arrays.copyOf(column, column.length << 1);
+        }
+        column[row] = value;
+        return column;
+    }
+
+    /**
+     * 客户端 socket 断开：归还本 socket 上所有未关闭会话的后端连接
+     */
+    public void close() {
+        for (String id : new ArrayList<>(sessions.keySet())) {
+            closeConn(id);
+        }
+    }
+
+    private void closeConn(String id) {
+        ProxySession session = id == null ? null : sessions.remove(id);
+        if (session == null) {
+            return;
+        }
+        session.lock();
+        try {
+            if (session.isBound()) {
+                logger.debug("Statement cache of connection {}: {}", id, session.getPooled().getStatementCache());
+            }
+            // 关闭会话拥有的语句与结果集（只遍历本会话的资源），借出的缓存语句归还给物理连接的语句缓存，
+            // 连接归还连接池（未提交的事务被回滚）
+            session.close();
+        } finally {
+            session.unlock();
+        }
+        logger.info("Connection {} closed successfully", id);
+    }
+}
@@ -0,0 +1,199 @@
+package com.seu.jdbcproxy.server;
+
+import com.seu.jdbcproxy.pool.StatementCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一个会话拥有的语句与结果集。句柄是会话内自增的 long（线路上以十进制字符串传输），
+ * 结果集挂在其所属语句下，关闭语句时连同其结果集一起关闭；会话解绑或关闭时 {@link #closeAll()} 只遍历本会话的资源。
+ * <p>
+ * 每次查询都会新建语句，语句的最后一个结果集关闭时语句随之注销：从连接的 {@link StatementCache} 借出的缓存语句归还缓存，
+ * 临时 prepare 的语句直接关闭，不必等到 CLOSE_STATEMENT 或会话关闭。
+ * 与 ProxySession 一样只由所属 RequestDispatcher 在处理请求的线程上访问。
+ */
+final class ResourceRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(ResourceRegistry.class);
+
+    // 最近读完后被提前关闭的结果集，客户端预取越过末尾的 FETCH_ROWS 对它们返回空批次而不是报错
+    private static final int MAX_EXHAUSTED_RESULT_SETS = 64;
+
+    private long nextHandle = 1;
+    private final Map<Long, StatementEntry> statements = new HashMap<>();
+    private final Map<Long, ResultSetEntry> resultSets = new HashMap<>();
+    private final Set<Long> exhausted = Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > MAX_EXHAUSTED_RESULT_SETS;
+        }
+    });
+
+    /**
+     * 解析客户端传回的句柄，格式不对时返回 0（不会分配的句柄）
+     */
+    static long parseHandle(String id) {
+        if (id == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 登记一条临时 prepare 的语句
+     */
+    long registerStatement(PreparedStatement statement) {
+        return register(new StatementEntry(statement, null, null));
+    }
+
+    /**
+     * 登记一条从 cache 借出的缓存语句，其结果集关闭时归还
+     */
+    long registerLeased(StatementCache.CachedStatement leased, StatementCache cache) {
+        return register(new StatementEntry(null, leased, cache));
+    }
+
+    private long register(StatementEntry entry) {
+        long handle = nextHandle++;
+        statements.put(handle, entry);
+        return handle;
+    }
+
+    long registerResultSet(long statementHandle, ResultSet rs) {
+        long handle = nextHandle++;
+        StatementEntry owner = statements.get(statementHandle);
+        resultSets.put(handle, new ResultSetEntry(rs, statementHandle));
+        if (owner != null) {
+            owner.resultSets.add(handle);
+        }
+        return handle;
+    }
+
+    ResultSet resultSet(long handle) {
+        ResultSetEntry entry = resultSets.get(handle);
+        return entry == null ? null : entry.rs;
+    }
+
+    boolean isExhausted(long handle) {
+        return exhausted.contains(handle);
+    }
+
+    boolean hasOpenResultSets() {
+        return !resultSets.isEmpty();
+    }
+
+    int size() {
+        return statements.size() + resultSets.size();
+    }
+
+    int statementCount() {
+        return statements.size();
+    }
+
+    int resultSetCount() {
+        return resultSets.size();
+    }
+
+    /**
+     * 结果集已读完即关闭，之后越过末尾的 FETCH_ROWS 返回空批次
+     */
+    void closeExhausted(long handle) {
+        closeResultSet(handle);
+        exhausted.add(handle);
+    }
+
+    /**
+     * 关闭结果集；所属语句已没有打开的结果集时一并注销
+     */
+    void closeResultSet(long handle) {
+        ResultSetEntry entry = resultSets.remove(handle);
+        if (entry == null) {
+            return;
+        }
+        closeQuietly(entry.rs, handle);
+        StatementEntry owner = statements.get(entry.statement);
+        if (owner != null) {
+            owner.resultSets.remove(handle);
+            if (owner.resultSets.isEmpty()) {
+                statements.remove(entry.statement);
+                release(owner, entry.statement);
+            }
+        }
+    }
+
+    /**
+     * 关闭语句及其结果集
+     */
+    void closeStatement(long handle) {
+        StatementEntry entry = statements.get(handle);
+        if (entry == null) {
+            return;
+        }
+        // 语句随最后一个结果集注销
+        for (Long rsHandle : new ArrayList<>(entry.resultSets)) {
+            closeResultSet(rsHandle);
+        }
+        if (statements.remove(handle) != null) {
+            release(entry, handle);
+        }
+    }
+
+    private static void release(StatementEntry entry, long handle) {
+        if (entry.leased != null) {
+            entry.cache.release(entry.leased);
+        } else {
+            closeQuietly(entry.statement, handle);
+        }
+    }
+
+    /**
+     * 关闭本会话的全部语句与结果集（会话解绑或关闭时），耗时只与本会话持有的资源数有关
+     */
+    void closeAll() {
+        for (Long handle : new ArrayList<>(statements.keySet())) {
+            closeStatement(handle);
+        }
+        // 不属于任何已登记语句的结果集
+        for (Long handle : new ArrayList<>(resultSets.keySet())) {
+            closeResultSet(handle);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable resource, long handle) {
+        try {
+            resource.close();
+        } catch (Exception e) {
+            logger.warn("Error closing {} {}: {}", resource instanceof ResultSet ? "result set" : "statement",
+                    handle, e.getMessage());
+        }
+    }
+
+    private static final class StatementEntry {
+        final PreparedStatement statement;
+        final StatementCache.CachedStatement leased;
+        final StatementCache cache;
+        final List<Long> resultSets = new ArrayList<>(1);
+
+        StatementEntry(PreparedStatement statement, StatementCache.CachedStatement leased, StatementCache cache) {
+            this.statement = statement;
+            this.leased = leased;
+            this.cache = cache;
+        }
+    }
+
+    private record ResultSetEntry(ResultSet rs, long statement) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.seu.jdbcproxy.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程支持。项目按 Java 17 编译，虚拟线程 API 只能在 JDK 21+ 运行时通过反射获取。
+ * <p>
+ * 注意 JDK 21~23 上虚拟线程在 synchronized 块内执行阻塞 I/O 时会钉住（pin）载体线程。
+ * 服务端自身的 ClientHandler / RequestDispatcher / ProxyPreparedStatement 不在 synchronized 内做阻塞调用，
+ * 但 mysql-connector-java 8.x 内部以 synchronized 保护 socket 读写，真实 JDBC 调用仍会钉住载体线程；
+ * 需要完全不钉住时请使用 Connector/J 9.x 或 JDK 24+。可用 -Djdk.tracePinnedThreads=short 观察钉住位置。
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 每个任务一个虚拟线程的 ExecutorService；运行时不支持时返回 null
+     */
+    static ExecutorService newPerTaskExecutor() {
+        Method m = factoryMethod();
+        if (m == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static Method factoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.seu.jdbcproxy.trace;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 预分配的追踪事件环形缓冲区：事件的各字段存放在并列的基本类型数组中，写入只做一次原子自增和几次数组赋值，不分配对象。
+ * <p>
+ * 多个线程可并发写入：序号由 cursor 分配，槽位 = 序号 & mask；写入前先把槽位的发布序号置为 -1，写完字段后再发布序号。
+ * 读取方（{@link #drain}）按序号顺序读取，读字段前后两次核对发布序号，被覆盖或读取期间被改写的事件计为丢弃。
+ * 缓冲区写满后新事件覆盖最旧的事件，写入方从不等待。
+ */
+public final class TraceBuffer {
+    private static final long WRITING = -1;
+
+    private final int capacity;
+    private final int mask;
+    private final long[] times;
+    private final long[] traceIds;
+    private final int[] events;
+    private final long[] as;
+    private final long[] bs;
+    // 每个槽位已写完的事件序号
+    private final AtomicLongArray published;
+    private final AtomicLong cursor = new AtomicLong();
+
+    // 以下只由持有本对象锁的读取方访问
+    private long readCursor;
+    private long dropped;
+
+    private static final TraceEvent[] EVENTS = TraceEvent.values();
+
+    public TraceBuffer(int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.times = new long[size];
+        this.traceIds = new long[size];
+        this.events = new int[size];
+        this.as = new long[size];
+        this.bs = new long[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            // 序号 i 之前都未写入
+            published.set(i, i - size);
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public void record(long traceId, TraceEvent event, long a, long b) {
+        long seq = cursor.getAndIncrement();
+        int slot = (int) (seq & mask);
+        published.set(slot, WRITING);
+        // 之后的字段写入不能重排到标记之前
+        VarHandle.releaseFence();
+        times[slot] = System.nanoTime();
+        traceIds[slot] = traceId;
+        events[slot] = event.ordinal();
+        as[slot] = a;
+        bs[slot] = b;
+        published.setRelease(slot, seq);
+    }
+
+    /**
+     * 事件消费方，参数均为基本类型
+     */
+    public interface Sink {
+        void accept(long nanoTime, long traceId, TraceEvent event, long a, long b);
+    }
+
+    /**
+     * 按写入顺序读出上次读取之后写入的事件；尚未写完的事件留到下一次读取
+     *
+     * @return 读出的事件数
+     */
+    public synchronized int drain(Sink sink) {
+        long end = cursor.get();
+        long seq = readCursor;
+        if (end - seq > capacity) {
+            // 已被覆盖
+            dropped += end - capacity - seq;
+            seq = end - capacity;
+        }
+        int read = 0;
+        for (; seq < end; seq++) {
+            int slot = (int) (seq & mask);
+            long p = published.getAcquire(slot);
+            if (p != seq) {
+                if (p > seq || cursor.get() - seq > capacity) {
+                    dropped++;
+                    continue;
+                }
+                // 写入方还没写完，下次再读
+                break;
+            }
+            long time = times[slot];
+            long traceId = traceIds[slot];
+            int event = events[slot];
+            long a = as[slot];
+            long b = bs[slot];
+            // 字段读取不能重排到核对之后
+            VarHandle.acquireFence();
+            if (published.get(slot) != seq) {
+                dropped++;
+                continue;
+            }
+            sink.accept(time, traceId, EVENTS[event], a, b);
+            read++;
+        }
+        readCursor = seq;
+        return read;
+    }
+
+    /**
+     * 已写入的事件总数
+     */
+    public long getRecorded() {
+        return cursor.get();
+    }
+
+    /**
+     * 读取前已被覆盖的事件数
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,46 @@
+package com.seu.jdbcproxy.trace;
+
+/**
+ * 追踪事件类型，每个事件带两个 long 参数 a、b。参数只记录下标、长度、计数与耗时，从不记录参数值或列值
+ */
+public enum TraceEvent {
+    /** 开始处理请求：a = 消息类型序号，b = requestId */
+    REQUEST_BEGIN("type", "requestId"),
+    /** 请求处理完：a = 消息类型序号，b = 耗时（纳秒） */
+    REQUEST_END("type", "nanos"),
+    /** 绑定参数：a = 参数下标，b = 字符串长度（非字符串为 -1） */
+    PARAM_BIND("index", "length"),
+    /** 加密参数：a = 参数下标，b = 密文长度 */
+    PARAM_ENCRYPT("index", "length"),
+    /** 执行查询：a = 参数个数，b = 耗时（纳秒） */
+    EXECUTE_QUERY("params", "nanos"),
+    /** 执行更新：a = 更新行数，b = 耗时（纳秒） */
+    EXECUTE_UPDATE("count", "nanos"),
+    /** 解密结果集单元格：a = 列下标，b = 密文长度 */
+    CELL_DECRYPT("column", "length"),
+    /** 单元格解密失败：a = 列下标，b = 密文长度 */
+    DECRYPT_FAILED("column", "length");
+
+    private final String aName;
+    private final String bName;
+
+    TraceEvent(String aName, String bName) {
+        this.aName = aName;
+        this.bName = bName;
+    }
+
+    public String aName() {
+        return aName;
+    }
+
+    public String bName() {
+        return bName;
+    }
+
+    /**
+     * a 是否为 MessageType 序号
+     */
+    public boolean isRequestEvent() {
+        return this == REQUEST_BEGIN || this == REQUEST_END;
+    }
+}
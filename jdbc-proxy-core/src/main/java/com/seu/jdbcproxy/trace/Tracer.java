@@ -0,0 +1,220 @@
+package com.seu.jdbcproxy.trace;
+
+import com.seu.jdbcproxy.ConfigLoader;
+import com.seu.jdbcproxy.pojo.MessageType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 热路径追踪：按请求采样，把参数绑定 / 加密 / 执行 / 解密等事件写入 {@link TraceBuffer}，
+ * 代替原来逐个参数的 INFO 日志和逐请求的标准输出。
+ * <p>
+ * RequestDispatcher 在每个请求开始时调用 {@link #begin}，每 trace.sampleRate 个请求采样一个并分配追踪 id；
+ * 之后同一线程上的 {@link #event} 只在当前请求被采样时写入缓冲区。事件只带基本类型参数，不装箱、不格式化、不记录参数值。
+ * trace.enabled=false（默认）时各方法先判断常量直接返回，JIT 会把调用点整个消除。
+ * 配置了 trace.file 时由后台线程每 trace.flushIntervalMs 把缓冲区中的事件追加写入该文件，进程退出前再写一次。
+ */
+public final class Tracer {
+    private static final Logger logger = LoggerFactory.getLogger(Tracer.class);
+
+    public static final boolean ENABLED = Boolean.parseBoolean(ConfigLoader.get("trace.enabled", "false"));
+    private static final long SAMPLE_RATE = Math.max(1, Long.parseLong(ConfigLoader.get("trace.sampleRate", "100")));
+
+    private static final TraceBuffer BUFFER = ENABLED
+            ? new TraceBuffer(Integer.parseInt(ConfigLoader.get("trace.bufferSize", "65536"))) : null;
+    private static final AtomicLong REQUESTS = new AtomicLong();
+    private static final AtomicLong TRACE_IDS = new AtomicLong();
+    // [0] = 当前请求的追踪 id（0 表示未采样），[1] = 请求开始时间
+    private static final ThreadLocal<long[]> CURRENT = ThreadLocal.withInitial(() -> new long[2]);
+
+    private static final MessageType[] TYPES = MessageType.values();
+
+    static {
+        String file = ConfigLoader.get("trace.file", "");
+        if (ENABLED && !file.isBlank()) {
+            long interval = Long.parseLong(ConfigLoader.get("trace.flushIntervalMs", "1000"));
+            FileSink sink = new FileSink(Paths.get(file), interval);
+            Thread writer = new Thread(sink, "proxy-trace-writer");
+            writer.setDaemon(true);
+            writer.start();
+            // 退出前写出缓冲区中剩余的事件
+            Runtime.getRuntime().addShutdownHook(new Thread(sink::flush, "proxy-trace-flush"));
+        }
+    }
+
+    private Tracer() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * 开始处理一个请求，决定是否采样
+     */
+    public static void begin(MessageType type, long requestId) {
+        if (!ENABLED) {
+            return;
+        }
+        long[] current = CURRENT.get();
+        if (REQUESTS.getAndIncrement() % SAMPLE_RATE != 0) {
+            current[0] = 0;
+            return;
+        }
+        current[0] = TRACE_IDS.incrementAndGet();
+        current[1] = System.nanoTime();
+        BUFFER.record(current[0], TraceEvent.REQUEST_BEGIN, type.ordinal(), requestId);
+    }
+
+    /**
+     * 请求处理完，记录耗时并清除当前线程的追踪 id
+     */
+    public static void end(MessageType type) {
+        if (!ENABLED) {
+            return;
+        }
+        long[] current = CURRENT.get();
+        if (current[0] != 0) {
+            BUFFER.record(current[0], TraceEvent.REQUEST_END, type.ordinal(), System.nanoTime() - current[1]);
+            current[0] = 0;
+        }
+    }
+
+    /**
+     * 当前请求被采样时记录一个事件
+     */
+    public static void event(TraceEvent event, long a, long b) {
+        if (!ENABLED) {
+            return;
+        }
+        long traceId = CURRENT.get()[0];
+        if (traceId != 0) {
+            BUFFER.record(traceId, event, a, b);
+        }
+    }
+
+    /**
+     * 计时起点，传给 {@link #timed}；当前请求未采样时不读时钟，返回 0
+     */
+    public static long clock() {
+        return isSampled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * 记录一个带耗时的事件：b = 从 startNanos（{@link #clock()} 的返回值）到现在的纳秒数
+     */
+    public static void timed(TraceEvent event, long a, long startNanos) {
+        if (!ENABLED || startNanos == 0) {
+            return;
+        }
+        event(event, a, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 当前请求是否被采样，用于跳过只为追踪而做的计算（如读时钟）
+     */
+    public static boolean isSampled() {
+        return ENABLED && CURRENT.get()[0] != 0;
+    }
+
+    /**
+     * 共享的事件缓冲区，未启用时为 null
+     */
+    public static TraceBuffer buffer() {
+        return BUFFER;
+    }
+
+    /**
+     * 一行文本：时间 trace=id 事件 a名=a b名=b
+     */
+    static void format(StringBuilder sb, long epochNanos, long traceId, TraceEvent event, long a, long b) {
+        sb.append(Instant.ofEpochSecond(0, epochNanos)).append(" trace=").append(traceId)
+                .append(' ').append(event.name())
+                .append(' ').append(event.aName()).append('=');
+        if (event.isRequestEvent() && a >= 0 && a < TYPES.length) {
+            sb.append(TYPES[(int) a].name());
+        } else {
+            sb.append(a);
+        }
+        sb.append(' ').append(event.bName()).append('=').append(b).append('\n');
+    }
+
+    /**
+     * 后台线程：定期把缓冲区中的事件追加到文件，写入失败只记日志，不影响请求处理
+     */
+    private static final class FileSink implements Runnable {
+        private final Path path;
+        private final long intervalMs;
+        // System.nanoTime 与墙上时间的差值
+        private final long epochOffset = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime();
+        private final StringBuilder line = new StringBuilder(128);
+        private long reportedDrops;
+
+        FileSink(Path path, long intervalMs) {
+            this.path = path;
+            this.intervalMs = Math.max(10, intervalMs);
+        }
+
+        @Override
+        public void run() {
+            try {
+                Path parent = path.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+            } catch (IOException e) {
+                logger.warn("Cannot create trace directory for {}: {}", path, e.getMessage());
+            }
+            logger.info("Writing sampled traces to {}", path.toAbsolutePath());
+            try {
+                while (true) {
+                    TimeUnit.MILLISECONDS.sleep(intervalMs);
+                    flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized void flush() {
+            try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                IOException[] failure = new IOException[1];
+                BUFFER.drain((nanoTime, traceId, event, a, b) -> {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    line.setLength(0);
+                    format(line, nanoTime + epochOffset, traceId, event, a, b);
+                    try {
+                        out.append(line);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to write traces to {}: {}", path, e.getMessage());
+            }
+            long dropped = BUFFER.getDropped();
+            if (dropped > reportedDrops) {
+                logger.warn("{} trace events overwritten before being written, consider a larger trace.bufferSize",
+                        dropped - reportedDrops);
+                reportedDrops = dropped;
+            }
+        }
+    }
+}
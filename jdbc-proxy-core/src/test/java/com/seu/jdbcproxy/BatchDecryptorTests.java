@@ -0,0 +1,64 @@
+package com.seu.jdbcproxy;
+
+import com.seu.jdbcproxy.pojo.RowBatch;
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import com.seu.jdbcproxy.server.BatchDecryptor;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchDecryptorTests {
+    private final EncryptionHelper helper = new EncryptionHelper();
+
+    @Test
+    public void parallelAndSequentialDecryptAgree() throws Exception {
+        int rows = 5000;
+        String[][] sequential = {new String[rows], null, new String[rows]};
+        for (int r = 0; r < rows; r++) {
+            sequential[0][r] = helper.encrypt("name-" + r);
+            // 明文与 null 原样保留
+            sequential[2][r] = r % 3 == 0 ? null : r % 3 == 1 ? "plain-" + r : helper.encrypt("备注" + r);
+        }
+        String[][] parallel = {sequential[0].clone(), null, sequential[2].clone()};
+
+        new BatchDecryptor(Integer.MAX_VALUE, 4).decrypt(helper, sequential, rows);
+        new BatchDecryptor(1, 4).decrypt(helper, parallel, rows);
+
+        assertArrayEquals(sequential[0], parallel[0]);
+        assertArrayEquals(sequential[2], parallel[2]);
+        assertEquals("name-4999", parallel[0][4999]);
+        assertNull(parallel[2][3]);
+        assertEquals("plain-4", parallel[2][4]);
+        assertEquals("备注5", parallel[2][5]);
+    }
+
+    @Test
+    public void reportsFailedColumn() throws Exception {
+        // 只保留第一个分组：结构上是密文，但末尾是明文 'f' 而不是合法填充
+        byte[] blocks = Base64.getDecoder().decode(helper.encrypt("0123456789abcdef"));
+        String broken = Base64.getEncoder().encodeToString(Arrays.copyOf(blocks, 16));
+        assertTrue(helper.isCipherText(broken));
+        String[][] columns = {{"plain"}, {broken}};
+        SQLException e = assertThrows(SQLException.class, () -> new BatchDecryptor(1, 2).decrypt(helper, columns, 1));
+        assertTrue(e.getMessage().endsWith("column index: 2"));
+    }
+
+    @Test
+    public void replacesStringColumn() {
+        RowBatch.Builder builder = new RowBatch.Builder(new byte[]{RowBatch.TYPE_INT, RowBatch.TYPE_STRING}, 4);
+        for (int r = 0; r < 3; r++) {
+            builder.setLong(0, r);
+            builder.endRow();
+        }
+        RowBatch batch = builder.build();
+        batch.setStringColumn(1, new String[]{"a", null, "中文"});
+        assertEquals("a", batch.getString(0, 1));
+        assertTrue(batch.isNull(1, 1));
+        assertEquals("中文", batch.getObject(2, 1));
+        assertEquals(2, batch.getLong(2, 0));
+    }
+}
@@ -0,0 +1,81 @@
+package com.seu.jdbcproxy;
+
+import com.seu.jdbcproxy.pool.ConnectionPool;
+import com.seu.jdbcproxy.pool.PooledConnection;
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTests {
+    private static final String URL = "jdbc:h2:mem:conn_pool;DB_CLOSE_DELAY=-1";
+
+    private ConnectionPool pool;
+
+    private ConnectionPool newPool(int min, int max, long acquireTimeoutMs) {
+        ConnectionPool.Settings settings = new ConnectionPool.Settings(min, max, 600000, acquireTimeoutMs, 30000, 1, 4);
+        pool = new ConnectionPool(URL, "sa", "", settings, new EncryptionHelper());
+        return pool;
+    }
+
+    @AfterEach
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void reusesReleasedConnection() throws SQLException {
+        newPool(0, 2, 1000);
+        PooledConnection first = pool.acquire();
+        first.getConnection().setAutoCommit(false);
+        first.release();
+
+        PooledConnection second = pool.acquire();
+        assertSame(first, second);
+        // 归还时会话状态已复位
+        assertTrue(second.getConnection().getAutoCommit());
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(1, pool.getActive());
+        assertEquals(0.5, pool.getSaturation());
+        second.release();
+        assertEquals(1, pool.getIdle());
+    }
+
+    @Test
+    public void timesOutWhenSaturated() throws SQLException {
+        newPool(0, 1, 50);
+        PooledConnection held = pool.acquire();
+        SQLException e = assertThrows(SQLTransientConnectionException.class, () -> pool.acquire());
+        assertEquals("08004", e.getSQLState());
+        assertEquals(1, pool.getTimeoutCount());
+        assertEquals(1, pool.getWaitCount());
+
+        // 被丢弃的连接释放名额
+        held.invalidate();
+        assertTrue(held.getConnection().isClosed());
+        assertEquals(0, pool.getTotal());
+        pool.acquire().release();
+        assertEquals(2, pool.getCreatedCount());
+    }
+
+    @Test
+    public void closedConnectionIsDiscardedOnValidation() throws SQLException {
+        ConnectionPool.Settings settings = new ConnectionPool.Settings(0, 2, 600000, 1000, 0, 1, 4);
+        pool = new ConnectionPool(URL, "sa", "", settings, new EncryptionHelper());
+        PooledConnection broken = pool.acquire();
+        broken.release();
+        broken.getConnection().close();
+
+        PooledConnection fresh = pool.acquire();
+        assertNotSame(broken, fresh);
+        assertEquals(1, pool.getDiscardedCount());
+        assertEquals(1, pool.getTotal());
+        fresh.release();
+    }
+}
@@ -1,5 +1,6 @@
 package com.seu.jdbcproxy;
 
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -7,7 +8,15 @@ import org.slf4j.LoggerFactory;
 import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class EncryptTests {
     private static final Logger logger = LoggerFactory.getLogger(EncryptTests.class);
@@ -40,4 +49,94 @@ public class EncryptTests {
         System.out.println("AES解密的内容= " + plainText);
 
     }
+
+    @Test
+    public void helperMatchesJdkBase64AndAes() throws Exception {
+        EncryptionHelper helper = new EncryptionHelper();
+        Cipher cipher = Cipher.getInstance(EncryptionHelper.Algorithm);
+        cipher.init(Cipher.ENCRYPT_MODE, helper.secretKey);
+        for (String plain : new String[]{"", "a", "hello world", "中文明文", "0123456789abcdef", "x".repeat(1000)}) {
+            String expected = Base64.getEncoder().encodeToString(cipher.doFinal(plain.getBytes(StandardCharsets.UTF_8)));
+            String encrypted = helper.encrypt(plain);
+            assertEquals(expected, encrypted);
+            assertTrue(helper.isCipherText(encrypted));
+            assertEquals(plain, helper.decrypt(encrypted));
+        }
+    }
+
+    @Test
+    public void helperIsCipherText() {
+        EncryptionHelper helper = new EncryptionHelper();
+        // 合法 Base64 但解码长度不是 AES 分组整数倍的明文不应视为密文
+        assertFalse(helper.isCipherText("TRUE"));
+        assertFalse(helper.isCipherText("3000000000"));
+        assertFalse(helper.isCipherText("12345678"));
+        assertFalse(helper.isCipherText(""));
+        assertFalse(helper.isCipherText(null));
+        assertFalse(helper.isCipherText("hello world"));
+        // 非规范编码（填充前的未用位不为 0）
+        assertFalse(helper.isCipherText("yCO54+UusmHRrm5tXEIudB=="));
+        assertTrue(helper.isCipherText("yCO54+UusmHRrm5tXEIudA=="));
+        assertFalse(helper.isCipherText("yCO54+UusmHRrm5tXEIud==="));
+        assertFalse(helper.isCipherText("yCO54+UusmHRrm5tXEIu!A=="));
+    }
+
+    @Test
+    public void gcmPrefixedPlainTextIsReturnedAsIs() throws Exception {
+        EncryptionHelper helper = new EncryptionHelper();
+        // 解码后不足 IV + 认证标签（28 字节）的不是随机化密文
+        String shortText = EncryptionHelper.GCM_PREFIX + "abc";
+        String ivOnly = EncryptionHelper.GCM_PREFIX + Base64.getEncoder().encodeToString(new byte[12]);
+        for (String plain : new String[]{EncryptionHelper.GCM_PREFIX, shortText, ivOnly}) {
+            assertFalse(helper.isCipherText(plain));
+            assertEquals(plain, helper.decrypt(plain));
+        }
+        // 结构上像密文但认证失败的明文原样返回
+        String longText = EncryptionHelper.GCM_PREFIX + Base64.getEncoder().encodeToString(
+                "not a ciphertext, just text".repeat(3).getBytes(StandardCharsets.UTF_8));
+        assertTrue(helper.isCipherText(longText));
+        assertEquals(longText, helper.decrypt(longText));
+        // 之后真实密文仍可解密
+        assertEquals("secret", helper.decrypt(helper.encryptRandomized("secret")));
+    }
+
+    @Test
+    public void reusesCiphersAcrossPerTaskThreads() throws Exception {
+        EncryptionHelper helper = new EncryptionHelper();
+        ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+        // JDK 17 上没有虚拟线程，退回为每个任务新建一个平台线程，同样不会复用线程
+        Executor executor = virtual != null ? virtual : task -> new Thread(task).start();
+        try {
+            int concurrency = 4;
+            for (int round = 0; round < 50; round++) {
+                List<CompletableFuture<Void>> tasks = new ArrayList<>();
+                for (int t = 0; t < concurrency; t++) {
+                    String plain = "value-" + round + "-" + t;
+                    tasks.add(CompletableFuture.runAsync(() -> {
+                        try {
+                            assertEquals(plain, helper.decrypt(helper.encrypt(plain)));
+                            assertEquals(plain, helper.decrypt(helper.encryptRandomized(plain)));
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }, executor));
+                }
+                CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).get();
+            }
+        } finally {
+            if (virtual != null) {
+                virtual.shutdown();
+            }
+        }
+        // 800 次加解密分布在 200 个线程上，Cipher 上下文数只取决于并发度
+        assertTrue(helper.getCreatedContexts() <= 4, "created " + helper.getCreatedContexts());
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,126 @@
+package com.seu.jdbcproxy;
+
+import com.seu.jdbcproxy.rewrite.CipherMode;
+import com.seu.jdbcproxy.rewrite.ColumnPolicy;
+import com.seu.jdbcproxy.rewrite.EncryptionPlan;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EncryptionPlanTests {
+
+    @Test
+    public void legacyRulesWithoutColumnPolicy() {
+        ColumnPolicy none = ColumnPolicy.parse("");
+        EncryptionPlan insert = EncryptionPlan.compile("insert into my_table (id, test) values (?, ?)", none);
+        assertEquals(CipherMode.DETERMINISTIC, insert.modeOf(0));
+        assertEquals(CipherMode.DETERMINISTIC, insert.modeOf(1));
+        // 旧规则按绑定顺序加密，超出占位符个数的参数同样加密
+        assertEquals(CipherMode.DETERMINISTIC, insert.modeOf(2));
+
+        // 旧规则假设 UPDATE 的第二个参数是 id
+        EncryptionPlan update = EncryptionPlan.compile("UPDATE my_table SET test = ? WHERE id = ?", none);
+        assertEquals(CipherMode.DETERMINISTIC, update.modeOf(0));
+        assertEquals(CipherMode.NONE, update.modeOf(1));
+
+        EncryptionPlan select = EncryptionPlan.compile("SELECT id, test FROM my_table WHERE test = ?", none);
+        assertTrue(select.isEncryptOnBind());
+        assertEquals(CipherMode.NONE, select.modeOf(0));
+        assertFalse(EncryptionPlan.compile("SELECT id FROM my_table", none).isEncryptOnBind());
+
+        assertTrue(EncryptionPlan.compile("SELECT id FROM my_table --@extra.enabled=true --@extra.table=t", none)
+                .isExtraQuery());
+    }
+
+    @Test
+    public void legacyRulesCoverParametersTheParserMissed() {
+        ColumnPolicy none = ColumnPolicy.parse("");
+        // 标准 SQL 字符串中反斜杠不是转义符，分词器按 MySQL 规则处理，把后面的占位符当成了字符串内容
+        EncryptionPlan insert = EncryptionPlan.compile("INSERT INTO t (path, a, b) VALUES ('C:\\', ?, ?)", none);
+        assertTrue(insert.parameterCount() < 2);
+        assertEquals(CipherMode.DETERMINISTIC, insert.modeOf(0));
+        assertEquals(CipherMode.DETERMINISTIC, insert.modeOf(1));
+        // PostgreSQL 的 # 是运算符，分词器视为行注释
+        assertEquals(CipherMode.DETERMINISTIC,
+                EncryptionPlan.compile("DELETE FROM t WHERE flags # 1 = ?", none).modeOf(0));
+
+        EncryptionPlan update = EncryptionPlan.compile("UPDATE t SET path = 'C:\\', a = ? WHERE id = ? AND b = ?", none);
+        assertEquals(CipherMode.DETERMINISTIC, update.modeOf(0));
+        assertEquals(CipherMode.NONE, update.modeOf(1));
+        assertEquals(CipherMode.DETERMINISTIC, update.modeOf(2));
+
+        // SELECT 按旧规则只在绑定时加密，计划中不加密
+        assertEquals(CipherMode.NONE, EncryptionPlan.compile("SELECT a FROM t WHERE b = ?", none).modeOf(3));
+    }
+
+    @Test
+    public void columnPolicyRejectsUnsupportedPredicates() {
+        ColumnPolicy policy = ColumnPolicy.parse("user.name:deterministic,user.remark:randomized");
+        EncryptionPlan plan = EncryptionPlan.compile(
+                "select id from user where name = ? and age > ? and remark = ? and name like ?", policy);
+        assertEquals(4, plan.parameterCount());
+        assertEquals(CipherMode.DETERMINISTIC, plan.modeOf(0));
+        assertNull(plan.rejectionOf(0));
+        assertEquals(CipherMode.NONE, plan.modeOf(1));
+        assertNull(plan.rejectionOf(1));
+        assertNotNull(plan.rejectionOf(2));
+        assertNotNull(plan.rejectionOf(3));
+        assertFalse(plan.isEncryptOnBind());
+
+        EncryptionPlan update = EncryptionPlan.compile("update user set remark = ? where name = ?", policy);
+        assertEquals(CipherMode.RANDOMIZED, update.modeOf(0));
+        assertNull(update.rejectionOf(0));
+        assertEquals(CipherMode.DETERMINISTIC, update.modeOf(1));
+    }
+
+    @Test
+    public void columnPolicyRejectsUnresolvedParameters() {
+        ColumnPolicy policy = ColumnPolicy.parse("t.ssn:deterministic,b.secret:deterministic");
+
+        // 函数包裹的值无法确定目标列，不能按明文写入
+        EncryptionPlan insert = EncryptionPlan.compile("INSERT INTO t (ssn, name) VALUES (LOWER(?), ?)", policy);
+        assertNotNull(insert.rejectionOf(0));
+        assertNull(insert.rejectionOf(1));
+        assertEquals(CipherMode.NONE, insert.modeOf(1));
+
+        EncryptionPlan select = EncryptionPlan.compile("SELECT id FROM t WHERE UPPER(ssn) = ? AND ssn = ? LIMIT ?", policy);
+        assertNotNull(select.rejectionOf(0));
+        assertEquals(CipherMode.DETERMINISTIC, select.modeOf(1));
+        assertNull(select.rejectionOf(1));
+        // LIMIT 的行数不对应列
+        assertNull(select.rejectionOf(2));
+        assertEquals(CipherMode.NONE, select.modeOf(2));
+
+        // 未限定的 secret 可能属于 b，不能按 a 的策略放行
+        EncryptionPlan join = EncryptionPlan.compile(
+                "UPDATE a JOIN b ON a.id = b.a_id SET secret = ?, b.secret = ? WHERE a.id = ?", policy);
+        assertNotNull(join.rejectionOf(0));
+        assertEquals(CipherMode.DETERMINISTIC, join.modeOf(1));
+        assertNull(join.rejectionOf(2));
+
+        // 各表上加密方式一致时未限定列可以确定加密方式
+        EncryptionPlan same = EncryptionPlan.compile(
+                "SELECT x.id FROM a x JOIN c y ON x.id = y.id WHERE ssn = ?", ColumnPolicy.parse("*.ssn:det"));
+        assertNull(same.rejectionOf(0));
+        assertEquals(CipherMode.DETERMINISTIC, same.modeOf(0));
+
+        // 涉及的表没有加密列时仍按不加密处理
+        EncryptionPlan plain = EncryptionPlan.compile("SELECT id FROM other WHERE UPPER(name) = ?", policy);
+        assertNull(plain.rejectionOf(0));
+    }
+
+    @Test
+    public void clockCacheEvictsUnreferencedEntries() {
+        ClockCache<String, Integer> cache = new ClockCache<>(2);
+        assertEquals(1, cache.computeIfAbsent("a", k -> 1));
+        assertEquals(2, cache.computeIfAbsent("b", k -> 2));
+        // 访问 a 后插入 c：a 获得第二次机会，b 被淘汰
+        assertEquals(1, cache.get("a"));
+        assertEquals(3, cache.computeIfAbsent("c", k -> 3));
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.get("a"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getHits());
+    }
+}
@@ -0,0 +1,55 @@
+package com.seu.jdbcproxy;
+
+import com.seu.jdbcproxy.metrics.LatencyHistogram;
+import com.seu.jdbcproxy.metrics.Phase;
+import com.seu.jdbcproxy.metrics.ProxyMetrics;
+import com.seu.jdbcproxy.pojo.MessageType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTests {
+
+    @Test
+    public void percentilesWithinBucketError() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            h.record(v * 1000);
+        }
+        assertEquals(100_000, h.getCount());
+        assertEquals(100_000_000L, h.getMax());
+        assertEquals(50_000_500.0, h.getMean(), 1);
+        // 对数-线性分桶的相对误差不超过 1/32
+        assertEquals(50_000_000, h.getValueAtPercentile(50), 50_000_000 / 32.0);
+        assertEquals(99_000_000, h.getValueAtPercentile(99), 99_000_000 / 32.0);
+        assertEquals(100_000_000L, h.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void smallAndHugeValues() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getValueAtPercentile(99));
+        h.record(-5);
+        h.record(7);
+        h.record(Long.MAX_VALUE);
+        assertEquals(0, h.getValueAtPercentile(1));
+        assertEquals(7, h.getValueAtPercentile(50));
+        assertEquals(Long.MAX_VALUE, h.getMax());
+    }
+
+    @Test
+    public void prometheusDumpListsRecordedPhases() {
+        MessageType previous = ProxyMetrics.enter(MessageType.EXEC_QUERY);
+        try {
+            ProxyMetrics.record(Phase.EXECUTE, ProxyMetrics.start());
+        } finally {
+            ProxyMetrics.exit(previous);
+        }
+        ProxyMetrics.addRows(3);
+        String text = ProxyMetrics.prometheus();
+        assertTrue(text.contains("jdbcproxy_phase_seconds_count{type=\"EXEC_QUERY\",phase=\"execute\"}"), text);
+        assertTrue(text.contains("jdbcproxy_rows_total "), text);
+        assertTrue(ProxyMetrics.table().stream().anyMatch(
+                row -> "EXEC_QUERY".equals(row.get(0)) && "execute".equals(row.get(1))));
+    }
+}
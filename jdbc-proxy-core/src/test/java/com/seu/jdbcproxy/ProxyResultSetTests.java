@@ -0,0 +1,66 @@
+package com.seu.jdbcproxy;
+
+import com.seu.jdbcproxy.core.ProxyResultSet;
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProxyResultSetTests {
+    private final EncryptionHelper helper = new EncryptionHelper();
+    private Connection connection;
+
+    @BeforeEach
+    public void open() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:proxy_rs", "sa", "");
+        try (Statement st = connection.createStatement()) {
+            st.execute("create table t(id int, name varchar(100), note varchar(100), amount decimal(10, 2))");
+        }
+        try (PreparedStatement ps = connection.prepareStatement("insert into t values (?, ?, ?, ?)")) {
+            ps.setInt(1, 1);
+            ps.setString(2, helper.encrypt("alice"));
+            ps.setString(3, helper.encrypt("42"));
+            ps.setBigDecimal(4, new java.math.BigDecimal("9.50"));
+            ps.executeUpdate();
+            ps.setInt(1, 2);
+            ps.setString(2, "bob");
+            ps.setNull(3, Types.VARCHAR);
+            ps.setNull(4, Types.DECIMAL);
+            ps.executeUpdate();
+        }
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void decryptsCharacterColumnsAndReadsOthersNatively() throws SQLException {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = new ProxyResultSet(st.executeQuery("select id, name, note, amount from t order by id"), helper)) {
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+            assertEquals("alice", rs.getString("name"));
+            assertEquals("alice", rs.getObject(2));
+            assertEquals(42, rs.getInt(3));
+            assertEquals(new java.math.BigDecimal("9.50"), rs.getBigDecimal(4));
+
+            assertTrue(rs.next());
+            // 换行后缓存失效，明文值原样返回
+            assertEquals("bob", rs.getString(2));
+            assertNull(rs.getString(3));
+            assertTrue(rs.wasNull());
+            // 命中本行缓存时 wasNull 对应被读取的列，而不是更早读取的列
+            assertEquals("bob", rs.getString(2));
+            assertFalse(rs.wasNull());
+            rs.getBigDecimal(4);
+            assertTrue(rs.wasNull());
+            assertFalse(rs.next());
+        }
+    }
+}
@@ -47,6 +47,28 @@ public class RewriteHelperTests {
             String resql = helper.rewrite(originalsql,"PostgreSQL");
             logger.info(resql);
         }
+
+        @Test
+        public void only_exact_trigger_sql_is_rewritten() {
+            RewriteHelper helper = new RewriteHelper();
+            Assertions.assertTrue(helper.rewrite("show databases", "H2").startsWith("SELECT 'PUBLIC'"));
+            // 与触发 SQL 仅大小写或空白不同的语句保持不变
+            Assertions.assertEquals("SHOW DATABASES", helper.rewrite("SHOW DATABASES", "H2"));
+            Assertions.assertEquals("show databases ", helper.rewrite("show databases ", "H2"));
+            Assertions.assertEquals("show databases", helper.rewrite("show databases", "MySQL"));
+        }
+
+        @Test
+        public void repeated_statement_hits_cache() {
+            RewriteHelper helper = new RewriteHelper();
+            String sql = "select `c` from cached_" + System.nanoTime();
+            long hits = RewriteHelper.cache().getHits();
+            String first = helper.rewrite(sql, "PostgreSQL");
+            Assertions.assertSame(first, new RewriteHelper().rewrite(sql, "PostgreSQL"));
+            Assertions.assertTrue(RewriteHelper.cache().getHits() > hits);
+            // 同一 SQL 在不同产品下分别缓存
+            Assertions.assertEquals(sql, helper.rewrite(sql, "MySQL"));
+        }
     }
 
     @Nested
@@ -60,5 +82,10 @@ public class RewriteHelperTests {
             RewriteHelper helper = new RewriteHelper();
             Assertions.assertEquals("CALL p(?)", helper.rewriteCall("begin p(to_char(?));end;"));
         }
+
+        @Test void keep_non_block_statement() {
+            RewriteHelper helper = new RewriteHelper();
+            Assertions.assertEquals("call p(?)", helper.rewriteCall("call p(?)"));
+        }
     }
 }
@@ -0,0 +1,100 @@
+package com.seu.jdbcproxy;
+
+import com.seu.jdbcproxy.rewrite.CipherMode;
+import com.seu.jdbcproxy.rewrite.ColumnPolicy;
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import com.seu.jdbcproxy.rewrite.ParsedStatement;
+import com.seu.jdbcproxy.rewrite.ParsedStatement.Kind;
+import com.seu.jdbcproxy.rewrite.ParsedStatement.Operator;
+import com.seu.jdbcproxy.rewrite.ParsedStatement.ParameterTarget;
+import com.seu.jdbcproxy.rewrite.SqlParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlParserTests {
+
+    @Test
+    public void mapsInsertValuesToColumns() {
+        ParsedStatement parsed = SqlParser.parse("INSERT INTO test_db.my_table (id, `name`, phone) VALUES (?, ?, now()), (?, ?, ?)");
+        assertEquals(Kind.INSERT, parsed.kind());
+        assertEquals(5, parsed.parameters().size());
+        assertEquals(new ParameterTarget("my_table", "id", Operator.ASSIGN), parsed.parameter(0));
+        assertEquals(new ParameterTarget("my_table", "name", Operator.ASSIGN), parsed.parameter(1));
+        assertEquals(new ParameterTarget("my_table", "phone", Operator.ASSIGN), parsed.parameter(4));
+        assertNull(parsed.parameter(5));
+    }
+
+    @Test
+    public void distinguishesAssignmentFromPredicate() {
+        ParsedStatement parsed = SqlParser.parse("update my_table set test = ?, note = 'a?b' where id = ? and test <> ?");
+        assertEquals(Kind.UPDATE, parsed.kind());
+        assertEquals(3, parsed.parameters().size());
+        assertEquals(new ParameterTarget("my_table", "test", Operator.ASSIGN), parsed.parameter(0));
+        assertEquals(new ParameterTarget("my_table", "id", Operator.EQ), parsed.parameter(1));
+        assertEquals(new ParameterTarget("my_table", "test", Operator.NE), parsed.parameter(2));
+    }
+
+    @Test
+    public void resolvesAliasesAndPredicateForms() {
+        ParsedStatement parsed = SqlParser.parse(
+                "SELECT u.name FROM user u JOIN orders AS o ON o.user_id = u.id "
+                        + "WHERE u.phone IN (?, ?) AND o.amount BETWEEN ? AND ? AND ? = u.name "
+                        + "AND u.remark LIKE ? AND upper(u.name) = ? -- trailing ?");
+        assertEquals(Kind.SELECT, parsed.kind());
+        assertEquals(7, parsed.parameters().size());
+        assertEquals(new ParameterTarget("user", "phone", Operator.IN), parsed.parameter(0));
+        assertEquals(new ParameterTarget("user", "phone", Operator.IN), parsed.parameter(1));
+        assertEquals(new ParameterTarget("orders", "amount", Operator.RANGE), parsed.parameter(2));
+        assertEquals(new ParameterTarget("orders", "amount", Operator.RANGE), parsed.parameter(3));
+        assertEquals(new ParameterTarget("user", "name", Operator.EQ), parsed.parameter(4));
+        assertEquals(new ParameterTarget("user", "remark", Operator.LIKE), parsed.parameter(5));
+        // 函数表达式无法确定目标列
+        assertNull(parsed.parameter(6));
+    }
+
+    @Test
+    public void leavesWrappedAndMultiTableColumnsUnattributed() {
+        ParsedStatement insert = SqlParser.parse("INSERT INTO t (ssn, name) VALUES (LOWER(?), ?)");
+        assertNull(insert.parameter(0));
+        assertEquals(new ParameterTarget("t", "name", Operator.ASSIGN), insert.parameter(1));
+
+        ParsedStatement select = SqlParser.parse("SELECT id FROM t WHERE UPPER(ssn) = ? LIMIT ? OFFSET ?");
+        assertNull(select.parameter(0));
+        assertEquals(new ParameterTarget(null, null, Operator.LIMIT), select.parameter(1));
+        assertEquals(new ParameterTarget(null, null, Operator.LIMIT), select.parameter(2));
+
+        // 多张表时未限定的列不归属第一张表
+        ParsedStatement update = SqlParser.parse("UPDATE a JOIN b ON a.id = b.a_id SET secret = ?, b.note = ? WHERE a.id = ?");
+        assertEquals(Set.of("a", "b"), update.tables());
+        assertEquals(new ParameterTarget(null, "secret", Operator.ASSIGN), update.parameter(0));
+        assertEquals(new ParameterTarget("b", "note", Operator.ASSIGN), update.parameter(1));
+        assertEquals(new ParameterTarget("a", "id", Operator.EQ), update.parameter(2));
+    }
+
+    @Test
+    public void columnPolicyFallsBackToAnyTable() {
+        ColumnPolicy policy = ColumnPolicy.parse("user.name:deterministic, user.remark:randomized, *.id_card:det");
+        assertEquals(CipherMode.DETERMINISTIC, policy.modeOf("user", "NAME"));
+        assertEquals(CipherMode.RANDOMIZED, policy.modeOf("user", "remark"));
+        assertEquals(CipherMode.DETERMINISTIC, policy.modeOf("orders", "id_card"));
+        assertEquals(CipherMode.NONE, policy.modeOf("orders", "name"));
+        assertThrows(IllegalArgumentException.class, () -> ColumnPolicy.parse("name:deterministic"));
+    }
+
+    @Test
+    public void randomizedCipherRoundTrip() throws Exception {
+        EncryptionHelper helper = new EncryptionHelper();
+        String first = helper.encrypt("13800000000", CipherMode.RANDOMIZED);
+        String second = helper.encrypt("13800000000", CipherMode.RANDOMIZED);
+        assertNotEquals(first, second);
+        assertTrue(helper.isCipherText(first));
+        assertEquals("13800000000", helper.decrypt(first));
+        assertEquals("13800000000", helper.decrypt(second));
+        // 确定性加密与原有格式一致
+        assertEquals(helper.encrypt("13800000000"), helper.encrypt("13800000000", CipherMode.DETERMINISTIC));
+        assertEquals("plain", helper.encrypt("plain", CipherMode.NONE));
+    }
+}
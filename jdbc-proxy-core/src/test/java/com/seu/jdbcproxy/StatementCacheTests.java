@@ -0,0 +1,112 @@
+package com.seu.jdbcproxy;
+
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import com.seu.jdbcproxy.pool.StatementCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatementCacheTests {
+    private Connection connection;
+
+    @BeforeEach
+    public void open() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:stmt_cache", "sa", "");
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void reusesReleasedStatement() throws SQLException {
+        StatementCache cache = new StatementCache(connection, new EncryptionHelper(), 4);
+        StatementCache.CachedStatement first = cache.borrow("select 1", true);
+        assertNotNull(first);
+        // 借出期间同一 SQL 不能再次借出
+        assertNull(cache.borrow("select 1", true));
+        cache.release(first);
+
+        StatementCache.CachedStatement second = cache.borrow("select 1", true);
+        assertSame(first, second);
+        // 查询与更新使用不同的结果集属性，分开缓存
+        StatementCache.CachedStatement update = cache.borrow("select 1", false);
+        assertNotSame(first, update);
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void keysQueriesByResultSetMode() throws SQLException {
+        StatementCache cache = new StatementCache(connection, new EncryptionHelper(), 4);
+        StatementCache.CachedStatement forwardOnly = cache.borrow("select 1", true);
+        assertEquals(ResultSet.TYPE_FORWARD_ONLY, forwardOnly.getStatement().getResultSetType());
+        assertEquals(ResultSet.CONCUR_READ_ONLY, forwardOnly.getStatement().getResultSetConcurrency());
+        cache.release(forwardOnly);
+
+        StatementCache.CachedStatement scrollable = cache.borrow("select 1", true,
+                ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        assertNotSame(forwardOnly, scrollable);
+        assertEquals(ResultSet.TYPE_SCROLL_INSENSITIVE, scrollable.getStatement().getResultSetType());
+        cache.release(scrollable);
+        assertSame(forwardOnly, cache.borrow("select 1", true,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws SQLException {
+        StatementCache cache = new StatementCache(connection, new EncryptionHelper(), 2);
+        StatementCache.CachedStatement a = cache.borrow("select 1", true);
+        cache.release(a);
+        StatementCache.CachedStatement b = cache.borrow("select 2", true);
+        cache.release(b);
+        cache.release(cache.borrow("select 1", true));
+
+        // select 2 最久未使用，被淘汰并关闭
+        StatementCache.CachedStatement c = cache.borrow("select 3", true);
+        assertEquals(1, cache.getEvictions());
+        assertTrue(b.getStatement().isClosed());
+        assertFalse(a.getStatement().isClosed());
+
+        // 借出中的语句被淘汰时，归还后才关闭
+        cache.release(cache.borrow("select 1", true));
+        cache.borrow("select 4", true);
+        assertEquals(2, cache.getEvictions());
+        assertFalse(c.getStatement().isClosed());
+        cache.release(c);
+        assertTrue(c.getStatement().isClosed());
+    }
+
+    @Test
+    public void clearsParametersOnReuse() throws SQLException {
+        StatementCache cache = new StatementCache(connection, new EncryptionHelper(), 4);
+        StatementCache.CachedStatement cached = cache.borrow("select cast(? as varchar)", true);
+        cached.getProxy().setString(1, "x");
+        cache.release(cached);
+
+        StatementCache.CachedStatement reused = cache.borrow("select cast(? as varchar)", true);
+        assertSame(cached, reused);
+        // 上一次绑定的参数已被清空
+        assertThrows(SQLException.class, () -> reused.getProxy().executeQuery());
+    }
+
+    @Test
+    public void disabledAndClosed() throws SQLException {
+        assertNull(new StatementCache(connection, new EncryptionHelper(), 0).borrow("select 1", true));
+
+        StatementCache cache = new StatementCache(connection, new EncryptionHelper(), 4);
+        StatementCache.CachedStatement cached = cache.borrow("select 1", true);
+        cache.close();
+        assertTrue(cached.getStatement().isClosed());
+        assertNull(cache.borrow("select 1", true));
+    }
+}
@@ -0,0 +1,100 @@
+package com.seu.jdbcproxy;
+
+import com.seu.jdbcproxy.trace.TraceBuffer;
+import com.seu.jdbcproxy.trace.TraceEvent;
+import com.seu.jdbcproxy.trace.Tracer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TraceBufferTests {
+
+    @Test
+    public void drainsInOrderAndOnlyOnce() {
+        TraceBuffer buffer = new TraceBuffer(8);
+        assertEquals(8, buffer.capacity());
+        for (int i = 0; i < 5; i++) {
+            buffer.record(7, TraceEvent.PARAM_BIND, i, i * 10);
+        }
+        List<Long> seen = new ArrayList<>();
+        assertEquals(5, buffer.drain((t, traceId, event, a, b) -> {
+            assertEquals(7, traceId);
+            assertEquals(TraceEvent.PARAM_BIND, event);
+            assertEquals(a * 10, b);
+            seen.add(a);
+        }));
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), seen);
+        assertEquals(0, buffer.drain((t, traceId, event, a, b) -> fail("already drained")));
+        assertEquals(0, buffer.getDropped());
+    }
+
+    @Test
+    public void overwritesOldestWhenFull() {
+        TraceBuffer buffer = new TraceBuffer(5);
+        assertEquals(8, buffer.capacity());
+        for (int i = 0; i < 20; i++) {
+            buffer.record(1, TraceEvent.CELL_DECRYPT, i, 0);
+        }
+        List<Long> seen = new ArrayList<>();
+        buffer.drain((t, traceId, event, a, b) -> seen.add(a));
+        assertEquals(List.of(12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L), seen);
+        assertEquals(12, buffer.getDropped());
+        assertEquals(20, buffer.getRecorded());
+    }
+
+    @Test
+    public void concurrentWritersLoseNothingWithinCapacity() throws Exception {
+        TraceBuffer buffer = new TraceBuffer(1 << 14);
+        int threads = 4;
+        int perThread = 2000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long traceId = t + 1;
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    buffer.record(traceId, TraceEvent.PARAM_ENCRYPT, i, traceId);
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        long[] next = new long[threads + 1];
+        int total = 0;
+        while (total < threads * perThread) {
+            total += buffer.drain((t, traceId, event, a, b) -> {
+                // 同一线程的事件保持写入顺序，字段不会错位
+                assertEquals(traceId, b);
+                assertEquals(next[(int) traceId]++, a);
+            });
+            Thread.onSpinWait();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(0, buffer.getDropped());
+        for (int t = 1; t <= threads; t++) {
+            assertEquals(perThread, next[t]);
+        }
+    }
+
+    @Test
+    public void disabledByDefault() {
+        // 默认配置下不采样，也不分配缓冲区
+        assertFalse(Tracer.isEnabled());
+        assertNull(Tracer.buffer());
+        Tracer.event(TraceEvent.PARAM_BIND, 1, 1);
+        assertFalse(Tracer.isSampled());
+        assertEquals(0, Tracer.clock());
+    }
+}
@@ -0,0 +1,210 @@
+package com.seu.jdbcproxy;
+
+import com.seu.jdbcproxy.pojo.MessageType;
+import com.seu.jdbcproxy.pojo.Request;
+import com.seu.jdbcproxy.pojo.Response;
+import com.seu.jdbcproxy.pojo.RowBatch;
+import com.seu.jdbcproxy.pojo.SQLExceptionWrapper;
+import com.seu.jdbcproxy.protocol.FrameBuffer;
+import com.seu.jdbcproxy.protocol.FrameCodec;
+import com.seu.jdbcproxy.protocol.MessageCodec;
+import com.seu.jdbcproxy.protocol.MessageCodecs;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WireCodecTests {
+
+    private static Object roundTrip(MessageCodec codec, Object message) throws IOException {
+        FrameBuffer frame = FrameCodec.encodeFrame(codec, message);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame.array(), 0, frame.size()));
+        byte[] payload = FrameCodec.readPayload(in);
+        assertSame(codec, FrameCodec.codecOf(payload));
+        return FrameCodec.decode(payload);
+    }
+
+    private static Response sampleResponse() {
+        Response r = new Response();
+        r.setType(MessageType.EXEC_QUERY);
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            rows.add(Arrays.asList(i, (long) i * 1_000_000_007L, "name-" + i, "中文" + i, null,
+                    new BigDecimal("12.34"), i % 2 == 0, 1.5d * i,
+                    new Timestamp(1_700_000_000_000L + i), LocalDateTime.of(2024, 1, 2, 3, 4, 5, 6)));
+        }
+        r.setRows(rows);
+        r.setColumnNames(List.of("id", "big", "name", "cn", "nil", "dec", "flag", "dbl", "ts", "ldt"));
+        r.setHasMoreRows(true);
+        r.setStatementId("s1");
+        r.setResultSetId("s1_r1");
+        r.setTimestamp(-5L);
+        r.setRequestId(1L << 40);
+        return r;
+    }
+
+    @Test
+    public void binaryResponseRoundTrip() throws IOException {
+        Response expected = sampleResponse();
+        Response actual = (Response) roundTrip(MessageCodecs.BINARY, expected);
+
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getRows(), actual.getRows());
+        assertEquals(expected.getColumnNames(), actual.getColumnNames());
+        assertTrue(actual.isHasMoreRows());
+        assertEquals("s1", actual.getStatementId());
+        assertEquals("s1_r1", actual.getResultSetId());
+        assertEquals(-5L, actual.getTimestamp());
+        assertEquals(1L << 40, actual.getRequestId());
+        assertNull(actual.getSqlException());
+    }
+
+    @Test
+    public void binaryRequestRoundTrip() throws IOException {
+        Request q = new Request();
+        q.setType(MessageType.EXEC_QUERY);
+        q.setConnId("c1");
+        q.setSql("select * from t where a = ? and b = ?");
+        Map<Integer, Object> params = new HashMap<>();
+        params.put(1, "x");
+        params.put(2, -42);
+        params.put(3, new byte[]{1, 2, 3});
+        q.setParams(params);
+        q.setFetchSize(500);
+        q.getExtra().put("realUrl", "jdbc:h2:mem:t");
+        q.setRequestId(300);
+
+        Request actual = (Request) roundTrip(MessageCodecs.BINARY, q);
+        assertEquals(MessageType.EXEC_QUERY, actual.getType());
+        assertEquals("c1", actual.getConnId());
+        assertNull(actual.getStatementId());
+        assertEquals(q.getSql(), actual.getSql());
+        assertEquals("x", actual.getParams().get(1));
+        assertEquals(-42, actual.getParams().get(2));
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) actual.getParams().get(3));
+        assertEquals(500, actual.getFetchSize());
+        assertEquals("jdbc:h2:mem:t", actual.getExtra().get("realUrl"));
+        assertEquals(300, actual.getRequestId());
+    }
+
+    @Test
+    public void binaryCarriesExceptionAndUnknownValues() throws IOException {
+        Response r = new Response();
+        r.setType(MessageType.EXCEPTION);
+        r.setSqlException(new SQLExceptionWrapper(new SQLException("boom", "42000", 1064)));
+        r.setRows(List.of(List.of(new UUID(1, 2))));
+
+        Response actual = (Response) roundTrip(MessageCodecs.BINARY, r);
+        SQLException e = actual.getException();
+        assertEquals("boom", e.getMessage());
+        assertEquals("42000", e.getSQLState());
+        assertEquals(1064, e.getErrorCode());
+        // 未知类型走 Java 序列化兜底
+        assertEquals(new UUID(1, 2), actual.getRows().get(0).get(0));
+    }
+
+    @Test
+    public void binaryIsSmallerThanJavaSerialization() throws IOException {
+        Response r = sampleResponse();
+        int binary = FrameCodec.encodeFrame(MessageCodecs.BINARY, r).size();
+        int java = FrameCodec.encodeFrame(MessageCodecs.JAVA, r).size();
+        assertTrue(binary * 2 < java, "binary=" + binary + " java=" + java);
+        assertEquals(r.getRows(), ((Response) roundTrip(MessageCodecs.JAVA, r)).getRows());
+    }
+
+    private static RowBatch sampleBatch(int rows) {
+        byte[] types = {RowBatch.TYPE_INT, RowBatch.TYPE_LONG, RowBatch.TYPE_STRING,
+                RowBatch.TYPE_DOUBLE, RowBatch.TYPE_BOOLEAN, RowBatch.TYPE_OBJECT};
+        RowBatch.Builder b = new RowBatch.Builder(types, 4);
+        for (int i = 0; i < rows; i++) {
+            b.setLong(0, i);
+            if (i % 3 == 0) {
+                b.setNull(1);
+            } else {
+                b.setLong(1, -i * 10_000_000_000L);
+            }
+            b.setString(2, i % 5 == 0 ? null : (i % 2 == 0 ? "名" + i : "n" + i));
+            b.setDouble(3, i / 4.0);
+            b.setLong(4, i % 2);
+            b.setObject(5, i % 7 == 0 ? null : new BigDecimal(i + ".50"));
+            b.endRow();
+        }
+        return b.build();
+    }
+
+    @Test
+    public void rowBatchBuildAndRead() {
+        RowBatch batch = sampleBatch(100);
+        assertEquals(100, batch.getRowCount());
+        assertEquals(6, batch.getColumnCount());
+        assertEquals(42L, batch.getLong(42, 0));
+        assertEquals(42, batch.getObject(42, 0));
+        assertTrue(batch.isNull(42, 1));
+        assertNull(batch.getObject(42, 1));
+        assertEquals(-410_000_000_000L, batch.getLong(41, 1));
+        assertEquals("名42", batch.getString(42, 2));
+        assertNull(batch.getString(40, 2));
+        assertEquals("n41", batch.getString(41, 2));
+        assertEquals(10.5d, batch.getDouble(42, 3));
+        assertTrue(batch.getBoolean(41, 4));
+        assertEquals(Boolean.FALSE, batch.getObject(42, 4));
+        assertEquals(new BigDecimal("41.50"), batch.getObject(41, 5));
+        assertEquals(100, batch.toRows().size());
+    }
+
+    @Test
+    public void rowBatchRoundTrip() throws IOException {
+        RowBatch batch = sampleBatch(130);
+        for (MessageCodec codec : List.of(MessageCodecs.BINARY, MessageCodecs.JAVA)) {
+            Response r = new Response();
+            r.setType(MessageType.FETCH_ROWS);
+            r.setBatch(batch);
+            Response actual = (Response) roundTrip(codec, r);
+            assertEquals(batch.toRows(), actual.getBatch().toRows(), codec.name());
+        }
+    }
+
+    @Test
+    public void batchRoundTrip() throws IOException {
+        Request q = new Request();
+        q.setType(MessageType.EXEC_BATCH);
+        q.setSql("insert into t (a, b) values (?, ?)");
+        List<Map<Integer, Object>> batch = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<Integer, Object> params = new HashMap<>();
+            params.put(1, "v" + i);
+            params.put(2, i == 1 ? null : (long) i);
+            batch.add(params);
+        }
+        q.setBatchParams(batch);
+        Response r = new Response();
+        r.setType(MessageType.EXEC_BATCH);
+        r.setUpdateCounts(new int[]{1, Statement.EXECUTE_FAILED, 1});
+
+        for (MessageCodec codec : List.of(MessageCodecs.BINARY, MessageCodecs.JAVA)) {
+            Request actualReq = (Request) roundTrip(codec, q);
+            assertEquals(MessageType.EXEC_BATCH, actualReq.getType());
+            assertEquals(batch, actualReq.getBatchParams(), codec.name());
+            assertNull(actualReq.getParams());
+            assertArrayEquals(r.getUpdateCounts(), ((Response) roundTrip(codec, r)).getUpdateCounts(), codec.name());
+        }
+        assertNull(((Response) roundTrip(MessageCodecs.BINARY, new Response())).getUpdateCounts());
+    }
+
+    @Test
+    public void negotiation() {
+        assertSame(MessageCodecs.BINARY, MessageCodecs.negotiate("binary,java", "binary,java"));
+        assertSame(MessageCodecs.JAVA, MessageCodecs.negotiate("binary,java", "java"));
+        assertSame(MessageCodecs.JAVA, MessageCodecs.negotiate(null, "binary,java"));
+        assertSame(MessageCodecs.JAVA, MessageCodecs.negotiate("protobuf", "binary"));
+    }
+}
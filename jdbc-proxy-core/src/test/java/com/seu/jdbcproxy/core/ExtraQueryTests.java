@@ -0,0 +1,127 @@
+package com.seu.jdbcproxy.core;
+
+import com.seu.jdbcproxy.ConfigLoader;
+import com.seu.jdbcproxy.pool.BackendPool;
+import com.seu.jdbcproxy.pool.ConnectionPool;
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExtraQueryTests {
+    private static final String URL = "jdbc:h2:mem:extra_query;DB_CLOSE_DELAY=-1";
+    private static final String TAGS = " --@extra.enabled=true --@extra.table=extra_t --@extra.db.url=" + URL;
+
+    private final EncryptionHelper helper = new EncryptionHelper();
+    private Connection connection;
+
+    /**
+     * H2 自定义函数：模拟连接中断（SQLState 08S01）
+     */
+    public static int linkFailure() throws SQLException {
+        throw new SQLException("Communications link failure", "08S01");
+    }
+
+    @BeforeEach
+    public void open() throws SQLException {
+        BackendPool.closeAll();
+        connection = DriverManager.getConnection(URL, ConfigLoader.get("extra.db.user", "root"),
+                ConfigLoader.get("extra.db.password"));
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("create table if not exists extra_t(id int)");
+            stmt.execute("merge into extra_t key (id) values (1), (2)");
+            stmt.execute("create alias if not exists LINK_FAILURE for '" + ExtraQueryTests.class.getName() + ".linkFailure'");
+        }
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        connection.close();
+        BackendPool.closeAll();
+    }
+
+    @Test
+    public void parsesTagsOnceAndCaches() {
+        String sql = "SELECT id FROM t --@extra.enabled=true --@extra.table=log --@extra.columns=a,b --@extra.db.url=jdbc:h2:mem:x";
+        ExtraQuery query = ExtraQuery.of(sql);
+        assertEquals("SELECT id FROM t", query.mainSql);
+        assertEquals("SELECT a,b FROM log", query.extraSql);
+        assertEquals("jdbc:h2:mem:x", query.dbUrl);
+        assertSame(query, ExtraQuery.of(sql));
+
+        // 未在 SQL 中指定地址时取配置
+        ExtraQuery configured = ExtraQuery.parse("SELECT 1 --@extra.enabled=true --@extra.table=log --@extra.columns=a");
+        assertEquals(ConfigLoader.get("extra.db.url"), configured.dbUrl);
+        // 缺少列或表时没有额外查询
+        assertNull(ExtraQuery.parse("SELECT 1 --@extra.enabled=true --@extra.table=log").extraSql);
+
+        // 超长 SQL 不进缓存
+        String longSql = "SELECT '" + "x".repeat(20000) + "'" + TAGS + " --@extra.columns=id";
+        assertNotSame(ExtraQuery.of(longSql), ExtraQuery.of(longSql));
+    }
+
+    @Test
+    public void dropsWhenQueueIsFull() throws Exception {
+        ThreadPoolExecutor executor = ExtraQuery.createExecutor(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Runnable blocker = () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            // 一个任务占住线程，一个任务占满队列
+            executor.execute(blocker);
+            executor.execute(blocker);
+            ExtraQuery query = ExtraQuery.parse("SELECT 1" + TAGS + " --@extra.columns=id");
+            assertFalse(query.submit(helper, executor));
+            // 没有额外查询时不提交
+            assertTrue(ExtraQuery.parse("SELECT 1").submit(helper, executor));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void abandonsQueriesQueuedPastTimeout() {
+        ExtraQuery query = ExtraQuery.parse("SELECT 1" + TAGS + " --@extra.columns=id");
+        long submittedAt = System.nanoTime() - TimeUnit.SECONDS.toNanos(60);
+        assertEquals(ExtraQuery.Outcome.EXPIRED, query.run(helper, submittedAt));
+        // 放弃的任务不借连接
+        assertTrue(BackendPool.getPools().isEmpty());
+    }
+
+    @Test
+    public void invalidatesConnectionOnLinkFailure() {
+        ExtraQuery ok = ExtraQuery.parse("SELECT 1" + TAGS + " --@extra.columns=id");
+        assertEquals(ExtraQuery.Outcome.COMPLETED, ok.run(helper, System.nanoTime()));
+        ConnectionPool pool = BackendPool.getPools().iterator().next();
+        long discarded = pool.getDiscardedCount();
+
+        // 普通 SQL 错误：连接放回池中
+        ExtraQuery missing = ExtraQuery.parse("SELECT 1" + TAGS + " --@extra.columns=no_such_column");
+        assertEquals(ExtraQuery.Outcome.FAILED, missing.run(helper, System.nanoTime()));
+        assertEquals(discarded, pool.getDiscardedCount());
+        assertEquals(0, pool.getActive());
+
+        // 08 开头的 SQLState：连接被丢弃
+        ExtraQuery broken = ExtraQuery.parse("SELECT 1" + TAGS + " --@extra.columns=LINK_FAILURE()");
+        assertEquals(ExtraQuery.Outcome.BROKEN, broken.run(helper, System.nanoTime()));
+        assertEquals(discarded + 1, pool.getDiscardedCount());
+        assertEquals(0, pool.getActive());
+    }
+}
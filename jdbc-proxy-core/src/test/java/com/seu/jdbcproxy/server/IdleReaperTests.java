@@ -0,0 +1,193 @@
+package com.seu.jdbcproxy.server;
+
+import com.seu.jdbcproxy.pojo.MessageType;
+import com.seu.jdbcproxy.pojo.Request;
+import com.seu.jdbcproxy.pojo.Response;
+import com.seu.jdbcproxy.pool.BackendPool;
+import com.seu.jdbcproxy.pool.ConnectionPool;
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdleReaperTests {
+    private static final String URL = "jdbc:h2:mem:idle_reaper;DB_CLOSE_DELAY=-1";
+    // check 对已关闭会话的返回值
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private final EncryptionHelper helper = new EncryptionHelper();
+
+    @AfterEach
+    public void closePools() {
+        BackendPool.closeAll();
+    }
+
+    private ProxySession newSession(boolean transactionPooling) {
+        return new ProxySession(UUID.randomUUID().toString(), URL, "sa", "", helper, transactionPooling);
+    }
+
+    private static long ms(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static long openResultSet(ProxySession session) throws Exception {
+        Connection c = session.bind();
+        PreparedStatement stmt = c.prepareStatement("select 1");
+        ResourceRegistry resources = session.getResources();
+        long stmtHandle = resources.registerStatement(stmt);
+        return resources.registerResultSet(stmtHandle, stmt.executeQuery());
+    }
+
+    @Test
+    public void expiresSessionPastTimeoutAndReleasesConnection() throws Exception {
+        IdleReaper reaper = new IdleReaper(1000, 500, 10, 8);
+        ProxySession session = newSession(false);
+        List<ProxySession> notified = new ArrayList<>();
+        session.setExpiryListener(notified::add);
+        session.bind();
+        ConnectionPool pool = session.getPooled().getPool();
+        int active = pool.getActive();
+        long last = session.lastActivity();
+
+        assertEquals(CLOSED, reaper.check(session, last + ms(1000)));
+        assertTrue(session.isExpired());
+        assertTrue(session.isClosed());
+        assertFalse(session.isBound());
+        assertEquals(active - 1, pool.getActive());
+        assertEquals(List.of(session), notified);
+        assertEquals(1, reaper.getReclaimedSessions());
+        // 已关闭的会话在下一次到期时移出时间轮
+        assertEquals(CLOSED, reaper.check(session, last + ms(2000)));
+    }
+
+    @Test
+    public void closesIdleCursorsButKeepsSession() throws Exception {
+        IdleReaper reaper = new IdleReaper(1000, 500, 10, 8);
+        ProxySession session = newSession(false);
+        long rsHandle = openResultSet(session);
+        ResultSet rs = session.getResources().resultSet(rsHandle);
+        long last = session.lastActivity();
+
+        long next = reaper.check(session, last + ms(600));
+        assertTrue(rs.isClosed());
+        assertEquals(0, session.getResources().size());
+        assertFalse(session.isClosed());
+        // session 模式下连接一直绑定到会话关闭
+        assertTrue(session.isBound());
+        assertEquals(last + ms(1000), next);
+        assertEquals(1, reaper.getReclaimedStatements());
+        assertEquals(1, reaper.getReclaimedResultSets());
+
+        // transaction 模式下结果集关闭后随即归还后端连接
+        ProxySession pooled = newSession(true);
+        openResultSet(pooled);
+        reaper.check(pooled, pooled.lastActivity() + ms(600));
+        assertFalse(pooled.isBound());
+        assertFalse(pooled.isClosed());
+
+        session.lock();
+        try {
+            session.close();
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void rearmsActiveSession() throws Exception {
+        IdleReaper reaper = new IdleReaper(1000, 500, 10, 8);
+        ProxySession session = newSession(false);
+        session.bind();
+        long last = session.lastActivity();
+        // 尚未空闲到期：按活动时间算出新的截止时间
+        assertEquals(last + ms(500), reaper.check(session, last + ms(100)));
+
+        // 正在处理请求（其他线程持有会话锁）：不回收，下一个刻度再检查
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread worker = new Thread(() -> {
+            session.lock();
+            try {
+                locked.countDown();
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                session.unlock();
+            }
+        });
+        worker.start();
+        locked.await();
+        long now = last + ms(5000);
+        assertEquals(now + ms(10), reaper.check(session, now));
+        assertFalse(session.isClosed());
+        assertTrue(session.isBound());
+        done.countDown();
+        worker.join();
+        assertEquals(0, reaper.getReclaimedSessions());
+    }
+
+    @Test
+    public void timeoutLongerThanOneRevolution() throws Exception {
+        // 一圈只有 4 * 10ms，超时跨越多圈
+        IdleReaper reaper = new IdleReaper(300, 0, 10, 4);
+        ProxySession session = newSession(false);
+        session.bind();
+        // 首次建池较慢，从登记时开始计时
+        session.touch();
+        reaper.register(session);
+
+        TimeUnit.MILLISECONDS.sleep(150);
+        assertFalse(session.isExpired());
+        assertEquals(1, reaper.getTrackedSessions());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (reaper.getTrackedSessions() > 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertTrue(session.isExpired());
+        assertEquals(0, reaper.getTrackedSessions());
+        assertTrue(System.nanoTime() - session.lastActivity() >= ms(300));
+        assertFalse(session.isBound());
+    }
+
+    @Test
+    public void expiredSessionLeavesDispatcher() throws Exception {
+        RequestDispatcher dispatcher = new RequestDispatcher(false);
+        Request open = new Request();
+        open.setType(MessageType.OPEN_CONN);
+        open.setExtra(Map.of("realUrl", URL, "user", "sa", "pwd", ""));
+        String id = (String) dispatcher.handle(open).getRows().get(0).get(0);
+        ProxySession session = dispatcher.session(id);
+        assertNotNull(session);
+
+        session.lock();
+        try {
+            session.expire();
+        } finally {
+            session.unlock();
+        }
+        // 回收时即移出会话表，之后的请求仍收到 "Connection expired"
+        assertNull(dispatcher.session(id));
+        Request query = new Request();
+        query.setType(MessageType.EXEC_QUERY);
+        query.setConnId(id);
+        query.setSql("select 1");
+        query.setRequestId(7);
+        Response resp = dispatcher.handle(query);
+        assertEquals(MessageType.EXCEPTION, resp.getType());
+        assertEquals("Connection expired", resp.getErrorMessage());
+        assertEquals(7, resp.getRequestId());
+    }
+}
@@ -0,0 +1,174 @@
+package com.seu.jdbcproxy.server;
+
+import com.seu.jdbcproxy.pojo.MessageType;
+import com.seu.jdbcproxy.pojo.Request;
+import com.seu.jdbcproxy.pojo.Response;
+import com.seu.jdbcproxy.protocol.FrameBuffer;
+import com.seu.jdbcproxy.protocol.FrameCodec;
+import com.seu.jdbcproxy.protocol.MessageCodecs;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NioProxyServerTests {
+
+    private NioProxyServer server;
+    private ExecutorService workers;
+    private final EchoDispatcher dispatcher = new EchoDispatcher();
+
+    @AfterEach
+    public void shutdown() {
+        if (server != null) {
+            server.shutdown();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+        dispatcher.release.countDown();
+    }
+
+    private Socket start(ExecutorService workers) throws IOException {
+        this.workers = workers;
+        server = new NioProxyServer(0, 1, workers, () -> dispatcher);
+        server.start();
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static Request request(long id, String sql) {
+        Request req = new Request();
+        req.setType(MessageType.EXEC_QUERY);
+        req.setRequestId(id);
+        req.setSql(sql);
+        return req;
+    }
+
+    /**
+     * 把多个请求帧拼成一次写出，服务端一次读取即可切出多帧
+     */
+    private static void writeAll(Socket socket, Request... requests) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (Request req : requests) {
+            FrameBuffer frame = FrameCodec.encodeFrame(MessageCodecs.JAVA, req);
+            bytes.write(frame.array(), 0, frame.size());
+        }
+        OutputStream out = socket.getOutputStream();
+        out.write(bytes.toByteArray());
+        out.flush();
+    }
+
+    private static Response read(DataInputStream in) throws IOException {
+        return (Response) FrameCodec.readFrame(in);
+    }
+
+    @Test
+    public void pipelinedRoundTrip() throws Exception {
+        try (Socket socket = start(Executors.newFixedThreadPool(2))) {
+            writeAll(socket, request(1, "select 1"), request(2, "select 2"), request(3, "select 3"));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            for (int i = 1; i <= 3; i++) {
+                Response resp = read(in);
+                assertEquals(i, resp.getRequestId());
+                assertEquals("select " + i, resp.getErrorMessage());
+            }
+        }
+    }
+
+    @Test
+    public void frameLargerThanReadBuffer() throws Exception {
+        try (Socket socket = start(Executors.newFixedThreadPool(2))) {
+            // 远大于初始 8KB 读缓冲，服务端需要扩容后继续读取
+            String big = "select '" + "x".repeat(200_000) + "'";
+            writeAll(socket, request(1, big), request(2, "select 2"));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            Response first = read(in);
+            assertEquals(1, first.getRequestId());
+            assertEquals(big, first.getErrorMessage());
+            Response second = read(in);
+            assertEquals(2, second.getRequestId());
+            assertEquals("select 2", second.getErrorMessage());
+        }
+    }
+
+    @Test
+    public void overloadedResponseCarriesRequestId() throws Exception {
+        ExecutorService rejecting = Executors.newSingleThreadExecutor();
+        rejecting.shutdown();
+        try (Socket socket = start(rejecting)) {
+            writeAll(socket, request(7, "select 7"), request(8, "select 8"));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            for (long id = 7; id <= 8; id++) {
+                Response resp = read(in);
+                assertEquals(MessageType.EXCEPTION, resp.getType());
+                assertEquals(id, resp.getRequestId());
+                assertEquals("08004", resp.getException().getSQLState());
+            }
+            assertEquals(0, dispatcher.handled.get());
+        }
+    }
+
+    @Test
+    public void disconnectMidRequestClosesDispatcherOnce() throws Exception {
+        Socket socket = start(Executors.newFixedThreadPool(2));
+        writeAll(socket, request(1, "block"), request(2, "select 2"));
+        assertTrue(dispatcher.entered.await(5, TimeUnit.SECONDS));
+        socket.close();
+        // 等事件循环读到 EOF 关闭连接；此时请求仍在执行，不能并发归还
+        Thread.sleep(200);
+        assertEquals(0, dispatcher.closes.get());
+
+        dispatcher.release.countDown();
+        assertTrue(dispatcher.closed.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(1, dispatcher.closes.get());
+        // 关闭后排队的请求不再执行
+        assertEquals(1, dispatcher.handled.get());
+    }
+
+    /**
+     * 不访问数据库的 RequestDispatcher：把 SQL 原样放在 errorMessage 中返回；SQL 为 block 时等待 release
+     */
+    private static final class EchoDispatcher extends RequestDispatcher {
+        final AtomicInteger handled = new AtomicInteger();
+        final AtomicInteger closes = new AtomicInteger();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        EchoDispatcher() {
+            super(false);
+        }
+
+        @Override
+        public Response handle(Request req) throws Exception {
+            handled.incrementAndGet();
+            if ("block".equals(req.getSql())) {
+                entered.countDown();
+                release.await();
+            }
+            Response resp = new Response();
+            resp.setType(req.getType());
+            resp.setRequestId(req.getRequestId());
+            resp.setErrorMessage(req.getSql());
+            return resp;
+        }
+
+        @Override
+        public void close() {
+            closes.incrementAndGet();
+            closed.countDown();
+            super.close();
+        }
+    }
+}
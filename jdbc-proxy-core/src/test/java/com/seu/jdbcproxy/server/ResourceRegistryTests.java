@@ -0,0 +1,216 @@
+package com.seu.jdbcproxy.server;
+
+import com.seu.jdbcproxy.pojo.MessageType;
+import com.seu.jdbcproxy.pojo.Request;
+import com.seu.jdbcproxy.pojo.Response;
+import com.seu.jdbcproxy.pool.BackendPool;
+import com.seu.jdbcproxy.pool.StatementCache;
+import com.seu.jdbcproxy.rewrite.EncryptionHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResourceRegistryTests {
+    private static final String URL = "jdbc:h2:mem:resource_registry;DB_CLOSE_DELAY=-1";
+
+    private final EncryptionHelper helper = new EncryptionHelper();
+    private Connection connection;
+
+    @BeforeEach
+    public void open() throws SQLException {
+        connection = DriverManager.getConnection(URL, "sa", "");
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        connection.close();
+        BackendPool.closeAll();
+    }
+
+    @Test
+    public void releasesStatementWithLastResultSet() throws SQLException {
+        ResourceRegistry registry = new ResourceRegistry();
+        StatementCache cache = new StatementCache(connection, helper, 4);
+        StatementCache.CachedStatement leased = cache.borrow("select 1", true);
+        long stmtHandle = registry.registerLeased(leased, cache);
+        long rsHandle = registry.registerResultSet(stmtHandle, leased.getStatement().executeQuery());
+        // 结果集打开期间语句仍被借出
+        assertNull(cache.borrow("select 1", true));
+
+        registry.closeResultSet(rsHandle);
+        assertEquals(0, registry.size());
+        assertNull(registry.resultSet(rsHandle));
+        StatementCache.CachedStatement again = cache.borrow("select 1", true);
+        assertSame(leased, again);
+        cache.release(again);
+
+        // 临时 prepare 的语句直接关闭
+        PreparedStatement stmt = connection.prepareStatement("select 2");
+        long tempHandle = registry.registerStatement(stmt);
+        ResultSet rs = stmt.executeQuery();
+        long tempRs = registry.registerResultSet(tempHandle, rs);
+        assertTrue(registry.hasOpenResultSets());
+        registry.closeResultSet(tempRs);
+        assertTrue(rs.isClosed());
+        assertTrue(stmt.isClosed());
+        assertFalse(registry.hasOpenResultSets());
+        assertEquals(0, registry.statementCount());
+    }
+
+    @Test
+    public void closeAllReleasesEverything() throws SQLException {
+        ResourceRegistry registry = new ResourceRegistry();
+        StatementCache cache = new StatementCache(connection, helper, 4);
+        StatementCache.CachedStatement leased = cache.borrow("select 1", true);
+        long leasedHandle = registry.registerLeased(leased, cache);
+        registry.registerResultSet(leasedHandle, leased.getStatement().executeQuery());
+        PreparedStatement stmt = connection.prepareStatement("select 2");
+        long stmtHandle = registry.registerStatement(stmt);
+        ResultSet rs = stmt.executeQuery();
+        registry.registerResultSet(stmtHandle, rs);
+        // 没有结果集的语句
+        PreparedStatement idle = connection.prepareStatement("select 3");
+        registry.registerStatement(idle);
+        assertEquals(5, registry.size());
+
+        registry.closeAll();
+        assertEquals(0, registry.size());
+        assertTrue(rs.isClosed());
+        assertTrue(stmt.isClosed());
+        assertTrue(idle.isClosed());
+        assertSame(leased, cache.borrow("select 1", true));
+    }
+
+    @Test
+    public void sessionCloseClosesResources() throws Exception {
+        ProxySession session = new ProxySession(UUID.randomUUID().toString(), URL, "sa", "", helper, false);
+        PreparedStatement stmt = session.bind().prepareStatement("select 1");
+        ResourceRegistry resources = session.getResources();
+        ResultSet rs = stmt.executeQuery();
+        resources.registerResultSet(resources.registerStatement(stmt), rs);
+
+        session.lock();
+        try {
+            session.close();
+        } finally {
+            session.unlock();
+        }
+        assertTrue(rs.isClosed());
+        assertTrue(stmt.isClosed());
+        assertEquals(0, resources.size());
+        assertFalse(session.isBound());
+    }
+
+    @Test
+    public void remembersOnlyRecentExhaustedResultSets() throws SQLException {
+        ResourceRegistry registry = new ResourceRegistry();
+        long[] handles = new long[65];
+        for (int i = 0; i < handles.length; i++) {
+            PreparedStatement stmt = connection.prepareStatement("select 1");
+            handles[i] = registry.registerResultSet(registry.registerStatement(stmt), stmt.executeQuery());
+            registry.closeExhausted(handles[i]);
+        }
+        assertEquals(0, registry.size());
+        assertFalse(registry.isExhausted(handles[0]));
+        for (int i = 1; i < handles.length; i++) {
+            assertTrue(registry.isExhausted(handles[i]));
+        }
+    }
+
+    @Test
+    public void lateFetchOfExhaustedResultSetReturnsEmptyBatch() throws Exception {
+        RequestDispatcher dispatcher = new RequestDispatcher(false);
+        String connId = openConn(dispatcher);
+        Response first = query(dispatcher, connId, "select 1");
+        assertFalse(first.isHasMoreRows());
+
+        // 客户端预取越过末尾：空批次而不是 "ResultSet not found"
+        Response late = fetch(dispatcher, connId, first.getResultSetId());
+        assertEquals(MessageType.FETCH_ROWS, late.getType());
+        assertTrue(late.getRows().isEmpty());
+        assertFalse(late.isHasMoreRows());
+
+        // 之后又有 64 个结果集读完，最早的句柄被挤出
+        for (int i = 0; i < 64; i++) {
+            query(dispatcher, connId, "select 1");
+        }
+        Response evicted = fetch(dispatcher, connId, first.getResultSetId());
+        assertEquals(MessageType.EXCEPTION, evicted.getType());
+        assertTrue(evicted.getErrorMessage().startsWith("ResultSet not found"));
+        dispatcher.close();
+    }
+
+    @Test
+    public void uncachedUpdateUsesSharedEncryptionHelper() throws Exception {
+        RequestDispatcher dispatcher = new RequestDispatcher(false);
+        String connId = openConn(dispatcher);
+        update(dispatcher, connId, "drop table if exists rr_items", null);
+        update(dispatcher, connId, "create table rr_items(name varchar(100))", null);
+        String sql = "insert into rr_items(name) values (?)";
+        // 同一 SQL 已被借出，EXEC_UPDATE 退回临时 prepare 的语句
+        StatementCache cache = dispatcher.session(connId).getPooled().getStatementCache();
+        StatementCache.CachedStatement held = cache.borrow(sql, false);
+        assertNotNull(held);
+        assertEquals(0, dispatcher.getEncryptionHelper().getCreatedContexts());
+
+        Response resp = update(dispatcher, connId, sql, Map.of(1, "alice"));
+        assertEquals(1, resp.getUpdateCount());
+        // 参数由会话共享的 EncryptionHelper 加密，而不是每个请求新建一个
+        assertEquals(1, dispatcher.getEncryptionHelper().getCreatedContexts());
+        cache.release(held);
+
+        try (ResultSet rs = connection.createStatement().executeQuery("select name from rr_items")) {
+            assertTrue(rs.next());
+            assertEquals(helper.encrypt("alice"), rs.getString(1));
+        }
+        assertEquals("alice", query(dispatcher, connId, "select name from rr_items").getRows().get(0).get(0));
+        dispatcher.close();
+    }
+
+    private static String openConn(RequestDispatcher dispatcher) throws Exception {
+        Request open = new Request();
+        open.setType(MessageType.OPEN_CONN);
+        open.setExtra(Map.of("realUrl", URL, "user", "sa", "pwd", ""));
+        return (String) dispatcher.handle(open).getRows().get(0).get(0);
+    }
+
+    private static Response query(RequestDispatcher dispatcher, String connId, String sql) throws Exception {
+        Request req = new Request();
+        req.setType(MessageType.EXEC_QUERY);
+        req.setConnId(connId);
+        req.setSql(sql);
+        Response resp = dispatcher.handle(req);
+        assertEquals(MessageType.EXEC_QUERY, resp.getType(), resp.getErrorMessage());
+        return resp;
+    }
+
+    private static Response fetch(RequestDispatcher dispatcher, String connId, String rsId) throws Exception {
+        Request req = new Request();
+        req.setType(MessageType.FETCH_ROWS);
+        req.setConnId(connId);
+        req.setResultSetId(rsId);
+        return dispatcher.handle(req);
+    }
+
+    private static Response update(RequestDispatcher dispatcher, String connId, String sql,
+                                   Map<Integer, Object> params) throws Exception {
+        Request req = new Request();
+        req.setType(MessageType.EXEC_UPDATE);
+        req.setConnId(connId);
+        req.setSql(sql);
+        req.setParams(params);
+        Response resp = dispatcher.handle(req);
+        assertNotEquals(MessageType.EXCEPTION, resp.getType(), resp.getErrorMessage());
+        return resp;
+    }
+}
@@ -0,0 +1,198 @@
+package com.seu.jdbcproxy.server;
+
+import com.seu.jdbcproxy.pojo.MessageType;
+import com.seu.jdbcproxy.pojo.Request;
+import com.seu.jdbcproxy.pojo.Response;
+import com.seu.jdbcproxy.pool.BackendPool;
+import com.seu.jdbcproxy.pool.ConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * pool.mode=transaction 下会话与后端连接的绑定 / 解绑
+ */
+public class TransactionPoolingTests {
+    private static final String URL = "jdbc:h2:mem:tx_pooling;DB_CLOSE_DELAY=-1";
+
+    private RequestDispatcher dispatcher;
+    private String connId;
+    private ProxySession session;
+
+    @BeforeEach
+    public void open() throws Exception {
+        dispatcher = new RequestDispatcher(true);
+        connId = openConn();
+        session = dispatcher.session(connId);
+        assertOk(request(MessageType.EXEC_UPDATE, "drop table if exists tx_items"));
+        assertOk(request(MessageType.EXEC_UPDATE, "create table tx_items(id int primary key)"));
+    }
+
+    @AfterEach
+    public void close() {
+        dispatcher.close();
+        BackendPool.closeAll();
+    }
+
+    private String openConn() throws Exception {
+        Request open = new Request();
+        open.setType(MessageType.OPEN_CONN);
+        open.setExtra(Map.of("realUrl", URL, "user", "sa", "pwd", ""));
+        return (String) dispatcher.handle(open).getRows().get(0).get(0);
+    }
+
+    private Response request(MessageType type, String sql) throws Exception {
+        Request req = new Request();
+        req.setType(type);
+        req.setConnId(connId);
+        req.setSql(sql);
+        return dispatcher.handle(req);
+    }
+
+    private Response setAutoCommit(boolean autoCommit) throws Exception {
+        Request req = new Request();
+        req.setType(MessageType.SET_AUTOCOMMIT);
+        req.setConnId(connId);
+        req.setExtra(Map.of(Request.AUTO_COMMIT_KEY, autoCommit));
+        return dispatcher.handle(req);
+    }
+
+    private static Response assertOk(Response resp) {
+        assertNotEquals(MessageType.EXCEPTION, resp.getType(), resp.getErrorMessage());
+        return resp;
+    }
+
+    /**
+     * 用另一个会话读取已提交的行数
+     */
+    private long committedRows() throws Exception {
+        Request req = new Request();
+        req.setType(MessageType.EXEC_QUERY);
+        req.setConnId(openConn());
+        req.setSql("select count(*) from tx_items");
+        Response resp = assertOk(dispatcher.handle(req));
+        return ((Number) resp.getRows().get(0).get(0)).longValue();
+    }
+
+    @Test
+    public void unbindsAfterAutoCommitStatement() throws Exception {
+        // OPEN_CONN 只借一条连接校验地址，随即归还
+        assertFalse(session.isBound());
+        assertEquals(1, assertOk(request(MessageType.EXEC_UPDATE, "insert into tx_items values (1)")).getUpdateCount());
+        assertFalse(session.isBound());
+        // 读完的查询结果集即关闭，同样归还
+        Response query = assertOk(request(MessageType.EXEC_QUERY, "select id from tx_items"));
+        assertFalse(query.isHasMoreRows());
+        assertFalse(session.isBound());
+    }
+
+    @Test
+    public void staysBoundUntilCommit() throws Exception {
+        assertOk(setAutoCommit(false));
+        // 事务中还没有执行语句，不借连接
+        assertFalse(session.isBound());
+        assertOk(request(MessageType.EXEC_UPDATE, "insert into tx_items values (1)"));
+        assertTrue(session.isBound());
+        ConnectionPool pool = session.getPooled().getPool();
+        assertOk(request(MessageType.EXEC_UPDATE, "insert into tx_items values (2)"));
+        assertTrue(session.isBound());
+        assertEquals(0, committedRows());
+
+        assertOk(request(MessageType.COMMIT, null));
+        assertFalse(session.isBound());
+        assertEquals(2, committedRows());
+        // 归还的连接已恢复 autoCommit，会话仍保持 autoCommit=false
+        assertEquals(0, pool.getActive());
+        assertFalse(session.isAutoCommit());
+        assertOk(request(MessageType.EXEC_UPDATE, "insert into tx_items values (3)"));
+        assertTrue(session.isBound());
+        assertOk(request(MessageType.ROLLBACK, null));
+        assertFalse(session.isBound());
+        assertEquals(2, committedRows());
+    }
+
+    @Test
+    public void staysBoundUntilRollback() throws Exception {
+        assertOk(setAutoCommit(false));
+        assertOk(request(MessageType.EXEC_UPDATE, "insert into tx_items values (1)"));
+        assertTrue(session.isBound());
+        assertOk(request(MessageType.ROLLBACK, null));
+        assertFalse(session.isBound());
+        assertEquals(0, committedRows());
+
+        // 事务中切回 autoCommit 即提交
+        assertOk(request(MessageType.EXEC_UPDATE, "insert into tx_items values (2)"));
+        assertOk(setAutoCommit(true));
+        assertFalse(session.isBound());
+        assertEquals(1, committedRows());
+    }
+
+    @Test
+    public void staysBoundWhileResultSetOpen() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            assertOk(request(MessageType.EXEC_UPDATE, "insert into tx_items values (" + i + ")"));
+        }
+        Request query = new Request();
+        query.setType(MessageType.EXEC_QUERY);
+        query.setConnId(connId);
+        query.setSql("select id from tx_items order by id");
+        query.setFetchSize(2);
+        Response first = assertOk(dispatcher.handle(query));
+        assertTrue(first.isHasMoreRows());
+        assertTrue(session.isBound());
+
+        Request fetch = new Request();
+        fetch.setType(MessageType.FETCH_ROWS);
+        fetch.setConnId(connId);
+        fetch.setResultSetId(first.getResultSetId());
+        fetch.setFetchSize(2);
+        Response rest = assertOk(dispatcher.handle(fetch));
+        assertEquals(1, rest.getRows().size());
+        assertFalse(rest.isHasMoreRows());
+        assertFalse(session.isBound());
+
+        // 客户端提前关闭结果集同样归还
+        Response again = assertOk(dispatcher.handle(query));
+        assertTrue(session.isBound());
+        Request closeRs = new Request();
+        closeRs.setType(MessageType.CLOSE_RESULT_SET);
+        closeRs.setConnId(connId);
+        closeRs.setResultSetId(again.getResultSetId());
+        assertOk(dispatcher.handle(closeRs));
+        assertFalse(session.isBound());
+    }
+
+    @Test
+    public void releasesOnCloseConn() throws Exception {
+        assertOk(setAutoCommit(false));
+        assertOk(request(MessageType.EXEC_UPDATE, "insert into tx_items values (1)"));
+        ConnectionPool pool = session.getPooled().getPool();
+        assertEquals(1, pool.getActive());
+
+        assertOk(request(MessageType.CLOSE_CONN, null));
+        assertNull(dispatcher.session(connId));
+        assertTrue(session.isClosed());
+        assertEquals(0, pool.getActive());
+        // 未提交的事务随连接归还被回滚
+        assertEquals(0, committedRows());
+    }
+
+    @Test
+    public void releasesOnExpiry() throws Exception {
+        assertOk(setAutoCommit(false));
+        assertOk(request(MessageType.EXEC_UPDATE, "insert into tx_items values (1)"));
+        ConnectionPool pool = session.getPooled().getPool();
+
+        IdleReaper reaper = new IdleReaper(1000, 500, 10, 8);
+        assertEquals(Long.MIN_VALUE, reaper.check(session, session.lastActivity() + 1_000_000_000L));
+        assertTrue(session.isExpired());
+        assertFalse(session.isBound());
+        assertEquals(0, pool.getActive());
+        assertNull(dispatcher.session(connId));
+        assertEquals(0, committedRows());
+    }
+}
@@ -0,0 +1,108 @@
+package com.seu.jdbcproxy.tester;
+
+import com.seu.jdbcproxy.pojo.RowBatch;
+
+import java.util.List;
+
+/**
+ * 自适应 FETCH_ROWS 行数：每个批次按字节预算折算成行数，窄行一次多取、宽行（大文本 / LOB）少取。
+ * <p>
+ * 字节预算按「带宽 × 最小往返时延」调整：批次往返时间接近最小往返时延（固定延迟占主导）时预算放大，
+ * 传输时间占主导时收缩，稳定后固定延迟约占每个批次耗时的四分之一。预算限制在 [MIN_BYTES, maxBytes] 内。
+ * 行宽按批次内容估算，与线路编码无关。只由所属结果集在应用线程上访问。
+ */
+final class AdaptiveFetchSize {
+    static final int MIN_ROWS = 16;
+    static final int MAX_ROWS = 65536;
+    static final int MIN_BYTES = 8 * 1024;
+    // 预算取「带宽时延积」的倍数：固定延迟 m、传输时间 t 时收敛到 t = (GAIN - 1) * m
+    private static final int GAIN = 4;
+
+    private final int maxBytes;
+    private int budget;
+    // 平均行宽（字节），尚无样本时为 0
+    private double rowBytes;
+    private long minRttNanos = Long.MAX_VALUE;
+
+    AdaptiveFetchSize(int maxBytes) {
+        this.maxBytes = Math.max(MIN_BYTES, maxBytes);
+        this.budget = Math.min(this.maxBytes, 64 * 1024);
+    }
+
+    /**
+     * 下一个 FETCH_ROWS 请求的行数
+     */
+    int rows() {
+        if (rowBytes <= 0) {
+            return ProxyResultSet.DEFAULT_FETCH_SIZE;
+        }
+        return (int) Math.max(MIN_ROWS, Math.min(MAX_ROWS, budget / rowBytes));
+    }
+
+    int budget() {
+        return budget;
+    }
+
+    /**
+     * 记录一个批次：rows 行、估算 bytes 字节；rttNanos 为该请求的往返耗时，无法测量时（首个批次含查询执行时间、
+     * 流水线预取时含排队时间）传 -1，只更新行宽
+     */
+    void observe(int rows, long bytes, long rttNanos) {
+        if (rows <= 0) {
+            return;
+        }
+        double width = Math.max(1, (double) bytes / rows);
+        rowBytes = rowBytes <= 0 ? width : (rowBytes + width) / 2;
+        if (rttNanos <= 0) {
+            return;
+        }
+        minRttNanos = Math.min(minRttNanos, rttNanos);
+        // 新预算 = GAIN × 本批字节 × 最小时延 / 本批耗时，即 GAIN 倍的带宽时延积
+        double next = GAIN * (double) bytes * minRttNanos / rttNanos;
+        budget = (int) Math.max(MIN_BYTES, Math.min(maxBytes, next));
+    }
+
+    /**
+     * 估算列式批次的字节数：定长列每值 8 字节，字符串列按 UTF-8 字节数加长度前缀
+     */
+    static long estimateBytes(RowBatch batch) {
+        long bytes = 0;
+        int rows = batch.getRowCount();
+        for (int c = 0; c < batch.getColumnCount(); c++) {
+            byte type = batch.getType(c);
+            if (type == RowBatch.TYPE_STRING) {
+                bytes += batch.stringOffsets(c)[rows] + 4L * rows;
+            } else if (RowBatch.isLongType(type) || RowBatch.isDoubleType(type)) {
+                bytes += 8L * rows;
+            } else {
+                for (Object v : batch.objectColumn(c)) {
+                    bytes += estimateBytes(v);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    static long estimateBytes(List<List<Object>> rows) {
+        long bytes = 0;
+        for (List<Object> row : rows) {
+            for (Object v : row) {
+                bytes += estimateBytes(v);
+            }
+        }
+        return bytes;
+    }
+
+    private static long estimateBytes(Object v) {
+        if (v == null) {
+            return 1;
+        }
+        if (v instanceof String s) {
+            return s.length() + 4L;
+        }
+        if (v instanceof byte[] b) {
+            return b.length + 4L;
+        }
+        return v instanceof Number || v instanceof Boolean ? 8 : 16;
+    }
+}
@@ -0,0 +1,153 @@
+package com.seu.jdbcproxy.tester;
+
+import com.seu.jdbcproxy.pojo.MessageType;
+import com.seu.jdbcproxy.pojo.Request;
+import com.seu.jdbcproxy.pojo.Response;
+import com.seu.jdbcproxy.protocol.MessageCodecs;
+import com.seu.jdbcproxy.server.ProxyServer;
+
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 简单的并发压测：在进程内启动 ProxyServer，用 N 个长连接客户端反复发送请求，
+ * 统计吞吐、p50 / p99 延迟以及服务端进程的线程数，用于对比 blocking / nio 与 platform / virtual 组合。
+ * <p>
+ * 用法（系统属性）：
+ * <pre>
+ * -Dmode=blocking|nio -Dexecutor=platform|virtual -Dclients=1000 -Dseconds=10 -Dcodec=binary|java
+ * -DrealUrl=jdbc:mysql://... -Duser=root -Dpassword=... -Dsql="select 1"   不指定 realUrl 时只发送 PING
+ * -Dpipeline=8   PING 模式下每个客户端一次流水线发送的请求数（默认 1，即逐个往返）
+ * </pre>
+ */
+public class LoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String mode = System.getProperty("mode", ProxyServer.MODE_BLOCKING);
+        String executor = System.getProperty("executor", ProxyServer.EXECUTOR_PLATFORM);
+        int clients = Integer.getInteger("clients", 200);
+        int seconds = Integer.getInteger("seconds", 10);
+        String realUrl = System.getProperty("realUrl");
+        String user = System.getProperty("user", "");
+        String password = System.getProperty("password", "");
+        String sql = System.getProperty("sql", "select 1");
+        String codec = System.getProperty("codec", MessageCodecs.BINARY.name());
+        int pipeline = Math.max(1, Integer.getInteger("pipeline", 1));
+
+        ProxyServer server = new ProxyServer(0, mode, executor);
+        server.start();
+        int port = server.getLocalPort();
+
+        if (realUrl != null) {
+            DriverManager.registerDriver(new ProxyDriver());
+        }
+        List<Connection> jdbcConns = new ArrayList<>();
+        List<ProxyChannel> pingChannels = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            if (realUrl != null) {
+                String url = "jdbc:proxy://127.0.0.1:" + port + "?realUrl=" + realUrl + "&codecs=" + codec;
+                jdbcConns.add(DriverManager.getConnection(url, user, password));
+            } else {
+                ProxyChannel channel = new ProxyChannel(new Socket("127.0.0.1", port));
+                channel.setCodec(MessageCodecs.byName(codec));
+                pingChannels.add(channel);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong errors = new AtomicLong();
+        long[][] samples = new long[clients][];
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int i = 0; i < clients; i++) {
+            final int idx = i;
+            Thread t = new Thread(() -> {
+                LongList lat = new LongList();
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long begin = System.nanoTime();
+                        if (realUrl != null) {
+                            try (PreparedStatement ps = jdbcConns.get(idx).prepareStatement(sql);
+                                 ResultSet rs = ps.executeQuery()) {
+                                while (rs.next()) {
+                                    // 读完结果集
+                                }
+                            }
+                        } else {
+                            // 先连续发出 pipeline 个请求再依次等待响应
+                            ProxyChannel channel = pingChannels.get(idx);
+                            List<CompletableFuture<Response>> calls = new ArrayList<>(pipeline);
+                            for (int p = 0; p < pipeline; p++) {
+                                Request req = new Request();
+                                req.setType(MessageType.PING);
+                                calls.add(channel.send(req));
+                            }
+                            for (CompletableFuture<Response> call : calls) {
+                                if (ProxyChannel.await(call).getType() == MessageType.EXCEPTION) {
+                                    errors.incrementAndGet();
+                                }
+                                lat.add(System.nanoTime() - begin);
+                            }
+                            continue;
+                        }
+                        lat.add(System.nanoTime() - begin);
+                    }
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                } finally {
+                    samples[idx] = lat.toArray();
+                    done.countDown();
+                }
+            }, "bench-client-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        done.await();
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        long[] all = Arrays.stream(samples).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("mode=%s executor=%s codec=%s clients=%d seconds=%d pipeline=%d%n",
+                mode, executor, codec, clients, seconds, pipeline);
+        System.out.printf("requests=%d errors=%d throughput=%.1f req/s%n",
+                all.length, errors.get(), all.length / (double) seconds);
+        if (all.length > 0) {
+            System.out.printf("p50=%.3f ms p99=%.3f ms%n",
+                    all[(int) (all.length * 0.50)] / 1e6, all[(int) (all.length * 0.99)] / 1e6);
+        }
+        System.out.printf("live threads (clients included)=%d%n", threads);
+
+        for (Connection c : jdbcConns) {
+            c.close();
+        }
+        for (ProxyChannel c : pingChannels) {
+            c.close();
+        }
+        server.shutdown();
+    }
+
+    private static final class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long v) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = v;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.seu.jdbcproxy.tester;
+
+import com.seu.jdbcproxy.pojo.Request;
+import com.seu.jdbcproxy.pojo.Response;
+import com.seu.jdbcproxy.protocol.FrameCodec;
+import com.seu.jdbcproxy.protocol.MessageCodec;
+import com.seu.jdbcproxy.protocol.MessageCodecs;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 客户端到 ProxyServer 的一条 socket 通道，按长度前缀帧收发 Request / Response。
+ * 同一个 ProxyConnection 下的 Statement、ResultSet 共享该通道。
+ * <p>
+ * 请求可以流水线发送：{@link #send} 为每个请求分配 requestId 并立即返回 Future，
+ * 后台读线程按响应中带回的 requestId 完成对应的 Future；响应不带 requestId（旧服务端）时按发送顺序匹配。
+ * 服务端对同一 socket 上的请求按到达顺序处理。
+ * writeLock 保证 requestId 分配、登记在途请求与写出帧三者原子完成，帧在 socket 上的顺序与 requestId 一致。
+ */
+public class ProxyChannel implements Closeable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // 已发送未收到响应的请求，按 requestId（即发送顺序）排序
+    private final ConcurrentSkipListMap<Long, CompletableFuture<Response>> inFlight = new ConcurrentSkipListMap<>();
+    private long nextRequestId = 1;
+    private Thread reader;
+    private volatile IOException failure;
+    // OPEN_CONN 之前总是 Java 序列化，协商后切换
+    private volatile MessageCodec codec = MessageCodecs.JAVA;
+
+    public ProxyChannel(Socket socket) throws IOException {
+        this.socket = socket;
+        this.socket.setTcpNoDelay(true);
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    /**
+     * 发送一个请求并等待其响应
+     */
+    public Response roundTrip(Request req) throws IOException {
+        return await(send(req));
+    }
+
+    /**
+     * 发送一个请求，不等待响应；返回的 Future 在收到对应响应或通道断开时完成
+     */
+    public CompletableFuture<Response> send(Request req) throws IOException {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        writeLock.lock();
+        try {
+            checkOpen();
+            if (reader == null) {
+                reader = new Thread(this::readLoop, "proxy-channel-reader-" + socket.getLocalPort());
+                reader.setDaemon(true);
+                reader.start();
+            }
+            long id = nextRequestId++;
+            req.setRequestId(id);
+            inFlight.put(id, future);
+            try {
+                FrameCodec.writeFrame(out, codec, req);
+            } catch (IOException e) {
+                inFlight.remove(id);
+                fail(e);
+                throw e;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return future;
+    }
+
+    /**
+     * 等待 {@link #send} 返回的 Future，把失败原因还原为 IOException
+     */
+    public static Response await(CompletableFuture<Response> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for proxy response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 已发送但尚未收到响应的请求数
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public MessageCodec getCodec() {
+        return codec;
+    }
+
+    public void setCodec(MessageCodec codec) {
+        this.codec = codec;
+    }
+
+    private void readLoop() {
+        try {
+            while (true) {
+                Response resp = (Response) FrameCodec.readFrame(in);
+                Map.Entry<Long, CompletableFuture<Response>> call;
+                if (resp.getRequestId() == 0) {
+                    call = inFlight.pollFirstEntry();
+                } else {
+                    CompletableFuture<Response> f = inFlight.remove(resp.getRequestId());
+                    call = f == null ? null : Map.entry(resp.getRequestId(), f);
+                }
+                if (call == null) {
+                    throw new IOException("Unexpected response for request " + resp.getRequestId());
+                }
+                call.getValue().complete(resp);
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (RuntimeException e) {
+            fail(new IOException(e));
+        }
+    }
+
+    /**
+     * 通道不可再用：记录原因并让所有等待中的请求失败
+     */
+    private void fail(IOException cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+        Map.Entry<Long, CompletableFuture<Response>> call;
+        while ((call = inFlight.pollFirstEntry()) != null) {
+            call.getValue().completeExceptionally(failure);
+        }
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (failure != null) {
+            throw new IOException("Proxy channel is closed", failure);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        fail(new IOException("Proxy channel closed"));
+    }
+}
@@ -8,9 +8,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
 import java.sql.*;
 import java.util.Map;
 import java.util.Properties;
@@ -19,9 +16,7 @@ import java.util.concurrent.Executor;
 
 public class ProxyConnection implements Connection {
 
-    private final Socket socket;
-    private final ObjectInputStream in;
-    private final ObjectOutputStream out;
+    private final ProxyChannel channel;
     private final String connId;
 
 
@@ -32,21 +27,71 @@ public class ProxyConnection implements Connection {
     private boolean readOnly   = false;
     private String  catalog;
     private int transactionIsolation = Connection.TRANSACTION_READ_COMMITTED;
+    private int prefetchDepth = 0;   // 结果集预取深度，见 ProxyResultSet
+    private boolean adaptiveFetch = false;  // 未设置 fetchSize 的结果集按字节预算自适应批次行数
+    private int fetchBytes = DEFAULT_FETCH_BYTES;
+    static final int DEFAULT_FETCH_BYTES = 1024 * 1024;
     private static final Logger logger = LoggerFactory.getLogger(com.seu.jdbcproxy.core.ProxyConnection.class);
 
     /* ------------------------------------------------------------
      * Constructor
      * ------------------------------------------------------------ */
-    public ProxyConnection(Socket socket,
-                              ObjectInputStream in,
-                              ObjectOutputStream out,
+    public ProxyConnection(ProxyChannel channel,
                               String connId) {
-        this.socket = socket;
-        this.in = in;
-        this.out = out;
+        this.channel = channel;
         this.connId = connId;
     }
 
+    /**
+     * 结果集在应用读取当前批次时最多保持多少个 FETCH_ROWS 在途，0 表示读完当前批次再取下一批
+     */
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    public void setPrefetchDepth(int prefetchDepth) {
+        if (prefetchDepth < 0) {
+            throw new IllegalArgumentException("prefetchDepth must be >= 0: " + prefetchDepth);
+        }
+        this.prefetchDepth = prefetchDepth;
+    }
+
+    /**
+     * 未设置 fetchSize 的结果集是否由 {@link AdaptiveFetchSize} 按字节预算与往返时延决定每批行数
+     */
+    public boolean isAdaptiveFetch() {
+        return adaptiveFetch;
+    }
+
+    public void setAdaptiveFetch(boolean adaptiveFetch) {
+        this.adaptiveFetch = adaptiveFetch;
+    }
+
+    /**
+     * 自适应模式下单个批次的字节预算上限
+     */
+    public int getFetchBytes() {
+        return fetchBytes;
+    }
+
+    public void setFetchBytes(int fetchBytes) {
+        if (fetchBytes <= 0) {
+            throw new IllegalArgumentException("fetchBytes must be > 0: " + fetchBytes);
+        }
+        this.fetchBytes = fetchBytes;
+    }
+
+    /**
+     * 读取服务端指标（各请求类型分阶段的延迟分位数、行数 / 字节数 / 加解密次数），Prometheus 文本格式
+     */
+    public String getServerStats() throws SQLException {
+        ensureOpen();
+        Request q = new Request();
+        q.setType(MessageType.STATS);
+        q.getExtra().put(Request.STATS_FORMAT_KEY, Request.STATS_FORMAT_PROMETHEUS);
+        return (String) send(q).getRows().get(0).get(0);
+    }
+
     /* ------------------------------------------------------------
      * Internal helpers
      * ------------------------------------------------------------ */
@@ -57,16 +102,14 @@ public class ProxyConnection implements Connection {
     private Response send(Request req) throws SQLException {
         try {
             req.setConnId(connId);
-            out.writeObject(req);
-            out.flush();
-            Response resp = (Response) in.readObject();
+            Response resp = channel.roundTrip(req);
 
             if (resp.getType() == MessageType.EXCEPTION) {
                 SQLException e = resp.getException();
                 throw (e != null ? e : new SQLException("Unknown server error"));
             }
             return resp;
-        } catch (IOException | ClassNotFoundException ex) {
+        } catch (IOException ex) {
             throw new SQLException("I/O error communicating with proxy", ex);
         }
     }
@@ -81,13 +124,13 @@ public class ProxyConnection implements Connection {
     @Override
     public Statement createStatement() throws SQLException {
         ensureOpen();
-        return new ProxyStatement(in, out, connId, this);
+        return new ProxyStatement(channel, connId, this);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql) throws SQLException {
         ensureOpen();
-        return new ProxyPreparedStatement(in, out, connId, sql, this);
+        return new ProxyPreparedStatement(channel, connId, sql, this);
     }
 
     /* ------------------------------------------------------------
@@ -106,14 +149,36 @@ public class ProxyConnection implements Connection {
     @Override
     public void setAutoCommit(boolean autoCommit) throws SQLException {
         ensureOpen();
+        if (this.autoCommit == autoCommit) return;
+        Request q = new Request();
+        q.setType(MessageType.SET_AUTOCOMMIT);
+        q.getExtra().put(Request.AUTO_COMMIT_KEY, autoCommit);
+        send(q);
         this.autoCommit = autoCommit;
-        // 如需服务端事务，发送 SET_AUTOCOMMIT 指令
     }
 
     @Override public boolean getAutoCommit() { return autoCommit; }
 
-    @Override public void commit()   throws SQLException { throw notSupported(); }
-    @Override public void rollback() throws SQLException { throw notSupported(); }
+    @Override
+    public void commit() throws SQLException {
+        endTransaction(MessageType.COMMIT);
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        endTransaction(MessageType.ROLLBACK);
+    }
+
+    private void endTransaction(MessageType type) throws SQLException {
+        ensureOpen();
+        if (autoCommit) {
+            throw new SQLException("Cannot " + type.name().toLowerCase() + " when autoCommit is enabled", "25000");
+        }
+        Request q = new Request();
+        q.setType(type);
+        send(q);
+    }
+
     @Override public void rollback(Savepoint sp) throws SQLException { throw notSupported(); }
 
     /* ------------------------------------------------------------
@@ -127,7 +192,7 @@ public class ProxyConnection implements Connection {
         q.setType(MessageType.CLOSE_CONN);
         send(q);
 
-        try { socket.close(); } catch (IOException ignored) {}
+        try { channel.close(); } catch (IOException ignored) {}
         closed = true;
         logger.info("Proxy connection " + connId + " closed.");
     }
@@ -169,14 +234,24 @@ public class ProxyConnection implements Connection {
     /* ------------------------------------------------------------
      * createStatement / prepareStatement overloads — 直接复用最简实现或抛 unsupported
      * ------------------------------------------------------------ */
-    @Override public Statement createStatement(int a, int b) throws SQLException { return createStatement(); }
-    @Override public Statement createStatement(int a, int b, int c) throws SQLException { return createStatement(); }
+    @Override public Statement createStatement(int type, int concurrency) throws SQLException {
+        ensureOpen();
+        return new ProxyStatement(channel, connId, this, type, concurrency);
+    }
+    @Override public Statement createStatement(int type, int concurrency, int holdability) throws SQLException {
+        return createStatement(type, concurrency);
+    }
 
     @Override public PreparedStatement prepareStatement(String sql, int autoGenKeys) throws SQLException { return prepareStatement(sql); }
     @Override public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException { return prepareStatement(sql); }
     @Override public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException { return prepareStatement(sql); }
-    @Override public PreparedStatement prepareStatement(String sql, int a, int b) throws SQLException { return prepareStatement(sql); }
-    @Override public PreparedStatement prepareStatement(String sql, int a, int b, int c) throws SQLException { return prepareStatement(sql); }
+    @Override public PreparedStatement prepareStatement(String sql, int type, int concurrency) throws SQLException {
+        ensureOpen();
+        return new ProxyPreparedStatement(channel, connId, sql, this, type, concurrency);
+    }
+    @Override public PreparedStatement prepareStatement(String sql, int type, int concurrency, int holdability) throws SQLException {
+        return prepareStatement(sql, type, concurrency);
+    }
 
     /* ------------------------------------------------------------
      * ClientInfo / Networking
@@ -4,10 +4,11 @@ package com.seu.jdbcproxy.tester;
 import com.seu.jdbcproxy.pojo.MessageType;
 import com.seu.jdbcproxy.pojo.Request;
 import com.seu.jdbcproxy.pojo.Response;
+import com.seu.jdbcproxy.pojo.RowBatch;
+import com.seu.jdbcproxy.protocol.MessageCodec;
+import com.seu.jdbcproxy.protocol.MessageCodecs;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.Socket;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -71,8 +72,7 @@ public class ProxyDriver implements Driver {
 
             // 3) 建立 TCP 连接
             Socket socket = new Socket(host, port);
-            ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
-            ObjectInputStream  in  = new ObjectInputStream(socket.getInputStream());
+            ProxyChannel channel = new ProxyChannel(socket);
 
             // 4) 发送 OPEN_CONN
             Request open = new Request();
@@ -81,21 +81,33 @@ public class ProxyDriver implements Driver {
             extra.put("realUrl", realUrl);
             extra.put("user",    user);
             extra.put("pwd",     password);
+            // 可通过 URL 参数 codecs=java 强制使用 Java 序列化
+            extra.put(MessageCodecs.EXTRA_KEY, qs.getOrDefault("codecs", MessageCodecs.DEFAULT_PREFERENCE));
+            // 结果集使用列式批次传输，URL 参数 columnar=false 时退回行列表
+            extra.put(RowBatch.EXTRA_KEY, Boolean.valueOf(qs.getOrDefault("columnar", "true")));
             open.setExtra(extra);
 
-            out.writeObject(open);
-            out.flush();
-
             // 5) 读取返回
-            Response resp = (Response) in.readObject();
+            Response resp = channel.roundTrip(open);
             if (resp.getType() == MessageType.EXCEPTION) {
+                channel.close();
                 throw wrap(resp.getException());
             }
             String connId = (String) resp.getRows().get(0).get(0);
+            MessageCodec codec = MessageCodecs.byName(resp.getCodec());
+            if (codec != null) {
+                channel.setCodec(codec);
+            }
 
-            // 6) 返回 Connection 的代理实现
-            return new ProxyConnection(socket, in, out, connId);
-        } catch (IOException | ClassNotFoundException ex) {
+            // 6) 返回 Connection 的代理实现；URL 参数 prefetch=N 开启结果集预取，
+            //    adaptiveFetch=true 开启自适应批次行数，fetchBytes 为单批字节预算上限
+            ProxyConnection conn = new ProxyConnection(channel, connId);
+            conn.setPrefetchDepth(Integer.parseInt(qs.getOrDefault("prefetch", "0")));
+            conn.setAdaptiveFetch(Boolean.parseBoolean(qs.getOrDefault("adaptiveFetch", "false")));
+            conn.setFetchBytes(Integer.parseInt(qs.getOrDefault("fetchBytes",
+                    String.valueOf(ProxyConnection.DEFAULT_FETCH_BYTES))));
+            return conn;
+        } catch (IOException ex) {
             throw new SQLException("Failed to create proxy connection", ex);
         }
     }
@@ -14,34 +14,51 @@ import java.net.URL;
 import java.sql.*;
 import java.sql.Date;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 public class ProxyPreparedStatement implements PreparedStatement {
 
-    private final ObjectInputStream in;
-    private final ObjectOutputStream out;
+    private final ProxyChannel channel;
     private final String connId;
     private final String sql;
     private final ProxyConnection parentConn;
 
     private final Map<Integer, Object> params = new HashMap<>();
+    // addBatch 累积的参数组，executeBatch 时以 EXEC_BATCH 发送
+    private final List<Map<Integer, Object>> batch = new ArrayList<>();
     //private final List<Object> params = new ArrayList<>();
     private boolean closed = false;
     private ProxyResultSet currentRs;
     private int updateCount = -1;
+    private int fetchSize = 0;   // 0 表示未设置，由结果集决定批次行数
+    // 客户端要求的结果集类型与并发模式，随 EXEC_QUERY 发给服务端；默认只进只读，服务端可流式读取
+    private final int resultSetType;
+    private final int resultSetConcurrency;
 
     private static final Logger LOG = Logger.getLogger("ProxyPreparedStatement");
+    /** 单个 EXEC_BATCH 消息最多携带的参数组数，更大的批次拆成多条流水线发送 */
+    static final int BATCH_CHUNK_ROWS = 1000;
 
-    public ProxyPreparedStatement(ObjectInputStream in,
-                                  ObjectOutputStream out,
+    public ProxyPreparedStatement(ProxyChannel channel,
                                   String connId,
                                   String sql,
                                   ProxyConnection parentConn) {
-        this.in = in;
-        this.out = out;
+        this(channel, connId, sql, parentConn, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+
+    public ProxyPreparedStatement(ProxyChannel channel,
+                                  String connId,
+                                  String sql,
+                                  ProxyConnection parentConn,
+                                  int resultSetType,
+                                  int resultSetConcurrency) {
+        this.channel = channel;
         this.connId = connId;
         this.sql = sql;
         this.parentConn = parentConn;
+        this.resultSetType = resultSetType;
+        this.resultSetConcurrency = resultSetConcurrency;
     }
 
     /* ------------------------------------------------------------
@@ -58,22 +75,34 @@ public class ProxyPreparedStatement implements PreparedStatement {
             req.setConnId(connId);
             req.setSql(sql);
             req.setParams(new HashMap<>(params));// 拷贝，防止并发修改
+            req.setFetchSize(fetchSize);
+            if (type == MessageType.EXEC_QUERY) {
+                putResultSetMode(req, resultSetType, resultSetConcurrency);
+            }
 
-
-            out.writeObject(req);
-            out.flush();
-
-            Response resp = (Response) in.readObject();
+            Response resp = channel.roundTrip(req);
             if (resp.getType() == MessageType.EXCEPTION) {
                 SQLException e = resp.getException();
                 throw (e != null ? e : new SQLException("Unknown error from proxy server"));
             }
             return resp;
-        } catch (IOException | ClassNotFoundException ex) {
+        } catch (IOException ex) {
             throw new SQLException("I/O error communicating with proxy", ex);
         }
     }
 
+    /**
+     * 非默认（只进只读）的结果集类型与并发模式写入请求 extra，默认值不发送
+     */
+    static void putResultSetMode(Request req, int resultSetType, int resultSetConcurrency) {
+        if (resultSetType != ResultSet.TYPE_FORWARD_ONLY) {
+            req.getExtra().put(Request.RESULT_SET_TYPE_KEY, resultSetType);
+        }
+        if (resultSetConcurrency != ResultSet.CONCUR_READ_ONLY) {
+            req.getExtra().put(Request.RESULT_SET_CONCURRENCY_KEY, resultSetConcurrency);
+        }
+    }
+
     private static SQLFeatureNotSupportedException notSupported() {
         return new SQLFeatureNotSupportedException("Not supported by proxy driver.");
     }
@@ -173,15 +202,9 @@ public class ProxyPreparedStatement implements PreparedStatement {
     public ResultSet executeQuery() throws SQLException {
         ensureOpen();
         Response resp = send(MessageType.EXEC_QUERY);
-        Request req = new Request();
-        req.setType(MessageType.EXEC_QUERY);
-        req.setFetchSize(this.getFetchSize());
 
         this.updateCount = -1;
-        this.currentRs = new ProxyResultSet(
-                in, out, connId,
-                resp.getRows(), resp.isHasMoreRows(),
-                parentConn,resp.getColumnNames());
+        this.currentRs = new ProxyResultSet(channel, connId, resp, parentConn, fetchSize, resultSetType, resultSetConcurrency);
 
         //boolean enableExtraQuery = ConfigLoader.get("extra.enabled","false").equalsIgnoreCase("true");
 
@@ -204,11 +227,8 @@ public class ProxyPreparedStatement implements PreparedStatement {
         // 先发 EXEC_QUERY，若服务器返回 updateCount>=0 则视为 DML
         Response resp = send(MessageType.EXEC_QUERY);
 
-        if (resp.getRows() != null && !resp.getRows().isEmpty()) {
-            this.currentRs = new ProxyResultSet(
-                    in, out, connId,
-                    resp.getRows(), resp.isHasMoreRows(),
-                    parentConn,resp.getColumnNames());
+        if (ProxyResultSet.hasRows(resp)) {
+            this.currentRs = new ProxyResultSet(channel, connId, resp, parentConn, fetchSize, resultSetType, resultSetConcurrency);
             this.updateCount = -1;
             return true;                     // 有结果集
         } else {
@@ -241,7 +261,8 @@ public class ProxyPreparedStatement implements PreparedStatement {
      * ------------------------------------------------------------ */
     @Override
     public void addBatch() throws SQLException {
-        throw notSupported();
+        ensureOpen();
+        batch.add(new HashMap<>(params));
     }
 
     @Override
@@ -271,6 +292,7 @@ public class ProxyPreparedStatement implements PreparedStatement {
     public void close() throws SQLException {
         if (closed) return;
         params.clear();
+        batch.clear();
         if (currentRs != null) currentRs.close();
         closed = true;
     }
@@ -355,11 +377,61 @@ public class ProxyPreparedStatement implements PreparedStatement {
     }
 
     @Override
-    public void clearBatch() { /* ignore */ }
+    public void clearBatch() {
+        batch.clear();
+    }
 
+    /**
+     * 以 EXEC_BATCH 发送累积的参数组：每 {@link #BATCH_CHUNK_ROWS} 组一条消息，全部发出后再依次等待结果
+     */
     @Override
     public int[] executeBatch() throws SQLException {
-        throw notSupported();
+        ensureOpen();
+        if (batch.isEmpty()) {
+            return new int[0];
+        }
+        try {
+            List<CompletableFuture<Response>> calls = new ArrayList<>();
+            for (int from = 0; from < batch.size(); from += BATCH_CHUNK_ROWS) {
+                Request req = new Request();
+                req.setType(MessageType.EXEC_BATCH);
+                req.setConnId(connId);
+                req.setSql(sql);
+                req.setBatchParams(new ArrayList<>(batch.subList(from, Math.min(batch.size(), from + BATCH_CHUNK_ROWS))));
+                calls.add(channel.send(req));
+            }
+            int[] counts = new int[batch.size()];
+            SQLException failure = null;
+            for (int i = 0; i < calls.size(); i++) {
+                int from = i * BATCH_CHUNK_ROWS;
+                int to = Math.min(batch.size(), from + BATCH_CHUNK_ROWS);
+                Response resp = ProxyChannel.await(calls.get(i));
+                if (resp.getType() == MessageType.EXCEPTION) {
+                    // 分片彼此独立执行；服务端带回了驱动的逐行结果就用它，否则整个分片标记为 EXECUTE_FAILED
+                    int[] part = resp.getUpdateCounts();
+                    Arrays.fill(counts, from, to, Statement.EXECUTE_FAILED);
+                    if (part != null) {
+                        System.arraycopy(part, 0, counts, from, Math.min(part.length, to - from));
+                    }
+                    if (failure == null) {
+                        SQLException e = resp.getException();
+                        failure = e != null ? e : new SQLException("Unknown error from proxy server");
+                    }
+                } else {
+                    System.arraycopy(resp.getUpdateCounts(), 0, counts, from, to - from);
+                }
+            }
+            if (failure != null) {
+                throw new BatchUpdateException(failure.getMessage(), failure.getSQLState(),
+                        failure.getErrorCode(), counts, failure);
+            }
+            updateCount = -1;
+            return counts;
+        } catch (IOException ex) {
+            throw new SQLException("I/O error communicating with proxy", ex);
+        } finally {
+            batch.clear();
+        }
     }
 
     @Override
@@ -417,12 +489,12 @@ public class ProxyPreparedStatement implements PreparedStatement {
 
     @Override
     public int getResultSetConcurrency() {
-        return ResultSet.CONCUR_READ_ONLY;
+        return resultSetConcurrency;
     }
 
     @Override
     public int getResultSetType() {
-        return ResultSet.TYPE_FORWARD_ONLY;
+        return resultSetType;
     }
 
     @Override
@@ -435,11 +507,16 @@ public class ProxyPreparedStatement implements PreparedStatement {
 
     @Override
     public int getFetchSize() {
-        return 0;
+        return fetchSize;
     }
 
     @Override
-    public void setFetchSize(int rows) { /* ignore */ }
+    public void setFetchSize(int rows) throws SQLException {
+        if (rows < 0) {
+            throw new SQLException("Fetch size must be >= 0: " + rows);
+        }
+        this.fetchSize = rows;
+    }
 
     /* ------------------------------------------------------------
      * Wrapper
@@ -4,6 +4,7 @@ package com.seu.jdbcproxy.tester;
 import com.seu.jdbcproxy.pojo.MessageType;
 import com.seu.jdbcproxy.pojo.Request;
 import com.seu.jdbcproxy.pojo.Response;
+import com.seu.jdbcproxy.pojo.RowBatch;
 
 import java.io.*;
 import java.math.BigDecimal;
@@ -11,20 +12,28 @@ import java.net.URL;
 import java.sql.*;
 import java.sql.Date;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 /**
  * Proxy ResultSet：把服务器返回的行缓存到本地；游标前移时如需更多数据再 FETCH_ROWS。
+ * 服务端返回列式批次（RowBatch）时直接在批次上移动游标，getInt / getLong / getDouble 不经过装箱。
+ * <p>
+ * 连接开启预取（URL 参数 prefetch=N）时，在应用读取当前批次的同时保持至多 N 个 FETCH_ROWS 在途，
+ * 本地最多缓存当前批次加 N 个批次；某个批次表明已无更多行后，其后的预取响应直接丢弃。
+ * <p>
+ * 每个 FETCH_ROWS 的行数取 setFetchSize 的值；未设置且连接开启自适应（URL 参数 adaptiveFetch=true）时
+ * 由 {@link AdaptiveFetchSize} 按字节预算与往返时延决定，否则为 {@value #DEFAULT_FETCH_SIZE}。
  */
 public class ProxyResultSet implements ResultSet {
 
     /* ------------------------------------------------------------
      * Immutable fields
      * ------------------------------------------------------------ */
-    private final ObjectInputStream  in;
-    private final ObjectOutputStream out;
+    private final ProxyChannel channel;
     private final String connId;
     private final ProxyConnection parentConn;
+    private final String resultSetId;
     private final List<String> columnNames;
 
     /* ------------------------------------------------------------
@@ -33,31 +42,73 @@ public class ProxyResultSet implements ResultSet {
     private final List<List<Object>> buffer;  // 当前批次
     private Iterator<List<Object>>   iter;    // buffer's iterator
     private List<Object>             currentRow; // 指向 iter 当前元素
+    private RowBatch batch;         // 列式批次，非 null 时替代 buffer
+    private int batchRow = -1;      // batch 中的当前行（0-based）
+    private boolean onRow = false;  // 游标是否停在有效行上
+    private boolean lastWasNull = false;
     private boolean hasMore;    // 服务器端还有剩余行
     private boolean closed = false;
     private int rowIndex = 0;   // 1‑based row number, per JDBC
-
-    private static final int DEFAULT_FETCH_SIZE = 100;
+    private final int prefetchDepth;  // 在途 FETCH_ROWS 上限，0 表示不预取
+    private final ArrayDeque<CompletableFuture<Response>> prefetched = new ArrayDeque<>();
+    private int fetchSize;      // 应用设置的批次行数，0 表示未设置
+    private final AdaptiveFetchSize adaptive;  // 未开启自适应时为 null
+    private final int type;
+    private final int concurrency;
+
+    static final int DEFAULT_FETCH_SIZE = 100;
     private static final Logger LOG = Logger.getLogger("TcpProxyResultSet");
 
     /* ------------------------------------------------------------
      * Constructor
      * ------------------------------------------------------------ */
-    public ProxyResultSet(ObjectInputStream in,
-                             ObjectOutputStream out,
+    public ProxyResultSet(ProxyChannel channel,
+                             String connId,
+                             Response first,
+                             ProxyConnection parentConn) {
+        this(channel, connId, first, parentConn, 0, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+
+    /**
+     * @param fetchSize 所属语句的 setFetchSize，0 表示未设置
+     * @param type      所属语句要求的结果集类型（服务端据此创建结果集）
+     */
+    public ProxyResultSet(ProxyChannel channel,
                              String connId,
-                             List<List<Object>> firstRows,
-                             boolean hasMore,
+                             Response first,
                              ProxyConnection parentConn,
-                             List<String> columnNames) {
-        this.in   = in;
-        this.out  = out;
+                             int fetchSize,
+                             int type,
+                             int concurrency) {
+        this.channel = channel;
         this.connId = connId;
-        this.buffer = new ArrayList<>(firstRows);
+        this.resultSetId = first.getResultSetId();
+        this.batch = first.getBatch();
+        this.buffer = (batch == null && first.getRows() != null) ? new ArrayList<>(first.getRows()) : new ArrayList<>();
         this.iter   = buffer.iterator();
-        this.hasMore = hasMore;
+        this.hasMore = first.isHasMoreRows();
         this.parentConn = parentConn;
-        this.columnNames = columnNames;
+        this.columnNames = first.getColumnNames() != null ? first.getColumnNames() : Collections.emptyList();
+        this.prefetchDepth = parentConn != null ? parentConn.getPrefetchDepth() : 0;
+        this.fetchSize = fetchSize;
+        this.type = type;
+        this.concurrency = concurrency;
+        this.adaptive = parentConn != null && parentConn.isAdaptiveFetch()
+                ? new AdaptiveFetchSize(parentConn.getFetchBytes()) : null;
+        if (adaptive != null) {
+            // 首个批次的耗时包含查询执行，只用来估计行宽
+            observe(first, -1);
+        }
+    }
+
+    /**
+     * 判断 EXEC_QUERY 的响应是否带有非空结果集
+     */
+    static boolean hasRows(Response resp) {
+        if (resp.getBatch() != null) {
+            return resp.getBatch().getRowCount() > 0;
+        }
+        return resp.getRows() != null && !resp.getRows().isEmpty();
     }
 
     /* ------------------------------------------------------------
@@ -67,43 +118,125 @@ public class ProxyResultSet implements ResultSet {
         if (closed) throw new SQLException("ResultSet closed");
     }
 
+    private Request fetchRequest() {
+        Request q = new Request();
+        q.setType(MessageType.FETCH_ROWS);
+        q.setConnId(connId);
+        q.setResultSetId(resultSetId);
+        q.setFetchSize(this.getFetchSize());
+        return q;
+    }
+
+    private void observe(Response resp, long rttNanos) {
+        if (resp.getBatch() != null) {
+            adaptive.observe(resp.getBatch().getRowCount(), AdaptiveFetchSize.estimateBytes(resp.getBatch()), rttNanos);
+        } else if (resp.getRows() != null) {
+            adaptive.observe(resp.getRows().size(), AdaptiveFetchSize.estimateBytes(resp.getRows()), rttNanos);
+        }
+    }
+
+    /**
+     * 补足在途的预取请求；服务端按顺序处理，响应顺序即批次顺序
+     */
+    private void fillPrefetch() throws SQLException {
+        try {
+            while (prefetched.size() < prefetchDepth) {
+                prefetched.add(channel.send(fetchRequest()));
+            }
+        } catch (IOException ex) {
+            throw new SQLException("I/O error during FETCH_ROWS", ex);
+        }
+    }
+
     private void fetchNextBatch() throws SQLException {
         if (!hasMore) return;
         try {
-            Request q = new Request();
-            q.setType(MessageType.FETCH_ROWS);
-            q.setConnId(connId);
-            q.setFetchSize(this.getFetchSize());
-            //q.setFetchSize(DEFAULT_FETCH_SIZE);
-
-            out.writeObject(q);
-            out.flush();
-
-            Response resp = (Response) in.readObject();
+            Response resp;
+            long rtt = -1;
+            if (prefetchDepth > 0) {
+                // 流水线中的请求在服务端排队，耗时不代表往返时延
+                fillPrefetch();
+                resp = ProxyChannel.await(prefetched.poll());
+            } else {
+                long start = System.nanoTime();
+                resp = channel.roundTrip(fetchRequest());
+                rtt = System.nanoTime() - start;
+            }
             if (resp.getType() == MessageType.EXCEPTION) {
+                prefetched.clear();
                 SQLException e = resp.getException();
                 throw (e != null ? e : new SQLException("Error fetching rows from proxy"));
             }
+            if (adaptive != null) {
+                observe(resp, rtt);
+            }
 
             buffer.clear();
-            buffer.addAll(resp.getRows());
+            batch = resp.getBatch();
+            batchRow = -1;
+            if (batch == null && resp.getRows() != null) {
+                buffer.addAll(resp.getRows());
+            }
             iter = buffer.iterator();
             hasMore = resp.isHasMoreRows();
+            if (!hasMore) {
+                // 越过结果集末尾的预取响应没有意义（服务端可能已释放该结果集）
+                prefetched.clear();
+            } else if (prefetchDepth > 0) {
+                fillPrefetch();
+            }
 
-        } catch (IOException | ClassNotFoundException ex) {
+        } catch (IOException ex) {
             throw new SQLException("I/O error during FETCH_ROWS", ex);
         }
     }
 
-    private Object getCol(int columnIndex) throws SQLException {
+    /**
+     * 校验游标与列号，返回 0-based 列号
+     */
+    private int checkCol(int columnIndex) throws SQLException {
         ensureOpen();
-        if (currentRow == null)
+        if (!onRow)
             throw new SQLException("No current row (did you call next()?)");
 
-        if (columnIndex < 1 || columnIndex > currentRow.size())
+        int width = (batch != null ? batch.getColumnCount() : currentRow.size());
+        if (columnIndex < 1 || columnIndex > width)
             throw new SQLException("Column index out of bounds: " + columnIndex);
 
-        return currentRow.get(columnIndex - 1);
+        return columnIndex - 1;
+    }
+
+    private Object getCol(int columnIndex) throws SQLException {
+        int c = checkCol(columnIndex);
+        Object val = (batch != null ? batch.getObject(batchRow, c) : currentRow.get(c));
+        lastWasNull = (val == null);
+        return val;
+    }
+
+    /**
+     * 列式批次上判断当前值是否为 null，并记录 wasNull
+     */
+    private boolean batchNull(int c) {
+        lastWasNull = batch.isNull(batchRow, c);
+        return lastWasNull;
+    }
+
+    /**
+     * 在当前缓冲（batch 或 buffer）中前移一行
+     */
+    private boolean advance() {
+        if (batch != null) {
+            if (batchRow + 1 < batch.getRowCount()) {
+                batchRow++;
+                return true;
+            }
+            return false;
+        }
+        if (iter.hasNext()) {
+            currentRow = iter.next();
+            return true;
+        }
+        return false;
     }
 
     private static SQLFeatureNotSupportedException notSupported() {
@@ -124,10 +257,14 @@ public class ProxyResultSet implements ResultSet {
     @Override
     public boolean next() throws SQLException {
         ensureOpen();
+        if (hasMore && prefetched.size() < prefetchDepth) {
+            // 首个批次还在读取时就开始预取后续批次
+            fillPrefetch();
+        }
 
         // 1) 如果 buffer 还有行
-        if (iter.hasNext()) {
-            currentRow = iter.next();
+        if (advance()) {
+            onRow = true;
             rowIndex++;
             return true;
         }
@@ -135,20 +272,36 @@ public class ProxyResultSet implements ResultSet {
         // 2) 尝试从服务器 fetch
         if (hasMore) {
             fetchNextBatch();
-            if (iter.hasNext()) {
-                currentRow = iter.next();
+            if (advance()) {
+                onRow = true;
                 rowIndex++;
                 return true;
             }
         }
         // 3) no more rows
         currentRow = null;
+        onRow = false;
         return false;
     }
 
     @Override public void close() {
+        if (!closed && hasMore && resultSetId != null) {
+            // 服务端结果集尚未读完，通知其释放（事务池模式下据此归还后端连接）；不等待响应
+            Request q = new Request();
+            q.setType(MessageType.CLOSE_RESULT_SET);
+            q.setConnId(connId);
+            q.setResultSetId(resultSetId);
+            try {
+                channel.send(q);
+            } catch (IOException ignored) {
+                // 通道已断开，服务端会随之清理
+            }
+        }
         closed = true;
         buffer.clear();
+        batch = null;
+        // 在途的预取响应到达后由读线程完成，无人等待即被回收
+        prefetched.clear();
     }
 
     @Override public boolean isClosed() { return closed; }
@@ -378,19 +531,25 @@ public class ProxyResultSet implements ResultSet {
      * ------------------------------------------------------------ */
     @Override
     public String getString(int columnIndex) throws SQLException {
+        if (batch != null) {
+            int c = checkCol(columnIndex);
+            return batchNull(c) ? null : batch.getString(batchRow, c);
+        }
         Object val = getCol(columnIndex);
         return (val != null ? val.toString() : null);
     }
 
     @Override
     public int getInt(int columnIndex) throws SQLException {
-        Object val = getCol(columnIndex);
-        return (val instanceof Number n) ? n.intValue()
-                : (val == null ? 0 : Integer.parseInt(val.toString()));
+        return (int) getLong(columnIndex);
     }
 
     @Override
     public long getLong(int columnIndex) throws SQLException {
+        if (batch != null) {
+            int c = checkCol(columnIndex);
+            return batchNull(c) ? 0L : batch.getLong(batchRow, c);
+        }
         Object val = getCol(columnIndex);
         return (val instanceof Number n) ? n.longValue()
                 : (val == null ? 0L : Long.parseLong(val.toString()));
@@ -398,12 +557,18 @@ public class ProxyResultSet implements ResultSet {
 
     @Override
     public float getFloat(int columnIndex) throws SQLException {
-        return 0;
+        return (float) getDouble(columnIndex);
     }
 
     @Override
     public double getDouble(int columnIndex) throws SQLException {
-        return 0;
+        if (batch != null) {
+            int c = checkCol(columnIndex);
+            return batchNull(c) ? 0d : batch.getDouble(batchRow, c);
+        }
+        Object val = getCol(columnIndex);
+        return (val instanceof Number n) ? n.doubleValue()
+                : (val == null ? 0d : Double.parseDouble(val.toString()));
     }
 
     @Override
@@ -418,18 +583,22 @@ public class ProxyResultSet implements ResultSet {
 
     @Override
     public boolean getBoolean(int columnIndex) throws SQLException {
+        if (batch != null) {
+            int c = checkCol(columnIndex);
+            return !batchNull(c) && batch.getBoolean(batchRow, c);
+        }
         Object val = getCol(columnIndex);
         return (val instanceof Boolean b) ? b : Boolean.parseBoolean(String.valueOf(val));
     }
 
     @Override
     public byte getByte(int columnIndex) throws SQLException {
-        return 0;
+        return (byte) getLong(columnIndex);
     }
 
     @Override
     public short getShort(int columnIndex) throws SQLException {
-        return 0;
+        return (short) getLong(columnIndex);
     }
 
     @Override public Object getObject(int columnIndex) throws SQLException {
@@ -494,7 +663,7 @@ public class ProxyResultSet implements ResultSet {
     /* ------------------------------------------------------------
      * Cursor / meta info
      * ------------------------------------------------------------ */
-    @Override public boolean wasNull() { return false; }
+    @Override public boolean wasNull() { return lastWasNull; }
     @Override public int getRow() { return rowIndex; }
 
     @Override
@@ -956,16 +1125,21 @@ public class ProxyResultSet implements ResultSet {
     /* ------------------------------------------------------------
      * Fetch size / direction — 简单实现
      * ------------------------------------------------------------ */
-    @Override public int getFetchSize() { return DEFAULT_FETCH_SIZE; }
+    @Override public int getFetchSize() {
+        if (fetchSize > 0) {
+            return fetchSize;
+        }
+        return adaptive != null ? adaptive.rows() : DEFAULT_FETCH_SIZE;
+    }
 
     @Override
     public int getType() throws SQLException {
-        return 0;
+        return type;
     }
 
     @Override
     public int getConcurrency() throws SQLException {
-        return 0;
+        return concurrency;
     }
 
     @Override
@@ -1003,7 +1177,12 @@ public class ProxyResultSet implements ResultSet {
 
     }
 
-    @Override public void setFetchSize(int rows) { /* ignore */ }
+    @Override public void setFetchSize(int rows) throws SQLException {
+        if (rows < 0) {
+            throw new SQLException("Fetch size must be >= 0: " + rows);
+        }
+        this.fetchSize = rows;
+    }
     @Override public int getFetchDirection() { return ResultSet.FETCH_FORWARD; }
     @Override public void setFetchDirection(int direction) { /* ignore */ }
 
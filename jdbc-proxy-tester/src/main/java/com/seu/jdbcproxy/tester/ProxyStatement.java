@@ -7,8 +7,6 @@ import com.seu.jdbcproxy.pojo.Request;
 import com.seu.jdbcproxy.pojo.Response;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -23,8 +21,7 @@ public class ProxyStatement implements Statement {
     /* ------------------------------------------------------------
      * Immutable fields
      * ------------------------------------------------------------ */
-    private final ObjectInputStream  in;
-    private final ObjectOutputStream out;
+    private final ProxyChannel channel;
     private final String connId;
     private final ProxyConnection parentConn;
 
@@ -33,6 +30,10 @@ public class ProxyStatement implements Statement {
      * ------------------------------------------------------------ */
     private boolean closed = false;
     private int maxRows = 0;
+    private int fetchSize = 0;   // 0 表示未设置，由结果集决定批次行数
+    // 客户端要求的结果集类型与并发模式，随 EXEC_QUERY 发给服务端；默认只进只读，服务端可流式读取
+    private final int resultSetType;
+    private final int resultSetConcurrency;
     private int queryTimeout = 0;
     private int updateCount = -1;
     private ProxyResultSet currentRs;
@@ -47,14 +48,22 @@ public class ProxyStatement implements Statement {
     /* ------------------------------------------------------------
      * Constructor
      * ------------------------------------------------------------ */
-    public ProxyStatement(ObjectInputStream in,
-                             ObjectOutputStream out,
+    public ProxyStatement(ProxyChannel channel,
                              String connId,
                              ProxyConnection parentConn) {
-        this.in = in;
-        this.out = out;
+        this(channel, connId, parentConn, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+
+    public ProxyStatement(ProxyChannel channel,
+                             String connId,
+                             ProxyConnection parentConn,
+                             int resultSetType,
+                             int resultSetConcurrency) {
+        this.channel = channel;
         this.connId = connId;
         this.parentConn = parentConn;
+        this.resultSetType = resultSetType;
+        this.resultSetConcurrency = resultSetConcurrency;
     }
 
     /* ------------------------------------------------------------
@@ -70,18 +79,18 @@ public class ProxyStatement implements Statement {
             req.setType(type);
             req.setConnId(connId);
             req.setSql(sql);
-            req.setFetchSize(maxRows);    // 若有 maxRows，可在服务器侧截断
-
-            out.writeObject(req);
-            out.flush();
+            req.setFetchSize(fetchSize);
+            if (type == MessageType.EXEC_QUERY) {
+                ProxyPreparedStatement.putResultSetMode(req, resultSetType, resultSetConcurrency);
+            }
 
-            Response resp = (Response) in.readObject();
+            Response resp = channel.roundTrip(req);
             if (resp.getType() == MessageType.EXCEPTION) {
                 SQLException e = resp.getException();
                 throw (e != null ? e : new SQLException("Unknown error from proxy server"));
             }
             return resp;
-        } catch (IOException | ClassNotFoundException ex) {
+        } catch (IOException ex) {
             throw new SQLException("I/O error communicating with proxy", ex);
         }
     }
@@ -99,10 +108,7 @@ public class ProxyStatement implements Statement {
         Response resp = send(sql, MessageType.EXEC_QUERY);
 
         this.updateCount = -1;
-        this.currentRs   = new ProxyResultSet(
-                in, out, connId,
-                resp.getRows(), resp.isHasMoreRows(),
-                parentConn,resp.getColumnNames());
+        this.currentRs   = new ProxyResultSet(channel, connId, resp, parentConn, fetchSize, resultSetType, resultSetConcurrency);
         return currentRs;
     }
 
@@ -121,11 +127,8 @@ public class ProxyStatement implements Statement {
         ensureOpen();
         Response resp = send(sql, MessageType.EXEC_QUERY);
 
-        if (resp.getRows() != null && !resp.getRows().isEmpty()) {
-            this.currentRs = new ProxyResultSet(
-                    in, out, connId,
-                    resp.getRows(), resp.isHasMoreRows(),
-                    parentConn,resp.getColumnNames());
+        if (ProxyResultSet.hasRows(resp)) {
+            this.currentRs = new ProxyResultSet(channel, connId, resp, parentConn, fetchSize, resultSetType, resultSetConcurrency);
             this.updateCount = -1;
             return true;            // 有结果集
         } else {
@@ -209,12 +212,15 @@ public class ProxyStatement implements Statement {
     }
 
     @Override public ResultSet getGeneratedKeys() throws SQLException { throw notSupported(); }
-    @Override public int getResultSetConcurrency() { return ResultSet.CONCUR_READ_ONLY; }
-    @Override public int getResultSetType() { return ResultSet.TYPE_FORWARD_ONLY; }
+    @Override public int getResultSetConcurrency() { return resultSetConcurrency; }
+    @Override public int getResultSetType() { return resultSetType; }
     @Override public void setFetchDirection(int direction) { /* ignore */ }
     @Override public int  getFetchDirection() { return ResultSet.FETCH_FORWARD; }
-    @Override public void setFetchSize(int rows) { /* ignore */ }
-    @Override public int  getFetchSize() { return 0; }
+    @Override public void setFetchSize(int rows) throws SQLException {
+        if (rows < 0) throw new SQLException("Fetch size must be >= 0: " + rows);
+        this.fetchSize = rows;
+    }
+    @Override public int  getFetchSize() { return fetchSize; }
     @Override public Connection getConnection() { return parentConn; }
 
     @Override
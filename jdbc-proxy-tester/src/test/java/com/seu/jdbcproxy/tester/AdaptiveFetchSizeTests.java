@@ -0,0 +1,99 @@
+package com.seu.jdbcproxy.tester;
+
+import com.seu.jdbcproxy.pojo.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveFetchSizeTests {
+
+    @Test
+    public void convergesToBandwidthDelayBudget() {
+        AdaptiveFetchSize sizing = new AdaptiveFetchSize(4 * 1024 * 1024);
+        // 固定延迟 1ms、带宽 100MB/s、每行 100 字节：稳定后传输时间约为 3 倍固定延迟，即约 300KB 一批
+        long latency = TimeUnit.MILLISECONDS.toNanos(1);
+        double bytesPerNano = 100e6 / 1e9;
+        int rowWidth = 100;
+        // 先用单行批次测出最小往返时延（约等于固定延迟）
+        sizing.observe(1, rowWidth, latency + (long) (rowWidth / bytesPerNano));
+        for (int i = 0; i < 50; i++) {
+            int rows = sizing.rows();
+            long bytes = (long) rows * rowWidth;
+            sizing.observe(rows, bytes, latency + (long) (bytes / bytesPerNano));
+        }
+        double target = 3 * latency * bytesPerNano;
+        assertEquals(target, sizing.budget(), target * 0.05);
+        assertEquals(target / rowWidth, sizing.rows(), target / rowWidth * 0.05);
+    }
+
+    @Test
+    public void clampsBudgetAndRows() {
+        AdaptiveFetchSize sizing = new AdaptiveFetchSize(256 * 1024);
+        // 传输时间远大于固定延迟：预算收缩到下限
+        sizing.observe(100, 100, 1_000);
+        sizing.observe(100, 100, 1_000_000);
+        assertEquals(AdaptiveFetchSize.MIN_BYTES, sizing.budget());
+        // 极宽的行也至少取 MIN_ROWS 行
+        sizing.observe(1, 10 * 1024 * 1024, 1_000_000);
+        sizing.observe(1, 10 * 1024 * 1024, 1_000_000);
+        assertEquals(AdaptiveFetchSize.MIN_ROWS, sizing.rows());
+
+        // 固定延迟占主导：预算放大到上限
+        AdaptiveFetchSize fast = new AdaptiveFetchSize(256 * 1024);
+        fast.observe(1000, 1000 * 200, 1_000);
+        fast.observe(1000, 1000 * 200, 1_000);
+        assertEquals(256 * 1024, fast.budget());
+        // 上限低于 MIN_BYTES 时按 MIN_BYTES
+        assertEquals(AdaptiveFetchSize.MIN_BYTES, new AdaptiveFetchSize(1).budget());
+
+        // 极窄的行不超过 MAX_ROWS
+        AdaptiveFetchSize narrow = new AdaptiveFetchSize(64 * 1024 * 1024);
+        narrow.observe(10_000_000, 10_000_000, 1_000);
+        assertEquals(AdaptiveFetchSize.MAX_ROWS, narrow.rows());
+    }
+
+    @Test
+    public void firstObservationOnlyEstimatesRowWidth() {
+        AdaptiveFetchSize sizing = new AdaptiveFetchSize(1024 * 1024);
+        assertEquals(ProxyResultSet.DEFAULT_FETCH_SIZE, sizing.rows());
+        int budget = sizing.budget();
+        // 首个批次的耗时包含查询执行，不参与预算调整
+        sizing.observe(100, 100 * 64, -1);
+        assertEquals(budget, sizing.budget());
+        assertEquals(budget / 64, sizing.rows());
+        // 空批次不影响估计
+        sizing.observe(0, 0, 1_000);
+        assertEquals(budget, sizing.budget());
+    }
+
+    @Test
+    public void explicitFetchSizeOverridesAdaptive() throws Exception {
+        ProxyConnection conn = new ProxyConnection(null, "c1");
+        conn.setAdaptiveFetch(true);
+        Response first = new Response();
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            rows.add(List.of("x".repeat(60)));
+        }
+        first.setRows(rows);
+        first.setColumnNames(List.of("v"));
+        first.setHasMoreRows(true);
+
+        ProxyResultSet rs = new ProxyResultSet(null, "c1", first, conn);
+        int adaptive = rs.getFetchSize();
+        // 64KB 预算 / 每行约 64 字节
+        assertEquals(1024, adaptive);
+        rs.setFetchSize(7);
+        assertEquals(7, rs.getFetchSize());
+        rs.setFetchSize(0);
+        assertEquals(adaptive, rs.getFetchSize());
+
+        // 语句上设置的 fetchSize 同样优先
+        assertEquals(25, new ProxyResultSet(null, "c1", first, conn, 25,
+                java.sql.ResultSet.TYPE_FORWARD_ONLY, java.sql.ResultSet.CONCUR_READ_ONLY).getFetchSize());
+    }
+}
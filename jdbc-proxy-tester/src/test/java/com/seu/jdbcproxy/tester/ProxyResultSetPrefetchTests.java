@@ -0,0 +1,173 @@
+package com.seu.jdbcproxy.tester;
+
+import com.seu.jdbcproxy.pojo.MessageType;
+import com.seu.jdbcproxy.pojo.Request;
+import com.seu.jdbcproxy.pojo.Response;
+import com.seu.jdbcproxy.protocol.FrameCodec;
+import com.seu.jdbcproxy.protocol.MessageCodecs;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProxyResultSetPrefetchTests {
+
+    private FakeServer server;
+    private ProxyChannel channel;
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void consumesPrefetchedBatchesInOrder() throws Exception {
+        // 第 k 个 FETCH_ROWS 返回 [3k, 3k+3)，第 3 个为最后一批
+        ProxyResultSet rs = open(k -> k <= 3 ? rows(3 * k, 3, k < 3) : rows(-1, 1, false));
+        assertEquals(range(0, 12), readAll(rs));
+        assertFalse(rs.next());
+    }
+
+    @Test
+    public void dropsPrefetchedResponsesAfterLastBatch() throws Exception {
+        // 最后一批之后的预取请求得到伪造的「还有更多行」响应，客户端不应读到它们
+        ProxyResultSet rs = open(k -> k <= 2 ? rows(3 * k, 3, k < 2) : rows(1000 + k, 1, true));
+        assertEquals(range(0, 9), readAll(rs));
+        awaitIdle();
+        int fetches = server.fetches.get();
+        assertTrue(fetches > 2, "prefetch should have run past the last batch");
+        assertFalse(rs.next());
+        awaitIdle();
+        assertEquals(fetches, server.fetches.get());
+    }
+
+    @Test
+    public void prefetchedExceptionClearsQueue() throws Exception {
+        // 第 2 个 FETCH_ROWS 失败，之后的请求各返回一行，值为请求序号
+        ProxyResultSet rs = open(k -> k == 1 ? rows(3, 3, true)
+                : k == 2 ? failure() : rows(k, 1, true));
+        List<Object> seen = new ArrayList<>();
+        SQLException error = assertThrows(SQLException.class, () -> {
+            while (rs.next()) {
+                seen.add(rs.getObject(1));
+            }
+        });
+        assertEquals("boom", error.getMessage());
+        assertEquals(range(0, 6), seen);
+        // 失败时第 3 个请求已在途，其响应随队列一起丢弃；下一行来自失败后新发出的请求
+        assertTrue(rs.next());
+        assertEquals(4, rs.getObject(1));
+    }
+
+    private ProxyResultSet open(IntFunction<Response> script) throws IOException {
+        server = new FakeServer(script);
+        channel = new ProxyChannel(new Socket(InetAddress.getLoopbackAddress(), server.port()));
+        ProxyConnection conn = new ProxyConnection(channel, "c1");
+        conn.setPrefetchDepth(2);
+        Response first = rows(0, 3, true);
+        first.setResultSetId("rs1");
+        first.setColumnNames(List.of("v"));
+        return new ProxyResultSet(channel, "c1", first, conn);
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (channel.getInFlightCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, channel.getInFlightCount());
+    }
+
+    private static List<Object> readAll(ProxyResultSet rs) throws SQLException {
+        List<Object> values = new ArrayList<>();
+        while (rs.next()) {
+            values.add(rs.getObject(1));
+        }
+        return values;
+    }
+
+    private static List<Object> range(int from, int to) {
+        List<Object> values = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    private static Response rows(int from, int count, boolean hasMore) {
+        Response resp = new Response();
+        resp.setType(MessageType.FETCH_ROWS);
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(List.of(from + i));
+        }
+        resp.setRows(rows);
+        resp.setHasMoreRows(hasMore);
+        return resp;
+    }
+
+    private static Response failure() {
+        Response resp = new Response();
+        resp.setType(MessageType.EXCEPTION);
+        resp.setException(new SQLException("boom", "HY000"));
+        return resp;
+    }
+
+    /**
+     * 按脚本应答 FETCH_ROWS 的假服务端：第 k 个请求（从 1 开始）的响应由 script 给出，带回原 requestId
+     */
+    private static final class FakeServer implements Closeable {
+        private final ServerSocket listener;
+        private final AtomicInteger fetches = new AtomicInteger();
+        private final Thread thread;
+
+        FakeServer(IntFunction<Response> script) throws IOException {
+            listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            thread = new Thread(() -> serve(script), "fake-proxy-server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int port() {
+            return listener.getLocalPort();
+        }
+
+        private void serve(IntFunction<Response> script) {
+            try (Socket s = listener.accept()) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                while (true) {
+                    Request req = (Request) FrameCodec.readFrame(in);
+                    if (req.getType() != MessageType.FETCH_ROWS) {
+                        continue;
+                    }
+                    Response resp = script.apply(fetches.incrementAndGet());
+                    resp.setRequestId(req.getRequestId());
+                    FrameCodec.writeFrame(out, MessageCodecs.JAVA, resp);
+                }
+            } catch (IOException ignored) {
+                // 客户端断开
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            listener.close();
+        }
+    }
+}